@@ -4,8 +4,6 @@ import java.io.File;
 import java.io.IOException;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutionException;
-import java.util.concurrent.Executors;
-import java.util.concurrent.Future;
 import java.util.function.Consumer;
 
 import org.apache.logging.log4j.LogManager;
@@ -13,10 +11,13 @@ import org.apache.logging.log4j.Logger;
 
 import esa.s1pdgs.cpoc.common.errors.AbstractCodedException;
 import esa.s1pdgs.cpoc.common.errors.InternalErrorException;
+import esa.s1pdgs.cpoc.common.utils.ProcessOutputPump;
+import esa.s1pdgs.cpoc.common.utils.ProcessOutputPump.Pump;
 import esa.s1pdgs.cpoc.compression.worker.config.CompressionWorkerConfigurationProperties;
 import esa.s1pdgs.cpoc.metadata.model.MissionId;
 import esa.s1pdgs.cpoc.mqi.model.queue.AbstractMessage;
 import esa.s1pdgs.cpoc.mqi.model.queue.util.CompressionEventUtil;
+import io.micrometer.core.instrument.Metrics;
 
 public class CompressExecutorCallable implements Callable<Void> {
 
@@ -109,17 +110,14 @@ public class CompressExecutorCallable implements Callable<Void> {
             builder.directory(new File(workDirectory));
             process = builder.start();
 
-            final Future<?> out = Executors.newSingleThreadExecutor().submit(
-            		new StreamGobbler(process.getInputStream(), stdOutConsumer)
-            );
-            final Future<?> err = Executors.newSingleThreadExecutor().submit(
-            		new StreamGobbler(process.getErrorStream(), stdErrConsumer)
-            );      
+            final Pump out = ProcessOutputPump.shared().pumpStdout(process, stdOutConsumer);
+            final Pump err = ProcessOutputPump.shared().pumpStderr(process, stdErrConsumer);
             r = process.waitFor();
 
             // wait for STDOUT/STDERR to be consumed
             out.get();
 			err.get();
+			recordOutput(binaryPath, out, err);
 
 		} catch (final InterruptedException ie) {
 			LOGGER.warn("[task {}] [workDirectory {}]  InterruptedException", binaryPath, workDirectory);
@@ -143,5 +141,16 @@ public class CompressExecutorCallable implements Callable<Void> {
         
         return new TaskResult(binaryPath, r);
     }
+
+	private void recordOutput(final String binaryPath, final Pump out, final Pump err) {
+		final String task = new File(binaryPath).getName();
+		final long lines = out.getLines() + err.getLines();
+		final long bytes = out.getBytes() + err.getBytes();
+		final long durationMs = Math.max(1, Math.max(out.getDurationMs(), err.getDurationMs()));
+		Metrics.counter("rs.compression.worker.task.output.lines", "task", task).increment(lines);
+		Metrics.counter("rs.compression.worker.task.output.bytes", "task", task).increment(bytes);
+		LOGGER.debug("Task {} wrote {} lines ({} bytes) in {} ms, {} lines/s", binaryPath, lines, bytes, durationMs,
+				lines * 1000 / durationMs);
+	}
 	
 }
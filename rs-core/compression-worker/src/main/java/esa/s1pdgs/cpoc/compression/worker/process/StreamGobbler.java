@@ -1,22 +0,0 @@
-package esa.s1pdgs.cpoc.compression.worker.process;
-
-import java.io.BufferedReader;
-import java.io.InputStream;
-import java.io.InputStreamReader;
-import java.util.function.Consumer;
-
-public class StreamGobbler implements Runnable {
-    private InputStream inputStream;
-    private Consumer<String> consumer;
- 
-    public StreamGobbler(InputStream inputStream, Consumer<String> consumer) {
-        this.inputStream = inputStream;
-        this.consumer = consumer;
-    }
- 
-    @Override
-    public void run() {
-        new BufferedReader(new InputStreamReader(inputStream)).lines()
-          .forEach(consumer);
-    }
-}
\ No newline at end of file
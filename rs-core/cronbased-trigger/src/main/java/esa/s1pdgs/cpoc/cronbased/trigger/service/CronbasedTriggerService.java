@@ -4,10 +4,12 @@ import java.time.LocalDateTime;
 import java.time.ZoneId;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.Date;
 import java.util.List;
 import java.util.Map.Entry;
 import java.util.UUID;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.Function;
 
 import org.apache.logging.log4j.LogManager;
@@ -121,18 +123,23 @@ public class CronbasedTriggerService implements Function<Message<?>, List<Messag
 		for (String satelliteId : satelliteIds) {
 			try {
 				LOGGER.debug("Retrieve new products from database");
-				List<SearchMetadata> products = this.metadataClient.searchInterval(timerProperties.getFamily(),
-						productType, intervalStart, intervalStop, satelliteId, timerProperties.getTimeliness());
-
-				String lastInsertionTime = null;
-
-				for (SearchMetadata product : products) {
-					LOGGER.info("Create CatalogEvent for product {}", product.getProductName());
-					CatalogEvent event = toCatalogEvent(timerProperties.getFamily(), productType, product);
-					result.add(MessageBuilder.withPayload(event).build());
-
-					lastInsertionTime = product.getInsertionTime();
-				}
+				List<Message<CatalogEvent>> events = new ArrayList<>();
+				AtomicReference<String> lastProductInsertion = new AtomicReference<>();
+
+				// The products are read one by one from the response, the events are only
+				// kept once all of them have been read
+				this.metadataClient.searchInterval(timerProperties.getFamily(), productType, intervalStart,
+						intervalStop, satelliteId, timerProperties.getTimeliness(), Collections.emptyList(),
+						product -> {
+							LOGGER.info("Create CatalogEvent for product {}", product.getProductName());
+							CatalogEvent event = toCatalogEvent(timerProperties.getFamily(), productType, product);
+							events.add(MessageBuilder.withPayload(event).build());
+
+							lastProductInsertion.set(product.getInsertionTime());
+						});
+				result.addAll(events);
+
+				String lastInsertionTime = lastProductInsertion.get();
 
 				// Update database entry, use intervalStop minus two seconds (to account for
 				// index refreshes) or lastInsertionTime, whichever is bigger.
@@ -1,12 +1,15 @@
 package esa.s1pdgs.cpoc.prip.worker.configuration;
 
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.web.client.RestTemplateBuilder;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
+import esa.s1pdgs.cpoc.metadata.client.MetadataCache;
 import esa.s1pdgs.cpoc.metadata.client.MetadataClient;
+import io.micrometer.core.instrument.MeterRegistry;
 
 @Configuration
 public class MetadataClientConfiguration {
@@ -26,19 +29,43 @@ public class MetadataClientConfiguration {
 	 */
 	private final int temporetryms;
 
+	/**
+	 * Maximal number of single product lookups kept in the cache, 0 to disable it
+	 */
+	private final int cacheMaxSize;
+
+	/**
+	 * Time in ms the metadata of a product is kept in the cache
+	 */
+	private final long cacheTtlMs;
+
+	/**
+	 * Time in ms products not found yet are kept in the cache
+	 */
+	private final long cacheShortTtlMs;
+
 	@Autowired
 	public MetadataClientConfiguration(@Value("${metadata.host}") final String metadataHostname,
 			@Value("${metadata.rest-api_nb-retry}") final int nbretry,
-			@Value("${metadata.rest-api_tempo-retry-ms}") final int temporetryms) {
+			@Value("${metadata.rest-api_tempo-retry-ms}") final int temporetryms,
+			@Value("${metadata.cache.max-size:10000}") final int cacheMaxSize,
+			@Value("${metadata.cache.ttl-ms:600000}") final long cacheTtlMs,
+			@Value("${metadata.cache.short-ttl-ms:2000}") final long cacheShortTtlMs) {
 
 		this.metadataHostname = metadataHostname;
 		this.nbretry = nbretry;
 		this.temporetryms = temporetryms;
+		this.cacheMaxSize = cacheMaxSize;
+		this.cacheTtlMs = cacheTtlMs;
+		this.cacheShortTtlMs = cacheShortTtlMs;
 	}
 	
 	@Bean
-	public MetadataClient metadataClient(final RestTemplateBuilder builder) {
-		return new MetadataClient(builder.build(), this.metadataHostname, this.nbretry, this.temporetryms);
+	public MetadataClient metadataClient(final RestTemplateBuilder builder,
+			final ObjectProvider<MeterRegistry> meterRegistry) {
+		final MetadataCache cache = new MetadataCache(this.cacheMaxSize, this.cacheTtlMs, this.cacheShortTtlMs,
+				meterRegistry.getIfAvailable());
+		return new MetadataClient(builder.build(), this.metadataHostname, this.nbretry, this.temporetryms, cache);
 	}
 
 }
@@ -1,6 +1,7 @@
 package esa.s1pdgs.cpoc.ipf.execution.worker.config;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -126,6 +127,55 @@ public class ApplicationProperties {
 	 */
 	private boolean overwriteShell = false;
 
+	/**
+	 * Upload the outputs listed in the list file while the IPF is still running
+	 */
+	private boolean incrementalUploadEnabled = false;
+
+	/**
+	 * Time an output and the list file shall remain unmodified before the output
+	 * is considered as complete by the incremental upload
+	 */
+	private long incrementalUploadQuietS = 30;
+
+	/**
+	 * Directory of the node-local cache of the inputs, shared by the jobs executed
+	 * on the node. The cache is disabled when empty. It shall be on the file
+	 * system of the working directory, otherwise the inputs are copied instead of
+	 * hard linked. When located in the working directory, it is kept when the
+	 * working directory is erased.
+	 */
+	private String inputCacheDir = "";
+
+	/**
+	 * Maximal size of the input cache in megabytes
+	 */
+	private long inputCacheMaxSizeMb = 10240;
+
+	/**
+	 * Families of the inputs kept in the input cache
+	 */
+	private List<ProductFamily> inputCacheFamilies = new ArrayList<>(
+			Arrays.asList(ProductFamily.AUXILIARY_FILE, ProductFamily.S3_AUX));
+
+	/**
+	 * Move the content of the working directory to a trash erased in background
+	 * instead of erasing it before taking the next job
+	 */
+	private boolean workdirReaperEnabled = true;
+
+	/**
+	 * Maximal number of files erased per second from the trash, not limited when
+	 * 0
+	 */
+	private long workdirReaperMaxFilesPerS = 2000;
+
+	/**
+	 * Free space of the working directory below which the trash is erased without
+	 * limit
+	 */
+	private long workdirReaperMinFreeMb = 10240;
+
 	/**
      * Default constructor
      */
@@ -403,4 +453,68 @@ public class ApplicationProperties {
 	public void setOverwriteShell(boolean overwriteShell) {
 		this.overwriteShell = overwriteShell;
 	}
+
+	public boolean isIncrementalUploadEnabled() {
+		return incrementalUploadEnabled;
+	}
+
+	public void setIncrementalUploadEnabled(boolean incrementalUploadEnabled) {
+		this.incrementalUploadEnabled = incrementalUploadEnabled;
+	}
+
+	public long getIncrementalUploadQuietS() {
+		return incrementalUploadQuietS;
+	}
+
+	public void setIncrementalUploadQuietS(long incrementalUploadQuietS) {
+		this.incrementalUploadQuietS = incrementalUploadQuietS;
+	}
+
+	public String getInputCacheDir() {
+		return inputCacheDir;
+	}
+
+	public void setInputCacheDir(String inputCacheDir) {
+		this.inputCacheDir = inputCacheDir;
+	}
+
+	public long getInputCacheMaxSizeMb() {
+		return inputCacheMaxSizeMb;
+	}
+
+	public void setInputCacheMaxSizeMb(long inputCacheMaxSizeMb) {
+		this.inputCacheMaxSizeMb = inputCacheMaxSizeMb;
+	}
+
+	public List<ProductFamily> getInputCacheFamilies() {
+		return inputCacheFamilies;
+	}
+
+	public void setInputCacheFamilies(List<ProductFamily> inputCacheFamilies) {
+		this.inputCacheFamilies = inputCacheFamilies;
+	}
+
+	public boolean isWorkdirReaperEnabled() {
+		return workdirReaperEnabled;
+	}
+
+	public void setWorkdirReaperEnabled(boolean workdirReaperEnabled) {
+		this.workdirReaperEnabled = workdirReaperEnabled;
+	}
+
+	public long getWorkdirReaperMaxFilesPerS() {
+		return workdirReaperMaxFilesPerS;
+	}
+
+	public void setWorkdirReaperMaxFilesPerS(long workdirReaperMaxFilesPerS) {
+		this.workdirReaperMaxFilesPerS = workdirReaperMaxFilesPerS;
+	}
+
+	public long getWorkdirReaperMinFreeMb() {
+		return workdirReaperMinFreeMb;
+	}
+
+	public void setWorkdirReaperMinFreeMb(long workdirReaperMinFreeMb) {
+		this.workdirReaperMinFreeMb = workdirReaperMinFreeMb;
+	}
 }
@@ -3,6 +3,7 @@ package esa.s1pdgs.cpoc.ipf.execution.worker.config;
 import java.util.List;
 import java.util.function.Function;
 
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -10,10 +11,13 @@ import org.springframework.messaging.Message;
 
 import esa.s1pdgs.cpoc.appstatus.AppStatus;
 import esa.s1pdgs.cpoc.common.CommonConfigurationProperties;
+import esa.s1pdgs.cpoc.ipf.execution.worker.job.WorkingDirectoryReaper;
+import esa.s1pdgs.cpoc.ipf.execution.worker.job.file.InputCache;
 import esa.s1pdgs.cpoc.ipf.execution.worker.service.ExecutionWorkerService;
 import esa.s1pdgs.cpoc.mqi.model.queue.CatalogJob;
 import esa.s1pdgs.cpoc.mqi.model.queue.IpfExecutionJob;
 import esa.s1pdgs.cpoc.obs_sdk.ObsClient;
+import io.micrometer.core.instrument.MeterRegistry;
 
 @Configuration
 public class ExecutionWorkerServiceConfiguration {
@@ -33,8 +37,25 @@ public class ExecutionWorkerServiceConfiguration {
 	@Autowired
 	private ObsClient obsClient;
 	
+	@Bean(destroyMethod = "stop")
+	public WorkingDirectoryReaper workingDirectoryReaper(final ObjectProvider<MeterRegistry> meterRegistry) {
+		if (!applicationProperties.isWorkdirReaperEnabled()) {
+			return WorkingDirectoryReaper.disabled();
+		}
+		final WorkingDirectoryReaper reaper = new WorkingDirectoryReaper(applicationProperties.getWorkingDir(),
+				applicationProperties.getWorkdirReaperMaxFilesPerS(),
+				applicationProperties.getWorkdirReaperMinFreeMb() * 1024 * 1024, meterRegistry.getIfAvailable());
+		reaper.start();
+		return reaper;
+	}
+
 	@Bean
-	public Function<IpfExecutionJob, List<Message<CatalogJob>>> executeJob() {
-		return new ExecutionWorkerService(commonProperties, appStatus, applicationProperties, devProperties, obsClient);
+	public Function<IpfExecutionJob, List<Message<CatalogJob>>> executeJob(
+			final ObjectProvider<MeterRegistry> meterRegistry, final WorkingDirectoryReaper workingDirectoryReaper) {
+		final InputCache inputCache = new InputCache(applicationProperties.getInputCacheDir(),
+				applicationProperties.getInputCacheMaxSizeMb() * 1024 * 1024,
+				applicationProperties.getInputCacheFamilies(), meterRegistry.getIfAvailable());
+		return new ExecutionWorkerService(commonProperties, appStatus, applicationProperties, devProperties, obsClient,
+				inputCache, workingDirectoryReaper);
 	}
 }
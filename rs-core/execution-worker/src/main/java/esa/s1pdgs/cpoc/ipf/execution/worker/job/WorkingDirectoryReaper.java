@@ -0,0 +1,297 @@
+package esa.s1pdgs.cpoc.ipf.execution.worker.job;
+
+import java.io.IOException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.function.LongSupplier;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Erases the content of the local working directory in background.
+ * <p>
+ * The content is first renamed into a trash directory located in the working
+ * directory, so the next job can start at once, then deleted by a background
+ * thread at a limited number of files per second. The limit is ignored while
+ * the free space of the file system is below the minimum. The trash is on disk,
+ * so what remains of it is deleted again after a restart.
+ */
+public class WorkingDirectoryReaper {
+
+	private static final Logger LOGGER = LogManager.getLogger(WorkingDirectoryReaper.class);
+
+	public static final String TRASH_DIR = ".trash";
+
+	private static final String LOST_AND_FOUND = "lost+found";
+
+	/**
+	 * Number of files deleted between two checks of the free space
+	 */
+	private static final int PRESSURE_CHECK_INTERVAL = 1000;
+
+	private final Path workingDir;
+
+	private final Path trashDir;
+
+	/**
+	 * Maximal number of files deleted per second, not limited when 0
+	 */
+	private final long maxFilesPerS;
+
+	/**
+	 * Free space in bytes below which the deletion is not limited
+	 */
+	private final long minFreeBytes;
+
+	private final LongSupplier clock;
+
+	private final BlockingQueue<Path> pending = new LinkedBlockingQueue<>();
+
+	private final Counter filesReclaimed;
+
+	private final Counter bytesReclaimed;
+
+	private Thread thread;
+
+	private long windowStart;
+
+	private long deletedInWindow;
+
+	private boolean underPressure;
+
+	public WorkingDirectoryReaper(final String workingDir, final long maxFilesPerS, final long minFreeBytes,
+			final MeterRegistry registry) {
+		this(workingDir, maxFilesPerS, minFreeBytes, registry, System::currentTimeMillis);
+	}
+
+	WorkingDirectoryReaper(final String workingDir, final long maxFilesPerS, final long minFreeBytes,
+			final MeterRegistry registry, final LongSupplier clock) {
+		this.workingDir = workingDir == null ? null : Paths.get(workingDir);
+		this.trashDir = workingDir == null ? null : this.workingDir.resolve(TRASH_DIR);
+		this.maxFilesPerS = maxFilesPerS;
+		this.minFreeBytes = minFreeBytes;
+		this.clock = clock;
+
+		final MeterRegistry meterRegistry = registry == null ? new SimpleMeterRegistry() : registry;
+		this.filesReclaimed = Counter.builder("rs.execution.worker.workdir.reaper.files")
+				.description("Number of files deleted from the working directory trash").register(meterRegistry);
+		this.bytesReclaimed = Counter.builder("rs.execution.worker.workdir.reaper.bytes")
+				.description("Number of bytes deleted from the working directory trash").register(meterRegistry);
+		Gauge.builder("rs.execution.worker.workdir.reaper.pending", pending, BlockingQueue::size)
+				.description("Number of working directory contents waiting for deletion").register(meterRegistry);
+	}
+
+	/**
+	 * A reaper erasing nothing in background
+	 */
+	public static WorkingDirectoryReaper disabled() {
+		return new WorkingDirectoryReaper(null, 0, 0, null);
+	}
+
+	public boolean isEnabled() {
+		return workingDir != null;
+	}
+
+	/**
+	 * Start the background deletion, beginning with the trash left by the
+	 * previous run
+	 */
+	public synchronized void start() {
+		if (!isEnabled() || thread != null) {
+			return;
+		}
+		if (Files.isDirectory(trashDir)) {
+			try (Stream<Path> list = Files.list(trashDir)) {
+				final List<Path> left = list.collect(Collectors.toList());
+				if (!left.isEmpty()) {
+					LOGGER.info("Resuming deletion of {} working directory contents in {}", left.size(), trashDir);
+				}
+				pending.addAll(left);
+			} catch (final IOException e) {
+				LOGGER.warn("Cannot list working directory trash {}: {}", trashDir, e.getMessage());
+			}
+		}
+		thread = new Thread(this::run, "workdir-reaper");
+		thread.setDaemon(true);
+		thread.start();
+	}
+
+	public synchronized void stop() {
+		if (thread != null) {
+			thread.interrupt();
+			thread = null;
+		}
+	}
+
+	/**
+	 * Move the content of the working directory to the trash
+	 *
+	 * @return the contents which could not be moved and remain in the working
+	 *         directory
+	 */
+	public List<Path> dispose() throws IOException {
+		return dispose(null);
+	}
+
+	/**
+	 * Move the content of the working directory to the trash, except the given
+	 * directory, e.g. the input cache, when located in the working directory. A
+	 * content containing the kept directory is not moved and returned with the
+	 * remaining ones.
+	 *
+	 * @param keptDir absolute and normalized path of the kept directory, or null
+	 * @return the contents which could not be moved and remain in the working
+	 *         directory
+	 */
+	public List<Path> dispose(final Path keptDir) throws IOException {
+		final List<Path> remaining = new ArrayList<>();
+		final List<Path> children = new ArrayList<>();
+		try (Stream<Path> list = Files.list(workingDir)) {
+			for (final Path child : list.filter(p -> !p.equals(trashDir)
+					&& !p.getFileName().toString().equals(LOST_AND_FOUND)).collect(Collectors.toList())) {
+				final Path normalized = child.toAbsolutePath().normalize();
+				if (keptDir == null || !keptDir.startsWith(normalized)) {
+					children.add(child);
+				} else if (!keptDir.equals(normalized)) {
+					remaining.add(child);
+				}
+			}
+		}
+		if (children.isEmpty()) {
+			return remaining;
+		}
+		final Path entry = trashDir.resolve(UUID.randomUUID().toString());
+		Files.createDirectories(entry);
+		for (final Path child : children) {
+			try {
+				Files.move(child, entry.resolve(child.getFileName()), StandardCopyOption.ATOMIC_MOVE);
+			} catch (final IOException e) {
+				LOGGER.warn("Cannot move {} to working directory trash: {}", child, e.getMessage());
+				remaining.add(child);
+			}
+		}
+		pending.add(entry);
+		return remaining;
+	}
+
+	private void run() {
+		try {
+			while (!Thread.currentThread().isInterrupted()) {
+				final Path entry = pending.take();
+				try {
+					delete(entry);
+				} catch (final RuntimeException e) {
+					LOGGER.error("Failed to erase working directory trash entry '{}': {}", entry, e.getMessage());
+				}
+			}
+		} catch (final InterruptedException e) {
+			LOGGER.debug("Working directory reaper stopped");
+		}
+	}
+
+	/**
+	 * Delete the trash entry with all its content
+	 */
+	final void delete(final Path entry) throws InterruptedException {
+		final long files = (long) filesReclaimed.count();
+		final long bytes = (long) bytesReclaimed.count();
+		windowStart = clock.getAsLong();
+		deletedInWindow = 0;
+		underPressure = isUnderPressure();
+		try {
+			Files.walkFileTree(entry, new SimpleFileVisitor<Path>() {
+				@Override
+				public FileVisitResult visitFile(final Path file, final BasicFileAttributes attrs) throws IOException {
+					try {
+						Files.delete(file);
+						filesReclaimed.increment();
+						bytesReclaimed.increment(attrs.size());
+						throttle();
+					} catch (final InterruptedException e) {
+						Thread.currentThread().interrupt();
+						return FileVisitResult.TERMINATE;
+					} catch (final IOException e) {
+						LOGGER.debug("Cannot delete {}: {}", file, e.getMessage());
+					}
+					return FileVisitResult.CONTINUE;
+				}
+
+				@Override
+				public FileVisitResult visitFileFailed(final Path file, final IOException e) {
+					return FileVisitResult.SKIP_SUBTREE;
+				}
+
+				@Override
+				public FileVisitResult postVisitDirectory(final Path dir, final IOException e) {
+					try {
+						Files.delete(dir);
+					} catch (final IOException ex) {
+						LOGGER.debug("Cannot delete {}: {}", dir, ex.getMessage());
+					}
+					return FileVisitResult.CONTINUE;
+				}
+			});
+		} catch (final IOException e) {
+			LOGGER.error("Failed to erase working directory trash entry '{}': {}", entry, e.getMessage());
+		}
+		if (Thread.currentThread().isInterrupted()) {
+			// resumed at next start
+			throw new InterruptedException();
+		}
+		LOGGER.info("Erased working directory trash entry {}: {} files, {} bytes in {} ms", entry,
+				(long) filesReclaimed.count() - files, (long) bytesReclaimed.count() - bytes,
+				clock.getAsLong() - windowStart);
+	}
+
+	/**
+	 * Sleep as long as needed to respect the maximal number of files deleted per
+	 * second
+	 */
+	private void throttle() throws InterruptedException {
+		deletedInWindow++;
+		if (deletedInWindow % PRESSURE_CHECK_INTERVAL == 0) {
+			underPressure = isUnderPressure();
+		}
+		if (maxFilesPerS <= 0 || underPressure) {
+			return;
+		}
+		final long wait = windowStart + deletedInWindow * 1000 / maxFilesPerS - clock.getAsLong();
+		if (wait > 0) {
+			Thread.sleep(wait);
+		}
+	}
+
+	private boolean isUnderPressure() {
+		if (minFreeBytes <= 0) {
+			return false;
+		}
+		try {
+			final boolean pressure = Files.getFileStore(workingDir).getUsableSpace() < minFreeBytes;
+			if (pressure && !underPressure) {
+				LOGGER.info("Free space of {} below {} bytes, erasing working directory trash without limit",
+						workingDir, minFreeBytes);
+			}
+			return pressure;
+		} catch (final IOException e) {
+			return false;
+		}
+	}
+}
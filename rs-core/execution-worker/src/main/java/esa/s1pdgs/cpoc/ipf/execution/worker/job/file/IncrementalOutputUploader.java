@@ -0,0 +1,264 @@
+package esa.s1pdgs.cpoc.ipf.execution.worker.job.file;
+
+import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_MODIFY;
+
+import java.io.File;
+import java.io.FileFilter;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+import java.util.stream.Stream;
+
+import org.apache.commons.io.filefilter.WildcardFileFilter;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import esa.s1pdgs.cpoc.common.errors.AbstractCodedException;
+import esa.s1pdgs.cpoc.common.errors.InternalErrorException;
+import esa.s1pdgs.cpoc.report.ReportingFactory;
+
+/**
+ * Uploads the outputs of the IPF while it is still running.
+ * <p>
+ * The working directory is watched and, each time the list file changes or at
+ * least once per quiet period, the outputs it lists are checked. An output is
+ * complete when neither the list file nor the output have been modified during
+ * the quiet period. An output modified after its upload is uploaded again when
+ * the IPF has finished. The complete outputs are then uploaded by the
+ * {@link OutputProcessor}, which keeps their messages to publish them when the
+ * job succeeds.
+ */
+public class IncrementalOutputUploader {
+
+	private static final Logger LOGGER = LogManager.getLogger(IncrementalOutputUploader.class);
+
+	/**
+	 * Interval in seconds at which a cancellation still waited for is logged
+	 */
+	private static final long CANCEL_LOG_INTERVAL_S = 30;
+
+	private final OutputProcessor outputProcessor;
+
+	private final OutputUtils outputUtils;
+
+	/**
+	 * Working directory
+	 */
+	private final String workDirectory;
+
+	/**
+	 * Name of the file where the outputs are listed from the working directory
+	 */
+	private final String listFile;
+
+	/**
+	 * Time in milliseconds a file shall remain unmodified to be complete
+	 */
+	private final long quietMs;
+
+	private final ReportingFactory reportingFactory;
+
+	private final LongSupplier clock;
+
+	private final ExecutorService executor = Executors.newSingleThreadExecutor();
+
+	/**
+	 * Lines of the list file already uploaded
+	 */
+	private final Set<String> handledLines = new HashSet<>();
+
+	private WatchService watchService;
+
+	private Future<?> future;
+
+	private volatile boolean stopped;
+
+	public IncrementalOutputUploader(final OutputProcessor outputProcessor, final OutputUtils outputUtils,
+			final String workDirectory, final String listFile, final long quietMs,
+			final ReportingFactory reportingFactory) {
+		this(outputProcessor, outputUtils, workDirectory, listFile, quietMs, reportingFactory,
+				System::currentTimeMillis);
+	}
+
+	IncrementalOutputUploader(final OutputProcessor outputProcessor, final OutputUtils outputUtils,
+			final String workDirectory, final String listFile, final long quietMs,
+			final ReportingFactory reportingFactory, final LongSupplier clock) {
+		this.outputProcessor = outputProcessor;
+		this.outputUtils = outputUtils;
+		this.workDirectory = workDirectory;
+		this.listFile = listFile;
+		this.quietMs = Math.max(1, quietMs);
+		this.reportingFactory = reportingFactory;
+		this.clock = clock;
+	}
+
+	/**
+	 * Start watching the working directory in background
+	 */
+	public void start() throws InternalErrorException {
+		try {
+			watchService = FileSystems.getDefault().newWatchService();
+			Paths.get(workDirectory).register(watchService, ENTRY_CREATE, ENTRY_MODIFY);
+		} catch (final IOException e) {
+			throw new InternalErrorException("Cannot watch working directory " + workDirectory + ": " + e.getMessage(),
+					e);
+		}
+		LOGGER.info("Starting incremental upload of the outputs of {}", workDirectory);
+		future = executor.submit(() -> {
+			watch();
+			return null;
+		});
+	}
+
+	/**
+	 * Stop watching the working directory, waiting for the upload in progress
+	 *
+	 * @throws AbstractCodedException if an upload failed
+	 */
+	public void stop() throws AbstractCodedException {
+		if (future == null) {
+			return;
+		}
+		stopped = true;
+		closeWatchService();
+		executor.shutdown();
+		try {
+			future.get();
+		} catch (final InterruptedException e) {
+			executor.shutdownNow();
+			throw new InternalErrorException(e.getMessage(), e);
+		} catch (final ExecutionException e) {
+			if (e.getCause() instanceof AbstractCodedException) {
+				throw (AbstractCodedException) e.getCause();
+			}
+			throw new InternalErrorException("Incremental upload failed: " + e.getCause().getMessage(), e.getCause());
+		}
+	}
+
+	/**
+	 * Stop watching the working directory and interrupt the upload in progress,
+	 * waiting until it is aborted so the working directory is not read anymore
+	 * when this method returns
+	 *
+	 * @param timeoutS maximal time in seconds to wait for the upload to be
+	 *                 aborted, after which the cancellation goes on anyway
+	 */
+	public void cancel(final long timeoutS) {
+		stopped = true;
+		closeWatchService();
+		executor.shutdownNow();
+		try {
+			final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(Math.max(0, timeoutS));
+			long remainingNs = deadline - System.nanoTime();
+			while (!executor.awaitTermination(Math.min(TimeUnit.SECONDS.toNanos(CANCEL_LOG_INTERVAL_S), remainingNs),
+					TimeUnit.NANOSECONDS)) {
+				remainingNs = deadline - System.nanoTime();
+				if (remainingNs <= 0) {
+					LOGGER.error("Incremental upload of the outputs of {} not aborted within {} s, going on",
+							workDirectory, timeoutS);
+					return;
+				}
+				LOGGER.warn("Still waiting for the incremental upload of the outputs of {} to be aborted",
+						workDirectory);
+			}
+		} catch (final InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	private void watch() throws Exception {
+		long nextCheck = clock.getAsLong() + quietMs;
+		try {
+			while (!stopped) {
+				final WatchKey key = watchService.poll(quietMs, TimeUnit.MILLISECONDS);
+				boolean listChanged = false;
+				if (key != null) {
+					listChanged = key.pollEvents().stream()
+							.anyMatch(event -> isListFile(String.valueOf(event.context())));
+					key.reset();
+				}
+				final long now = clock.getAsLong();
+				if (!stopped && (listChanged || now >= nextCheck)) {
+					uploadCompletedOutputs(now);
+					nextCheck = now + quietMs;
+				}
+			}
+		} catch (final ClosedWatchServiceException e) {
+			// stopped
+		}
+	}
+
+	final void uploadCompletedOutputs(final long now) throws Exception {
+		final File list = currentListFile();
+		if (list == null || !isQuiet(list.toPath(), now)) {
+			return;
+		}
+		final List<String> completed = new ArrayList<>();
+		for (final String line : outputUtils.extractFiles(listFile, workDirectory)) {
+			if (!handledLines.contains(line) && isQuiet(Paths.get(workDirectory + line), now)) {
+				completed.add(line);
+			}
+		}
+		if (!completed.isEmpty()) {
+			LOGGER.info("Uploading {} complete outputs while the IPF is running", completed.size());
+			outputProcessor.uploadCompletedOutputs(completed, reportingFactory);
+			handledLines.addAll(completed);
+		}
+	}
+
+	private File currentListFile() {
+		if (!listFile.contains("*")) {
+			final File file = new File(listFile);
+			return file.exists() ? file : null;
+		}
+		final FileFilter fileFilter = new WildcardFileFilter(listFile);
+		final File[] files = new File(workDirectory).listFiles(fileFilter);
+		return files != null && files.length == 1 ? files[0] : null;
+	}
+
+	private boolean isListFile(final String fileName) {
+		if (listFile.contains("*")) {
+			return new WildcardFileFilter(listFile).accept(new File(workDirectory, fileName));
+		}
+		return new File(listFile).getName().equals(fileName);
+	}
+
+	/**
+	 * Check if the file, or all the files of the directory, have not been
+	 * modified during the quiet period
+	 */
+	private boolean isQuiet(final Path path, final long now) throws IOException {
+		if (!path.toFile().exists()) {
+			return false;
+		}
+		try (Stream<Path> walk = Files.walk(path)) {
+			return walk.allMatch(p -> p.toFile().lastModified() <= now - quietMs);
+		}
+	}
+
+	private void closeWatchService() {
+		if (watchService != null) {
+			try {
+				watchService.close();
+			} catch (final IOException e) {
+				LOGGER.warn("Cannot close watch service of {}: {}", workDirectory, e.getMessage());
+			}
+		}
+	}
+}
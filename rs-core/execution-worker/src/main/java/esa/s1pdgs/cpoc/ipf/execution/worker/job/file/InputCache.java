@@ -0,0 +1,386 @@
+package esa.s1pdgs.cpoc.ipf.execution.worker.job.file;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.FileSystemException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.LongSupplier;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import esa.s1pdgs.cpoc.common.ProductFamily;
+import esa.s1pdgs.cpoc.common.errors.AbstractCodedException;
+import esa.s1pdgs.cpoc.common.errors.InternalErrorException;
+import esa.s1pdgs.cpoc.common.utils.FileUtils;
+import esa.s1pdgs.cpoc.obs_sdk.Md5;
+import esa.s1pdgs.cpoc.obs_sdk.ObsClient;
+import esa.s1pdgs.cpoc.obs_sdk.ObsDownloadObject;
+import esa.s1pdgs.cpoc.obs_sdk.SdkClientException;
+import esa.s1pdgs.cpoc.report.ReportingFactory;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Cache of the inputs downloaded from the OBS, shared by the jobs executed on
+ * the node.
+ * <p>
+ * An entry is identified by the family, the key and the ETags of the files of
+ * the object listed in its md5sum file, so an object replaced in the OBS is
+ * never served from an outdated entry. Objects without md5sum file are not
+ * cached. An entry is downloaded in a staging directory and renamed atomically
+ * into the cache, so concurrent jobs asking for the same object may both
+ * download it but always see a complete entry. The files of an entry are made
+ * read-only and hard linked into the working directory, or copied when the
+ * working directory is on another file system. When the cache exceeds its
+ * maximal size, the least recently used entries are evicted.
+ * <p>
+ * Hard links need the cache on the same file system as the working directory.
+ * When the cache is located in the working directory, it is kept when the
+ * working directory is erased between two jobs.
+ */
+public class InputCache {
+
+	private static final Logger LOGGER = LogManager.getLogger(InputCache.class);
+
+	private static final String ENTRIES_DIR = "entries";
+
+	private static final String STAGING_DIR = "tmp";
+
+	/**
+	 * Age in milliseconds from which a staging directory is considered as left
+	 * by a crashed job
+	 */
+	private static final long STALE_STAGING_MS = 24 * 3600 * 1000L;
+
+	private final Path entriesDir;
+
+	private final Path stagingDir;
+
+	private final long maxSizeBytes;
+
+	private final Set<ProductFamily> families;
+
+	private final LongSupplier clock;
+
+	private final Counter hits;
+
+	private final Counter misses;
+
+	private final Counter evictions;
+
+	private final Counter bytesSaved;
+
+	public InputCache(final String cacheDir, final long maxSizeBytes, final Collection<ProductFamily> families,
+			final MeterRegistry registry) {
+		this(cacheDir, maxSizeBytes, families, registry, System::currentTimeMillis);
+	}
+
+	InputCache(final String cacheDir, final long maxSizeBytes,
+			final Collection<ProductFamily> families, final MeterRegistry registry, final LongSupplier clock) {
+		this.entriesDir = cacheDir == null || cacheDir.isEmpty() ? null : Paths.get(cacheDir, ENTRIES_DIR);
+		this.stagingDir = cacheDir == null || cacheDir.isEmpty() ? null : Paths.get(cacheDir, STAGING_DIR);
+		this.maxSizeBytes = maxSizeBytes;
+		this.families = families == null || families.isEmpty() ? EnumSet.noneOf(ProductFamily.class)
+				: EnumSet.copyOf(families);
+		this.clock = clock;
+
+		final MeterRegistry meterRegistry = registry == null ? new SimpleMeterRegistry() : registry;
+		this.hits = Counter.builder("rs.execution.worker.input.cache.hits")
+				.description("Number of inputs served from the cache").register(meterRegistry);
+		this.misses = Counter.builder("rs.execution.worker.input.cache.misses")
+				.description("Number of inputs downloaded into the cache").register(meterRegistry);
+		this.evictions = Counter.builder("rs.execution.worker.input.cache.evictions")
+				.description("Number of inputs evicted from the full cache").register(meterRegistry);
+		this.bytesSaved = Counter.builder("rs.execution.worker.input.cache.bytes.saved")
+				.description("Number of bytes served from the cache instead of the OBS").register(meterRegistry);
+		Gauge.builder("rs.execution.worker.input.cache.hit.ratio", this, InputCache::hitRatio)
+				.description("Ratio of the inputs served from the cache").register(meterRegistry);
+	}
+
+	/**
+	 * A cache keeping nothing
+	 */
+	public static InputCache disabled() {
+		return new InputCache(null, 0, null, null);
+	}
+
+	public boolean isEnabled() {
+		return entriesDir != null && maxSizeBytes > 0 && !families.isEmpty();
+	}
+
+	double hitRatio() {
+		final double total = hits.count() + misses.count();
+		return total == 0 ? 0 : hits.count() / total;
+	}
+
+	/**
+	 * Provide the given objects in their target directory from the cache,
+	 * downloading at once the ones missing in the cache
+	 *
+	 * @return the objects not provided, to download directly from the OBS
+	 * @throws AbstractCodedException if the download of the missing objects failed
+	 */
+	public List<ObsDownloadObject> provide(final ObsClient obsClient, final List<ObsDownloadObject> objects,
+			final ReportingFactory reportingFactory) throws AbstractCodedException {
+		if (!isEnabled()) {
+			return objects;
+		}
+		final List<ObsDownloadObject> notProvided = new ArrayList<>();
+		final Map<ObsDownloadObject, Path> missing = new HashMap<>();
+		final Set<Path> used = new HashSet<>();
+		for (final ObsDownloadObject object : objects) {
+			final String entryName = families.contains(object.getFamily()) ? entryNameOf(obsClient, object) : null;
+			if (entryName == null) {
+				notProvided.add(object);
+				continue;
+			}
+			final Path entry = entriesDir.resolve(entryName);
+			used.add(entry);
+			final long linkedBytes = Files.isDirectory(entry) ? link(entry, object) : -1;
+			if (linkedBytes >= 0) {
+				hits.increment();
+				bytesSaved.increment(linkedBytes);
+			} else {
+				missing.put(object, entry);
+			}
+		}
+		if (!missing.isEmpty()) {
+			notProvided.addAll(populate(obsClient, missing, reportingFactory));
+			evict(used);
+		}
+		LOGGER.info("Input cache provided {} of {} inputs ({} missing), hit ratio {}, {} bytes saved",
+				objects.size() - notProvided.size(), objects.size(), missing.size(), hitRatio(), bytesSaved.count());
+		return notProvided;
+	}
+
+	/**
+	 * Download the missing objects into the cache and link them into their target
+	 * directory
+	 *
+	 * @return the objects which could not be linked
+	 */
+	private List<ObsDownloadObject> populate(final ObsClient obsClient, final Map<ObsDownloadObject, Path> missing,
+			final ReportingFactory reportingFactory) throws AbstractCodedException {
+		final Map<ObsDownloadObject, Path> staged = new HashMap<>();
+		final List<ObsDownloadObject> toDownload = new ArrayList<>();
+		try {
+			for (final ObsDownloadObject object : missing.keySet()) {
+				final Path staging = Files.createDirectories(stagingDir.resolve(UUID.randomUUID().toString()));
+				staged.put(object, staging);
+				toDownload.add(new ObsDownloadObject(object.getFamily(), object.getKey(), staging.toString()));
+			}
+		} catch (final IOException e) {
+			staged.values().forEach(this::deleteQuietly);
+			throw new InternalErrorException("Cannot create staging directory in input cache: " + e.getMessage(), e);
+		}
+
+		final List<ObsDownloadObject> notLinked = new ArrayList<>();
+		try {
+			obsClient.download(toDownload, reportingFactory);
+			for (final Map.Entry<ObsDownloadObject, Path> entry : missing.entrySet()) {
+				final ObsDownloadObject object = entry.getKey();
+				misses.increment();
+				if (!commit(staged.get(object), entry.getValue()) || link(entry.getValue(), object) < 0) {
+					notLinked.add(object);
+				}
+			}
+		} finally {
+			staged.values().forEach(this::deleteQuietly);
+		}
+		return notLinked;
+	}
+
+	/**
+	 * Move the staged download into the cache. If another job has populated the
+	 * entry meanwhile, its entry is kept.
+	 */
+	private boolean commit(final Path staging, final Path entry) {
+		try (Stream<Path> walk = Files.walk(staging)) {
+			walk.filter(Files::isRegularFile).forEach(file -> file.toFile().setReadOnly());
+			Files.createDirectories(entriesDir);
+			Files.move(staging, entry, StandardCopyOption.ATOMIC_MOVE);
+			return true;
+		} catch (final AtomicMoveNotSupportedException e) {
+			LOGGER.warn("Input cache staging and entries directories are not on the same file system: {}",
+					e.getMessage());
+			return false;
+		} catch (final IOException e) {
+			// the failure of a rename onto an existing entry depends on the platform,
+			// e.g. a plain FileSystemException on Linux
+			if (Files.isDirectory(entry)) {
+				LOGGER.debug("Input cache entry {} populated concurrently: {}", entry, e.getMessage());
+				return true;
+			}
+			LOGGER.warn("Cannot add {} to input cache: {}", entry, e.getMessage());
+			return false;
+		}
+	}
+
+	/**
+	 * Link all the files of the entry into the target directory of the object
+	 *
+	 * @return the number of bytes linked, or -1 if the entry disappeared or could
+	 *         not be linked. The files already linked are then removed.
+	 */
+	private long link(final Path entry, final ObsDownloadObject object) {
+		final Path targetDir = Paths.get(object.getTargetDir());
+		final List<Path> created = new ArrayList<>();
+		long size = 0;
+		try (Stream<Path> walk = Files.walk(entry)) {
+			Files.setLastModifiedTime(entry, FileTime.fromMillis(clock.getAsLong()));
+			for (final Path file : walk.filter(Files::isRegularFile).collect(Collectors.toList())) {
+				final Path target = targetDir.resolve(entry.relativize(file).toString());
+				Files.createDirectories(target.getParent());
+				Files.deleteIfExists(target);
+				try {
+					Files.createLink(target, file);
+				} catch (final UnsupportedOperationException | FileSystemException e) {
+					Files.copy(file, target);
+				}
+				created.add(target);
+				size += Files.size(file);
+			}
+			LOGGER.debug("Input {} provided from cache entry {}", object.getKey(), entry);
+			return size;
+		} catch (final IOException | UncheckedIOException e) {
+			LOGGER.warn("Cannot provide {} from input cache entry {}, downloading it: {}", object.getKey(), entry,
+					e.getMessage());
+			created.forEach(this::deleteQuietly);
+			return -1;
+		}
+	}
+
+	/**
+	 * Evict the least recently used entries until the cache fits its maximal
+	 * size, keeping the entries used by the current job
+	 */
+	private void evict(final Set<Path> used) {
+		final List<Path> entries;
+		try (Stream<Path> list = Files.list(entriesDir)) {
+			entries = list.collect(Collectors.toList());
+		} catch (final IOException e) {
+			LOGGER.warn("Cannot list input cache entries: {}", e.getMessage());
+			return;
+		}
+		final Map<Path, Long> sizes = new HashMap<>();
+		final Map<Path, Long> lastUses = new HashMap<>();
+		long total = 0;
+		for (final Path entry : entries) {
+			final long size = sizeOf(entry);
+			sizes.put(entry, size);
+			lastUses.put(entry, entry.toFile().lastModified());
+			total += size;
+		}
+		final List<Path> candidates = entries.stream().filter(e -> !used.contains(e))
+				.sorted(Comparator.comparing(lastUses::get)).collect(Collectors.toList());
+		for (final Path entry : candidates) {
+			if (total <= maxSizeBytes) {
+				break;
+			}
+			// renamed first, so no job links a partially deleted entry
+			final Path trash = stagingDir.resolve(UUID.randomUUID().toString());
+			try {
+				Files.createDirectories(stagingDir);
+				Files.move(entry, trash, StandardCopyOption.ATOMIC_MOVE);
+			} catch (final IOException e) {
+				LOGGER.debug("Input cache entry {} already evicted: {}", entry, e.getMessage());
+				continue;
+			}
+			deleteQuietly(trash);
+			evictions.increment();
+			total -= sizes.get(entry);
+		}
+		if (total > maxSizeBytes) {
+			LOGGER.warn("Input cache uses {} bytes for a maximum of {} bytes", total, maxSizeBytes);
+		}
+		deleteStaleStaging();
+	}
+
+	private void deleteStaleStaging() {
+		try (Stream<Path> list = Files.list(stagingDir)) {
+			list.filter(p -> p.toFile().lastModified() < clock.getAsLong() - STALE_STAGING_MS)
+					.forEach(this::deleteQuietly);
+		} catch (final IOException e) {
+			LOGGER.debug("Cannot list input cache staging directory: {}", e.getMessage());
+		}
+	}
+
+	/**
+	 * @return the name of the entry of the object, or null if it cannot be cached
+	 */
+	private String entryNameOf(final ObsClient obsClient, final ObsDownloadObject object) {
+		final List<String> versions;
+		try (InputStream in = obsClient.getAsStream(object.getFamily(), Md5.md5KeyFor(object.getKey()))) {
+			versions = Md5.readFrom(in).stream().filter(md5 -> md5.getFileName().startsWith(object.getKey()))
+					.map(md5 -> md5.getFileName() + " " + md5.getETag()).sorted().collect(Collectors.toList());
+		} catch (final SdkClientException | IOException e) {
+			LOGGER.debug("No checksum for {}, not cached: {}", object.getKey(), e.getMessage());
+			return null;
+		}
+		if (versions.isEmpty()) {
+			return null;
+		}
+		final StringBuilder identity = new StringBuilder(object.getFamily().name()).append('\n')
+				.append(object.getKey());
+		versions.forEach(version -> identity.append('\n').append(version));
+		return sha256(identity.toString());
+	}
+
+	private static String sha256(final String value) {
+		try {
+			final byte[] digest = MessageDigest.getInstance("SHA-256")
+					.digest(value.getBytes(StandardCharsets.UTF_8));
+			final StringBuilder hex = new StringBuilder();
+			for (final byte b : digest) {
+				hex.append(String.format("%02x", b));
+			}
+			return hex.toString();
+		} catch (final NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	private static long sizeOf(final Path entry) {
+		try (Stream<Path> walk = Files.walk(entry)) {
+			return walk.map(Path::toFile).filter(File::isFile).mapToLong(File::length).sum();
+		} catch (final IOException e) {
+			return 0;
+		}
+	}
+
+	private void deleteQuietly(final Path path) {
+		if (!Files.exists(path)) {
+			return;
+		}
+		try {
+			FileUtils.delete(path.toString());
+		} catch (final RuntimeException e) {
+			LOGGER.warn("Cannot delete {}: {}", path, e.getMessage());
+		}
+	}
+}
@@ -4,7 +4,9 @@ import java.io.File;
 import java.io.StringReader;
 import java.io.StringWriter;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 
 import javax.xml.transform.Source;
@@ -79,8 +81,8 @@ public class InputDownloader {
     private final String prefixMonitorLogs;
 
     /**
-     * Executor which executes processes. Shall be informed when all inputs are
-     * download
+     * Executor which executes processes. Shall be informed when each input is
+     * downloaded
      */
     private final PoolExecutorCallable poolProcExecutor;
 
@@ -93,6 +95,21 @@ public class InputDownloader {
      * XSLT file to apply on the joborder
      */
     private final String jobOrderXslt;
+
+    /**
+     * Node-local cache of the inputs
+     */
+    private final InputCache inputCache;
+
+    /**
+     * Local paths of the inputs per object to download
+     */
+    private final Map<ObsDownloadObject, List<String>> localPathsByObject = new HashMap<>();
+
+    /**
+     * Local paths of the inputs present without download
+     */
+    private final List<String> presentPaths = new ArrayList<>();
     
     /**
      * Constructor
@@ -110,6 +127,19 @@ public class InputDownloader {
             final int sizeDownBatch, final String prefixMonitorLogs,
             final PoolExecutorCallable poolProcExecutor,
             final ApplicationLevel appLevel, final String jobOrderXslt) {
+        this(obsClient, localWorkingDir, inputs, sizeDownBatch, prefixMonitorLogs, poolProcExecutor, appLevel,
+                jobOrderXslt, InputCache.disabled());
+    }
+
+    /**
+     * Constructor providing the inputs from the given cache when possible
+     */
+    public InputDownloader(final ObsClient obsClient,
+            final String localWorkingDir, final List<LevelJobInputDto> inputs,
+            final int sizeDownBatch, final String prefixMonitorLogs,
+            final PoolExecutorCallable poolProcExecutor,
+            final ApplicationLevel appLevel, final String jobOrderXslt,
+            final InputCache inputCache) {
         this.obsClient = obsClient;
         this.localWorkingDir = localWorkingDir;
         this.inputs = inputs;
@@ -118,6 +148,7 @@ public class InputDownloader {
         this.appLevel = appLevel;
         this.prefixMonitorLogs = prefixMonitorLogs;
         this.jobOrderXslt = jobOrderXslt;
+        this.inputCache = inputCache;
     }
 
     /**
@@ -131,7 +162,12 @@ public class InputDownloader {
         
         final List<ObsDownloadObject> downloadToBatch = result.stream()
         		.filter(o -> o.getFamily() != ProductFamily.INVALID)
-        		.collect(Collectors.toList());        
+        		.collect(Collectors.toList());
+        // missing inputs are not waited for
+        result.stream()
+        		.filter(o -> o.getFamily() == ProductFamily.INVALID)
+        		.forEach(o -> presentPaths.addAll(localPathsOf(o)));
+        poolProcExecutor.setInputsAvailable(presentPaths);
 		downloadInputs(downloadToBatch, reportingFactory);
         completeDownload();	      	
         return result;
@@ -188,6 +224,8 @@ public class InputDownloader {
         LOGGER.info("{} 3 - Starting organizing inputs", prefixMonitorLogs);
 
         final List<ObsDownloadObject> downloadToBatch = new ArrayList<>();
+        localPathsByObject.clear();
+        presentPaths.clear();
 
         for (final LevelJobInputDto input : inputs) {
             // Check if a directory shall be created
@@ -215,6 +253,7 @@ public class InputDownloader {
                     
                     FileUtils.writeFile(input.getLocalPath(),
                             fileContent);
+                    presentPaths.add(input.getLocalPath());
                     break;
                 case "EDRS_SESSION":
                 case "AUXILIARY_FILE":
@@ -240,6 +279,8 @@ public class InputDownloader {
                             input.getFamily(), input.getContentRef(),
                             input.getLocalPath());
                     ObsDownloadObject downloadObj = toObsDlObject(input);
+                    localPathsByObject.computeIfAbsent(downloadObj, o -> new ArrayList<>())
+                            .add(input.getLocalPath());
                     
                     /*
                      *  Adding a detection if a job order contains multiple times the same input
@@ -257,6 +298,7 @@ public class InputDownloader {
                     break;
                 case "BLANK":
                     LOGGER.info("Input {} will be ignored", input.getContentRef());
+                    presentPaths.add(input.getLocalPath());
                     break;
                 default:
                     throw new UnknownFamilyException(
@@ -268,6 +310,10 @@ public class InputDownloader {
         return downloadToBatch;
     }
 
+	private final List<String> localPathsOf(final ObsDownloadObject downloadObj) {
+		return localPathsByObject.getOrDefault(downloadObj, new ArrayList<>());
+	}
+
 	private final ObsDownloadObject toObsDlObject(final LevelJobInputDto input) {
 		final ProductFamily family = ProductFamily.fromValue(input.getFamily());		
 		final File localFile = new File(input.getLocalPath());
@@ -294,8 +340,9 @@ public class InputDownloader {
 	}	
 
     /**
-     * Download input from OBS per batch. If we have download 2 raw, the
-     * processor executor can start launch proceses
+     * Download input from OBS per batch, informing the processor executor of the
+     * inputs of each batch. If we have download 2 raw, the processor executor
+     * can start launch all the proceses
      * 
      * @param downloadToBatch
      * @throws AbstractCodedException
@@ -313,7 +360,13 @@ public class InputDownloader {
                 LOGGER.info("{} 4 - Starting downloading batch {}", prefixMonitorLogs, i);
                 final int lastIndex = Math.min((i + 1) * sizeDownBatch, downloadToBatch.size());                
                 final List<ObsDownloadObject> subListS3 = downloadToBatch.subList(i * sizeDownBatch, lastIndex);
-                this.obsClient.download(subListS3, reportingFactory);
+                final List<ObsDownloadObject> notCached = inputCache.provide(obsClient, subListS3, reportingFactory);
+                if (!notCached.isEmpty()) {
+                    this.obsClient.download(notCached, reportingFactory);
+                }
+                final List<String> downloadedPaths = new ArrayList<>();
+                subListS3.forEach(o -> downloadedPaths.addAll(localPathsOf(o)));
+                poolProcExecutor.setInputsAvailable(downloadedPaths);
                 if (appLevel == ApplicationLevel.L0 && nbUploadedRaw < 2) {
                     nbUploadedRaw += subListS3.stream().filter(
                             file -> file.getFamily() == ProductFamily.EDRS_SESSION)
@@ -10,8 +10,12 @@ import java.time.format.DateTimeFormatter;
 import java.time.format.DateTimeParseException;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
@@ -130,6 +134,23 @@ public class OutputProcessor {
 	
 	private final OutputUtils outputUtils;
 
+	/**
+	 * Uploads the outputs while the IPF is running, when enabled
+	 */
+	private IncrementalOutputUploader incrementalUploader;
+
+	/**
+	 * Outputs uploaded while the IPF was running per line of the list file, only
+	 * published when the job succeeds
+	 */
+	private final Map<String, UploadedOutput> uploadedOutputs = new LinkedHashMap<>();
+
+	/**
+	 * Products modified after their upload while the IPF was running, uploaded
+	 * again even if they exist with the same size
+	 */
+	private final Set<String> modifiedProducts = new HashSet<>();
+
 	/**
 	 * FIXME replace legacy constructor
 	 * Legacy Constructor
@@ -332,7 +353,8 @@ public class OutputProcessor {
 			final File file, final OQCFlag oqcFlag, final long productSizeBytes) throws InternalErrorException{
 		
 		try {
-			if (obsClient.existsWithSameSize(new ObsObject(family, productName), productSizeBytes)) {
+			if (!modifiedProducts.contains(productName)
+					&& obsClient.existsWithSameSize(new ObsObject(family, productName), productSizeBytes)) {
 				
 				LOGGER.warn("Output {} with family {} already exists in OBS with same size of {} bytes and upload will be skipped",
 						productName, family, productSizeBytes );
@@ -656,6 +678,110 @@ public class OutputProcessor {
 		}
 	}
 
+	/**
+	 * Start uploading the outputs while the IPF is running, if enabled. Not done
+	 * in debug mode where the whole working directory is uploaded.
+	 */
+	public void startIncrementalUpload(final ReportingFactory reportingFactory) throws InternalErrorException {
+		if (!properties.isIncrementalUploadEnabled() || debugMode) {
+			return;
+		}
+		incrementalUploader = new IncrementalOutputUploader(this, outputUtils, workDirectory, listFile,
+				properties.getIncrementalUploadQuietS() * 1000L, reportingFactory);
+		incrementalUploader.start();
+	}
+
+	/**
+	 * Stop uploading the outputs while the IPF is running
+	 * 
+	 * @param cancel true to interrupt the upload in progress, e.g. when the job
+	 *               failed
+	 * @throws AbstractCodedException if an upload failed
+	 */
+	public void stopIncrementalUpload(final boolean cancel) throws AbstractCodedException {
+		if (incrementalUploader == null) {
+			return;
+		}
+		if (cancel) {
+			incrementalUploader.cancel(properties.getTmProcStopS());
+		} else {
+			incrementalUploader.stop();
+		}
+		incrementalUploader = null;
+	}
+
+	/**
+	 * Upload the outputs of the given lines of the list file while the IPF is
+	 * running. Their messages are published by {@link #processOutput} once the
+	 * job succeeds.
+	 */
+	synchronized void uploadCompletedOutputs(final List<String> lines, final ReportingFactory reportingFactory)
+			throws Exception {
+		final List<FileObsUploadObject> uploadBatch = new ArrayList<>();
+		final Map<String, UploadedOutput> outputs = new LinkedHashMap<>();
+		for (final String line : lines) {
+			// state taken before the upload, so a modification during the upload is
+			// detected at the end of the job
+			final UploadedOutput output = new UploadedOutput(stateOf(line));
+			sortOutputs(Collections.singletonList(line), uploadBatch, output.outputs, output.reports,
+					reportingFactory);
+			outputs.put(line, output);
+		}
+
+		for (int i = 0; i < uploadBatch.size(); i += sizeUploadBatch) {
+			if (Thread.currentThread().isInterrupted()) {
+				throw new InternalErrorException("The current thread as been interrupted");
+			}
+			obsClient.upload(uploadBatch.subList(i, Math.min(i + sizeUploadBatch, uploadBatch.size())),
+					reportingFactory);
+		}
+		processBrowseImages(reportingFactory, uploadBatch);
+
+		uploadedOutputs.putAll(outputs);
+	}
+
+	/**
+	 * State of the output of the given line of the list file: number of files,
+	 * size and last modification of the whole output
+	 */
+	private String stateOf(final String line) throws IOException {
+		final File file = new File(getFilePath(line, outputUtils.getProductName(line)));
+		if (!file.exists()) {
+			return "";
+		}
+		long count = 0;
+		long size = 0;
+		long lastModified = 0;
+		try (Stream<Path> walk = Files.walk(file.toPath())) {
+			for (final Path path : (Iterable<Path>) walk::iterator) {
+				final File f = path.toFile();
+				count++;
+				size += f.isFile() ? f.length() : 0;
+				lastModified = Math.max(lastModified, f.lastModified());
+			}
+		}
+		return count + "/" + size + "/" + lastModified;
+	}
+
+	/**
+	 * Output uploaded while the IPF was running
+	 */
+	private static final class UploadedOutput {
+
+		/**
+		 * State of the output when uploaded
+		 */
+		private final String state;
+
+		private final List<ObsQueueMessage> outputs = new ArrayList<>();
+
+		private final List<FileQueueMessage> reports = new ArrayList<>();
+
+		UploadedOutput(final String state) {
+			this.state = state;
+		}
+	}
+
 	/**
 	 * Function which process all the output of L0 process
 	 */
@@ -692,18 +818,43 @@ public class OutputProcessor {
 		// Extract files
 		final List<String> lines = outputUtils.extractFiles(listFile, workDirectory);
 		
+		final List<Message<CatalogJob>> res = new ArrayList<>();
+		synchronized (this) {
+			// Outputs already uploaded while the IPF was running, uploaded again when
+			// modified since then
+			for (final Map.Entry<String, UploadedOutput> entry : uploadedOutputs.entrySet()) {
+				final String line = entry.getKey();
+				if (!lines.contains(line)) {
+					continue;
+				}
+				final UploadedOutput output = entry.getValue();
+				if (!output.state.equals(stateOf(line))) {
+					LOGGER.warn("{} Output {} modified after its upload while the IPF was running, uploading it again",
+							prefixMonitorLogs, line);
+					modifiedProducts.add(outputUtils.getProductName(line));
+					continue;
+				}
+				lines.remove(line);
+				for (final ObsQueueMessage msg : output.outputs) {
+					res.add(MessageBuilder.withPayload(
+							publish(uuid, msg, (String) job.getAdditionalFields().get("t0PdgsDate"))).build());
+				}
+				reportToPublish.addAll(output.reports);
+			}
+		}
+		
 		sortOutputs(lines, uploadBatch, outputToPublish, reportToPublish, reportingFactory);
 	
 
 		// Upload per batch the output
 		// S1PRO-1494: WARNING--- list will be emptied by this method. For reporting, make a copy beforehand
 		//final List<ObsQueueMessage> outs = new ArrayList<>(outputToPublish);
-		final List<Message<CatalogJob>> res = processProducts(
+		res.addAll(processProducts(
 						reportingFactory,
 						uploadBatch,
 						outputToPublish,
 						uuid, 
-						(String) job.getAdditionalFields().get("t0PdgsDate"));
+						(String) job.getAdditionalFields().get("t0PdgsDate")));
 		processBrowseImages(reportingFactory, uploadBatch);
 		// Publish reports
 		processReports(reportToPublish, uuid);	
@@ -9,8 +9,6 @@ import java.nio.file.Paths;
 import java.nio.file.StandardCopyOption;
 import java.util.List;
 import java.util.concurrent.Callable;
-import java.util.concurrent.Executors;
-import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 import java.util.function.Consumer;
@@ -37,9 +35,11 @@ import org.w3c.dom.NodeList;
 
 import esa.s1pdgs.cpoc.common.utils.FileUtils;
 import esa.s1pdgs.cpoc.common.utils.LogUtils;
+import esa.s1pdgs.cpoc.common.utils.ProcessOutputPump;
+import esa.s1pdgs.cpoc.common.utils.ProcessOutputPump.Pump;
 import esa.s1pdgs.cpoc.ipf.execution.worker.config.ApplicationProperties;
-import esa.s1pdgs.cpoc.ipf.execution.worker.job.process.StreamGobbler;
 import esa.s1pdgs.cpoc.mqi.model.queue.OQCFlag;
+import io.micrometer.core.instrument.Metrics;
 
 public class OQCTask implements Callable<OQCFlag> {
 	private static final Logger LOGGER = LogManager.getLogger(OQCTask.class);
@@ -158,10 +158,8 @@ public class OQCTask implements Callable<OQCFlag> {
 			builder.directory(workingDirectory.toFile());
 			process = builder.start();
 
-			final Future<?> out = Executors.newSingleThreadExecutor()
-					.submit(new StreamGobbler(process.getInputStream(), stdOutConsumer));
-			final Future<?> err = Executors.newSingleThreadExecutor()
-					.submit(new StreamGobbler(process.getErrorStream(), stdErrConsumer));
+			final Pump out = ProcessOutputPump.shared().pumpStdout(process, stdOutConsumer);
+			final Pump err = ProcessOutputPump.shared().pumpStderr(process, stdErrConsumer);
 			process.waitFor(timeOutInSeconds,TimeUnit.SECONDS);
 			
 			if (process.isAlive()) {
@@ -173,6 +171,7 @@ public class OQCTask implements Callable<OQCFlag> {
 			// wait for STDOUT/STDERR to be consumed
 			out.get();
 			err.get();
+			recordOutput(out, err);
 		} catch (final Exception e) {
 			LOGGER.error("Unable to execute oqc binary:{}", LogUtils.toString(e));
 			throw new IllegalArgumentException("Unable to execute oqc binary due:"+e.getMessage());
@@ -183,6 +182,17 @@ public class OQCTask implements Callable<OQCFlag> {
 		}
 	}
 
+	private void recordOutput(final Pump out, final Pump err) {
+		final String task = binaryPath.getFileName().toString();
+		final long lines = out.getLines() + err.getLines();
+		final long bytes = out.getBytes() + err.getBytes();
+		final long durationMs = Math.max(1, Math.max(out.getDurationMs(), err.getDurationMs()));
+		Metrics.counter("rs.execution.worker.task.output.lines", "task", task).increment(lines);
+		Metrics.counter("rs.execution.worker.task.output.bytes", "task", task).increment(bytes);
+		LOGGER.debug("OQC {} wrote {} lines ({} bytes) in {} ms, {} lines/s", binaryPath, lines, bytes, durationMs,
+				lines * 1000 / durationMs);
+	}
+
 	private OQCFlag evaluateOQC(final Path workingDirectory) {
 		final Path reportDir = Paths.get(workingDirectory.toString(), "reports");
 		LOGGER.debug("Evaluating results from report directory {}", reportDir);
@@ -0,0 +1,109 @@
+package esa.s1pdgs.cpoc.ipf.execution.worker.job.process;
+
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Inputs of the job present in the working directory. The input downloader
+ * publishes each input once downloaded and the tasks wait for the ones they
+ * need. Nothing is considered as present before the first publication, which
+ * happens once the working directory and the job order are written, so a task
+ * without inputs does not start before them.
+ */
+public class InputReadiness {
+
+	private final Lock lock = new ReentrantLock();
+
+	private final Condition changed = lock.newCondition();
+
+	/**
+	 * Local paths of the inputs present
+	 */
+	private final Set<String> available = new HashSet<>();
+
+	/**
+	 * Indicate if all the inputs are considered as present
+	 */
+	private boolean released;
+
+	/**
+	 * Indicate if inputs have been published at least once
+	 */
+	private boolean published;
+
+	/**
+	 * Publish the given inputs as present
+	 *
+	 * @param localPaths
+	 */
+	public void markAvailable(final Collection<String> localPaths) {
+		lock.lock();
+		try {
+			available.addAll(localPaths);
+			published = true;
+			changed.signalAll();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Consider all the inputs as present or not
+	 *
+	 * @param released
+	 */
+	public void setReleased(final boolean released) {
+		lock.lock();
+		try {
+			this.released = released;
+			changed.signalAll();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	public boolean isReleased() {
+		lock.lock();
+		try {
+			return released;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Wait until the given inputs are present, or all inputs when null
+	 *
+	 * @param localPaths
+	 * @param deadline   time in milliseconds after which the waiting is abandoned
+	 * @return false if the inputs are still missing at the deadline
+	 * @throws InterruptedException
+	 */
+	public boolean await(final Collection<String> localPaths, final long deadline) throws InterruptedException {
+		lock.lock();
+		try {
+			while (!isPresent(localPaths)) {
+				final long remaining = deadline - System.currentTimeMillis();
+				if (remaining <= 0) {
+					return false;
+				}
+				changed.await(remaining, TimeUnit.MILLISECONDS);
+			}
+			return true;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	private boolean isPresent(final Collection<String> localPaths) {
+		if (released) {
+			return true;
+		}
+		return published && localPaths != null && available.containsAll(localPaths);
+	}
+}
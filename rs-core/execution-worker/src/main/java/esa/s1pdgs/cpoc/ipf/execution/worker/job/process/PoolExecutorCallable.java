@@ -1,6 +1,7 @@
 package esa.s1pdgs.cpoc.ipf.execution.worker.job.process;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 import java.util.concurrent.Callable;
 
@@ -10,7 +11,6 @@ import org.apache.logging.log4j.Logger;
 import esa.s1pdgs.cpoc.common.ApplicationLevel;
 import esa.s1pdgs.cpoc.common.errors.AbstractCodedException;
 import esa.s1pdgs.cpoc.common.errors.InternalErrorException;
-import esa.s1pdgs.cpoc.common.errors.processing.IpfExecutionWorkerProcessTimeoutException;
 import esa.s1pdgs.cpoc.ipf.execution.worker.config.ApplicationProperties;
 import esa.s1pdgs.cpoc.mqi.model.queue.IpfExecutionJob;
 import esa.s1pdgs.cpoc.mqi.model.queue.LevelJobPoolDto;
@@ -20,7 +20,7 @@ import esa.s1pdgs.cpoc.report.ReportingMessage;
 
 /**
  * Executor of all process: - pool one after the other - all tasks of the same
- * pool in parallel
+ * pool in parallel, each one as soon as its inputs are downloaded
  * 
  * @author Viveris Technologies
  */
@@ -35,10 +35,10 @@ public class PoolExecutorCallable implements Callable<Void> {
     private final ReportingFactory reportingFactory;
     
     /**
-     * Indicate if the working directory is ready and the processes can be
-     * launched
+     * Inputs present in the working directory. When released, all the
+     * processes can be launched
      */
-    private boolean active;
+    private final InputReadiness inputReadiness;
 
     /**
      * List of processor (one per pool)
@@ -71,7 +71,7 @@ public class PoolExecutorCallable implements Callable<Void> {
     public PoolExecutorCallable(final ApplicationProperties properties,
             final IpfExecutionJob job, final String prefixLogs, final ApplicationLevel appLevel,
             final ReportingFactory reportingFactory, final List<String> plainTextLoggingTasks) {
-        this.active = false;
+        this.inputReadiness = new InputReadiness();
         this.properties = properties;
         this.prefixMonitorLogs = prefixLogs;
         int counter = 0;
@@ -88,7 +88,8 @@ public class PoolExecutorCallable implements Callable<Void> {
                     String.format("%s [poolCounter %d] [s1pdgsTask %sProcessing] ", prefixMonitorLogs, counter, appLevel),
                     properties.getTmProcOneTaskS(),
                     properties.getOverwriteShell(),
-                    plainTextLoggingTasks
+                    plainTextLoggingTasks,
+                    inputReadiness
             ));
         }
         this.appLevel = appLevel;
@@ -97,59 +98,37 @@ public class PoolExecutorCallable implements Callable<Void> {
 
     /**
      * Process execution: <br/>
-     * - Wait for being active (see {@link ApplicationProperties} wap fields)
-     * <br/>
-     * - For each pool, launch in parallel the tasks executions
+     * - For each pool, launch in parallel the tasks executions, each task
+     * waiting for its inputs (see {@link ApplicationProperties} wap fields)
      */
     @Override
 	public Void call() throws AbstractCodedException {
-        int counter = 0;
-        try {
-            // Wait for being active (i.e. wait for download of at least one
-            // input)
-            while (counter < properties.getWapNbMaxLoop() && !isActive()
-                    && !isInterrupted()) {
-                Thread.sleep(properties.getWapTempoS() * 1000);
-                counter++;
-            }
-        } catch (final InterruptedException ie) {
-            throw new InternalErrorException(ie.getMessage(), ie);
-        }
-
         if (isInterrupted()) {
         	throw new InternalErrorException("Current thread has been interrupted");
-        } else {
-            LOGGER.debug(
-                    "counter {} isActive {} isInterrupted {} getWaitActiveProcessNbMaxLoop {}",
-                    counter, isActive(), isInterrupted(),
-                    properties.getWapNbMaxLoop());
-
-            if (!isActive()) {
-                throw new IpfExecutionWorkerProcessTimeoutException(
-                        "Process executor not set as active after "
-                                + counter * properties.getWapTempoS()
-                                + " seconds");
-            }            
-    		final Reporting reporting = reportingFactory.newReporting("Processing");
-    		
-            reporting.begin(new ReportingMessage("Start " + appLevel + " processing"));
-                       
-            try {
-				for (final PoolProcessor poolProcessor : processors) {
-				    if (isInterrupted()) {
-				        throw new InternalErrorException(
-				                "Current thread has been interrupted");
-				    }
-				    poolProcessor.process(reporting);
-				}
-			} catch (final AbstractCodedException e) {
-				reporting.error(new ReportingMessage("[code {}] {}", e.getCode().getCode(), e.getLogMessage()));
-				throw e;
-			}
-            reporting.end(new ReportingMessage("End " + appLevel + " processing"));
-            return null;
         }
-
+        // The inputs shall be downloaded within the activation delay
+        final long deadline = System.currentTimeMillis()
+                + properties.getWapNbMaxLoop() * properties.getWapTempoS() * 1000L;
+        LOGGER.debug("Waiting for inputs until {} isActive {}", deadline, isActive());
+
+		final Reporting reporting = reportingFactory.newReporting("Processing");
+		
+        reporting.begin(new ReportingMessage("Start " + appLevel + " processing"));
+                   
+        try {
+			for (final PoolProcessor poolProcessor : processors) {
+			    if (isInterrupted()) {
+			        throw new InternalErrorException(
+			                "Current thread has been interrupted");
+			    }
+			    poolProcessor.process(reporting, deadline);
+			}
+		} catch (final AbstractCodedException e) {
+			reporting.error(new ReportingMessage("[code {}] {}", e.getCode().getCode(), e.getLogMessage()));
+			throw e;
+		}
+        reporting.end(new ReportingMessage("End " + appLevel + " processing"));
+        return null;
     }
 
     /**
@@ -162,12 +141,13 @@ public class PoolExecutorCallable implements Callable<Void> {
     }
 
     /**
-     * Check if executor is active or not
+     * Check if executor is active or not, i.e. if all the processes can be
+     * launched whatever their inputs
      * 
      * @return
      */
-    public synchronized boolean isActive() {
-        return this.active;
+    public boolean isActive() {
+        return inputReadiness.isReleased();
     }
 
     /**
@@ -175,7 +155,16 @@ public class PoolExecutorCallable implements Callable<Void> {
      * 
      * @param active
      */
-    public synchronized void setActive(final boolean active) {
-        this.active = active;
+    public void setActive(final boolean active) {
+        inputReadiness.setReleased(active);
+    }
+
+    /**
+     * Inform the executor the given inputs are downloaded
+     * 
+     * @param localPaths
+     */
+    public void setInputsAvailable(final Collection<String> localPaths) {
+        inputReadiness.markAvailable(localPaths);
     }
 }
@@ -16,6 +16,7 @@ import org.apache.logging.log4j.Logger;
 import esa.s1pdgs.cpoc.common.errors.AbstractCodedException;
 import esa.s1pdgs.cpoc.common.errors.InternalErrorException;
 import esa.s1pdgs.cpoc.common.errors.processing.IpfExecutionWorkerProcessExecutionException;
+import esa.s1pdgs.cpoc.common.errors.processing.IpfExecutionWorkerProcessTimeoutException;
 import esa.s1pdgs.cpoc.common.utils.LogUtils;
 import esa.s1pdgs.cpoc.mqi.model.queue.LevelJobPoolDto;
 import esa.s1pdgs.cpoc.mqi.model.queue.LevelJobTaskDto;
@@ -80,9 +81,22 @@ public class PoolProcessor {
     
     private final List<String> plainTextLoggingTasks;
 
+    /**
+     * Inputs present in the working directory, each task is launched once its
+     * own inputs are present
+     */
+    private final InputReadiness inputReadiness;
+
 	public PoolProcessor(final LevelJobPoolDto pool, final String jobOrderPath, final String workDirectory,
 			final String prefixLogs, final long tmProcessOneTaskS, final boolean overwriteShell,
 			final List<String> plainTextLoggingTasks) {
+		this(pool, jobOrderPath, workDirectory, prefixLogs, tmProcessOneTaskS, overwriteShell, plainTextLoggingTasks,
+				allInputsPresent());
+	}
+
+	public PoolProcessor(final LevelJobPoolDto pool, final String jobOrderPath, final String workDirectory,
+			final String prefixLogs, final long tmProcessOneTaskS, final boolean overwriteShell,
+			final List<String> plainTextLoggingTasks, final InputReadiness inputReadiness) {
 		this.pool = pool;
 		this.nbTasks = pool.getTasks().size();
 		this.execSrv = Executors.newFixedThreadPool(this.nbTasks);
@@ -93,6 +107,13 @@ public class PoolProcessor {
 		this.tmProcessOneTaskS = tmProcessOneTaskS;
 		this.overwriteShell = overwriteShell;
 		this.plainTextLoggingTasks = plainTextLoggingTasks;
+		this.inputReadiness = inputReadiness;
+	}
+
+	private static InputReadiness allInputsPresent() {
+		final InputReadiness inputReadiness = new InputReadiness();
+		inputReadiness.setReleased(true);
+		return inputReadiness;
 	}
     
     // S1PRO-1561: Since some IPF already log in JSON format, it needs to be dumped directly into the log
@@ -114,6 +135,17 @@ public class PoolProcessor {
      * 
      */
     public void process(final ReportingFactory reportingFactory) throws AbstractCodedException {
+        process(reportingFactory, Long.MAX_VALUE);
+    }
+
+    /**
+     * Launch each task as soon as its inputs are present and wait for the
+     * completion of each tasks. A task whose inputs are still missing at the
+     * given deadline fails.
+     * 
+     * @param deadline time in milliseconds
+     */
+    public void process(final ReportingFactory reportingFactory, final long deadline) throws AbstractCodedException {
         boolean stopAllProcessCall = false;     
         try {
             try {
@@ -121,7 +153,7 @@ public class PoolProcessor {
                         pool.getTasks());
                 for (final LevelJobTaskDto task : pool.getTasks()) {                   	
                 	final Consumer<String> logConsumer = getLogConsumerForTask(task.getBinaryPath());                	
-                    completionSrv.submit(new TaskCallable(
+                    final TaskCallable taskCallable = new TaskCallable(
                     		task.getBinaryPath(),
                     		overwriteShell,
                             jobOrderPath, 
@@ -129,7 +161,11 @@ public class PoolProcessor {
                             logConsumer,
                             logConsumer,
                             reportingFactory         
-                    ));
+                    );
+                    completionSrv.submit(() -> {
+                    	waitForInputs(task, deadline);
+                    	return taskCallable.call();
+                    });
                 }
                 LOGGER.info("{} 2 - Waiting for tasks execution", prefixLogs);
                 for (int i = 0; i < nbTasks; i++) {
@@ -172,6 +208,21 @@ public class PoolProcessor {
         return Thread.currentThread().isInterrupted();
     }
 
+    /**
+     * Wait until the inputs of the task are present
+     */
+    private void waitForInputs(final LevelJobTaskDto task, final long deadline) throws AbstractCodedException {
+        try {
+            if (!inputReadiness.await(task.getInputs(), deadline)) {
+                throw new IpfExecutionWorkerProcessTimeoutException(
+                        "Inputs of task " + task.getBinaryPath() + " not present at the deadline");
+            }
+        } catch (final InterruptedException ie) {
+            throw new InternalErrorException(ie.getMessage(), ie);
+        }
+        LOGGER.info("{} 1 - Inputs of task {} present, launching it", prefixLogs, task.getBinaryPath());
+    }
+
     /**
      * Wait for the result of the next completed task:<br/>
      * if code = 0 => OK <br/>
@@ -4,17 +4,18 @@ import java.io.File;
 import java.io.IOException;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutionException;
-import java.util.concurrent.Executors;
-import java.util.concurrent.Future;
 import java.util.function.Consumer;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
 import esa.s1pdgs.cpoc.common.errors.InternalErrorException;
+import esa.s1pdgs.cpoc.common.utils.ProcessOutputPump;
+import esa.s1pdgs.cpoc.common.utils.ProcessOutputPump.Pump;
 import esa.s1pdgs.cpoc.report.Reporting;
 import esa.s1pdgs.cpoc.report.ReportingFactory;
 import esa.s1pdgs.cpoc.report.ReportingMessage;
+import io.micrometer.core.instrument.Metrics;
 
 /**
  * Execute one process and wait for its completion
@@ -97,17 +98,14 @@ public class TaskCallable implements Callable<TaskResult> {
             builder.directory(new File(workDirectory));
             process = builder.start();
 
-            final Future<?> out = Executors.newSingleThreadExecutor().submit(
-            		new StreamGobbler(process.getInputStream(), stdOutConsumer)
-            );
-            final Future<?> err = Executors.newSingleThreadExecutor().submit(
-            		new StreamGobbler(process.getErrorStream(), stdErrConsumer)
-            );      
+            final Pump out = ProcessOutputPump.shared().pumpStdout(process, stdOutConsumer);
+            final Pump err = ProcessOutputPump.shared().pumpStderr(process, stdErrConsumer);
             r = process.waitFor();
 
             // wait for STDOUT/STDERR to be consumed
             out.get();
 			err.get();
+			recordOutput(out, err);
 
 		} catch (final InterruptedException ie) {
 			reporting.error(new ReportingMessage("Interrupted Task {}", binaryPath));
@@ -132,4 +130,15 @@ public class TaskCallable implements Callable<TaskResult> {
         return new TaskResult(binaryPath, r);
     }
 
+	private void recordOutput(final Pump out, final Pump err) {
+		final String task = new File(binaryPath).getName();
+		final long lines = out.getLines() + err.getLines();
+		final long bytes = out.getBytes() + err.getBytes();
+		final long durationMs = Math.max(1, Math.max(out.getDurationMs(), err.getDurationMs()));
+		Metrics.counter("rs.execution.worker.task.output.lines", "task", task).increment(lines);
+		Metrics.counter("rs.execution.worker.task.output.bytes", "task", task).increment(bytes);
+		LOGGER.debug("Task {} wrote {} lines ({} bytes) in {} ms, {} lines/s", binaryPath, lines, bytes, durationMs,
+				lines * 1000 / durationMs);
+	}
+
 }
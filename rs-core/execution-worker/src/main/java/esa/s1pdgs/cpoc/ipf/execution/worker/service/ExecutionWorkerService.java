@@ -52,7 +52,9 @@ import esa.s1pdgs.cpoc.common.utils.LogUtils;
 import esa.s1pdgs.cpoc.ipf.execution.worker.config.ApplicationProperties;
 import esa.s1pdgs.cpoc.ipf.execution.worker.config.DevProperties;
 import esa.s1pdgs.cpoc.ipf.execution.worker.job.MonitorLogUtils;
+import esa.s1pdgs.cpoc.ipf.execution.worker.job.WorkingDirectoryReaper;
 import esa.s1pdgs.cpoc.ipf.execution.worker.job.WorkingDirectoryUtils;
+import esa.s1pdgs.cpoc.ipf.execution.worker.job.file.InputCache;
 import esa.s1pdgs.cpoc.ipf.execution.worker.job.file.InputDownloader;
 import esa.s1pdgs.cpoc.ipf.execution.worker.job.file.OutputEstimation;
 import esa.s1pdgs.cpoc.ipf.execution.worker.job.file.OutputProcessor;
@@ -113,16 +115,37 @@ public class ExecutionWorkerService implements Function<IpfExecutionJob, List<Me
 	 */
 	private final ObsClient obsClient;
 
+	/**
+	 * Node-local cache of the inputs
+	 */
+	private final InputCache inputCache;
+
+	/**
+	 * Background eraser of the working directory
+	 */
+	private final WorkingDirectoryReaper workingDirectoryReaper;
+
 	/**
 	 */
-	@Autowired
 	public ExecutionWorkerService(final CommonConfigurationProperties commonProperties, final AppStatus appStatus,
 			final ApplicationProperties properties, final DevProperties devProperties, final ObsClient obsClient) {
+		this(commonProperties, appStatus, properties, devProperties, obsClient, InputCache.disabled(),
+				WorkingDirectoryReaper.disabled());
+	}
+
+	/**
+	 */
+	@Autowired
+	public ExecutionWorkerService(final CommonConfigurationProperties commonProperties, final AppStatus appStatus,
+			final ApplicationProperties properties, final DevProperties devProperties, final ObsClient obsClient,
+			final InputCache inputCache, final WorkingDirectoryReaper workingDirectoryReaper) {
 		this.commonProperties = commonProperties;
 		this.appStatus = appStatus;
 		this.devProperties = devProperties;
 		this.properties = properties;
 		this.obsClient = new UnrecoverableErrorAwareObsClient(obsClient, e -> appStatus.getStatus().setFatalError());
+		this.inputCache = inputCache;
+		this.workingDirectoryReaper = workingDirectoryReaper;
 	}
 
 	@Override
@@ -200,7 +223,7 @@ public class ExecutionWorkerService implements Function<IpfExecutionJob, List<Me
 		final ExecutorCompletionService<Void> procCompletionSrv = new ExecutorCompletionService<>(procExecutorSrv);
 		final InputDownloader inputDownloader = new InputDownloader(obsClient, job.getWorkDirectory(), job.getInputs(),
 				properties.getSizeBatchDownload(), getPrefixMonitorLog(MonitorLogUtils.LOG_INPUT, job), procExecutor,
-				properties.getLevel(), properties.getPathJobOrderXslt());
+				properties.getLevel(), properties.getPathJobOrderXslt(), inputCache);
 
 //		this.authorizedOutputs = inputMessage.getBody().getOutputs();
 //		this.workDirectory = inputMessage.getBody().getWorkDirectory();
@@ -254,9 +277,13 @@ public class ExecutionWorkerService implements Function<IpfExecutionJob, List<Me
 				LOGGER.info("{} Preparing local working directory bypassed",
 						getPrefixMonitorLog(MonitorLogUtils.LOG_INPUT, job));
 			}
+			if (devProperties.getStepsActivation().get("upload")) {
+				outputProcessor.startIncrementalUpload(reporting);
+			}
 			waitForPoolProcessesEnding(getPrefixMonitorLog(MonitorLogUtils.LOG_ERROR, job), submittedFuture,
 					procCompletionSrv, properties.getTmProcAllTasksS() * 1000L);
 			poolProcessing = false;
+			outputProcessor.stopIncrementalUpload(false);
 
 			if (devProperties.getStepsActivation().get("upload")) {
 				checkThreadInterrupted();
@@ -316,6 +343,7 @@ public class ExecutionWorkerService implements Function<IpfExecutionJob, List<Me
 
 			return catalogJobs;
 		} catch (Exception e) {
+			outputProcessor.stopIncrementalUpload(true);
 			if (properties.isProductTypeEstimationEnabled()) {
 				LOGGER.debug("output product type estimation enabled");
 				outputEstimation.estimateWithError(job);
@@ -416,38 +444,20 @@ public class ExecutionWorkerService implements Function<IpfExecutionJob, List<Me
 	private void eraseWorkingDirectory(final String workingDirectoryPath) {
 		if (devProperties.getStepsActivation().getOrDefault("erasing", true)) {
 			final Path workingDir = Paths.get(workingDirectoryPath);
+			final Path inputCacheDir = properties.getInputCacheDir() == null || properties.getInputCacheDir().isEmpty()
+					? null
+					: Paths.get(properties.getInputCacheDir()).toAbsolutePath().normalize();
 			if (Files.exists(workingDir)) {
 				try {
-					LOGGER.info("Erasing local working directory '{}'", workingDir.toString());
-					/*
-					 * Normal file walk will raise an AccessDeniedException, e.g. when a lost and
-					 * found directory does exist. This we are using an own visitor that just
-					 * deleted what is possible and will ignore items it is not able to access
-					 */
-
-					Files.walkFileTree(workingDir, new HashSet<FileVisitOption>(Arrays.asList()), Integer.MAX_VALUE,
-							new SimpleFileVisitor<Path>() {
-								@Override
-								public FileVisitResult visitFile(Path file, BasicFileAttributes attrs)
-										throws IOException {
-									Files.delete(file);
-									return FileVisitResult.CONTINUE;
-								}
-
-								@Override
-								public FileVisitResult visitFileFailed(Path file, IOException e) throws IOException {
-									return FileVisitResult.SKIP_SUBTREE;
-								}
-
-								@Override
-								public FileVisitResult postVisitDirectory(Path dir, IOException e) throws IOException {
-									if (!dir.equals(workingDir)) {
-										Files.delete(dir);
-									}
-
-									return FileVisitResult.CONTINUE;
-								}
-							});
+					if (workingDirectoryReaper.isEnabled()) {
+						LOGGER.info("Moving local working directory '{}' to trash", workingDir.toString());
+						for (final Path remaining : workingDirectoryReaper.dispose(inputCacheDir)) {
+							eraseDirectory(remaining, workingDir, inputCacheDir);
+						}
+					} else {
+						LOGGER.info("Erasing local working directory '{}'", workingDir.toString());
+						eraseDirectory(workingDir, workingDir, inputCacheDir);
+					}
 				} catch (IOException e) {
 					LOGGER.error("Failed to erase local working directory '{}: {}'", workingDir.toString(),
 							e.getMessage());
@@ -460,6 +470,58 @@ public class ExecutionWorkerService implements Function<IpfExecutionJob, List<Me
 		}
 	}
 
+	/**
+	 * Delete the given path and its content, except the working directory itself
+	 * and the input cache directory when located in the working directory
+	 */
+	private void eraseDirectory(final Path path, final Path workingDir, final Path keptDir) throws IOException {
+		/*
+		 * Normal file walk will raise an AccessDeniedException, e.g. when a lost and
+		 * found directory does exist. This we are using an own visitor that just
+		 * deleted what is possible and will ignore items it is not able to access
+		 */
+
+		Files.walkFileTree(path, new HashSet<FileVisitOption>(Arrays.asList()), Integer.MAX_VALUE,
+				new SimpleFileVisitor<Path>() {
+					@Override
+					public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
+						if (isKept(dir)) {
+							return FileVisitResult.SKIP_SUBTREE;
+						}
+						return FileVisitResult.CONTINUE;
+					}
+
+					@Override
+					public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+						Files.delete(file);
+						return FileVisitResult.CONTINUE;
+					}
+
+					@Override
+					public FileVisitResult visitFileFailed(Path file, IOException e) throws IOException {
+						return FileVisitResult.SKIP_SUBTREE;
+					}
+
+					@Override
+					public FileVisitResult postVisitDirectory(Path dir, IOException e) throws IOException {
+						// the parents of the kept directory are not empty
+						if (!dir.equals(workingDir) && (keptDir == null || !keptDir.startsWith(normalized(dir)))) {
+							Files.delete(dir);
+						}
+
+						return FileVisitResult.CONTINUE;
+					}
+
+					private boolean isKept(final Path dir) {
+						return keptDir != null && keptDir.equals(normalized(dir));
+					}
+
+					private Path normalized(final Path dir) {
+						return dir.toAbsolutePath().normalize();
+					}
+				});
+	}
+
 	private List<ReportingFilenameEntry> toReportFilenames(final IpfExecutionJob job) {
 		return new ArrayList<>(job.getInputs().stream().map(this::newEntry).collect(Collectors.toSet()));
 	}
@@ -0,0 +1,137 @@
+package esa.s1pdgs.cpoc.ipf.execution.worker.job;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.junit.After;
+import org.junit.Test;
+
+import esa.s1pdgs.cpoc.common.utils.FileUtils;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+public class WorkingDirectoryReaperTest {
+
+	private final File workingDir = FileUtils.createTmpDir();
+
+	private final File trashDir = new File(workingDir, WorkingDirectoryReaper.TRASH_DIR);
+
+	private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+	private WorkingDirectoryReaper uut = new WorkingDirectoryReaper(workingDir.getPath(), 0, 0, registry);
+
+	@After
+	public final void tearDown() throws Exception {
+		uut.stop();
+		FileUtils.delete(workingDir.getPath());
+	}
+
+	private void writeJob(final String job, final int nbFiles) throws Exception {
+		final File jobDir = new File(workingDir, job);
+		jobDir.mkdirs();
+		for (int i = 0; i < nbFiles; i++) {
+			FileUtils.writeFile(new File(jobDir, "file" + i), "0123456789");
+		}
+	}
+
+	private List<Path> trashEntries() throws Exception {
+		try (Stream<Path> list = Files.list(trashDir.toPath())) {
+			return list.collect(Collectors.toList());
+		}
+	}
+
+	private double count(final String name) {
+		return registry.get(name).counter().count();
+	}
+
+	@Test
+	public void testDisposeMovesContentToTrash() throws Exception {
+		writeJob("job1", 2);
+		new File(workingDir, "lost+found").mkdir();
+
+		assertTrue(uut.dispose().isEmpty());
+
+		assertFalse(new File(workingDir, "job1").exists());
+		assertTrue(new File(workingDir, "lost+found").exists());
+		final List<Path> entries = trashEntries();
+		assertEquals(1, entries.size());
+		assertTrue(entries.get(0).resolve("job1").resolve("file1").toFile().exists());
+	}
+
+	@Test
+	public void testDisposeKeepsInputCache() throws Exception {
+		writeJob("job1", 2);
+		writeJob("cache", 2);
+		writeJob("shared/cache", 2);
+		writeJob("shared/job2", 2);
+
+		assertTrue(uut.dispose(workingDir.toPath().resolve("cache").toAbsolutePath().normalize()).isEmpty());
+		assertFalse(new File(workingDir, "job1").exists());
+		assertTrue(new File(workingDir, "cache/file1").exists());
+		assertFalse(new File(workingDir, "shared").exists());
+
+		writeJob("shared/cache", 2);
+		writeJob("shared/job2", 2);
+		// the content containing the kept directory is left to the caller
+		assertEquals(1, uut.dispose(workingDir.toPath().resolve("shared/cache").toAbsolutePath().normalize()).size());
+		assertTrue(new File(workingDir, "shared/job2").exists());
+		assertFalse(new File(workingDir, "cache").exists());
+	}
+
+	@Test
+	public void testDeleteTrashEntry() throws Exception {
+		writeJob("job1", 3);
+		uut.dispose();
+
+		uut.delete(trashEntries().get(0));
+
+		assertTrue(trashEntries().isEmpty());
+		assertEquals(3, count("rs.execution.worker.workdir.reaper.files"), 0);
+		assertEquals(30, count("rs.execution.worker.workdir.reaper.bytes"), 0);
+	}
+
+	@Test
+	public void testDeletionThrottled() throws Exception {
+		uut = new WorkingDirectoryReaper(workingDir.getPath(), 100, 0, registry);
+		writeJob("job1", 20);
+		uut.dispose();
+
+		final long start = System.currentTimeMillis();
+		uut.delete(trashEntries().get(0));
+		assertTrue(System.currentTimeMillis() - start >= 190);
+	}
+
+	@Test
+	public void testDeletionNotThrottledUnderDiskPressure() throws Exception {
+		uut = new WorkingDirectoryReaper(workingDir.getPath(), 1, Long.MAX_VALUE, registry);
+		writeJob("job1", 20);
+		uut.dispose();
+
+		final long start = System.currentTimeMillis();
+		uut.delete(trashEntries().get(0));
+		assertTrue(System.currentTimeMillis() - start < 5000);
+	}
+
+	@Test
+	public void testTrashResumedAtStart() throws Exception {
+		writeJob("job1", 2);
+		uut.dispose();
+		writeJob("job2", 2);
+
+		uut = new WorkingDirectoryReaper(workingDir.getPath(), 0, 0, registry);
+		uut.start();
+		for (int i = 0; i < 100 && !trashEntries().isEmpty(); i++) {
+			Thread.sleep(50);
+		}
+		assertTrue(trashEntries().isEmpty());
+		// the working directory is only erased on dispose
+		assertTrue(new File(workingDir, "job2").exists());
+	}
+}
@@ -0,0 +1,144 @@
+package esa.s1pdgs.cpoc.ipf.execution.worker.job.file;
+
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doNothing;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.MockitoAnnotations;
+
+import esa.s1pdgs.cpoc.common.errors.InternalErrorException;
+import esa.s1pdgs.cpoc.common.utils.FileUtils;
+import esa.s1pdgs.cpoc.report.ReportingFactory;
+
+public class IncrementalOutputUploaderTest {
+
+	private static final long QUIET_MS = 30000;
+
+	private final File tmpDir = FileUtils.createTmpDir();
+
+	private final String workDirectory = tmpDir.getPath() + File.separator;
+
+	private long now;
+
+	@Mock
+	private OutputProcessor outputProcessor;
+
+	private IncrementalOutputUploader uut;
+
+	@Before
+	public void init() throws Exception {
+		MockitoAnnotations.initMocks(this);
+		doNothing().when(outputProcessor).uploadCompletedOutputs(Mockito.any(), Mockito.any());
+		uut = new IncrementalOutputUploader(outputProcessor, new OutputUtils(null, "MONITOR"), workDirectory,
+				workDirectory + "outputs.list", QUIET_MS, ReportingFactory.NULL, () -> now);
+		now = System.currentTimeMillis() + 2 * QUIET_MS;
+	}
+
+	@After
+	public final void tearDown() throws Exception {
+		FileUtils.delete(tmpDir.getPath());
+	}
+
+	private File write(final String name, final String content, final long lastModified)
+			throws InternalErrorException {
+		final File file = new File(workDirectory + name);
+		file.getParentFile().mkdirs();
+		FileUtils.writeFile(file, content);
+		file.setLastModified(lastModified);
+		return file;
+	}
+
+	@Test
+	public void testUploadOnlyCompleteOutputs() throws Exception {
+		write("NRT/product1", "product1", now - QUIET_MS);
+		write("NRT/product2", "product2", now - 1000);
+		write("outputs.list", "NRT/product1\nNRT/product2\nNRT/product3\n", now - QUIET_MS);
+
+		uut.uploadCompletedOutputs(now);
+		verify(outputProcessor, times(1)).uploadCompletedOutputs(
+				Mockito.eq(Collections.singletonList("NRT/product1")), Mockito.any());
+
+		now += QUIET_MS;
+		uut.uploadCompletedOutputs(now);
+		// uploaded outputs are not uploaded again
+		verify(outputProcessor, times(1)).uploadCompletedOutputs(
+				Mockito.eq(Collections.singletonList("NRT/product2")), Mockito.any());
+		verify(outputProcessor, times(2)).uploadCompletedOutputs(Mockito.any(), Mockito.any());
+	}
+
+	@Test
+	public void testNoUploadWhileListFileIsWritten() throws Exception {
+		write("NRT/product1", "product1", now - QUIET_MS);
+		write("outputs.list", "NRT/product1\nNRT/prod", now - 1000);
+
+		uut.uploadCompletedOutputs(now);
+		verify(outputProcessor, never()).uploadCompletedOutputs(Mockito.any(), Mockito.any());
+	}
+
+	@Test
+	public void testNoUploadWithoutListFile() throws Exception {
+		write("NRT/product1", "product1", now - QUIET_MS);
+
+		uut.uploadCompletedOutputs(now);
+		verify(outputProcessor, never()).uploadCompletedOutputs(Mockito.any(), Mockito.any());
+	}
+
+	@Test
+	public void testStartAndStop() throws Exception {
+		uut = new IncrementalOutputUploader(outputProcessor, new OutputUtils(null, "MONITOR"), workDirectory,
+				workDirectory + "outputs.list", 10, ReportingFactory.NULL);
+		write("NRT/product1", "product1", System.currentTimeMillis() - 1000);
+		write("outputs.list", "NRT/product1\n", System.currentTimeMillis() - 1000);
+
+		uut.start();
+		verify(outputProcessor, Mockito.timeout(5000)).uploadCompletedOutputs(
+				Mockito.eq(Arrays.asList("NRT/product1")), Mockito.any());
+		uut.stop();
+	}
+
+	@Test
+	public void testCancelOfUninterruptibleUploadBounded() throws Exception {
+		final CountDownLatch uploading = new CountDownLatch(1);
+		final CountDownLatch released = new CountDownLatch(1);
+		doAnswer(i -> {
+			uploading.countDown();
+			// ignores the interruption, as a blocking I/O may do
+			while (released.getCount() > 0) {
+				try {
+					released.await();
+				} catch (final InterruptedException e) {
+					// keep waiting
+				}
+			}
+			return null;
+		}).when(outputProcessor).uploadCompletedOutputs(Mockito.any(), Mockito.any());
+		uut = new IncrementalOutputUploader(outputProcessor, new OutputUtils(null, "MONITOR"), workDirectory,
+				workDirectory + "outputs.list", 10, ReportingFactory.NULL);
+		write("NRT/product1", "product1", System.currentTimeMillis() - 1000);
+		write("outputs.list", "NRT/product1\n", System.currentTimeMillis() - 1000);
+
+		uut.start();
+		try {
+			assertTrue(uploading.await(5, TimeUnit.SECONDS));
+			final long start = System.currentTimeMillis();
+			uut.cancel(1);
+			assertTrue(System.currentTimeMillis() - start < 5000);
+		} finally {
+			released.countDown();
+		}
+	}
+}
@@ -0,0 +1,219 @@
+package esa.s1pdgs.cpoc.ipf.execution.worker.job.file;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.attribute.PosixFilePermission;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.MockitoAnnotations;
+
+import esa.s1pdgs.cpoc.common.ProductFamily;
+import esa.s1pdgs.cpoc.common.utils.FileUtils;
+import esa.s1pdgs.cpoc.obs_sdk.ObsClient;
+import esa.s1pdgs.cpoc.obs_sdk.ObsDownloadObject;
+import esa.s1pdgs.cpoc.obs_sdk.SdkClientException;
+import esa.s1pdgs.cpoc.report.ReportingFactory;
+
+public class InputCacheTest {
+
+	private static final String AUX_CAL = "S1A_AUX_CAL_V20190228T092500_G20190227T083401.SAFE";
+
+	private static final String AUX_PP1 = "S1A_AUX_PP1_V20190228T092500_G20190227T083426.SAFE";
+
+	private final File tmpDir = FileUtils.createTmpDir();
+
+	/**
+	 * ETags of the objects in the OBS
+	 */
+	private final Map<String, String> etags = new HashMap<>();
+
+	private long now = 100000;
+
+	@Mock
+	private ObsClient obsClient;
+
+	private InputCache uut;
+
+	@Before
+	public void init() throws Exception {
+		MockitoAnnotations.initMocks(this);
+		etags.put(AUX_CAL, "etag1");
+		etags.put(AUX_PP1, "etag2");
+		doAnswer(i -> {
+			final String key = ((String) i.getArgument(1)).replace(".md5sum", "");
+			if (!etags.containsKey(key)) {
+				throw new SdkClientException("not found");
+			}
+			final String md5 = "md5 " + etags.get(key) + " " + key + "/manifest.safe\n";
+			return new ByteArrayInputStream(md5.getBytes(StandardCharsets.UTF_8));
+		}).when(obsClient).getAsStream(Mockito.any(), Mockito.anyString());
+		doAnswer(i -> {
+			final List<ObsDownloadObject> objects = i.getArgument(0);
+			for (final ObsDownloadObject object : objects) {
+				final File file = new File(object.getTargetDir() + File.separator + object.getKey(), "manifest.safe");
+				file.getParentFile().mkdirs();
+				FileUtils.writeFile(file, object.getKey() + etags.get(object.getKey()));
+			}
+			return new ArrayList<File>();
+		}).when(obsClient).download(Mockito.any(), Mockito.any());
+		uut = newCache(1024 * 1024);
+	}
+
+	@After
+	public final void tearDown() throws Exception {
+		FileUtils.delete(tmpDir.getPath());
+	}
+
+	private InputCache newCache(final long maxSizeBytes) {
+		return new InputCache(tmpDir.getPath() + File.separator + "cache", maxSizeBytes,
+				Arrays.asList(ProductFamily.AUXILIARY_FILE), null, () -> now);
+	}
+
+	private ObsDownloadObject object(final ProductFamily family, final String key, final String workDir) {
+		return new ObsDownloadObject(family, key, tmpDir.getPath() + File.separator + workDir);
+	}
+
+	private File manifest(final String workDir, final String key) {
+		return new File(tmpDir.getPath() + File.separator + workDir + File.separator + key, "manifest.safe");
+	}
+
+	@Test
+	public void testMissThenHit() throws Exception {
+		assertTrue(uut.provide(obsClient,
+				Collections.singletonList(object(ProductFamily.AUXILIARY_FILE, AUX_CAL, "job1")), ReportingFactory.NULL)
+				.isEmpty());
+		assertTrue(uut.provide(obsClient,
+				Collections.singletonList(object(ProductFamily.AUXILIARY_FILE, AUX_CAL, "job2")), ReportingFactory.NULL)
+				.isEmpty());
+
+		verify(obsClient, times(1)).download(Mockito.any(), Mockito.any());
+		assertEquals(AUX_CAL + "etag1", FileUtils.readFile(manifest("job1", AUX_CAL)));
+		assertEquals(AUX_CAL + "etag1", FileUtils.readFile(manifest("job2", AUX_CAL)));
+		assertEquals(0.5, uut.hitRatio(), 0.001);
+		// the cached files are shared, not copied
+		assertEquals(Files.getAttribute(manifest("job1", AUX_CAL).toPath(), "unix:ino"),
+				Files.getAttribute(manifest("job2", AUX_CAL).toPath(), "unix:ino"));
+		assertFalse(Files.getPosixFilePermissions(manifest("job2", AUX_CAL).toPath())
+				.contains(PosixFilePermission.OWNER_WRITE));
+	}
+
+	@Test
+	public void testUpdatedObjectDownloadedAgain() throws Exception {
+		uut.provide(obsClient, Collections.singletonList(object(ProductFamily.AUXILIARY_FILE, AUX_CAL, "job1")),
+				ReportingFactory.NULL);
+		etags.put(AUX_CAL, "etag3");
+		uut.provide(obsClient, Collections.singletonList(object(ProductFamily.AUXILIARY_FILE, AUX_CAL, "job2")),
+				ReportingFactory.NULL);
+
+		verify(obsClient, times(2)).download(Mockito.any(), Mockito.any());
+		assertEquals(AUX_CAL + "etag3", FileUtils.readFile(manifest("job2", AUX_CAL)));
+	}
+
+	@Test
+	public void testSameObjectProvidedConcurrently() throws Exception {
+		// both jobs download the object before one of them populates the entry
+		final CyclicBarrier downloaded = new CyclicBarrier(2);
+		doAnswer(i -> {
+			final List<ObsDownloadObject> objects = i.getArgument(0);
+			for (final ObsDownloadObject object : objects) {
+				final File file = new File(object.getTargetDir() + File.separator + object.getKey(), "manifest.safe");
+				file.getParentFile().mkdirs();
+				FileUtils.writeFile(file, object.getKey() + etags.get(object.getKey()));
+			}
+			downloaded.await(10, TimeUnit.SECONDS);
+			return new ArrayList<File>();
+		}).when(obsClient).download(Mockito.any(), Mockito.any());
+
+		final ExecutorService executor = Executors.newFixedThreadPool(2);
+		try {
+			final Future<List<ObsDownloadObject>> job1 = executor.submit(() -> uut.provide(obsClient,
+					Collections.singletonList(object(ProductFamily.AUXILIARY_FILE, AUX_CAL, "job1")),
+					ReportingFactory.NULL));
+			final Future<List<ObsDownloadObject>> job2 = executor.submit(() -> uut.provide(obsClient,
+					Collections.singletonList(object(ProductFamily.AUXILIARY_FILE, AUX_CAL, "job2")),
+					ReportingFactory.NULL));
+
+			assertTrue(job1.get(10, TimeUnit.SECONDS).isEmpty());
+			assertTrue(job2.get(10, TimeUnit.SECONDS).isEmpty());
+		} finally {
+			executor.shutdownNow();
+		}
+		assertEquals(AUX_CAL + "etag1", FileUtils.readFile(manifest("job1", AUX_CAL)));
+		assertEquals(AUX_CAL + "etag1", FileUtils.readFile(manifest("job2", AUX_CAL)));
+		// both jobs share the entry kept in the cache
+		assertEquals(Files.getAttribute(manifest("job1", AUX_CAL).toPath(), "unix:ino"),
+				Files.getAttribute(manifest("job2", AUX_CAL).toPath(), "unix:ino"));
+	}
+
+	@Test
+	public void testNotCacheableObjectsReturned() throws Exception {
+		final ObsDownloadObject withoutChecksum = object(ProductFamily.AUXILIARY_FILE, "S1A_AUX_INS.SAFE", "job1");
+		final ObsDownloadObject otherFamily = object(ProductFamily.L0_SLICE, AUX_CAL, "job1");
+
+		assertEquals(Arrays.asList(withoutChecksum, otherFamily),
+				uut.provide(obsClient, Arrays.asList(withoutChecksum, otherFamily), ReportingFactory.NULL));
+		verify(obsClient, never()).download(Mockito.any(), Mockito.any());
+	}
+
+	@Test
+	public void testLeastRecentlyUsedEvicted() throws Exception {
+		uut = newCache(AUX_CAL.length() + 5 + AUX_PP1.length() + 5);
+		uut.provide(obsClient, Collections.singletonList(object(ProductFamily.AUXILIARY_FILE, AUX_CAL, "job1")),
+				ReportingFactory.NULL);
+		now += 1000;
+		uut.provide(obsClient, Collections.singletonList(object(ProductFamily.AUXILIARY_FILE, AUX_PP1, "job1")),
+				ReportingFactory.NULL);
+		now += 1000;
+		// AUX_CAL used again, so AUX_PP1 is the least recently used
+		uut.provide(obsClient, Collections.singletonList(object(ProductFamily.AUXILIARY_FILE, AUX_CAL, "job2")),
+				ReportingFactory.NULL);
+		etags.put("S1A_AUX_INS.SAFE", "etag4");
+		now += 1000;
+		uut.provide(obsClient,
+				Collections.singletonList(object(ProductFamily.AUXILIARY_FILE, "S1A_AUX_INS.SAFE", "job2")),
+				ReportingFactory.NULL);
+		verify(obsClient, times(3)).download(Mockito.any(), Mockito.any());
+
+		uut.provide(obsClient, Collections.singletonList(object(ProductFamily.AUXILIARY_FILE, AUX_CAL, "job3")),
+				ReportingFactory.NULL);
+		verify(obsClient, times(3)).download(Mockito.any(), Mockito.any());
+		uut.provide(obsClient, Collections.singletonList(object(ProductFamily.AUXILIARY_FILE, AUX_PP1, "job3")),
+				ReportingFactory.NULL);
+		verify(obsClient, times(4)).download(Mockito.any(), Mockito.any());
+		// files linked in the working directories survive the eviction
+		assertTrue(manifest("job1", AUX_PP1).exists());
+	}
+
+	@Test
+	public void testDisabled() throws Exception {
+		final List<ObsDownloadObject> objects = Collections
+				.singletonList(object(ProductFamily.AUXILIARY_FILE, AUX_CAL, "job1"));
+		assertEquals(objects, InputCache.disabled().provide(obsClient, objects, ReportingFactory.NULL));
+		verify(obsClient, never()).getAsStream(Mockito.any(), Mockito.any());
+	}
+}
@@ -171,6 +171,8 @@ public class InputDownloaderTest {
         assertFalse(blankFile.exists());
 
         verify(poolProcessorExecutor, times(2)).setActive(Mockito.eq(true));
+        // once for the job order then once per batch
+        verify(poolProcessorExecutor, times(3)).setInputsAvailable(Mockito.any());
 
     }
 
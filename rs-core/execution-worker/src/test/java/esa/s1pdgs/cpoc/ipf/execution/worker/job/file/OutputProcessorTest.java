@@ -6,6 +6,8 @@ import static org.junit.Assert.assertNull;
 import static org.junit.Assert.fail;
 import static org.mockito.Mockito.doNothing;
 import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 
 import java.io.BufferedOutputStream;
 import java.io.File;
@@ -15,15 +17,20 @@ import java.io.OutputStream;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 import java.util.UUID;
+import java.util.stream.Collectors;
 
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.Mockito;
 import org.mockito.MockitoAnnotations;
+import org.springframework.messaging.Message;
 import org.springframework.util.StreamUtils;
 
 import esa.s1pdgs.cpoc.common.ApplicationLevel;
@@ -39,6 +46,7 @@ import esa.s1pdgs.cpoc.ipf.execution.worker.config.ApplicationProperties;
 import esa.s1pdgs.cpoc.ipf.execution.worker.job.model.mqi.FileQueueMessage;
 import esa.s1pdgs.cpoc.ipf.execution.worker.job.model.mqi.ObsQueueMessage;
 import esa.s1pdgs.cpoc.metadata.model.MissionId;
+import esa.s1pdgs.cpoc.mqi.model.queue.CatalogJob;
 import esa.s1pdgs.cpoc.mqi.model.queue.IpfExecutionJob;
 import esa.s1pdgs.cpoc.mqi.model.queue.LevelJobOutputDto;
 import esa.s1pdgs.cpoc.obs_sdk.FileObsUploadObject;
@@ -637,6 +645,42 @@ public class OutputProcessorTest {
                 reportToPublish.get(2));
     }
 
+    /**
+     * Test an output modified after its upload while the IPF was running is
+     * uploaded again at the end
+     */
+    @SuppressWarnings("unchecked")
+    @Test
+    public void testProcessOutputUploadsModifiedOutputAgain() throws Exception {
+        final String workDirectory = PATH_DIRECTORY_TEST + File.separator;
+        final IpfExecutionJob job = new IpfExecutionJob(ProductFamily.L0_JOB, "product-name", "FAST24",
+                workDirectory, "job-order", "FAST24", new UUID(23L, 42L));
+        job.setOutputs(authorizedOutputs);
+        final OutputProcessor uut = new OutputProcessor(obsClient, job, workDirectory + "outputs.list", 2,
+                "MONITOR", ApplicationLevel.L0, properties, commonProperties);
+        final String unchanged = "S1A_IW_RAW__0ADV_20171213T121123_20171213T121947_019684_021735_51B1.SAFE";
+        final String modified = "S1A_IW_RAW__0ADV_20171213T121123_20171213T121947_019684_021735_51B2.SAFE";
+        FileUtils.writeFile(new File(tmpDir, "outputs.list"), unchanged + "\n" + modified + "\n");
+        for (final String product : Arrays.asList(unchanged, modified)) {
+            new File(tmpDir, product).mkdirs();
+            FileUtils.writeFile(new File(tmpDir, product + "/manifest.safe"), "partial");
+        }
+
+        uut.uploadCompletedOutputs(Arrays.asList(unchanged, modified), reporting);
+        FileUtils.writeFile(new File(tmpDir, modified + "/manifest.safe"), "complete");
+        final List<Message<CatalogJob>> result = uut.processOutput(reporting, new UUID(23L, 42L), job);
+
+        final ArgumentCaptor<List<FileObsUploadObject>> uploads = ArgumentCaptor.forClass(List.class);
+        verify(obsClient, times(2)).upload(uploads.capture(), Mockito.any());
+        assertEquals(Arrays.asList(unchanged, modified), keysOf(uploads.getAllValues().get(0)));
+        assertEquals(Collections.singletonList(modified), keysOf(uploads.getAllValues().get(1)));
+        assertEquals(2, result.size());
+    }
+
+    private static List<String> keysOf(final List<FileObsUploadObject> uploads) {
+        return uploads.stream().map(FileObsUploadObject::getKey).collect(Collectors.toList());
+    }
+
 	
 	@Test
 	public final void testIsPartial() throws Exception {
@@ -0,0 +1,60 @@
+package esa.s1pdgs.cpoc.ipf.execution.worker.job.process;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+public class InputReadinessTest {
+
+	private final InputReadiness uut = new InputReadiness();
+
+	@Test
+	public void testAwaitDeclaredInputs() throws InterruptedException {
+		uut.markAvailable(Collections.singletonList("aux"));
+
+		assertTrue(uut.await(Collections.emptyList(), 0));
+		assertTrue(uut.await(Collections.singletonList("aux"), 0));
+		assertFalse(uut.await(Arrays.asList("aux", "raw"), System.currentTimeMillis() + 50));
+		// undeclared inputs wait for all inputs
+		assertFalse(uut.await(null, System.currentTimeMillis() + 50));
+	}
+
+	@Test
+	public void testAwaitNothingBeforeFirstPublication() throws InterruptedException {
+		assertFalse(uut.await(Collections.emptyList(), System.currentTimeMillis() + 50));
+
+		uut.markAvailable(Collections.emptyList());
+		assertTrue(uut.await(Collections.emptyList(), 0));
+	}
+
+	@Test
+	public void testAwaitReleased() throws InterruptedException {
+		uut.setReleased(true);
+
+		assertTrue(uut.await(null, 0));
+		assertTrue(uut.await(Collections.singletonList("raw"), 0));
+	}
+
+	@Test
+	public void testAwaitWokenUpOnMarkAvailable() throws Exception {
+		final ExecutorService executor = Executors.newSingleThreadExecutor();
+		try {
+			final Future<Boolean> result = executor.submit(
+					() -> uut.await(Arrays.asList("aux", "raw"), System.currentTimeMillis() + 10000));
+
+			uut.markAvailable(Collections.singletonList("aux"));
+			uut.markAvailable(Collections.singletonList("raw"));
+			assertTrue(result.get(5, TimeUnit.SECONDS));
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+}
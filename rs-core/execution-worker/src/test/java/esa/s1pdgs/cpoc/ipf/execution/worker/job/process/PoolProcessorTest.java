@@ -10,6 +10,7 @@ import org.junit.After;
 import org.junit.Test;
 
 import esa.s1pdgs.cpoc.common.errors.AbstractCodedException;
+import esa.s1pdgs.cpoc.common.errors.processing.IpfExecutionWorkerProcessTimeoutException;
 import esa.s1pdgs.cpoc.ipf.execution.worker.test.SystemUtils;
 import esa.s1pdgs.cpoc.metadata.model.MissionId;
 import esa.s1pdgs.cpoc.mqi.model.queue.LevelJobPoolDto;
@@ -61,4 +62,54 @@ public class PoolProcessorTest {
         final PoolProcessor processor = new PoolProcessor(dto, "3", "./", "log", 60, false, Collections.emptyList());
         processor.process(reporting);
     }
+
+    @Test
+    public void testExecutionWithTaskInputsPresent() throws AbstractCodedException {
+        final LevelJobPoolDto dto = new LevelJobPoolDto();
+        dto.addTask(new LevelJobTaskDto(SystemUtils.getCmdMkdir(), Collections.singletonList("aux")));
+        final InputReadiness inputReadiness = new InputReadiness();
+        inputReadiness.markAvailable(Collections.singletonList("aux"));
+        final PoolProcessor processor = new PoolProcessor(dto, "3", "./", "log", 60, false, Collections.emptyList(),
+                inputReadiness);
+        processor.process(reporting, System.currentTimeMillis() + 5000);
+        assertTrue(testDir.exists() && testDir.isDirectory());
+    }
+
+    @Test(expected = IpfExecutionWorkerProcessTimeoutException.class)
+    public void testExecutionWithTaskInputsMissing() throws AbstractCodedException {
+        final LevelJobPoolDto dto = new LevelJobPoolDto();
+        dto.addTask(new LevelJobTaskDto(SystemUtils.getCmdMkdir(), Collections.singletonList("aux")));
+        final PoolProcessor processor = new PoolProcessor(dto, "3", "./", "log", 60, false, Collections.emptyList(),
+                new InputReadiness());
+        try {
+            processor.process(reporting, System.currentTimeMillis() + 100);
+        } finally {
+            assertFalse(testDir.exists());
+        }
+    }
+
+    @Test(expected = IpfExecutionWorkerProcessTimeoutException.class)
+    public void testExecutionWithoutTaskInputsBeforeJobOrder() throws AbstractCodedException {
+        final LevelJobPoolDto dto = new LevelJobPoolDto();
+        dto.addTask(new LevelJobTaskDto(SystemUtils.getCmdMkdir(), Collections.emptyList()));
+        final PoolProcessor processor = new PoolProcessor(dto, "3", "./", "log", 60, false, Collections.emptyList(),
+                new InputReadiness());
+        try {
+            processor.process(reporting, System.currentTimeMillis() + 100);
+        } finally {
+            assertFalse(testDir.exists());
+        }
+    }
+
+    @Test
+    public void testExecutionWithoutTaskInputsAfterJobOrder() throws AbstractCodedException {
+        final LevelJobPoolDto dto = new LevelJobPoolDto();
+        dto.addTask(new LevelJobTaskDto(SystemUtils.getCmdMkdir(), Collections.emptyList()));
+        final InputReadiness inputReadiness = new InputReadiness();
+        inputReadiness.markAvailable(Collections.singletonList("3"));
+        final PoolProcessor processor = new PoolProcessor(dto, "3", "./", "log", 60, false, Collections.emptyList(),
+                inputReadiness);
+        processor.process(reporting, System.currentTimeMillis() + 5000);
+        assertTrue(testDir.exists() && testDir.isDirectory());
+    }
 }
@@ -1,5 +0,0 @@
-package esa.s1pdgs.cpoc.ipf.execution.worker.job.process;
-
-public class StreamGobblerTest {
-
-}
@@ -3,6 +3,7 @@ package esa.s1pdgs.cpoc.ingestion.worker.config;
 import static esa.s1pdgs.cpoc.ingestion.worker.inbox.InboxAdapterManager.uriRegexFor;
 import static esa.s1pdgs.cpoc.ingestion.worker.inbox.InboxAdapterManager.uriRegexForFile;
 
+import java.nio.file.Paths;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -24,6 +25,8 @@ import esa.s1pdgs.cpoc.ingestion.worker.inbox.FilesystemInboxAdapter;
 import esa.s1pdgs.cpoc.ingestion.worker.inbox.InboxAdapter;
 import esa.s1pdgs.cpoc.ingestion.worker.inbox.InboxAdapterManager;
 import esa.s1pdgs.cpoc.ingestion.worker.inbox.XbipInboxAdapter;
+import esa.s1pdgs.cpoc.ingestion.worker.obs.InboxAdapterEntryBuffer;
+import esa.s1pdgs.cpoc.ingestion.worker.obs.SpillingInboxAdapterEntryBuffer;
 import esa.s1pdgs.cpoc.ingestion.worker.product.ProductService;
 import esa.s1pdgs.cpoc.ingestion.worker.product.ProductServiceImpl;
 import esa.s1pdgs.cpoc.obs_sdk.ObsClient;
@@ -98,6 +101,17 @@ public class InboxAdapterManagerConfiguration {
 	public ProductService productService(
 			final ObsClient obsClient,
 			final AppStatus appStatus) {
-		return new ProductServiceImpl(obsClient, properties.isBufferInputs(), appStatus);
+		return new ProductServiceImpl(obsClient, inboxAdapterEntryBuffer(), appStatus);
+	}
+
+	private InboxAdapterEntryBuffer inboxAdapterEntryBuffer() {
+		if (!properties.isBufferInputs()) {
+			return InboxAdapterEntryBuffer.NONE;
+		}
+		return new SpillingInboxAdapterEntryBuffer(
+				properties.getBufferMemoryThresholdMb() * 1024 * 1024,
+				properties.getBufferMemoryBudgetMb() * 1024 * 1024,
+				Paths.get(properties.getBufferSpillDirectory())
+		);
 	}
 }
@@ -11,6 +11,9 @@ public class IngestionWorkerServiceConfigurationProperties {
 	private long tempoRetryMs = 100;
 	private String hostname = "localhost";
 	private boolean bufferInputs = false;
+	private long bufferMemoryThresholdMb = 64;
+	private long bufferMemoryBudgetMb = 256;
+	private String bufferSpillDirectory = System.getProperty("java.io.tmpdir");
 	
 	public long getPollingIntervalMs() {
 		return pollingIntervalMs;
@@ -50,5 +53,29 @@ public class IngestionWorkerServiceConfigurationProperties {
 
 	public void setBufferInputs(final boolean bufferInputs) {
 		this.bufferInputs = bufferInputs;
-	}	
+	}
+
+	public long getBufferMemoryThresholdMb() {
+		return bufferMemoryThresholdMb;
+	}
+
+	public void setBufferMemoryThresholdMb(final long bufferMemoryThresholdMb) {
+		this.bufferMemoryThresholdMb = bufferMemoryThresholdMb;
+	}
+
+	public long getBufferMemoryBudgetMb() {
+		return bufferMemoryBudgetMb;
+	}
+
+	public void setBufferMemoryBudgetMb(final long bufferMemoryBudgetMb) {
+		this.bufferMemoryBudgetMb = bufferMemoryBudgetMb;
+	}
+
+	public String getBufferSpillDirectory() {
+		return bufferSpillDirectory;
+	}
+
+	public void setBufferSpillDirectory(final String bufferSpillDirectory) {
+		this.bufferSpillDirectory = bufferSpillDirectory;
+	}
 }
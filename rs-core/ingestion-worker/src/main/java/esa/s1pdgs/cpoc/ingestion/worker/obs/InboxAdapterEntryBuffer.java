@@ -0,0 +1,26 @@
+package esa.s1pdgs.cpoc.ingestion.worker.obs;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+import esa.s1pdgs.cpoc.ingestion.worker.inbox.InboxAdapterEntry;
+
+/**
+ * Strategy how the content of an {@link InboxAdapterEntry} is provided to the
+ * OBS upload.
+ */
+public interface InboxAdapterEntryBuffer {
+
+	/**
+	 * Uploads directly from the inbox connection (no buffering)
+	 */
+	InboxAdapterEntryBuffer NONE = InboxAdapterEntry::inputStream;
+
+	/**
+	 * Returns the stream the entry shall be uploaded from. Implementations that
+	 * buffer the content read the entry completely and close its input stream
+	 * before returning (S1PRO-2117). Closing the returned stream releases all
+	 * resources held by the buffer.
+	 */
+	InputStream buffer(InboxAdapterEntry entry) throws IOException;
+}
@@ -1,11 +1,9 @@
 package esa.s1pdgs.cpoc.ingestion.worker.obs;
 
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.ArrayList;
 import java.util.List;
-import java.util.stream.Collectors;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
@@ -30,22 +28,20 @@ public class ObsAdapter {
 
     private static final Logger LOG = LogManager.getLogger(ObsAdapter.class);
 
-    private static final int BUFFER_SIZE = 8 * 1024 * 1024; // copy in 8M blocks
-
     private final ObsClient obsClient;
     private final ReportingFactory reportingFactory;
-    private final boolean copyInputStreamToBuffer;
+    private final InboxAdapterEntryBuffer entryBuffer;
     private final AppStatus appStatus;
 
     public ObsAdapter(
             final ObsClient obsClient,
             final ReportingFactory reportingFactory,
-            final boolean copyInputStreamToBuffer,
+            final InboxAdapterEntryBuffer entryBuffer,
             final AppStatus appStatus
             ) {
         this.obsClient = obsClient;
         this.reportingFactory = reportingFactory;
-        this.copyInputStreamToBuffer = copyInputStreamToBuffer;
+        this.entryBuffer = entryBuffer;
         this.appStatus = appStatus;
     }
     
@@ -54,8 +50,9 @@ public class ObsAdapter {
     }
 
     public final void upload(final ProductFamily family, final List<InboxAdapterEntry> entries, final String obsKey) throws ObsEmptyFileException {
+        final List<StreamObsUploadObject> uploadObjects = toUploadObjects(family, entries);
         try {
-            obsClient.uploadStreams(toUploadObjects(family, entries), reportingFactory);
+            obsClient.uploadStreams(uploadObjects, reportingFactory);
         } catch (final ObsUnrecoverableException e) {
             LOG.error("error during upload of {} {}", family, obsKey, e);
             appStatus.getStatus().setFatalError();
@@ -66,6 +63,9 @@ public class ObsAdapter {
             throw new RuntimeException(
                     String.format("Error uploading %s (%s): %s", obsKey, family, LogUtils.toString(e))
             );
+        } finally {
+            // the streams not uploaded because of an error still hold their buffer
+            closeQuietly(uploadObjects);
         }
     }
 
@@ -99,33 +99,36 @@ public class ObsAdapter {
     }
 
     private List<StreamObsUploadObject> toUploadObjects(final ProductFamily family, final List<InboxAdapterEntry> entries) {
-        return entries.stream()
-                .map(e -> new StreamObsUploadObject(family, e.key(), inputStreamOf(e), e.size()))
-                .collect(Collectors.toList());
+        final List<StreamObsUploadObject> uploadObjects = new ArrayList<>();
+        try {
+            for (final InboxAdapterEntry entry : entries) {
+                uploadObjects.add(new StreamObsUploadObject(family, entry.key(), inputStreamOf(entry), entry.size()));
+            }
+            return uploadObjects;
+        } catch (final RuntimeException e) {
+            // release the buffers of the entries already buffered
+            closeQuietly(uploadObjects);
+            throw e;
+        }
     }
 
-    private InputStream inputStreamOf(final InboxAdapterEntry entry) {
-        // S1PRO-2117: Make the buffer explicit here and avoid having too many concurrent open connection
-        // for product download
-        if (copyInputStreamToBuffer) {
-            // No use of retries here as input stream is closed anyway and needs to be re-read,
-            // i.e. retries may make sense in ProductServiceImpl
-            return copyFromInputStream(entry);
+    private static void closeQuietly(final List<StreamObsUploadObject> uploadObjects) {
+        for (final StreamObsUploadObject uploadObject : uploadObjects) {
+            try {
+                uploadObject.close();
+            } catch (final IOException e) {
+                LOG.warn("Error on closing upload stream of {}: {}", uploadObject.getKey(), Exceptions.messageOf(e));
+            }
         }
-        // old behavior
-        return entry.inputStream();
     }
 
-    private static InputStream copyFromInputStream(final InboxAdapterEntry entry) {
-        try (final InputStream in = entry.inputStream();
-             final ByteArrayOutputStream out = new ByteArrayOutputStream()) {
-
-            final byte[] buffer = new byte[BUFFER_SIZE];
-            int bytesRead;
-            while ((bytesRead = in.read(buffer)) != -1) {
-                out.write(buffer, 0, bytesRead);
-            }
-            return new ByteArrayInputStream(out.toByteArray());
+    private InputStream inputStreamOf(final InboxAdapterEntry entry) {
+        // S1PRO-2117: Make the buffer explicit here and avoid having too many concurrent open connection
+        // for product download
+        // No use of retries here as input stream is closed anyway and needs to be re-read,
+        // i.e. retries may make sense in ProductServiceImpl
+        try {
+            return entryBuffer.buffer(entry);
         } catch (final IOException e) {
             throw new RuntimeException(
                     String.format("Error on downloading '%s': %s", entry.key(), Exceptions.messageOf(e)),
@@ -0,0 +1,177 @@
+package esa.s1pdgs.cpoc.ingestion.worker.obs;
+
+import java.io.ByteArrayInputStream;
+import java.io.FileInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PushbackInputStream;
+import java.io.SequenceInputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import esa.s1pdgs.cpoc.ingestion.worker.inbox.InboxAdapterEntry;
+
+/**
+ * Buffers an entry in memory blocks as long as the per entry threshold and the
+ * memory budget shared by all concurrent ingestions of the pod allow, the rest
+ * of the entry is spilled to a temporary file. Heap usage is therefore bounded
+ * by the budget instead of the product size.
+ */
+public final class SpillingInboxAdapterEntryBuffer implements InboxAdapterEntryBuffer {
+
+	private static final Logger LOG = LogManager.getLogger(SpillingInboxAdapterEntryBuffer.class);
+
+	static final int DEFAULT_BLOCK_SIZE = 1024 * 1024;
+
+	private final int blockSize;
+	private final long memoryThreshold;
+	private final Path spillDirectory;
+	private final AtomicLong availableBudget;
+
+	public SpillingInboxAdapterEntryBuffer(final long memoryThreshold, final long memoryBudget, final Path spillDirectory) {
+		this(DEFAULT_BLOCK_SIZE, memoryThreshold, memoryBudget, spillDirectory);
+	}
+
+	SpillingInboxAdapterEntryBuffer(final int blockSize, final long memoryThreshold, final long memoryBudget,
+			final Path spillDirectory) {
+		this.blockSize = blockSize;
+		this.memoryThreshold = memoryThreshold;
+		this.spillDirectory = spillDirectory;
+		this.availableBudget = new AtomicLong(memoryBudget);
+	}
+
+	@Override
+	public InputStream buffer(final InboxAdapterEntry entry) throws IOException {
+		final List<InputStream> parts = new ArrayList<>();
+		long reserved = 0;
+		Path spillFile = null;
+		boolean success = false;
+
+		try (final PushbackInputStream in = new PushbackInputStream(entry.inputStream())) {
+			long expected = entry.size();
+			long read = 0;
+			while (true) {
+				if (expected > 0 && read >= expected) {
+					// announced size reached, only go on if the entry is actually larger
+					final int next = in.read();
+					if (next == -1) {
+						break;
+					}
+					in.unread(next);
+					expected = -1;
+				}
+				// the last block only reserves what remains of the entry
+				final int size = expected > 0 ? (int) Math.min(blockSize, expected - read) : blockSize;
+				if (reserved + size <= memoryThreshold && tryReserve(size)) {
+					reserved += size;
+					final byte[] block = new byte[size];
+					final int length = readFully(in, block);
+					read += length;
+					parts.add(new ByteArrayInputStream(block, 0, length));
+					if (length < size) {
+						break;
+					}
+				} else {
+					spillFile = Files.createTempFile(spillDirectory, "ingestion-", ".buffer");
+					final long spilled = Files.copy(in, spillFile, StandardCopyOption.REPLACE_EXISTING);
+					if (spilled == 0) {
+						// entry ended exactly at the last memory block
+						deleteQuietly(spillFile);
+						spillFile = null;
+						break;
+					}
+					LOG.debug("Spilled {} bytes of {} to {} ({} bytes kept in memory)", spilled, entry.key(),
+							spillFile, reserved);
+					parts.add(new FileInputStream(spillFile.toFile()));
+					break;
+				}
+			}
+			success = true;
+			return new BufferedEntryInputStream(parts, reserved, spillFile);
+		} finally {
+			if (!success) {
+				release(reserved);
+				deleteQuietly(spillFile);
+			}
+		}
+	}
+
+	final long availableBudget() {
+		return availableBudget.get();
+	}
+
+	private boolean tryReserve(final long bytes) {
+		long current;
+		do {
+			current = availableBudget.get();
+			if (current < bytes) {
+				return false;
+			}
+		} while (!availableBudget.compareAndSet(current, current - bytes));
+		return true;
+	}
+
+	private void release(final long bytes) {
+		availableBudget.addAndGet(bytes);
+	}
+
+	private static int readFully(final InputStream in, final byte[] block) throws IOException {
+		int length = 0;
+		while (length < block.length) {
+			final int read = in.read(block, length, block.length - length);
+			if (read == -1) {
+				break;
+			}
+			length += read;
+		}
+		return length;
+	}
+
+	private static void deleteQuietly(final Path file) {
+		if (file == null) {
+			return;
+		}
+		try {
+			Files.deleteIfExists(file);
+		} catch (final IOException e) {
+			LOG.warn("Could not delete buffer file {}: {}", file, e.getMessage());
+		}
+	}
+
+	private final class BufferedEntryInputStream extends FilterInputStream {
+		private final long reserved;
+		private final Path spillFile;
+		private final AtomicBoolean closed = new AtomicBoolean(false);
+
+		BufferedEntryInputStream(final List<InputStream> parts, final long reserved, final Path spillFile) {
+			super(new SequenceInputStream(Collections.enumeration(parts)));
+			this.reserved = reserved;
+			this.spillFile = spillFile;
+		}
+
+		@Override
+		public void close() throws IOException {
+			if (!closed.compareAndSet(false, true)) {
+				return;
+			}
+			try {
+				super.close();
+			} finally {
+				// drop the reference to the memory blocks before giving back the budget
+				in = null;
+				release(reserved);
+				deleteQuietly(spillFile);
+			}
+		}
+	}
+}
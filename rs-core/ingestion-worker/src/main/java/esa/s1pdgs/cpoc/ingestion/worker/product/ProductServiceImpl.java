@@ -15,6 +15,7 @@ import esa.s1pdgs.cpoc.ingestion.worker.inbox.CadipInboxAdapter;
 import esa.s1pdgs.cpoc.ingestion.worker.inbox.InboxAdapter;
 import esa.s1pdgs.cpoc.ingestion.worker.inbox.InboxAdapterEntry;
 import esa.s1pdgs.cpoc.ingestion.worker.inbox.InboxAdapterResponse;
+import esa.s1pdgs.cpoc.ingestion.worker.obs.InboxAdapterEntryBuffer;
 import esa.s1pdgs.cpoc.ingestion.worker.obs.ObsAdapter;
 import esa.s1pdgs.cpoc.mqi.model.queue.CatalogJob;
 import esa.s1pdgs.cpoc.mqi.model.queue.IngestionJob;
@@ -26,12 +27,12 @@ public class ProductServiceImpl implements ProductService {
 	private static final Logger LOG = LoggerFactory.getLogger(ProductServiceImpl.class);
 
 	private final ObsClient obsClient;
-	private final boolean bufferInput;
+	private final InboxAdapterEntryBuffer entryBuffer;
 	private final AppStatus appStatus;
 
-	public ProductServiceImpl(final ObsClient obsClient, final boolean bufferInput, AppStatus appStatus) {
+	public ProductServiceImpl(final ObsClient obsClient, final InboxAdapterEntryBuffer entryBuffer, AppStatus appStatus) {
 		this.obsClient = obsClient;
-		this.bufferInput = bufferInput;
+		this.entryBuffer = entryBuffer;
 		this.appStatus = appStatus;
 	}
 
@@ -163,7 +164,7 @@ public class ProductServiceImpl implements ProductService {
 	}
 
 	private ObsAdapter newObsAdapterFor(final ReportingFactory reportingFactory) {
-		return new ObsAdapter(obsClient, reportingFactory, bufferInput, appStatus);
+		return new ObsAdapter(obsClient, reportingFactory, entryBuffer, appStatus);
 	}
 
 }
@@ -6,11 +6,15 @@ import static org.hamcrest.Matchers.is;
 import static org.hamcrest.Matchers.startsWith;
 import static org.junit.Assert.assertThrows;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
 import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import org.junit.Before;
 import org.junit.Test;
@@ -20,6 +24,7 @@ import org.mockito.MockitoAnnotations;
 import esa.s1pdgs.cpoc.appstatus.AppStatus;
 import esa.s1pdgs.cpoc.common.ProductFamily;
 import esa.s1pdgs.cpoc.common.errors.obs.ObsException;
+import esa.s1pdgs.cpoc.ingestion.worker.inbox.InboxAdapterEntry;
 import esa.s1pdgs.cpoc.obs_sdk.ObsClient;
 import esa.s1pdgs.cpoc.obs_sdk.ObsObject;
 import esa.s1pdgs.cpoc.obs_sdk.SdkClientException;
@@ -43,12 +48,39 @@ public class ObsAdapterTest {
         //TODO
     }
 
+    @Test
+    public void uploadReleasesBuffersOnBufferingError() throws Exception {
+        final AtomicBoolean closed = new AtomicBoolean(false);
+        final InboxAdapterEntryBuffer entryBuffer = entry -> {
+            if ("AUX2.EOF".equals(entry.key())) {
+                throw new IOException("ERROR");
+            }
+            return new ByteArrayInputStream(new byte[1]) {
+                @Override
+                public void close() {
+                    closed.set(true);
+                }
+            };
+        };
+        ObsAdapter uut = new ObsAdapter(obsClient, ReportingFactory.NULL, entryBuffer, appStatus);
+
+        RuntimeException exception = assertThrows(RuntimeException.class, () -> uut.upload(ProductFamily.AUXILIARY_FILE,
+                Arrays.asList(entry("AUX1.EOF"), entry("AUX2.EOF")), "AUX"));
+        assertThat(exception.getMessage(), startsWith("Error on downloading 'AUX2.EOF'"));
+        assertThat(closed.get(), is(true));
+        verify(obsClient, never()).uploadStreams(any(), any());
+    }
+
+    private static InboxAdapterEntry entry(final String key) {
+        return new InboxAdapterEntry(key, new ByteArrayInputStream(new byte[1]), 1);
+    }
+
     @Test
     public void sizeOfSingleFile() throws SdkClientException, ObsException {
         when(obsClient.exists(new ObsObject(ProductFamily.AUXILIARY_FILE, "AUX1.EOF"))).thenReturn(true);
         when(obsClient.size(new ObsObject(ProductFamily.AUXILIARY_FILE, "AUX1.EOF"))).thenReturn(559967L);
 
-        ObsAdapter uut = new ObsAdapter(obsClient, ReportingFactory.NULL, false, appStatus);
+        ObsAdapter uut = new ObsAdapter(obsClient, ReportingFactory.NULL, InboxAdapterEntryBuffer.NONE, appStatus);
 
         assertThat(uut.sizeOf(ProductFamily.AUXILIARY_FILE, "AUX1.EOF"), is(equalTo(559967L)));
 
@@ -72,7 +104,7 @@ public class ObsAdapterTest {
         when(obsClient.size(new ObsObject(ProductFamily.AUXILIARY_FILE, "AUX2.SAFE/support/s1-aux-cal.xsd"))).thenReturn(9723L);
         when(obsClient.size(new ObsObject(ProductFamily.AUXILIARY_FILE, "AUX2.SAFE/support/s1-object-types.xsd"))).thenReturn(63114L);
 
-        ObsAdapter uut = new ObsAdapter(obsClient, ReportingFactory.NULL, false, appStatus);
+        ObsAdapter uut = new ObsAdapter(obsClient, ReportingFactory.NULL, InboxAdapterEntryBuffer.NONE, appStatus);
 
         assertThat(uut.sizeOf(ProductFamily.AUXILIARY_FILE, "AUX2.SAFE"), is(equalTo(1558640L + 3509L + 9723L + 63114L)));
 
@@ -89,7 +121,7 @@ public class ObsAdapterTest {
     public void sizeOfNonExisting() throws SdkClientException, ObsException {
         when(obsClient.exists(new ObsObject(ProductFamily.AUXILIARY_FILE, "AUX1.EOF"))).thenReturn(false);
 
-        ObsAdapter uut = new ObsAdapter(obsClient, ReportingFactory.NULL, false, appStatus);
+        ObsAdapter uut = new ObsAdapter(obsClient, ReportingFactory.NULL, InboxAdapterEntryBuffer.NONE, appStatus);
 
         assertThat(uut.sizeOf(ProductFamily.AUXILIARY_FILE, "AUX1.EOF"), is(equalTo(-1L)));
 
@@ -102,7 +134,7 @@ public class ObsAdapterTest {
     @Test
     public void sizeOfWithExceptionDuringExists() throws SdkClientException {
         when(obsClient.exists(new ObsObject(ProductFamily.AUXILIARY_FILE, "AUX1.EOF"))).thenThrow(new SdkClientException("ERROR"));
-        ObsAdapter uut = new ObsAdapter(obsClient, ReportingFactory.NULL, false, appStatus);
+        ObsAdapter uut = new ObsAdapter(obsClient, ReportingFactory.NULL, InboxAdapterEntryBuffer.NONE, appStatus);
 
         RuntimeException exception = assertThrows(RuntimeException.class, () -> uut.sizeOf(ProductFamily.AUXILIARY_FILE, "AUX1.EOF"));
         assertThat(exception.getMessage(), startsWith("Error while retrieving size for obs object with key AUX1.EOF:"));
@@ -113,7 +145,7 @@ public class ObsAdapterTest {
         when(obsClient.exists(new ObsObject(ProductFamily.AUXILIARY_FILE, "AUX2.SAFE"))).thenReturn(false);
         when(obsClient.prefixExists(new ObsObject(ProductFamily.AUXILIARY_FILE, "AUX2.SAFE"))).thenThrow(new SdkClientException("ERROR"));
 
-        ObsAdapter uut = new ObsAdapter(obsClient, ReportingFactory.NULL, false, appStatus);
+        ObsAdapter uut = new ObsAdapter(obsClient, ReportingFactory.NULL, InboxAdapterEntryBuffer.NONE, appStatus);
 
         RuntimeException exception = assertThrows(RuntimeException.class, () -> uut.sizeOf(ProductFamily.AUXILIARY_FILE, "AUX2.SAFE"));
         assertThat(exception.getMessage(), startsWith("Error while retrieving size for obs object with key AUX2.SAFE:"));
@@ -124,7 +156,7 @@ public class ObsAdapterTest {
         when(obsClient.exists(new ObsObject(ProductFamily.AUXILIARY_FILE, "AUX1.EOF"))).thenReturn(true);
         when(obsClient.size(new ObsObject(ProductFamily.AUXILIARY_FILE, "AUX1.EOF"))).thenThrow(new ObsException(ProductFamily.AUXILIARY_FILE, "AUX1.EOF", new RuntimeException("ERROR")));
 
-        ObsAdapter uut = new ObsAdapter(obsClient, ReportingFactory.NULL, false, appStatus);
+        ObsAdapter uut = new ObsAdapter(obsClient, ReportingFactory.NULL, InboxAdapterEntryBuffer.NONE, appStatus);
 
         RuntimeException exception = assertThrows(RuntimeException.class, () -> uut.sizeOf(ProductFamily.AUXILIARY_FILE, "AUX1.EOF"));
         assertThat(exception.getMessage(), startsWith("Error while retrieving size for obs object with key AUX1.EOF:"));
@@ -136,7 +168,7 @@ public class ObsAdapterTest {
         when(obsClient.prefixExists(new ObsObject(ProductFamily.AUXILIARY_FILE, "AUX2.SAFE"))).thenReturn(true);
         when(obsClient.list(ProductFamily.AUXILIARY_FILE, "AUX2.SAFE")).thenThrow(new SdkClientException("ERROR"));
 
-        ObsAdapter uut = new ObsAdapter(obsClient, ReportingFactory.NULL, false, appStatus);
+        ObsAdapter uut = new ObsAdapter(obsClient, ReportingFactory.NULL, InboxAdapterEntryBuffer.NONE, appStatus);
 
         RuntimeException exception = assertThrows(RuntimeException.class, () -> uut.sizeOf(ProductFamily.AUXILIARY_FILE, "AUX2.SAFE"));
         assertThat(exception.getMessage(), startsWith("Error while retrieving size for obs object with key AUX2.SAFE:"));
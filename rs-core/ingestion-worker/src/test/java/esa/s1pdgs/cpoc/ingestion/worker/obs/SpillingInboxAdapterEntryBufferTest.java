@@ -0,0 +1,99 @@
+package esa.s1pdgs.cpoc.ingestion.worker.obs;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+import org.apache.commons.io.IOUtils;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import esa.s1pdgs.cpoc.ingestion.worker.inbox.InboxAdapterEntry;
+
+public class SpillingInboxAdapterEntryBufferTest {
+
+    @Rule
+    public TemporaryFolder tmp = new TemporaryFolder();
+
+    private Path spillDirectory;
+
+    @Before
+    public void init() throws IOException {
+        spillDirectory = tmp.newFolder().toPath();
+    }
+
+    @Test
+    public void bufferInMemory() throws IOException {
+        final byte[] content = content(25);
+        final SpillingInboxAdapterEntryBuffer uut = new SpillingInboxAdapterEntryBuffer(10, 100, 100, spillDirectory);
+
+        try (final InputStream in = uut.buffer(entry(content))) {
+            // the last block only reserves the 5 remaining bytes
+            assertThat(uut.availableBudget(), is(equalTo(75L)));
+            assertThat(Files.list(spillDirectory).count(), is(equalTo(0L)));
+            assertThat(IOUtils.toByteArray(in), is(equalTo(content)));
+        }
+        assertThat(uut.availableBudget(), is(equalTo(100L)));
+    }
+
+    @Test
+    public void bufferSpillsBeyondThreshold() throws IOException {
+        final byte[] content = content(55);
+        final SpillingInboxAdapterEntryBuffer uut = new SpillingInboxAdapterEntryBuffer(10, 20, 100, spillDirectory);
+
+        try (final InputStream in = uut.buffer(entry(content))) {
+            assertThat(uut.availableBudget(), is(equalTo(80L)));
+            assertThat(Files.list(spillDirectory).count(), is(equalTo(1L)));
+            assertThat(IOUtils.toByteArray(in), is(equalTo(content)));
+        }
+        assertThat(uut.availableBudget(), is(equalTo(100L)));
+        assertThat(Files.list(spillDirectory).count(), is(equalTo(0L)));
+    }
+
+    @Test
+    public void bufferSpillsWhenBudgetIsExhausted() throws IOException {
+        final byte[] content1 = content(30);
+        final byte[] content2 = content(30);
+        final SpillingInboxAdapterEntryBuffer uut = new SpillingInboxAdapterEntryBuffer(10, 100, 30, spillDirectory);
+
+        try (final InputStream in1 = uut.buffer(entry(content1));
+             final InputStream in2 = uut.buffer(entry(content2))) {
+            assertThat(uut.availableBudget(), is(equalTo(0L)));
+            assertThat(Files.list(spillDirectory).count(), is(equalTo(1L)));
+            assertThat(IOUtils.toByteArray(in1), is(equalTo(content1)));
+            assertThat(IOUtils.toByteArray(in2), is(equalTo(content2)));
+        }
+        assertThat(uut.availableBudget(), is(equalTo(30L)));
+        assertThat(Files.list(spillDirectory).count(), is(equalTo(0L)));
+    }
+
+    @Test
+    public void bufferEntryLargerThanAnnounced() throws IOException {
+        final byte[] content = content(25);
+        final SpillingInboxAdapterEntryBuffer uut = new SpillingInboxAdapterEntryBuffer(10, 100, 100, spillDirectory);
+
+        try (final InputStream in = uut.buffer(new InboxAdapterEntry("key", new ByteArrayInputStream(content), 15))) {
+            assertThat(IOUtils.toByteArray(in), is(equalTo(content)));
+        }
+        assertThat(uut.availableBudget(), is(equalTo(100L)));
+    }
+
+    private static InboxAdapterEntry entry(final byte[] content) {
+        return new InboxAdapterEntry("key", new ByteArrayInputStream(content), content.length);
+    }
+
+    private static byte[] content(final int size) {
+        final byte[] content = new byte[size];
+        new Random(size).nextBytes(content);
+        return content;
+    }
+}
@@ -22,6 +22,7 @@ import esa.s1pdgs.cpoc.common.ProductFamily;
 import esa.s1pdgs.cpoc.ingestion.worker.config.ProcessConfiguration;
 import esa.s1pdgs.cpoc.ingestion.worker.inbox.InboxAdapter;
 import esa.s1pdgs.cpoc.ingestion.worker.inbox.InboxAdapterResponse;
+import esa.s1pdgs.cpoc.ingestion.worker.obs.SpillingInboxAdapterEntryBuffer;
 import esa.s1pdgs.cpoc.mqi.model.queue.CatalogJob;
 import esa.s1pdgs.cpoc.mqi.model.queue.IngestionJob;
 import esa.s1pdgs.cpoc.obs_sdk.ObsClient;
@@ -54,7 +55,7 @@ public class TestProductServiceImpl {
 	@Before
 	public void setup() throws Exception {
 		MockitoAnnotations.initMocks(this);
-		uut = new ProductServiceImpl(obsClient, true, appStatus);
+		uut = new ProductServiceImpl(obsClient, new SpillingInboxAdapterEntryBuffer(1024 * 1024, 1024 * 1024, Paths.get(System.getProperty("java.io.tmpdir"))), appStatus);
 		
 		doReturn(false).when(nonExistentFile).exists();
 		doReturn(false).when(nonExistentFile).canRead();
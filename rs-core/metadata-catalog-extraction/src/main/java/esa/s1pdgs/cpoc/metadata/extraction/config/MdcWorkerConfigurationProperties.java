@@ -1,13 +1,16 @@
 package esa.s1pdgs.cpoc.metadata.extraction.config;
 
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.context.annotation.Configuration;
 
 import esa.s1pdgs.cpoc.common.ProductCategory;
+import esa.s1pdgs.cpoc.common.ProductFamily;
 
 @Configuration
 @ConfigurationProperties("worker")
@@ -70,6 +73,12 @@ public class MdcWorkerConfigurationProperties {
 	public static class ProductInsertionConfig {
 		private int maxRetries;
 		private int tempoRetryMs;
+		private boolean bulkEnabled = true;
+		private int bulkMaxActions = 100;
+		private int bulkMaxSizeKb = 5120;
+		private long bulkFlushIntervalMs = 0L;
+		private long bulkTimeoutMs = 120000L;
+		private List<ProductFamily> refreshFamilies = new ArrayList<>();
 		
 		public int getMaxRetries() {
 			return maxRetries;
@@ -86,6 +95,54 @@ public class MdcWorkerConfigurationProperties {
 		public void setTempoRetryMs(int tempoRetryMs) {
 			this.tempoRetryMs = tempoRetryMs;
 		}
+
+		public boolean isBulkEnabled() {
+			return bulkEnabled;
+		}
+
+		public void setBulkEnabled(boolean bulkEnabled) {
+			this.bulkEnabled = bulkEnabled;
+		}
+
+		public int getBulkMaxActions() {
+			return bulkMaxActions;
+		}
+
+		public void setBulkMaxActions(int bulkMaxActions) {
+			this.bulkMaxActions = bulkMaxActions;
+		}
+
+		public int getBulkMaxSizeKb() {
+			return bulkMaxSizeKb;
+		}
+
+		public void setBulkMaxSizeKb(int bulkMaxSizeKb) {
+			this.bulkMaxSizeKb = bulkMaxSizeKb;
+		}
+
+		public long getBulkFlushIntervalMs() {
+			return bulkFlushIntervalMs;
+		}
+
+		public void setBulkFlushIntervalMs(long bulkFlushIntervalMs) {
+			this.bulkFlushIntervalMs = bulkFlushIntervalMs;
+		}
+
+		public long getBulkTimeoutMs() {
+			return bulkTimeoutMs;
+		}
+
+		public void setBulkTimeoutMs(long bulkTimeoutMs) {
+			this.bulkTimeoutMs = bulkTimeoutMs;
+		}
+
+		public List<ProductFamily> getRefreshFamilies() {
+			return refreshFamilies;
+		}
+
+		public void setRefreshFamilies(List<ProductFamily> refreshFamilies) {
+			this.refreshFamilies = refreshFamilies;
+		}
 	}
 
 	private Map<ProductCategory, CategoryConfig> productCategories = new LinkedHashMap<>();
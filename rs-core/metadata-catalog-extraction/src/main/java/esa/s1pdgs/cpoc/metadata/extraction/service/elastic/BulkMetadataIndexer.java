@@ -0,0 +1,288 @@
+package esa.s1pdgs.cpoc.metadata.extraction.service.elastic;
+
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.BlockingDeque;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import javax.annotation.PreDestroy;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.elasticsearch.ElasticsearchException;
+import org.elasticsearch.action.DocWriteResponse;
+import org.elasticsearch.action.bulk.BulkItemResponse;
+import org.elasticsearch.action.bulk.BulkRequest;
+import org.elasticsearch.action.bulk.BulkResponse;
+import org.elasticsearch.action.index.IndexRequest;
+import org.elasticsearch.action.support.WriteRequest.RefreshPolicy;
+import org.elasticsearch.common.xcontent.XContentType;
+import org.elasticsearch.rest.RestStatus;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import esa.s1pdgs.cpoc.common.ProductFamily;
+import esa.s1pdgs.cpoc.common.errors.processing.MetadataCreationException;
+import esa.s1pdgs.cpoc.metadata.extraction.config.MdcWorkerConfigurationProperties;
+import esa.s1pdgs.cpoc.metadata.extraction.config.MdcWorkerConfigurationProperties.ProductInsertionConfig;
+import esa.s1pdgs.cpoc.metadata.extraction.service.extraction.model.ProductMetadata;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Indexes the metadata of the products in bulk requests.
+ * <p>
+ * The products queued while a bulk request is executed are sent with the next
+ * one, up to a maximum number of products and request size. If a flush interval
+ * is configured, a bulk request waits up to that time for further products.
+ * <p>
+ * Products are only visible for searches after the next refresh of their
+ * index, unless their family is configured to be refreshed, in which case their
+ * bulk request waits for it.
+ * <p>
+ * A product whose result is not known within the bulk timeout is reported as
+ * failed to its caller, which retries it as a single index request would be.
+ */
+@Component
+public class BulkMetadataIndexer {
+
+	private static final Logger LOGGER = LogManager.getLogger(BulkMetadataIndexer.class);
+
+	private static final class Item {
+		private final ProductMetadata product;
+		private final ProductFamily family;
+		private final String index;
+		private final String productName;
+		private final CompletableFuture<String> result = new CompletableFuture<>();
+		private String source;
+		private String warningMessage = "";
+
+		Item(final ProductMetadata product, final ProductFamily family, final String index,
+				final String productName) {
+			this.product = product;
+			this.family = family;
+			this.index = index;
+			this.productName = productName;
+			this.source = product.toString();
+		}
+	}
+
+	private final ElasticsearchDAO elasticsearchDAO;
+	private final boolean enabled;
+	private final int maxActions;
+	private final long maxBytes;
+	private final long flushIntervalMs;
+	private final long timeoutMs;
+	private final Set<ProductFamily> refreshFamilies = EnumSet.noneOf(ProductFamily.class);
+
+	private final DistributionSummary batchSize;
+	private final Timer batchLatency;
+	private final Counter itemFailures;
+
+	private final BlockingDeque<Item> queue = new LinkedBlockingDeque<>();
+	/**
+	 * Items queued or in flight, completed exceptionally on close
+	 */
+	private final Set<Item> pending = ConcurrentHashMap.newKeySet();
+	private final Thread flusher;
+	private volatile boolean running = true;
+
+	@Autowired
+	public BulkMetadataIndexer(final ElasticsearchDAO elasticsearchDAO,
+			final MdcWorkerConfigurationProperties properties, final ObjectProvider<MeterRegistry> meterRegistry) {
+		this(elasticsearchDAO, properties.getProductInsertion(), meterRegistry.getIfAvailable(SimpleMeterRegistry::new));
+	}
+
+	BulkMetadataIndexer(final ElasticsearchDAO elasticsearchDAO, final ProductInsertionConfig config,
+			final MeterRegistry registry) {
+		this.elasticsearchDAO = elasticsearchDAO;
+		this.enabled = config.isBulkEnabled();
+		this.maxActions = Math.max(1, config.getBulkMaxActions());
+		this.maxBytes = Math.max(1L, config.getBulkMaxSizeKb() * 1024L);
+		this.flushIntervalMs = config.getBulkFlushIntervalMs();
+		this.timeoutMs = Math.max(1L, config.getBulkTimeoutMs());
+		this.refreshFamilies.addAll(config.getRefreshFamilies());
+
+		this.batchSize = DistributionSummary.builder("rs.metadata.bulk.size")
+				.description("Number of products per metadata bulk request").register(registry);
+		this.batchLatency = Timer.builder("rs.metadata.bulk.latency")
+				.description("Duration of the metadata bulk requests").register(registry);
+		this.itemFailures = Counter.builder("rs.metadata.bulk.item.failures")
+				.description("Number of products rejected in metadata bulk requests").register(registry);
+
+		this.flusher = new Thread(this::run, "metadata-bulk-indexer");
+		this.flusher.setDaemon(true);
+		if (enabled) {
+			this.flusher.start();
+		}
+	}
+
+	public boolean isEnabled() {
+		return enabled;
+	}
+
+	/**
+	 * Indexes the metadata of a product in the index named [productType] for
+	 * auxiliary files and sessions, [productFamily] otherwise, with id
+	 * [productName] and waits for the result
+	 *
+	 * @return the warning message of a footprint workaround, empty if none has
+	 *         been necessary
+	 */
+	public String index(final ProductMetadata product) throws Exception {
+		final ProductFamily family = ProductFamily.valueOf(product.getString("productFamily"));
+		final Item item = new Item(product, family, EsServices.indexOf(product, family),
+				product.getString("productName"));
+		if (!enabled || !running) {
+			throw new IllegalStateException("Metadata bulk indexer is stopped");
+		}
+		pending.add(item);
+		item.result.whenComplete((result, e) -> pending.remove(item));
+		queue.add(item);
+		try {
+			return item.result.get(timeoutMs, TimeUnit.MILLISECONDS);
+		} catch (final ExecutionException e) {
+			if (e.getCause() instanceof Exception) {
+				throw (Exception) e.getCause();
+			}
+			throw e;
+		} catch (final TimeoutException e) {
+			// not sent anymore if still queued, its response is ignored if in flight
+			queue.remove(item);
+			final TimeoutException timeout = new TimeoutException(String.format(
+					"No result of metadata bulk request for product %s within %d ms", item.productName, timeoutMs));
+			item.result.completeExceptionally(timeout);
+			throw timeout;
+		}
+	}
+
+	@PreDestroy
+	public void close() {
+		running = false;
+		queue.clear();
+		for (final Item item : pending) {
+			item.result.completeExceptionally(new IllegalStateException("Metadata bulk indexer is stopped"));
+		}
+		flusher.interrupt();
+	}
+
+	private void run() {
+		while (running) {
+			final List<Item> batch;
+			try {
+				batch = nextBatch();
+			} catch (final InterruptedException e) {
+				Thread.currentThread().interrupt();
+				return;
+			}
+			try {
+				final List<Item> refreshed = new ArrayList<>();
+				final List<Item> unrefreshed = new ArrayList<>();
+				for (final Item item : batch) {
+					(refreshFamilies.contains(item.family) ? refreshed : unrefreshed).add(item);
+				}
+				execute(refreshed, RefreshPolicy.WAIT_UNTIL);
+				execute(unrefreshed, RefreshPolicy.NONE);
+			} catch (final RuntimeException e) {
+				LOGGER.error("Unexpected error in metadata bulk indexer", e);
+				// completing an already completed item has no effect
+				batch.forEach(item -> item.result.completeExceptionally(e));
+			}
+		}
+	}
+
+	private List<Item> nextBatch() throws InterruptedException {
+		final List<Item> batch = new ArrayList<>();
+		final Item first = queue.take();
+		batch.add(first);
+		long bytes = first.source.length();
+		final long deadline = System.currentTimeMillis() + flushIntervalMs;
+		while (batch.size() < maxActions && bytes < maxBytes) {
+			final long remaining = deadline - System.currentTimeMillis();
+			final Item next = remaining > 0 ? queue.poll(remaining, TimeUnit.MILLISECONDS) : queue.poll();
+			if (next == null) {
+				break;
+			}
+			batch.add(next);
+			bytes += next.source.length();
+		}
+		return batch;
+	}
+
+	private void execute(final List<Item> items, final RefreshPolicy refreshPolicy) {
+		if (items.isEmpty()) {
+			return;
+		}
+		final BulkRequest request = new BulkRequest().setRefreshPolicy(refreshPolicy);
+		for (final Item item : items) {
+			request.add(new IndexRequest(item.index).id(item.productName).source(item.source, XContentType.JSON));
+		}
+
+		final BulkResponse response;
+		final long start = System.nanoTime();
+		try {
+			response = elasticsearchDAO.bulk(request);
+		} catch (final Exception e) {
+			LOGGER.warn("Bulk request of {} products failed: {}", items.size(), e.getMessage());
+			items.forEach(item -> item.result.completeExceptionally(e));
+			return;
+		} finally {
+			batchSize.record(items.size());
+			batchLatency.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+		}
+
+		final BulkItemResponse[] responses = response.getItems();
+		for (int i = 0; i < items.size(); i++) {
+			handle(items.get(i), responses[i]);
+		}
+	}
+
+	private void handle(final Item item, final BulkItemResponse response) {
+		if (!response.isFailed()) {
+			final DocWriteResponse written = response.getResponse();
+			if (written.status() == RestStatus.CREATED) {
+				item.result.complete(item.warningMessage);
+			} else {
+				item.result.completeExceptionally(new MetadataCreationException(item.productName,
+						written.status().toString(), written.getResult().toString()));
+			}
+			return;
+		}
+
+		itemFailures.increment();
+		final BulkItemResponse.Failure failure = response.getFailure();
+		final String detailedMessage = failure.getCause() instanceof ElasticsearchException
+				? ((ElasticsearchException) failure.getCause()).getDetailedMessage()
+				: failure.getMessage();
+		LOGGER.warn("Metadata of product {} has been rejected: {}", item.productName, detailedMessage);
+
+		// the footprint workaround is only tried once, as for single index requests
+		final String warningMessage = item.warningMessage.isEmpty()
+				? EsServices.dropInvalidFootprint(item.product, item.family, failure.getMessage(), detailedMessage)
+				: null;
+		if (warningMessage == null) {
+			item.result.completeExceptionally(new MetadataCreationException(item.productName,
+					failure.getStatus().toString(), failure.getMessage()));
+			return;
+		}
+		if (item.result.isDone()) {
+			// timed out or stopped meanwhile
+			return;
+		}
+		item.warningMessage = warningMessage;
+		item.source = item.product.toString();
+		LOGGER.debug("Content of JSON second attempt: {}", item.source);
+		queue.addFirst(item);
+	}
+}
@@ -4,6 +4,8 @@ import java.io.IOException;
 
 import org.elasticsearch.action.admin.indices.refresh.RefreshRequest;
 import org.elasticsearch.action.admin.indices.refresh.RefreshResponse;
+import org.elasticsearch.action.bulk.BulkRequest;
+import org.elasticsearch.action.bulk.BulkResponse;
 import org.elasticsearch.action.get.GetRequest;
 import org.elasticsearch.action.get.GetResponse;
 import org.elasticsearch.action.index.IndexRequest;
@@ -33,6 +35,10 @@ public class ElasticsearchDAO {
 		return this.restHighLevelClient.index(request, RequestOptions.DEFAULT);
 	}
 	
+	public BulkResponse bulk(BulkRequest request) throws IOException {
+		return this.restHighLevelClient.bulk(request, RequestOptions.DEFAULT);
+	}
+	
 	public SearchResponse search (SearchRequest searchRequest) throws IOException {		
 		return this.restHighLevelClient.search(searchRequest, RequestOptions.DEFAULT);
 	}
@@ -17,6 +17,7 @@ import org.springframework.stereotype.Service;
 
 import esa.s1pdgs.cpoc.common.ProductFamily;
 import esa.s1pdgs.cpoc.common.errors.processing.MetadataCreationException;
+import esa.s1pdgs.cpoc.common.errors.processing.MetadataMalformedException;
 import esa.s1pdgs.cpoc.common.utils.LogUtils;
 import esa.s1pdgs.cpoc.common.utils.Retries;
 import esa.s1pdgs.cpoc.metadata.extraction.service.extraction.model.ProductMetadata;
@@ -41,10 +42,20 @@ public class EsServices {
 	 * Elasticsearch client
 	 */
 	private final ElasticsearchDAO elasticsearchDAO;
-	
-	@Autowired
+
+	/**
+	 * Bulk indexer, null if the products shall be indexed one by one
+	 */
+	private final BulkMetadataIndexer bulkIndexer;
+
 	public EsServices(final ElasticsearchDAO elasticsearchDAO) {
+		this(elasticsearchDAO, null);
+	}
+
+	@Autowired
+	public EsServices(final ElasticsearchDAO elasticsearchDAO, final BulkMetadataIndexer bulkIndexer) {
 		this.elasticsearchDAO = elasticsearchDAO;
+		this.bulkIndexer = bulkIndexer != null && bulkIndexer.isEnabled() ? bulkIndexer : null;
 	}
 
 	/**
@@ -79,6 +90,9 @@ public class EsServices {
 		return Retries.performWithRetries(() -> {
 			if (!isMetadataExist(product)) {
 				LOGGER.debug("Creating metadata in ES for product {}", productName);
+				if (bulkIndexer != null) {
+					return bulkIndexer.index(product);
+				}
 				return createMetadata(product);
 			} else {
 				LOGGER.debug("ES already contains metadata for product {}", productName);
@@ -87,6 +101,77 @@ public class EsServices {
 		}, "Create metadata " + product, numRetries, retrySleep);
 	}
 
+	/**
+	 * @return the index of the product, named [productType] for auxiliary files
+	 *         and sessions, [productFamily] otherwise
+	 */
+	static String indexOf(final ProductMetadata product, final ProductFamily family) throws MetadataMalformedException {
+		if (ProductFamily.AUXILIARY_FILE.equals(family) || ProductFamily.EDRS_SESSION.equals(family)) {
+			return product.getString("productType").toLowerCase();
+		}
+		return product.getString("productFamily").toLowerCase();
+	}
+
+	/**
+	 * Drops the footprint of a product which has been rejected because of it.
+	 * 
+	 * @return the warning message or null if the failure is not caused by a known
+	 *         footprint issue
+	 */
+	static String dropInvalidFootprint(final ProductMetadata product, final ProductFamily family,
+			final String result, final String detailedMessage) {
+		/*
+		 * S1PRO-783: This is a temporary work around for the WV footprint issue that
+		 * occurs for WV products when the footprint does cross the date line border. As
+		 * it is currently not possible to submit these kind of products, we are not
+		 * failing immediately, but trying to resubmit it without a footprint.
+		 * 
+		 * This is a workaround and will be obsoleted by S1PRO-778. Due to no defined
+		 * pattern, we have to parse the exception to identify possible footprint
+		 * issues.
+		 */
+		String warningMessage = null;
+		if (result.contains("failed to parse field [sliceCoordinates] of type [geo_shape]")) {
+			warningMessage = "Parsing error occurred for sliceCoordinates, dropping them as workaround for #S1PRO-783";
+			LOGGER.warn(warningMessage);
+			product.remove("sliceCoordinates");
+		}
+
+		if (result.contains("failed to parse field [segmentCoordinates] of type [geo_shape]")) {
+			warningMessage = "Parsing error occurred for segmentCoordinates, dropping them as workaround for #S1PRO-783";
+			LOGGER.warn(warningMessage);
+			product.remove("segmentCoordinates");
+		}
+		
+		/*
+		 * RS-1002: There are some situations where the footprint raises a topology exception in ES and breaking the workflow.
+		 * It was decided to catch this kind of exceptions as well and remove the footprint as a WA
+		 */
+		if (detailedMessage.contains("found non-noded intersection between LINESTRING")) {
+			warningMessage = "Parsing error occurred and identified as non-noded intersection between LINESTRING, dropping them as workaround for #RS-1002";
+			LOGGER.warn(warningMessage);
+			product.remove("sliceCoordinates");
+		}
+		
+		// S3 L0 products seem to have broken footprints. If a self intersecting error
+		// occurs, remove the sliceCoordinates and try again. Do this for PUG products 
+		// as well, as they can be based on S3_L0 products
+		if ((family == ProductFamily.S3_L0  || family == ProductFamily.S3_PUG) && detailedMessage != null) {					
+			if (detailedMessage.contains("Self-intersection at or near point")) {
+				warningMessage = "Invalid self-intersecting footprint detected, dropping it as a workaround for #RS-436";
+				LOGGER.warn(warningMessage);
+				product.remove("sliceCoordinates");
+			} else if (detailedMessage.contains("Cannot determine orientation: signed area equal to 0")) {
+				// DO_0_NAV products seems to have a footprint with multiple points in the same spot. Having
+				// a footprint without any area is not a valid 
+				warningMessage = "Invalid footprint without an area detected, dropping it as a workaround for #RS-986";
+				LOGGER.warn(warningMessage);
+				product.remove("sliceCoordinates");
+			}
+		}
+		return warningMessage;
+	}
+
 	/**
 	 * Save the metadata in elastic search. The metadata data is created in the
 	 * index named [productType] with id [productName]
@@ -97,14 +182,8 @@ public class EsServices {
 		String warningMessage = "";
 		
 		try {
-			final String productType;
 			final ProductFamily family = ProductFamily.valueOf(product.getString("productFamily"));
-
-			if (ProductFamily.AUXILIARY_FILE.equals(family) || ProductFamily.EDRS_SESSION.equals(family)) {
-				productType = product.getString("productType").toLowerCase();
-			} else {
-				productType = product.getString("productFamily").toLowerCase();
-			}
+			final String productType = indexOf(product, family);
 			final String productName = product.getString("productName");
 
 			IndexRequest request = new IndexRequest(productType).id(productName).source(product.toString(),
@@ -114,64 +193,9 @@ public class EsServices {
 			try {
 				response = elasticsearchDAO.index(request);
 			} catch (final ElasticsearchStatusException e) {
-				/*
-				 * S1PRO-783: This is a temporary work around for the WV footprint issue that
-				 * occurs for WV products when the footprint does cross the date line border. As
-				 * it is currently not possible to submit these kind of products, we are not
-				 * failing immediately, but trying to resubmit it without a footprint.
-				 * 
-				 * This is a workaround and will be obsoleted by S1PRO-778. Due to no defined
-				 * pattern, we have to parse the exception to identify possible footprint
-				 * issues.
-				 */
 				LOGGER.warn("An exception occurred while accessing the elastic search index: {}", LogUtils.toString(e));
-				final String result = e.getMessage();
-				boolean fixed = false;
-				if (result.contains("failed to parse field [sliceCoordinates] of type [geo_shape]")) {
-					warningMessage = "Parsing error occurred for sliceCoordinates, dropping them as workaround for #S1PRO-783";
-					LOGGER.warn(warningMessage);
-					product.remove("sliceCoordinates");
-					fixed = true;
-				}
-	
-				if (result.contains("failed to parse field [segmentCoordinates] of type [geo_shape]")) {
-					warningMessage = "Parsing error occurred for segmentCoordinates, dropping them as workaround for #S1PRO-783";
-					LOGGER.warn(warningMessage);
-					product.remove("segmentCoordinates");
-					fixed = true;
-				}
-				
-				/*
-				 * RS-1002: There are some situations where the footprint raises a topology exception in ES and breaking the workflow.
-				 * It was decided to catch this kind of exceptions as well and remove the footprint as a WA
-				 */
-				if (e.getDetailedMessage().contains("found non-noded intersection between LINESTRING")) {
-					warningMessage = "Parsing error occurred and identified as non-noded intersection between LINESTRING, dropping them as workaround for #RS-1002";
-					LOGGER.warn(warningMessage);
-					product.remove("sliceCoordinates");
-					fixed = true;
-				}
-				
-				// S3 L0 products seem to have broken footprints. If a self intersecting error
-				// occurs, remove the sliceCoordinates and try again. Do this for PUG products 
-				// as well, as they can be based on S3_L0 products
-				if ((family == ProductFamily.S3_L0  || family == ProductFamily.S3_PUG) && e.getDetailedMessage() != null) {					
-					if (e.getDetailedMessage().contains("Self-intersection at or near point")) {
-						warningMessage = "Invalid self-intersecting footprint detected, dropping it as a workaround for #RS-436";
-						LOGGER.warn(warningMessage);
-						product.remove("sliceCoordinates");
-						fixed = true;
-					} else if (e.getDetailedMessage().contains("Cannot determine orientation: signed area equal to 0")) {
-						// DO_0_NAV products seems to have a footprint with multiple points in the same spot. Having
-						// a footprint without any area is not a valid 
-						warningMessage = "Invalid footprint without an area detected, dropping it as a workaround for #RS-986";
-						LOGGER.warn(warningMessage);
-						product.remove("sliceCoordinates");
-						fixed = true;
-					}
-				}
-
-				if (!fixed) {
+				warningMessage = dropInvalidFootprint(product, family, e.getMessage(), e.getDetailedMessage());
+				if (warningMessage == null) {
 					throw e;
 				}
 
@@ -18,6 +18,7 @@ import esa.s1pdgs.cpoc.metadata.extraction.config.RfiConfiguration;
 import esa.s1pdgs.cpoc.metadata.extraction.service.extraction.files.ExtractMetadata;
 import esa.s1pdgs.cpoc.metadata.extraction.service.extraction.files.FileDescriptorBuilder;
 import esa.s1pdgs.cpoc.metadata.extraction.service.extraction.files.MetadataBuilder;
+import esa.s1pdgs.cpoc.metadata.extraction.service.extraction.files.XsltTemplates;
 import esa.s1pdgs.cpoc.metadata.extraction.service.extraction.xml.XmlConverter;
 import esa.s1pdgs.cpoc.obs_sdk.ObsClient;
 
@@ -28,6 +29,7 @@ public class MetadataExtractorFactory {
 	private final ObsClient obsClient;
 	private final ProcessConfiguration processConfiguration;
 	private final RfiConfiguration rfiConfiguration;
+	private final XsltTemplates xsltTemplates = new XsltTemplates();
 
 	@Autowired
 	public MetadataExtractorFactory(final MetadataExtractorConfig extractorConfig,
@@ -38,6 +40,7 @@ public class MetadataExtractorFactory {
 		this.obsClient = obsClient;
 		this.processConfiguration = processConfiguration;
 		this.rfiConfiguration = rfiConfiguration;
+		this.xsltTemplates.preload(extractorConfig.getXsltDirectory());
 	}
 
 	public MetadataExtractor newMetadataExtractorFor(final ProductCategory category, final CategoryConfig config) {		
@@ -54,7 +57,8 @@ public class MetadataExtractorFactory {
 				extractorConfig.getPacketstoreTypeTimelinesses(),
 				extractorConfig.getTimelinessPriorityFromHighToLow(),
 				extractorConfig.getXsltDirectory(),
-				xmlConverter
+				xmlConverter,
+				xsltTemplates
 		);		
 		final MetadataBuilder mdBuilder = new MetadataBuilder(extract);
 		
@@ -1,9 +1,9 @@
 package esa.s1pdgs.cpoc.metadata.extraction.service.extraction.files;
 
 import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
+import java.io.StringWriter;
 import java.nio.ByteBuffer;
 import java.nio.CharBuffer;
 import java.nio.channels.FileChannel;
@@ -27,7 +27,6 @@ import java.util.stream.Collectors;
 import javax.xml.bind.JAXBException;
 import javax.xml.transform.Transformer;
 import javax.xml.transform.TransformerException;
-import javax.xml.transform.TransformerFactory;
 import javax.xml.transform.stream.StreamResult;
 import javax.xml.transform.stream.StreamSource;
 
@@ -78,8 +77,8 @@ public class ExtractMetadata {
 	private static final String XSLT_S3_AUX_XFDU_XML = "XSLT_S3_AUX_XFDU_XML.xslt";
 	private static final String XSLT_S3_XFDU_XML = "XSLT_S3_XFDU_XML.xslt";
 	private static final String XSLT_S3_IIF_XML = "XSLT_S3_IIF_XML.xslt";
-	private static final String XSLT_FILE_PREFIX = "XSLT_";
-	private static final String XSLT_FILE_SUFFIX = ".xslt";
+	static final String XSLT_FILE_PREFIX = "XSLT_";
+	static final String XSLT_FILE_SUFFIX = ".xslt";
 	
 	// S1OPS-937: Filename based extraction of Validity Start / Stop and Generation Time
 	private static final List<String> TYPES_WITH_PRODUCTNAME_BASED_VALIDITY_TIME_EXTRACTION = Arrays.asList("AUX_TEC", "AUX_TRO");
@@ -93,9 +92,9 @@ public class ExtractMetadata {
 	private final Map<ProductFamily, String> xsltMap;
 
 	/**
-	 * XSLT transformer factory
+	 * Compiled XSLT stylesheets
 	 */
-	private TransformerFactory transFactory;
+	private final XsltTemplates xsltTemplates;
 
 	/**
 	 * Map of all the overlap for the different slice type
@@ -149,7 +148,18 @@ public class ExtractMetadata {
 			final Map<String, String> fieldTypes, final Map<String, String> packetStoreTypes,
 			final Map<String, String> packetStoreTypeTimelinesses, final List<String> timelinessPriorityFromHighToLow,
 			final String xsltDirectory, final XmlConverter xmlConverter) {
-		this.transFactory = TransformerFactory.newInstance();
+		this(typeOverlap, typeSliceLength, fieldTypes, packetStoreTypes, packetStoreTypeTimelinesses,
+				timelinessPriorityFromHighToLow, xsltDirectory, xmlConverter, new XsltTemplates());
+	}
+
+	/**
+	 * Constructor sharing the compiled XSLT stylesheets with other instances
+	 */
+	public ExtractMetadata(final Map<String, Float> typeOverlap, final Map<String, Float> typeSliceLength,
+			final Map<String, String> fieldTypes, final Map<String, String> packetStoreTypes,
+			final Map<String, String> packetStoreTypeTimelinesses, final List<String> timelinessPriorityFromHighToLow,
+			final String xsltDirectory, final XmlConverter xmlConverter, final XsltTemplates xsltTemplates) {
+		this.xsltTemplates = xsltTemplates;
 		this.typeOverlap = typeOverlap;
 		this.typeSliceLength = typeSliceLength;
 		this.fieldTypes = fieldTypes;
@@ -1194,11 +1204,11 @@ public class ExtractMetadata {
 	
 	private ProductMetadata transformXMLStreamWithXSLTToJSON(final StreamSource source, final File xsltFile) throws MetadataExtractionException, MetadataMalformedException {
 		try {
-			final Transformer transformer = transFactory.newTransformer(new StreamSource(xsltFile));
-			final ByteArrayOutputStream transformationStream = new ByteArrayOutputStream();
+			final Transformer transformer = xsltTemplates.transformerFor(xsltFile);
+			final StringWriter document = ProductMetadata.newXmlDocument();
 
-			transformer.transform(source, new StreamResult(transformationStream));
-			ProductMetadata metadata = ProductMetadata.ofXml(transformationStream.toString(Charset.defaultCharset().name()));
+			transformer.transform(source, new StreamResult(document));
+			ProductMetadata metadata = ProductMetadata.ofXmlDocument(document);
 			return enforceFieldTypes(metadata);
 
 		} catch (IOException | TransformerException e) {
@@ -0,0 +1,125 @@
+package esa.s1pdgs.cpoc.metadata.extraction.service.extraction.files;
+
+import java.io.File;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.xml.transform.Templates;
+import javax.xml.transform.Transformer;
+import javax.xml.transform.TransformerConfigurationException;
+import javax.xml.transform.TransformerFactory;
+import javax.xml.transform.stream.StreamSource;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Registry of the compiled XSLT stylesheets used for the metadata extraction.
+ * <p>
+ * A stylesheet is compiled once and recompiled only if its file has been
+ * modified since. The compiled {@link Templates} are thread safe, the
+ * {@link Transformer}s derived from them are not and are therefore kept per
+ * thread.
+ */
+public class XsltTemplates {
+
+	private static final Logger LOGGER = LogManager.getLogger(XsltTemplates.class);
+
+	private static final class CompiledStylesheet {
+		private final Templates templates;
+		private final long lastModified;
+		private final long length;
+
+		CompiledStylesheet(final Templates templates, final long lastModified, final long length) {
+			this.templates = templates;
+			this.lastModified = lastModified;
+			this.length = length;
+		}
+
+		boolean isUpToDate(final File xsltFile) {
+			return lastModified == xsltFile.lastModified() && length == xsltFile.length();
+		}
+	}
+
+	private final TransformerFactory transFactory = TransformerFactory.newInstance();
+
+	private final Map<String, CompiledStylesheet> stylesheets = new ConcurrentHashMap<>();
+
+	private final ThreadLocal<Map<Templates, Transformer>> transformers = ThreadLocal.withInitial(HashMap::new);
+
+	/**
+	 * Compiles all XSLT files of the given directory, so the first extractions
+	 * do not have to
+	 */
+	public void preload(final String xsltDirectory) {
+		if (xsltDirectory == null) {
+			return;
+		}
+		final File[] xsltFiles = new File(xsltDirectory)
+				.listFiles(f -> f.isFile() && f.getName().startsWith(ExtractMetadata.XSLT_FILE_PREFIX)
+						&& f.getName().endsWith(ExtractMetadata.XSLT_FILE_SUFFIX));
+		if (xsltFiles == null) {
+			LOGGER.warn("Could not list XSLT directory {}", xsltDirectory);
+			return;
+		}
+		for (final File xsltFile : xsltFiles) {
+			try {
+				compiled(xsltFile);
+			} catch (final TransformerConfigurationException e) {
+				// fails again with the extraction using it
+				LOGGER.warn("Could not compile XSLT file {}: {}", xsltFile, e.getMessage());
+			}
+		}
+		LOGGER.info("Compiled {} XSLT files of {}", stylesheets.size(), xsltDirectory);
+	}
+
+	/**
+	 * @return a transformer of the current thread for the given stylesheet, reset
+	 *         to its initial state
+	 */
+	public Transformer transformerFor(final File xsltFile) throws TransformerConfigurationException {
+		final Templates templates = compiled(xsltFile);
+		final Map<Templates, Transformer> ofThread = transformers.get();
+		Transformer transformer = ofThread.get(templates);
+		if (transformer == null) {
+			// forget the transformers of outdated templates
+			ofThread.keySet().retainAll(currentTemplates());
+			transformer = templates.newTransformer();
+			ofThread.put(templates, transformer);
+		} else {
+			transformer.reset();
+		}
+		return transformer;
+	}
+
+	private Templates compiled(final File xsltFile) throws TransformerConfigurationException {
+		final String key = xsltFile.getAbsolutePath();
+		final CompiledStylesheet cached = stylesheets.get(key);
+		if (cached != null && cached.isUpToDate(xsltFile)) {
+			return cached.templates;
+		}
+		synchronized (this) {
+			final CompiledStylesheet current = stylesheets.get(key);
+			if (current != null && current.isUpToDate(xsltFile)) {
+				return current.templates;
+			}
+			final long lastModified = xsltFile.lastModified();
+			final long length = xsltFile.length();
+			if (current != null) {
+				LOGGER.info("Recompiling modified XSLT file {}", xsltFile);
+			}
+			final Templates templates = transFactory.newTemplates(new StreamSource(xsltFile));
+			stylesheets.put(key, new CompiledStylesheet(templates, lastModified, length));
+			return templates;
+		}
+	}
+
+	private Set<Templates> currentTemplates() {
+		final Set<Templates> result = new HashSet<>();
+		stylesheets.values().forEach(s -> result.add(s.templates));
+		return result;
+	}
+}
@@ -1,6 +1,7 @@
 package esa.s1pdgs.cpoc.metadata.extraction.service.extraction.model;
 
 import java.io.IOException;
+import java.io.StringWriter;
 import java.lang.reflect.Type;
 import java.util.HashMap;
 import java.util.List;
@@ -19,6 +20,10 @@ public class ProductMetadata {
 
 	public static final Gson GSON = new Gson().newBuilder().serializeNulls().create();
 
+	private static final String OUTER_CONTAINER = "requiredOuterContainer";
+
+	private static final XmlMapper XML_MAPPER = new XmlMapper();
+
 	public static ProductMetadata ofJson(String json) {
 		Type type = new TypeToken<Map<String, Object>>(){}.getType();
 		final ProductMetadata productMetadata = new ProductMetadata();
@@ -27,13 +32,27 @@ public class ProductMetadata {
 		return productMetadata;
 	}
 
-	@SuppressWarnings("unchecked")
 	public static ProductMetadata ofXml(String xml) throws IOException, JsonSyntaxException {
-		final XmlMapper xmlMapper = new XmlMapper();
-		final StringBuilder stringBuilder = new StringBuilder();
-		stringBuilder.append("<requiredOuterContainer>").append(xml).append("</requiredOuterContainer>");
+		final StringWriter document = newXmlDocument();
+		document.append(xml);
+		return ofXmlDocument(document);
+	}
+
+	/**
+	 * @return a document to write the XML metadata elements into, e.g. as
+	 *         transformation result, to be read by {@link #ofXmlDocument(StringWriter)}
+	 */
+	public static StringWriter newXmlDocument() {
+		final StringWriter document = new StringWriter();
+		document.append("<").append(OUTER_CONTAINER).append(">");
+		return document;
+	}
+
+	@SuppressWarnings("unchecked")
+	public static ProductMetadata ofXmlDocument(final StringWriter document) throws IOException, JsonSyntaxException {
+		document.append("</").append(OUTER_CONTAINER).append(">");
 		final ProductMetadata productMetadata = new ProductMetadata();
-		productMetadata.data = (Map<String, Object>) convertTypes(xmlMapper.readValue(stringBuilder.toString().getBytes(), Object.class));
+		productMetadata.data = (Map<String, Object>) convertTypes(XML_MAPPER.readValue(document.toString(), Object.class));
 		return productMetadata;
 	}
 
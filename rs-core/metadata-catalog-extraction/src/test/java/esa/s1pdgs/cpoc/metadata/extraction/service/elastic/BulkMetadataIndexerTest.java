@@ -0,0 +1,187 @@
+package esa.s1pdgs.cpoc.metadata.extraction.service.elastic;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import java.util.Collections;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.elasticsearch.ElasticsearchException;
+import org.elasticsearch.action.bulk.BulkItemResponse;
+import org.elasticsearch.action.bulk.BulkRequest;
+import org.elasticsearch.action.bulk.BulkResponse;
+import org.elasticsearch.action.index.IndexResponse;
+import org.elasticsearch.action.support.WriteRequest.RefreshPolicy;
+import org.elasticsearch.index.Index;
+import org.elasticsearch.index.shard.ShardId;
+import org.elasticsearch.rest.RestStatus;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.MockitoAnnotations;
+
+import esa.s1pdgs.cpoc.common.ProductFamily;
+import esa.s1pdgs.cpoc.common.errors.processing.MetadataCreationException;
+import esa.s1pdgs.cpoc.metadata.extraction.config.MdcWorkerConfigurationProperties.ProductInsertionConfig;
+import esa.s1pdgs.cpoc.metadata.extraction.service.extraction.model.ProductMetadata;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+public class BulkMetadataIndexerTest {
+
+	@Mock
+	private ElasticsearchDAO elasticsearchDAO;
+
+	private final ProductInsertionConfig config = new ProductInsertionConfig();
+
+	private BulkMetadataIndexer uut;
+
+	@Before
+	public void init() {
+		MockitoAnnotations.initMocks(this);
+	}
+
+	@After
+	public void close() {
+		uut.close();
+	}
+
+	@Test
+	public void testIndexWithoutRefresh() throws Exception {
+		doReturn(bulkResponse(created())).when(elasticsearchDAO).bulk(Mockito.any(BulkRequest.class));
+		uut = new BulkMetadataIndexer(elasticsearchDAO, config, new SimpleMeterRegistry());
+
+		assertEquals("", uut.index(product()));
+		assertEquals(RefreshPolicy.NONE, bulkRequests(1).getRefreshPolicy());
+	}
+
+	@Test
+	public void testIndexWithRefreshOfFamily() throws Exception {
+		config.setRefreshFamilies(Collections.singletonList(ProductFamily.L0_SLICE));
+		doReturn(bulkResponse(created())).when(elasticsearchDAO).bulk(Mockito.any(BulkRequest.class));
+		uut = new BulkMetadataIndexer(elasticsearchDAO, config, new SimpleMeterRegistry());
+
+		uut.index(product());
+		assertEquals(RefreshPolicy.WAIT_UNTIL, bulkRequests(1).getRefreshPolicy());
+	}
+
+	@Test
+	public void testFootprintWorkaroundPerItem() throws Exception {
+		doReturn(bulkResponse(failed("failed to parse field [sliceCoordinates] of type [geo_shape]")))
+				.doReturn(bulkResponse(created()))
+				.when(elasticsearchDAO).bulk(Mockito.any(BulkRequest.class));
+		uut = new BulkMetadataIndexer(elasticsearchDAO, config, new SimpleMeterRegistry());
+
+		final ProductMetadata product = product();
+		assertEquals("Parsing error occurred for sliceCoordinates, dropping them as workaround for #S1PRO-783",
+				uut.index(product));
+		assertFalse(product.has("sliceCoordinates"));
+		bulkRequests(2);
+	}
+
+	@Test
+	public void testUnknownFailure() throws Exception {
+		doReturn(bulkResponse(failed("mapper_parsing_exception"))).when(elasticsearchDAO)
+				.bulk(Mockito.any(BulkRequest.class));
+		uut = new BulkMetadataIndexer(elasticsearchDAO, config, new SimpleMeterRegistry());
+
+		assertThrows(MetadataCreationException.class, () -> uut.index(product()));
+	}
+
+	@Test
+	public void testResultTimeout() throws Exception {
+		final CountDownLatch released = new CountDownLatch(1);
+		doAnswer(i -> {
+			released.await();
+			return bulkResponse(created());
+		}).when(elasticsearchDAO).bulk(Mockito.any(BulkRequest.class));
+		config.setBulkTimeoutMs(100);
+		uut = new BulkMetadataIndexer(elasticsearchDAO, config, new SimpleMeterRegistry());
+
+		try {
+			assertThrows(TimeoutException.class, () -> uut.index(product()));
+		} finally {
+			released.countDown();
+		}
+	}
+
+	@Test
+	public void testCloseCompletesItemsInFlight() throws Exception {
+		final CountDownLatch sent = new CountDownLatch(1);
+		final CountDownLatch released = new CountDownLatch(1);
+		doAnswer(i -> {
+			sent.countDown();
+			released.await();
+			return bulkResponse(created());
+		}).when(elasticsearchDAO).bulk(Mockito.any(BulkRequest.class));
+		uut = new BulkMetadataIndexer(elasticsearchDAO, config, new SimpleMeterRegistry());
+
+		final CompletableFuture<String> inFlight = CompletableFuture.supplyAsync(() -> {
+			try {
+				return uut.index(product());
+			} catch (final Exception e) {
+				throw new IllegalStateException(e);
+			}
+		});
+		try {
+			assertTrue(sent.await(10, TimeUnit.SECONDS));
+			uut.close();
+			final ExecutionException e = assertThrows(ExecutionException.class,
+					() -> inFlight.get(10, TimeUnit.SECONDS));
+			assertEquals("Metadata bulk indexer is stopped", e.getCause().getCause().getMessage());
+		} finally {
+			released.countDown();
+		}
+	}
+
+	private BulkRequest bulkRequests(final int count) throws Exception {
+		final ArgumentCaptor<BulkRequest> captor = ArgumentCaptor.forClass(BulkRequest.class);
+		verify(elasticsearchDAO, times(count)).bulk(captor.capture());
+		return captor.getValue();
+	}
+
+	private static ProductMetadata product() {
+		final ProductMetadata product = new ProductMetadata();
+		product.put("productName", "name");
+		product.put("productType", "type");
+		product.put("productFamily", "L0_SLICE");
+		product.put("sliceCoordinates", "invalid");
+		return product;
+	}
+
+	private static BulkResponse bulkResponse(final BulkItemResponse item) {
+		return new BulkResponse(new BulkItemResponse[] { item }, 1L);
+	}
+
+	private static BulkItemResponse created() {
+		final BulkItemResponse item = mock(BulkItemResponse.class);
+		doReturn(false).when(item).isFailed();
+		doReturn(new IndexResponse(new ShardId(new Index("name", "uuid"), 5), "type", "id", 0, 0, 0, true))
+				.when(item).getResponse();
+		return item;
+	}
+
+	private static BulkItemResponse failed(final String message) {
+		final BulkItemResponse.Failure failure = mock(BulkItemResponse.Failure.class);
+		doReturn(message).when(failure).getMessage();
+		doReturn(new ElasticsearchException(message)).when(failure).getCause();
+		doReturn(RestStatus.BAD_REQUEST).when(failure).getStatus();
+		final BulkItemResponse item = mock(BulkItemResponse.class);
+		doReturn(true).when(item).isFailed();
+		doReturn(failure).when(item).getFailure();
+		return item;
+	}
+}
@@ -0,0 +1,65 @@
+package esa.s1pdgs.cpoc.metadata.extraction.service.extraction.files;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+import java.io.File;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import javax.xml.transform.Transformer;
+import javax.xml.transform.stream.StreamResult;
+import javax.xml.transform.stream.StreamSource;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class XsltTemplatesTest {
+
+	@Rule
+	public TemporaryFolder tmp = new TemporaryFolder();
+
+	@Test
+	public void testTransformerIsReusedPerThread() throws Exception {
+		final File xslt = writeXslt("XSLT_TEST.xslt", "first");
+		final XsltTemplates uut = new XsltTemplates();
+		uut.preload(tmp.getRoot().getPath());
+
+		final Transformer transformer = uut.transformerFor(xslt);
+		assertSame(transformer, uut.transformerFor(xslt));
+		assertEquals("<value>first</value>", transform(transformer));
+	}
+
+	@Test
+	public void testModifiedStylesheetIsRecompiled() throws Exception {
+		final File xslt = writeXslt("XSLT_TEST.xslt", "first");
+		final XsltTemplates uut = new XsltTemplates();
+		final Transformer first = uut.transformerFor(xslt);
+
+		writeXslt("XSLT_TEST.xslt", "second");
+		xslt.setLastModified(xslt.lastModified() + 1000L);
+
+		final Transformer second = uut.transformerFor(xslt);
+		assertNotSame(first, second);
+		assertEquals("<value>second</value>", transform(second));
+	}
+
+	private File writeXslt(final String name, final String value) throws Exception {
+		final File file = new File(tmp.getRoot(), name);
+		Files.write(file.toPath(), ("<xsl:stylesheet version=\"1.0\" xmlns:xsl=\"http://www.w3.org/1999/XSL/Transform\">"
+				+ "<xsl:output omit-xml-declaration=\"yes\" method=\"xml\"/>"
+				+ "<xsl:template match=\"/\"><value>" + value + "</value></xsl:template>"
+				+ "</xsl:stylesheet>").getBytes(StandardCharsets.UTF_8));
+		return file;
+	}
+
+	private static String transform(final Transformer transformer) throws Exception {
+		final StringWriter result = new StringWriter();
+		transformer.transform(new StreamSource(new StringReader("<input/>")), new StreamResult(result));
+		return result.toString();
+	}
+}
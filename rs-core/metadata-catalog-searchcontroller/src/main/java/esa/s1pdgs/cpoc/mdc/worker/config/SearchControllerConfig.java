@@ -9,6 +9,9 @@ public class SearchControllerConfig {
 	// Regular Expression used to determinate if the file is an aux file. Required for correct query of aux files
 	private String auxPatternConfig;
 
+	// Time the known product types of an index are kept to resolve product type patterns. 0 disables the resolution
+	private long productTypeCacheTtlMs = 60000;
+
 	public String getAuxPatternConfig() {
 		return auxPatternConfig;
 	}
@@ -16,6 +19,14 @@ public class SearchControllerConfig {
 	public void setAuxPatternConfig(String auxPatternConfig) {
 		this.auxPatternConfig = auxPatternConfig;
 	}
-	
-	
+
+	public long getProductTypeCacheTtlMs() {
+		return productTypeCacheTtlMs;
+	}
+
+	public void setProductTypeCacheTtlMs(long productTypeCacheTtlMs) {
+		this.productTypeCacheTtlMs = productTypeCacheTtlMs;
+	}
+
+
 }
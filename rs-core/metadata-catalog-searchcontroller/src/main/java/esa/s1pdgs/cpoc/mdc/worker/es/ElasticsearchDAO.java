@@ -10,10 +10,16 @@ import org.elasticsearch.action.get.GetRequest;
 import org.elasticsearch.action.get.GetResponse;
 import org.elasticsearch.action.index.IndexRequest;
 import org.elasticsearch.action.index.IndexResponse;
+import org.elasticsearch.action.search.ClosePointInTimeRequest;
+import org.elasticsearch.action.search.ClosePointInTimeResponse;
+import org.elasticsearch.action.search.MultiSearchRequest;
+import org.elasticsearch.action.search.MultiSearchResponse;
+import org.elasticsearch.action.search.OpenPointInTimeRequest;
 import org.elasticsearch.action.search.SearchRequest;
 import org.elasticsearch.action.search.SearchResponse;
 import org.elasticsearch.client.RequestOptions;
 import org.elasticsearch.client.RestHighLevelClient;
+import org.elasticsearch.common.unit.TimeValue;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
@@ -43,6 +49,23 @@ public class ElasticsearchDAO {
 		return this.restHighLevelClient.search(searchRequest, RequestOptions.DEFAULT);
 	}
 
+	public MultiSearchResponse msearch(MultiSearchRequest multiSearchRequest) throws IOException {
+		return this.restHighLevelClient.msearch(multiSearchRequest, RequestOptions.DEFAULT);
+	}
+
+	/**
+	 * @return the id of the opened point in time
+	 */
+	public String openPointInTime(String index, TimeValue keepAlive) throws IOException {
+		final OpenPointInTimeRequest request = new OpenPointInTimeRequest(index).keepAlive(keepAlive);
+		return this.restHighLevelClient.openPointInTime(request, RequestOptions.DEFAULT).getPointInTimeId();
+	}
+
+	public ClosePointInTimeResponse closePointInTime(String pointInTimeId) throws IOException {
+		return this.restHighLevelClient.closePointInTime(new ClosePointInTimeRequest(pointInTimeId),
+				RequestOptions.DEFAULT);
+	}
+
 	public RefreshResponse refresh(RefreshRequest refreshRequest) throws IOException {
 		return this.restHighLevelClient.indices().refresh(refreshRequest, RequestOptions.DEFAULT);
 	}
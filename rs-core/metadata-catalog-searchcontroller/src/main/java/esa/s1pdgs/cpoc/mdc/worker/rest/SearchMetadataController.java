@@ -1,10 +1,12 @@
 package esa.s1pdgs.cpoc.mdc.worker.rest;
 
+import java.io.IOException;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
-import java.util.Collections;
+import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
@@ -13,10 +15,16 @@ import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestMethod;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
 
 import esa.s1pdgs.cpoc.common.ProductFamily;
 import esa.s1pdgs.cpoc.common.errors.AbstractCodedException;
@@ -25,8 +33,13 @@ import esa.s1pdgs.cpoc.common.time.TimeInterval;
 import esa.s1pdgs.cpoc.common.utils.DateUtils;
 import esa.s1pdgs.cpoc.common.utils.LogUtils;
 import esa.s1pdgs.cpoc.mdc.worker.service.EsServices;
+import esa.s1pdgs.cpoc.mdc.worker.service.MetadataConsumer;
+import esa.s1pdgs.cpoc.mdc.worker.service.SelectionPolicySearch;
 import esa.s1pdgs.cpoc.metadata.model.AuxMetadata;
+import esa.s1pdgs.cpoc.metadata.model.MissionId;
 import esa.s1pdgs.cpoc.metadata.model.SearchMetadata;
+import esa.s1pdgs.cpoc.metadata.model.SelectionPolicyQuery;
+import esa.s1pdgs.cpoc.metadata.model.SelectionPolicyResult;
 
 @RestController
 @RequestMapping(path = "/metadata")
@@ -34,6 +47,8 @@ public class SearchMetadataController {
 
 	private static final Logger LOGGER = LogManager.getLogger(SearchMetadataController.class);
 
+	private static final JsonFactory JSON_FACTORY = new ObjectMapper().getFactory();
+
 	private final EsServices esServices;
 
 	@Autowired
@@ -42,36 +57,37 @@ public class SearchMetadataController {
 	}
 	
 	
+	/**
+	 * Streams all products of the given product type inserted in the interval.
+	 * The optional fields restrict the additional properties returned.
+	 */
 	@RequestMapping(method = RequestMethod.GET, produces = MediaType.APPLICATION_JSON_VALUE, path = "/{productFamily}/query")
-	public ResponseEntity<List<SearchMetadata>> query(
+	public ResponseEntity<StreamingResponseBody> query(
 			@PathVariable(name = "productFamily") final String productFamily,
 			@RequestParam(name = "productType") final String productType,
 			@RequestParam(name = "intervalStart") final String intervalStart,
-			@RequestParam(name = "intervalStop") final String intervalStop) {
+			@RequestParam(name = "intervalStop") final String intervalStop,
+			@RequestParam(name = "fields", required = false) final List<String> fields) {
 		
 		LOGGER.info("Received query for family '{}' using productType {}, startTime '{}', stopTime '{}'", productFamily,
 				productType, intervalStart, intervalStop);
-				
+
+		final ProductFamily family;
+		final TimeInterval timeInterval;
 		try {
-			final List<SearchMetadata> results = esServices.query(
-					ProductFamily.valueOf(productFamily), 
-					productType,
-					new TimeInterval(DateUtils.parse(intervalStart), DateUtils.parse(intervalStop))
-			);
-			if (results == null) {
-				return new ResponseEntity<>(Collections.emptyList(), HttpStatus.OK);
-			}
-			return new ResponseEntity<>(results, HttpStatus.OK);
+			family = ProductFamily.valueOf(productFamily);
+			timeInterval = new TimeInterval(DateUtils.parse(intervalStart), DateUtils.parse(intervalStop));
 		}
 		catch (final Exception ex) {
 			LOGGER.error("Query error while doing query: {}", LogUtils.toString(ex));
 			return new ResponseEntity<>(HttpStatus.INTERNAL_SERVER_ERROR);
 		}
+		return stream("query", consumer -> esServices.query(family, productType, timeInterval, fields, consumer));
 	}
 	
 
 	@RequestMapping(method = RequestMethod.GET, produces = MediaType.APPLICATION_JSON_VALUE, path = "/{productFamily}/searchInterval")
-	public ResponseEntity<List<SearchMetadata>> searchTimeInterval(
+	public ResponseEntity<StreamingResponseBody> searchTimeInterval(
 			@PathVariable(name = "productFamily") final String productFamily,
 			@RequestParam(name = "intervalStart") final String intervalStart,
 			@RequestParam(name = "intervalStop") final String intervalStop) {
@@ -79,7 +95,6 @@ public class SearchMetadataController {
 		LOGGER.info("Received interval query for family '{}', startTime '{}', stopTime '{}'", productFamily,
 				intervalStart, intervalStop);
 
-		final List<SearchMetadata> response = new ArrayList<>();
 		String startTime;
 		String stopTime;
 		try {
@@ -94,60 +109,42 @@ public class SearchMetadataController {
 		}
 
 		LOGGER.info("Performing metadata interval search in interval between {} and {}", startTime, stopTime);
-		try {
-			List<SearchMetadata> results = new ArrayList<>();
-			if (productFamily.equals(ProductFamily.AUXILIARY_FILE.name())) {
-				final List<SearchMetadata> results1 = esServices.intervalQuery(startTime, stopTime,
-						ProductFamily.fromValue(productFamily), "aux*");
-				final List<SearchMetadata> results2 = esServices.intervalQuery(startTime, stopTime,
-						ProductFamily.fromValue(productFamily), "mpl*");
-
-				final List<SearchMetadata> results3 = esServices.intervalQuery(startTime, stopTime,
-						ProductFamily.fromValue(productFamily), "msk_*");
-
-				results.addAll(results1);
-				results.addAll(results2);
-				results.addAll(results3);
+		final ProductFamily family = ProductFamily.fromValue(productFamily);
+		// only the fields of the returned products are needed
+		final List<String> fields = Arrays.asList(MissionId.FIELD_NAME, "satelliteId", "stationCode");
+		return stream("intervalSearch", consumer -> {
+			final MetadataConsumer<SearchMetadata> reduced = result -> consumer.accept(new SearchMetadata(
+					result.getProductName(), result.getProductType(), result.getKeyObjectStorage(),
+					result.getValidityStart(), result.getValidityStop(), result.getMissionId(),
+					result.getSatelliteId(), result.getStationCode()));
+			if (family == ProductFamily.AUXILIARY_FILE) {
+				esServices.intervalQuery(startTime, stopTime, family, "aux*", fields, reduced);
+				esServices.intervalQuery(startTime, stopTime, family, "mpl*", fields, reduced);
+				esServices.intervalQuery(startTime, stopTime, family, "msk_*", fields, reduced);
 			} else {
-				results = esServices.intervalQuery(startTime, stopTime, ProductFamily.fromValue(productFamily), null);
-			}
-
-			if (results.isEmpty()) {
-				LOGGER.info("No results returned.");
-				return new ResponseEntity<>(response, HttpStatus.OK);
-			}
-			LOGGER.debug("Query returned {} results", results.size());
-
-			for (final SearchMetadata result : results) {
-				response.add(new SearchMetadata(result.getProductName(), result.getProductType(),
-						result.getKeyObjectStorage(), result.getValidityStart(), result.getValidityStop(),
-						result.getMissionId(), result.getSatelliteId(), result.getStationCode()));
+				esServices.intervalQuery(startTime, stopTime, family, null, fields, reduced);
 			}
-		} catch (final Exception ex) {
-			LOGGER.error("Query error while doing intervalSearch: {}", LogUtils.toString(ex));
-			return new ResponseEntity<>(HttpStatus.INTERNAL_SERVER_ERROR);
-		}
-
-		return new ResponseEntity<>(response, HttpStatus.OK);
+		});
 	}
 
 	/**
 	 * Search for products of a given productType in a given interval. productFamily
-	 * is needed to determine the correct index of the es
+	 * is needed to determine the correct index of the es. The optional fields
+	 * restrict the additional properties returned.
 	 */
 	@RequestMapping(method = RequestMethod.GET, produces = MediaType.APPLICATION_JSON_VALUE, path = "/{productFamily}/searchTypeInterval")
-	public ResponseEntity<List<SearchMetadata>> searchInterval(
+	public ResponseEntity<StreamingResponseBody> searchInterval(
 			@PathVariable(name = "productFamily") final String productFamily,
 			@RequestParam(name = "productType") final String productType,
 			@RequestParam(name = "intervalStart") final String intervalStart,
 			@RequestParam(name = "intervalStop") final String intervalStop,
 			@RequestParam(name = "satelliteId", defaultValue = "") final String satelliteId,
-			@RequestParam(name = "timeliness", defaultValue = "") final String timeliness) {
+			@RequestParam(name = "timeliness", defaultValue = "") final String timeliness,
+			@RequestParam(name = "fields", required = false) final List<String> fields) {
 		LOGGER.info(
 				"Received interval query for family '{}', startTime '{}', stopTime '{}', productType '{}', satelliteId '{}', timeliness '{}'",
 				productFamily, intervalStart, intervalStop, productType, satelliteId);
 
-		final List<SearchMetadata> response;
 		String startTime;
 		String stopTime;
 		try {
@@ -160,21 +157,43 @@ public class SearchMetadataController {
 			return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
 		}
 
-		try {
-			response = esServices.intervalTypeQuery(startTime, stopTime, ProductFamily.fromValue(productFamily),
-					productType, satelliteId, timeliness);
+		final ProductFamily family = ProductFamily.fromValue(productFamily);
+		return stream("intervalSearch", consumer -> esServices.intervalTypeQuery(startTime, stopTime, family,
+				productType, satelliteId, timeliness, fields, consumer));
+	}
 
-			if (response == null) {
-				LOGGER.info("No results returned.");
-				return new ResponseEntity<>(new ArrayList<>(), HttpStatus.OK);
-			}
-			LOGGER.debug("Query returned {} results", response.size());
-		} catch (final Exception ex) {
-			LOGGER.error("Query error while doing intervalSearch: {}", LogUtils.toString(ex));
-			return new ResponseEntity<>(HttpStatus.INTERNAL_SERVER_ERROR);
-		}
+	@FunctionalInterface
+	private interface StreamedSearch {
+		void run(MetadataConsumer<SearchMetadata> consumer) throws Exception;
+	}
 
-		return new ResponseEntity<>(response, HttpStatus.OK);
+	/**
+	 * Writes the products of the search to the response as a JSON array while they
+	 * are paged from the catalog, instead of collecting them first
+	 */
+	private ResponseEntity<StreamingResponseBody> stream(final String description, final StreamedSearch search) {
+		final StreamingResponseBody body = out -> {
+			final JsonGenerator generator = JSON_FACTORY.createGenerator(out);
+			// a failed search must not end in a well-formed, but truncated array
+			generator.disable(JsonGenerator.Feature.AUTO_CLOSE_JSON_CONTENT);
+			generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+			final AtomicInteger count = new AtomicInteger();
+			try {
+				generator.writeStartArray();
+				search.run(metadata -> {
+					generator.writeObject(metadata);
+					count.incrementAndGet();
+				});
+				generator.writeEndArray();
+			} catch (final Exception ex) {
+				LOGGER.error("Query error while doing {}: {}", description, LogUtils.toString(ex));
+				throw new IOException(String.format("Error on streaming %s after %s results", description, count), ex);
+			} finally {
+				generator.close();
+			}
+			LOGGER.debug("Query returned {} results", count);
+		};
+		return new ResponseEntity<>(body, HttpStatus.OK);
 	}
 
 	@RequestMapping(method = RequestMethod.GET, produces = MediaType.APPLICATION_JSON_VALUE, path = "/{productType}/searchAuxiliary")
@@ -417,6 +436,68 @@ public class SearchMetadataController {
 		}
 	}
 
+	/**
+	 * Performs the given searches by selection policy with a single Elasticsearch
+	 * multi search. Only the selection policies of the search endpoint are
+	 * supported, the other searches are still performed one by one.
+	 * <p>
+	 * A search with an unknown selection policy or failing in Elasticsearch is
+	 * returned with its error and does not fail the other searches.
+	 * 
+	 * @return the results of the searches, in the order of the queries
+	 */
+	@RequestMapping(method = RequestMethod.POST, consumes = MediaType.APPLICATION_JSON_VALUE, produces = MediaType.APPLICATION_JSON_VALUE, path = "/searchBatch")
+	public ResponseEntity<List<SelectionPolicyResult>> searchBatch(@RequestBody final List<SelectionPolicyQuery> queries) {
+		LOGGER.info("Received batch of {} search queries", queries.size());
+		try {
+			final List<SelectionPolicyResult> response = new ArrayList<>(queries.size());
+			final List<SelectionPolicySearch> searches = new ArrayList<>(queries.size());
+			final List<Integer> searched = new ArrayList<>(queries.size());
+			for (final SelectionPolicyQuery query : queries) {
+				// Some tasktables contain trailing spaces in the SelectionPolicy. Make this
+				// part more robust
+				final String mode = orNone(query.getMode()).trim();
+				final SelectionPolicySearch search;
+				try {
+					search = esServices.selectionPolicySearch(mode, orNone(query.getProductType()),
+							ProductFamily.fromValue(query.getProductFamily()),
+							convertDateForSearch(query.getT0(), -query.getDt0(),
+									DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ss.SSSSSS'Z'")),
+							convertDateForSearch(query.getT1(), query.getDt1(),
+									DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ss.SSSSSS'Z'")),
+							orNone(query.getSatellite()), query.getInsConfId(), orNone(query.getProcessMode()),
+							orNone(query.getPolarisation()), query.getBandIndexId());
+				} catch (final RuntimeException e) {
+					LOGGER.error("Invalid search query {}: {}", query, e.getMessage());
+					response.add(SelectionPolicyResult.failed("Invalid search query: " + e.getMessage()));
+					continue;
+				}
+				if (search == null) {
+					LOGGER.error("Invalid selection policy mode {} for product type {}", mode, query.getProductType());
+					response.add(SelectionPolicyResult.failed("Invalid selection policy mode " + mode));
+					continue;
+				}
+				searched.add(response.size());
+				response.add(null);
+				searches.add(search);
+			}
+			final List<SelectionPolicyResult> results = esServices.searchAll(searches);
+			for (int i = 0; i < searched.size(); i++) {
+				response.set(searched.get(i), results.get(i));
+			}
+			LOGGER.debug("Batch of {} search queries returned {} results", queries.size(),
+					response.stream().mapToInt(r -> r.getResults().size()).sum());
+			return new ResponseEntity<>(response, HttpStatus.OK);
+		} catch (final Exception e) {
+			LOGGER.error("Error on performing batch of search queries: {}", LogUtils.toString(e));
+			return new ResponseEntity<>(HttpStatus.INTERNAL_SERVER_ERROR);
+		}
+	}
+
+	private static String orNone(final String value) {
+		return value == null ? "NONE" : value;
+	}
+
 	private String convertDateForSearch(final String dateStr, final double delta,
 			final DateTimeFormatter outFormatter) {
 		final LocalDateTime time = LocalDateTime.parse(dateStr,
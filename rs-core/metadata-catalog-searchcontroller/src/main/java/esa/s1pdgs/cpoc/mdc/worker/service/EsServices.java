@@ -13,6 +13,7 @@ import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
@@ -34,9 +35,12 @@ import org.elasticsearch.action.get.GetRequest;
 import org.elasticsearch.action.get.GetResponse;
 import org.elasticsearch.action.index.IndexRequest;
 import org.elasticsearch.action.index.IndexResponse;
+import org.elasticsearch.action.search.MultiSearchRequest;
+import org.elasticsearch.action.search.MultiSearchResponse;
 import org.elasticsearch.action.search.SearchRequest;
 import org.elasticsearch.action.search.SearchResponse;
 import org.elasticsearch.action.support.WriteRequest.RefreshPolicy;
+import org.elasticsearch.common.unit.TimeValue;
 import org.elasticsearch.common.xcontent.XContentType;
 import org.elasticsearch.index.query.BoolQueryBuilder;
 import org.elasticsearch.index.query.QueryBuilder;
@@ -45,8 +49,10 @@ import org.elasticsearch.index.query.RangeQueryBuilder;
 import org.elasticsearch.rest.RestStatus;
 import org.elasticsearch.search.SearchHit;
 import org.elasticsearch.search.SearchHits;
+import org.elasticsearch.search.builder.PointInTimeBuilder;
 import org.elasticsearch.search.builder.SearchSourceBuilder;
 import org.elasticsearch.search.sort.FieldSortBuilder;
+import org.elasticsearch.search.sort.SortBuilders;
 import org.elasticsearch.search.sort.SortOrder;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
@@ -72,6 +78,7 @@ import esa.s1pdgs.cpoc.metadata.model.LevelSegmentMetadata;
 import esa.s1pdgs.cpoc.metadata.model.MissionId;
 import esa.s1pdgs.cpoc.metadata.model.S3Metadata;
 import esa.s1pdgs.cpoc.metadata.model.SearchMetadata;
+import esa.s1pdgs.cpoc.metadata.model.SelectionPolicyResult;
 
 /**
  * Service for accessing to elasticsearch data
@@ -92,17 +99,45 @@ public class EsServices {
 
 	private static final int SIZE_LIMIT = 1000;
 
+	/**
+	 * Characters having a special meaning in the Lucene regular expression syntax
+	 */
+	private static final Pattern REGEXP_SYNTAX = Pattern.compile("[.?+*|{}\\[\\]()\"\\\\#@&<>~]");
+
+	/**
+	 * Time a point in time of a streamed search is kept between two pages
+	 */
+	private static final TimeValue POINT_IN_TIME_KEEP_ALIVE = TimeValue.timeValueMinutes(1);
+
+	/**
+	 * Source fields needed to build the results of the interval queries, always
+	 * fetched when the source is filtered
+	 */
+	private static final List<String> INTERVAL_QUERY_FIELDS = Arrays.asList("productName", "productType", "url",
+			"startTime", "stopTime");
+
+	private static final List<String> INTERVAL_TYPE_QUERY_FIELDS = Arrays.asList("productName", "productType",
+			MissionId.FIELD_NAME, "url", "satelliteId", "startTime", "stopTime", "insertionTime");
+
+	private static final List<String> QUERY_FIELDS = Arrays.asList("productName", "productType",
+			MissionId.FIELD_NAME, "url", "stationCode", "satelliteId", "startTime", "stopTime", "insertionTime",
+			"swathtype", "dataTakeId");
+
 	/**
 	 * Elasticsearch client
 	 */
 	private final ElasticsearchDAO elasticsearchDAO;
 
     private final SearchControllerConfig searchControllerConfig;
-	
+
+	private final ProductTypeResolver productTypeResolver;
+
 	@Autowired
 	public EsServices(final ElasticsearchDAO elasticsearchDAO, final SearchControllerConfig searchControllerConfig) {
 		this.elasticsearchDAO = elasticsearchDAO;
 		this.searchControllerConfig = searchControllerConfig;
+		this.productTypeResolver = new ProductTypeResolver(elasticsearchDAO,
+				searchControllerConfig.getProductTypeCacheTtlMs(), System::currentTimeMillis);
 	}
 
 	/**
@@ -255,15 +290,148 @@ public class EsServices {
 		}
 	}
 	
+	/**
+	 * Prepares the search of the products matching the given selection policy
+	 *
+	 * @return the prepared search or null if the selection policy is unknown
+	 */
+	public SelectionPolicySearch selectionPolicySearch(final String mode, final String productType,
+			final ProductFamily productFamily, final String beginDate, final String endDate, final String satelliteId,
+			final int instrumentConfId, final String processMode, final String polarisation,
+			final String bandIndexId) {
+		switch (mode) {
+			case "ValCover":
+				return valCoverSearch(productType, productFamily, beginDate, endDate, satelliteId, instrumentConfId,
+						processMode);
+			case "LatestValCover":
+				return lastValCoverSearch(productType, productFamily, beginDate, endDate, satelliteId,
+						instrumentConfId, processMode, bandIndexId);
+			case "ValIntersect":
+				return valIntersectSearch(beginDate, endDate, productType, productFamily, processMode, satelliteId);
+			case "ValIntersectWithoutDuplicates":
+				return valIntersectWithoutDuplicatesSearch(beginDate, endDate, productType, productFamily,
+						processMode, satelliteId);
+			case "ClosestStartValidity":
+				return closestStartValiditySearch(productType, productFamily, beginDate, endDate, satelliteId,
+						instrumentConfId, processMode);
+			case "ClosestStopValidity":
+				return closestStopValiditySearch(productType, productFamily, beginDate, endDate, satelliteId,
+						instrumentConfId, processMode, polarisation);
+			case "LatestValIntersect":
+				return lastValIntersectSearch(beginDate, endDate, productType, productFamily, satelliteId);
+			case "LatestValidity":
+				return latestValiditySearch(beginDate, endDate, productType, productFamily, satelliteId);
+			case "FullCoverage":
+				return fullCoverageSearch(beginDate, endDate, productType, productFamily, processMode, satelliteId);
+			case "LatestValidityClosest":
+				return latestValidityClosestSearch(beginDate, endDate, productType, productFamily, processMode,
+						satelliteId);
+			case "LatestStartValidity":
+				return latestStartValiditySearch(productType, productFamily, satelliteId);
+			case "LatestStopValidity":
+				return latestStopValiditySearch(productType, productFamily, satelliteId);
+			case "LatestValCoverClosest":
+				return latestValCoverClosestSearch(beginDate, endDate, productType, productFamily, satelliteId);
+			default:
+				return null;
+		}
+	}
+
+	/**
+	 * Executes all the given searches with a single multi search request
+	 *
+	 * @return the products selected by each search or the error of the search,
+	 *         in the order of the searches
+	 */
+	public List<SelectionPolicyResult> searchAll(final List<SelectionPolicySearch> searches) throws Exception {
+		final List<SelectionPolicyResult> results = new ArrayList<>(searches.size());
+		final MultiSearchRequest multiSearchRequest = new MultiSearchRequest();
+		for (final SelectionPolicySearch search : searches) {
+			search.getRequests().forEach(multiSearchRequest::add);
+		}
+		if (multiSearchRequest.requests().isEmpty()) {
+			return results;
+		}
+
+		final MultiSearchResponse multiSearchResponse;
+		try {
+			multiSearchResponse = elasticsearchDAO.msearch(multiSearchRequest);
+		} catch (final IOException e) {
+			throw new Exception(e.getMessage());
+		}
+		LOGGER.debug("Multi search of {} queries took {}", multiSearchRequest.requests().size(),
+				multiSearchResponse.getTook());
+
+		final MultiSearchResponse.Item[] items = multiSearchResponse.getResponses();
+		int next = 0;
+		for (final SelectionPolicySearch search : searches) {
+			final List<SearchResponse> responses = new ArrayList<>(search.getRequests().size());
+			String failure = null;
+			for (int i = 0; i < search.getRequests().size(); i++) {
+				final MultiSearchResponse.Item item = items[next++];
+				if (item.isFailure()) {
+					failure = item.getFailureMessage();
+				} else {
+					responses.add(item.getResponse());
+				}
+			}
+			if (failure != null) {
+				LOGGER.warn("Search of multi search failed: {}", failure);
+				results.add(SelectionPolicyResult.failed(failure));
+				continue;
+			}
+			try {
+				results.add(SelectionPolicyResult.found(search.evaluate(responses)));
+			} catch (final Exception e) {
+				LOGGER.warn("Selection of the products of multi search failed: {}", LogUtils.toString(e));
+				results.add(SelectionPolicyResult.failed(String.valueOf(e.getMessage())));
+			}
+		}
+		return results;
+	}
+
+	private List<SearchMetadata> execute(final SelectionPolicySearch search) throws Exception {
+		final List<SearchResponse> responses = new ArrayList<>(search.getRequests().size());
+		try {
+			for (final SearchRequest searchRequest : search.getRequests()) {
+				responses.add(elasticsearchDAO.search(searchRequest));
+			}
+		} catch (final IOException e) {
+			throw new Exception(e.getMessage());
+		}
+		return search.evaluate(responses);
+	}
+
+	private static SearchMetadata first(final List<SearchMetadata> results) {
+		if (results == null || results.isEmpty()) {
+			return null;
+		}
+		return results.get(0);
+	}
+
+	private static List<SearchMetadata> single(final SearchMetadata result) {
+		if (result == null) {
+			return null;
+		}
+		return Collections.singletonList(result);
+	}
+
 	/**
 	 * Function which return the products that correspond to the valCover
 	 * specification If there is no corresponding product return null
-	 * 
+	 *
 	 * @return a list of object storage keys of the chosen product
 	 */
 	public List<SearchMetadata> valCover(final String productType, final ProductFamily productFamily,
 			final String beginDate, final String endDate, final String satelliteId, final int instrumentConfId,
 			final String processMode) throws Exception {
+		return execute(valCoverSearch(productType, productFamily, beginDate, endDate, satelliteId, instrumentConfId,
+				processMode));
+	}
+
+	private SelectionPolicySearch valCoverSearch(final String productType, final ProductFamily productFamily,
+			final String beginDate, final String endDate, final String satelliteId, final int instrumentConfId,
+			final String processMode) {
 
 		final ProductCategory category = ProductCategory.of(productFamily);
 
@@ -274,7 +442,7 @@ public class EsServices {
 				.must(QueryBuilders.rangeQuery("validityStopTime").gte(endDate)).must(satelliteId(satelliteId));
 		// Product type
 		if (category == ProductCategory.LEVEL_PRODUCTS || category == ProductCategory.LEVEL_SEGMENTS) {
-			queryBuilder = queryBuilder.must(QueryBuilders.regexpQuery("productType.keyword", productType));
+			queryBuilder = queryBuilder.must(productType(getIndexForProductFamily(productFamily, productType), productType));
 		} else {
 			queryBuilder = queryBuilder.must(QueryBuilders.termQuery("productType.keyword", productType));
 		}
@@ -293,8 +461,9 @@ public class EsServices {
 
 		final SearchRequest searchRequest = new SearchRequest(getIndexForProductFamily(productFamily, productType));
 		searchRequest.source(sourceBuilder);
-		try {
-			final SearchResponse searchResponse = elasticsearchDAO.search(searchRequest);
+		return new SelectionPolicySearch(searchRequest, responses -> {
+			final SearchResponse searchResponse = responses.get(0);
+			warnIfTruncated("valCover", productType, searchResponse);
 			final List<SearchMetadata> r = new ArrayList<>();
 			if (this.isNotEmpty(searchResponse)) {
 				for (final SearchHit hit : searchResponse.getHits().getHits()) {
@@ -319,7 +488,7 @@ public class EsServices {
 							throw new MetadataMalformedException("validityStopTime");
 						}
 					}
-					source.forEach((key, value) -> { 
+					source.forEach((key, value) -> {
 						if (value != null)
 							local.addAdditionalProperty(key, value.toString());
 					});
@@ -327,22 +496,28 @@ public class EsServices {
 				}
 				return r;
 			}
-		} catch (final IOException e) {
-			throw new Exception(e.getMessage());
-		}
-		return null;
+			return null;
+		});
 	}
 
 	/**
 	 * Function which return the product that correspond to the lastValCover
 	 * specification If there is no corresponding product return null
-	 * 
+	 *
 	 * @return the key object storage of the chosen product
 	 */
 	public SearchMetadata lastValCover(final String productType, final ProductFamily productFamily,
 			final String beginDate, final String endDate, final String satelliteId, final int instrumentConfId,
 			final String processMode,
 			final String bandIndexId) throws Exception {
+		return first(execute(lastValCoverSearch(productType, productFamily, beginDate, endDate, satelliteId,
+				instrumentConfId, processMode, bandIndexId)));
+	}
+
+	private SelectionPolicySearch lastValCoverSearch(final String productType, final ProductFamily productFamily,
+			final String beginDate, final String endDate, final String satelliteId, final int instrumentConfId,
+			final String processMode,
+			final String bandIndexId) {
 
 		final ProductCategory category = ProductCategory.of(productFamily);
 
@@ -353,7 +528,7 @@ public class EsServices {
 				.must(QueryBuilders.rangeQuery("validityStopTime").gte(endDate)).must(satelliteId(satelliteId));
 		// Product type
 		if (category == ProductCategory.LEVEL_PRODUCTS || category == ProductCategory.LEVEL_SEGMENTS) {
-			queryBuilder = queryBuilder.must(QueryBuilders.regexpQuery("productType.keyword", productType));
+			queryBuilder = queryBuilder.must(productType(getIndexForProductFamily(productFamily, productType), productType));
 		} else {
 			queryBuilder = queryBuilder.must(QueryBuilders.termQuery("productType.keyword", productType));
 		}
@@ -365,12 +540,12 @@ public class EsServices {
 		if (category == ProductCategory.LEVEL_PRODUCTS || category == ProductCategory.LEVEL_SEGMENTS) {
 			queryBuilder = queryBuilder.must(QueryBuilders.termQuery("processMode.keyword", processMode));
 		}
-		
+
 		//RS-422: Allowing to use optional parameter bandIndexId on latestValCover query
 		if (bandIndexId != null) {
 			queryBuilder = queryBuilder.must(QueryBuilders.termQuery("bandIndexId.keyword", bandIndexId));
 		}
-		
+
 		LOGGER.debug("query composed is {}", queryBuilder);
 
 		sourceBuilder.query(queryBuilder);
@@ -380,38 +555,41 @@ public class EsServices {
 
 		final SearchRequest searchRequest = new SearchRequest(getIndexForProductFamily(productFamily, productType));
 		searchRequest.source(sourceBuilder);
-		try {
-			final SearchResponse searchResponse = elasticsearchDAO.search(searchRequest);
-			if (this.isNotEmpty(searchResponse)) {
-				final Map<String, Object> source = searchResponse.getHits().getAt(0).getSourceAsMap();
-				final SearchMetadata r = new SearchMetadata();
-				r.setProductName(source.get("productName").toString());
-				r.setProductType(source.get("productType").toString());
-				r.setKeyObjectStorage(source.get("url").toString());
-				if (source.containsKey("validityStartTime")) {
-					try {
-						r.setValidityStart(
-								DateUtils.convertToMetadataDateTimeFormat(source.get("validityStartTime").toString()));
-					} catch (final DateTimeParseException e) {
-						throw new MetadataMalformedException("validityStartTime");
-					}
+		return new SelectionPolicySearch(searchRequest, responses -> single(firstHitOf(responses.get(0))));
+	}
+
+	/**
+	 * @return the first hit of the response with its validity or null if there
+	 *         is no hit
+	 */
+	private SearchMetadata firstHitOf(final SearchResponse searchResponse) throws MetadataMalformedException {
+		if (this.isNotEmpty(searchResponse)) {
+			final Map<String, Object> source = searchResponse.getHits().getAt(0).getSourceAsMap();
+			final SearchMetadata r = new SearchMetadata();
+			r.setProductName(source.get("productName").toString());
+			r.setProductType(source.get("productType").toString());
+			r.setKeyObjectStorage(source.get("url").toString());
+			if (source.containsKey("validityStartTime")) {
+				try {
+					r.setValidityStart(
+							DateUtils.convertToMetadataDateTimeFormat(source.get("validityStartTime").toString()));
+				} catch (final DateTimeParseException e) {
+					throw new MetadataMalformedException("validityStartTime");
 				}
-				if (source.containsKey("validityStopTime")) {
-					try {
-						r.setValidityStop(
-								DateUtils.convertToMetadataDateTimeFormat(source.get("validityStopTime").toString()));
-					} catch (final DateTimeParseException e) {
-						throw new MetadataMalformedException("validityStopTime");
-					}
+			}
+			if (source.containsKey("validityStopTime")) {
+				try {
+					r.setValidityStop(
+							DateUtils.convertToMetadataDateTimeFormat(source.get("validityStopTime").toString()));
+				} catch (final DateTimeParseException e) {
+					throw new MetadataMalformedException("validityStopTime");
 				}
-				source.forEach((key, value) -> {
-					if (value != null)
-						r.addAdditionalProperty(key, value.toString());
-				});
-				return r;
 			}
-		} catch (final IOException e) {
-			throw new Exception(e.getMessage());
+			source.forEach((key, value) -> {
+				if (value != null)
+					r.addAdditionalProperty(key, value.toString());
+			});
+			return r;
 		}
 		return null;
 	}
@@ -431,6 +609,13 @@ public class EsServices {
 	public SearchMetadata closestStartValidity(final String productType, final ProductFamily productFamily,
 			final String beginDate, final String endDate, final String satelliteId, final int instrumentConfId,
 			final String processMode) throws Exception {
+		return first(execute(closestStartValiditySearch(productType, productFamily, beginDate, endDate, satelliteId,
+				instrumentConfId, processMode)));
+	}
+
+	private SelectionPolicySearch closestStartValiditySearch(final String productType,
+			final ProductFamily productFamily, final String beginDate, final String endDate, final String satelliteId,
+			final int instrumentConfId, final String processMode) {
 		LOGGER.debug("Searching products via selection policy 'closestStartValidity' for {}, startDate {}, endDate {} ",
 				productType, beginDate, endDate);
 
@@ -449,12 +634,9 @@ public class EsServices {
 				new FieldSortBuilder("validityStartTime").order(SortOrder.ASC),
 				new FieldSortBuilder("creationTime").order(SortOrder.DESC));
 
-		try {
-			final SearchResponse beforeResponse = elasticsearchDAO.search(beforeRequest);
-			final SearchResponse afterResponse = elasticsearchDAO.search(afterRequest);
-
-			final SearchHits before = beforeResponse.getHits();
-			final SearchHits after = afterResponse.getHits();
+		return new SelectionPolicySearch(Arrays.asList(beforeRequest, afterRequest), responses -> {
+			final SearchHits before = responses.get(0).getHits();
+			final SearchHits after = responses.get(1).getHits();
 
 			LOGGER.debug("Total Hits Found before {} and after {}", this.getTotalSearchHitsStr(before),
 					this.getTotalSearchHitsStr(after));
@@ -462,11 +644,11 @@ public class EsServices {
 			if (this.isEmpty(before) && this.isNotEmpty(after)) {
 				final SearchMetadata metaAfter = toSearchMetadata(after.getAt(0));
 				LOGGER.debug("Candidate after was the best result, {}", metaAfter.getProductName());
-				return metaAfter;
+				return single(metaAfter);
 			} else if (this.isNotEmpty(before) && this.isEmpty(after)) {
 				final SearchMetadata metaBefore = toSearchMetadata(before.getAt(0));
 				LOGGER.debug("Candidate before was the best result, {}", metaBefore.getProductName());
-				return metaBefore;
+				return single(metaBefore);
 			} else if (this.isEmpty(before) && this.isEmpty(after)) {
 				return null;
 			}
@@ -481,24 +663,27 @@ public class EsServices {
 
 			if (durationBefore.compareTo(durationAfter) <= 0) {
 				LOGGER.debug("Candidate before was the best result, {}", metaBefore.getProductName());
-				return metaBefore;
+				return single(metaBefore);
 			} else {
 				LOGGER.debug("Candidate after was the best result, {}", metaAfter.getProductName());
-				return metaAfter;
+				return single(metaAfter);
 			}
-		} catch (final IOException e) {
-			throw new Exception(e.getMessage());
-		}
+		});
 	}
 
 	public SearchMetadata latestValidity(final String beginDate, final String endDate, final String productType,
 										 final ProductFamily productFamily, final String satelliteId) throws Exception {
+		return first(execute(latestValiditySearch(beginDate, endDate, productType, productFamily, satelliteId)));
+	}
+
+	private SelectionPolicySearch latestValiditySearch(final String beginDate, final String endDate,
+			final String productType, final ProductFamily productFamily, final String satelliteId) {
 		final SearchSourceBuilder sourceBuilder = new SearchSourceBuilder();
 		// Generic fields
 		final BoolQueryBuilder queryBuilder = QueryBuilders.boolQuery()
 				.must(QueryBuilders.rangeQuery("validityStartTime").lt(endDate))
 				.must(QueryBuilders.rangeQuery("validityStopTime").gt(beginDate)).must(satelliteId(satelliteId))
-				.must(QueryBuilders.regexpQuery("productType.keyword", productType));
+				.must(productType(getIndexForProductFamily(productFamily, productType), productType));
 		sourceBuilder.query(queryBuilder);
 		LOGGER.debug("latestValidity: query composed is {}", queryBuilder);
 
@@ -507,40 +692,7 @@ public class EsServices {
 
 		final SearchRequest searchRequest = new SearchRequest(getIndexForProductFamily(productFamily, productType));
 		searchRequest.source(sourceBuilder);
-		try {
-			final SearchResponse searchResponse = elasticsearchDAO.search(searchRequest);
-			if (this.isNotEmpty(searchResponse)) {
-				final Map<String, Object> source = searchResponse.getHits().getAt(0).getSourceAsMap();
-				final SearchMetadata r = new SearchMetadata();
-				r.setProductName(source.get("productName").toString());
-				r.setProductType(source.get("productType").toString());
-				r.setKeyObjectStorage(source.get("url").toString());
-				if (source.containsKey("validityStartTime")) {
-					try {
-						r.setValidityStart(
-								DateUtils.convertToMetadataDateTimeFormat(source.get("validityStartTime").toString()));
-					} catch (final DateTimeParseException e) {
-						throw new MetadataMalformedException("validityStartTime");
-					}
-				}
-				if (source.containsKey("validityStopTime")) {
-					try {
-						r.setValidityStop(
-								DateUtils.convertToMetadataDateTimeFormat(source.get("validityStopTime").toString()));
-					} catch (final DateTimeParseException e) {
-						throw new MetadataMalformedException("validityStopTime");
-					}
-				}
-				source.forEach((key, value) -> {
-					if (value != null)
-						r.addAdditionalProperty(key, value.toString());
-				});
-				return r;
-			}
-		} catch (final IOException e) {
-			throw new Exception(e.getMessage());
-		}
-		return null;
+		return new SelectionPolicySearch(searchRequest, responses -> single(firstHitOf(responses.get(0))));
 	}
 
 	private SearchMetadata toSearchMetadata(final SearchHit hit) {
@@ -577,7 +729,7 @@ public class EsServices {
 		}
 
 		if (category == ProductCategory.LEVEL_PRODUCTS || category == ProductCategory.LEVEL_SEGMENTS) {
-			queryBuilder = queryBuilder.must(QueryBuilders.regexpQuery("productType.keyword", productType));
+			queryBuilder = queryBuilder.must(productType(getIndexForProductFamily(productFamily, productType), productType));
 		} else {
 			queryBuilder = queryBuilder.must(QueryBuilders.termQuery("productType.keyword", productType));
 		}
@@ -622,6 +774,13 @@ public class EsServices {
 	public SearchMetadata closestStopValidity(final String productType, final ProductFamily productFamily,
 			final String beginDate, final String endDate, final String satelliteId, final int instrumentConfId,
 			final String processMode, final String polarisation) throws Exception {
+		return first(execute(closestStopValiditySearch(productType, productFamily, beginDate, endDate, satelliteId,
+				instrumentConfId, processMode, polarisation)));
+	}
+
+	private SelectionPolicySearch closestStopValiditySearch(final String productType,
+			final ProductFamily productFamily, final String beginDate, final String endDate, final String satelliteId,
+			final int instrumentConfId, final String processMode, final String polarisation) {
 		LOGGER.debug("Searching products via selection policy 'closestStopValidity' for {}, startDate {}, endDate {} ",
 				productType, beginDate, endDate);
 
@@ -640,20 +799,17 @@ public class EsServices {
 				new FieldSortBuilder("validityStopTime").order(SortOrder.ASC),
 				new FieldSortBuilder("creationTime").order(SortOrder.DESC));
 
-		try {
-			final SearchResponse beforeResponse = elasticsearchDAO.search(beforeRequest);
-			final SearchResponse afterResponse = elasticsearchDAO.search(afterRequest);
-
-			final SearchHits before = beforeResponse.getHits();
-			final SearchHits after = afterResponse.getHits();
+		return new SelectionPolicySearch(Arrays.asList(beforeRequest, afterRequest), responses -> {
+			final SearchHits before = responses.get(0).getHits();
+			final SearchHits after = responses.get(1).getHits();
 
 			LOGGER.debug("Total Hits Found before {} and after {}", this.getTotalSearchHitsStr(before),
 					this.getTotalSearchHitsStr(after));
 
 			if (this.isEmpty(before) && this.isNotEmpty(after)) {
-				return toSearchMetadata(after.getAt(0));
+				return single(toSearchMetadata(after.getAt(0)));
 			} else if (this.isNotEmpty(before) && this.isEmpty(after)) {
-				return toSearchMetadata(before.getAt(0));
+				return single(toSearchMetadata(before.getAt(0)));
 			} else if (this.isEmpty(before) && this.isEmpty(after)) {
 				return null;
 			}
@@ -668,29 +824,28 @@ public class EsServices {
 
 			if (durationBefore.compareTo(durationAfter) <= 0) {
 				LOGGER.debug("Candidate before was the best result, {}", metaBefore.getProductName());
-				return metaBefore;
+				return single(metaBefore);
 			} else {
 				LOGGER.debug("Candidate after was the best result, {}", metaAfter.getProductName());
-				return metaAfter;
+				return single(metaAfter);
 			}
-		} catch (final IOException e) {
-			throw new Exception(e.getMessage());
-		}
+		});
 	}
-	
-	/* 
-	 * Creating a method for executing the ES query and format the metadata. This function is exclusively used for ValIntersect variants
-	 * and do not replace a major refactoring needed on all the selection policies  
+
+	/*
+	 * Creating a method for preparing the ES query and format the metadata. This function is exclusively used for ValIntersect variants
+	 * and do not replace a major refactoring needed on all the selection policies
 	 */
-	private List<SearchMetadata> executeValIntersectQuery(String selectionPolicyName, SearchSourceBuilder sourceBuilder, ProductFamily productFamily, String productType) throws Exception {
+	private SelectionPolicySearch valIntersectQuery(String selectionPolicyName, SearchSourceBuilder sourceBuilder, ProductFamily productFamily, String productType) {
 		final SearchRequest searchRequest = new SearchRequest(getIndexForProductFamily(productFamily, productType));
 		// Generic fields
 		final String fieldNameStart = ProductFamily.AUXILIARY_FILE.equals(productFamily) ? "validityStartTime" : "startTime";
 		final String fieldNameStop = ProductFamily.AUXILIARY_FILE.equals(productFamily) ? "validityStopTime" : "stopTime";
 		searchRequest.source(sourceBuilder);
-		try {
-			final SearchResponse searchResponse = elasticsearchDAO.search(searchRequest);
+		return new SelectionPolicySearch(searchRequest, responses -> {
+			final SearchResponse searchResponse = responses.get(0);
 			LOGGER.debug("{}: Total Hits Found  {}", selectionPolicyName, this.getTotalSearchHitsStr(searchResponse.getHits()));
+			warnIfTruncated(selectionPolicyName, productType, searchResponse);
 
 			if (this.isNotEmpty(searchResponse)) {
 				final List<SearchMetadata> r = new ArrayList<>();
@@ -725,10 +880,8 @@ public class EsServices {
 				}
 				return r;
 			}
-		} catch (final IOException e) {
-			throw new Exception(e.getMessage());
-		}
-		return null;
+			return null;
+		});
 	}
 
 	/**
@@ -739,6 +892,12 @@ public class EsServices {
 	 */
 	public List<SearchMetadata> valIntersect(final String beginDate, final String endDate, final String productType,
 			final ProductFamily productFamily, final String processMode, final String satelliteId) throws Exception {
+		return execute(valIntersectSearch(beginDate, endDate, productType, productFamily, processMode, satelliteId));
+	}
+
+	private SelectionPolicySearch valIntersectSearch(final String beginDate, final String endDate,
+			final String productType, final ProductFamily productFamily, final String processMode,
+			final String satelliteId) {
 
 		final SearchSourceBuilder sourceBuilder = new SearchSourceBuilder();
 		// Generic fields
@@ -748,29 +907,29 @@ public class EsServices {
 				QueryBuilders.boolQuery()
 				.must(QueryBuilders.rangeQuery(fieldNameStart).lt(endDate))
 				.must(QueryBuilders.rangeQuery(fieldNameStop).gt(beginDate)).must(satelliteId(satelliteId))
-				.must(QueryBuilders.regexpQuery("productType.keyword", productType))
+				.must(productType(getIndexForProductFamily(productFamily, productType), productType))
 		:
 				QueryBuilders.boolQuery()
 				.must(QueryBuilders.rangeQuery(fieldNameStart).lt(endDate))
 				.must(QueryBuilders.rangeQuery(fieldNameStop).gt(beginDate)).must(satelliteId(satelliteId))
-				.must(QueryBuilders.regexpQuery("productType.keyword", productType))
+				.must(productType(getIndexForProductFamily(productFamily, productType), productType))
 				.must(QueryBuilders.termQuery("processMode.keyword", processMode));
 		sourceBuilder.query(queryBuilder);
 		LOGGER.debug("valIntersect: query composed is {}", queryBuilder);
 		sourceBuilder.size(SIZE_LIMIT);
 
-		return executeValIntersectQuery("valIntersect", sourceBuilder, productFamily, productType);
+		return valIntersectQuery("valIntersect", sourceBuilder, productFamily, productType);
 	}
-	
+
 	private static final class DateRange {
 		private String startTime;
 		private String stopTime;
-		
+
 		public DateRange(final String startTime, final String stopTime) {
 			this.startTime = startTime;
 			this.stopTime = stopTime;
 		}
-		
+
 		public String getStartTime() {
 			return startTime;
 		}
@@ -796,9 +955,16 @@ public class EsServices {
 			return Objects.equals(startTime, other.startTime) && Objects.equals(stopTime, other.stopTime);
 		}
 	}
-	
+
 	public List<SearchMetadata> valIntersectWithoutDuplicates(final String beginDate, final String endDate, final String productType,
 	final ProductFamily productFamily, final String processMode, final String satelliteId) throws Exception {
+		return execute(valIntersectWithoutDuplicatesSearch(beginDate, endDate, productType, productFamily,
+				processMode, satelliteId));
+	}
+
+	private SelectionPolicySearch valIntersectWithoutDuplicatesSearch(final String beginDate, final String endDate,
+			final String productType, final ProductFamily productFamily, final String processMode,
+			final String satelliteId) {
 		final SearchSourceBuilder sourceBuilder = new SearchSourceBuilder();
 		// Generic fields
 		final String fieldNameStart = ProductFamily.AUXILIARY_FILE.equals(productFamily) ? "validityStartTime" : "startTime";
@@ -807,49 +973,58 @@ public class EsServices {
 				QueryBuilders.boolQuery()
 				.must(QueryBuilders.rangeQuery(fieldNameStart).lt(endDate))
 				.must(QueryBuilders.rangeQuery(fieldNameStop).gt(beginDate)).must(satelliteId(satelliteId))
-				.must(QueryBuilders.regexpQuery("productType.keyword", productType))
+				.must(productType(getIndexForProductFamily(productFamily, productType), productType))
 		:
 				QueryBuilders.boolQuery()
 				.must(QueryBuilders.rangeQuery(fieldNameStart).lt(endDate))
 				.must(QueryBuilders.rangeQuery(fieldNameStop).gt(beginDate)).must(satelliteId(satelliteId))
-				.must(QueryBuilders.regexpQuery("productType.keyword", productType))
+				.must(productType(getIndexForProductFamily(productFamily, productType), productType))
 				.must(QueryBuilders.termQuery("processMode.keyword", processMode));
-		sourceBuilder.query(queryBuilder);		
+		sourceBuilder.query(queryBuilder);
 		LOGGER.debug("valIntersectWithoutDuplicates: query composed is {}", queryBuilder);
 		sourceBuilder.size(SIZE_LIMIT);
 		sourceBuilder.sort("insertionTime");
-		
-		List<SearchMetadata> queryResults = executeValIntersectQuery("valIntersectWithoutDuplicates", sourceBuilder, productFamily, productType);
-		if (queryResults == null || queryResults.size() == 0) {
-			// Query not successful or no hits at all, return empty list
-			return Collections.emptyList();
-		}
-		
-		final List<SearchMetadata> results = new ArrayList<>();
-		final Set<DateRange> usedDateRanges = new HashSet<>();
-		
-		for (final SearchMetadata candidate: queryResults) {
-			final DateRange currentDateRange = new DateRange(candidate.getValidityStart(), candidate.getValidityStop());
-			// results are already ordered by insertion time so the first hit for a specific time slot wins
-			if (!usedDateRanges.contains(currentDateRange)) {
-				results.add(candidate);
-				usedDateRanges.add(currentDateRange);
+
+		final SelectionPolicySearch search = valIntersectQuery("valIntersectWithoutDuplicates", sourceBuilder, productFamily, productType);
+		return new SelectionPolicySearch(search.getRequests(), responses -> {
+			final List<SearchMetadata> queryResults = search.evaluate(responses);
+			if (queryResults == null || queryResults.size() == 0) {
+				// Query not successful or no hits at all, return empty list
+				return Collections.emptyList();
 			}
-		}
-		
-		LOGGER.debug("After ValintersectNoDuplicate filtering {} hits remains", results.size());
 
-		return results;
+			final List<SearchMetadata> results = new ArrayList<>();
+			final Set<DateRange> usedDateRanges = new HashSet<>();
+
+			for (final SearchMetadata candidate: queryResults) {
+				final DateRange currentDateRange = new DateRange(candidate.getValidityStart(), candidate.getValidityStop());
+				// results are already ordered by insertion time so the first hit for a specific time slot wins
+				if (!usedDateRanges.contains(currentDateRange)) {
+					results.add(candidate);
+					usedDateRanges.add(currentDateRange);
+				}
+			}
+
+			LOGGER.debug("After ValintersectNoDuplicate filtering {} hits remains", results.size());
+
+			return results;
+		});
 	}
 
 	public List<SearchMetadata> fullCoverage(final String beginDate, final String endDate, final String productType,
 			final ProductFamily productFamily, final String processMode, final String satelliteId) throws Exception {
+		return execute(fullCoverageSearch(beginDate, endDate, productType, productFamily, processMode, satelliteId));
+	}
+
+	private SelectionPolicySearch fullCoverageSearch(final String beginDate, final String endDate,
+			final String productType, final ProductFamily productFamily, final String processMode,
+			final String satelliteId) {
 		final SearchSourceBuilder sourceBuilder = new SearchSourceBuilder();
 		// Generic fields
 		final BoolQueryBuilder queryBuilder = QueryBuilders.boolQuery()
 				.must(QueryBuilders.rangeQuery("startTime").lt(endDate))
 				.must(QueryBuilders.rangeQuery("stopTime").gt(beginDate)).must(satelliteId(satelliteId))
-				.must(QueryBuilders.regexpQuery("productType.keyword", productType))
+				.must(productType(getIndexForProductFamily(productFamily, productType), productType))
 				.must(QueryBuilders.termQuery("processMode.keyword", processMode));
 		sourceBuilder.query(queryBuilder);
 		LOGGER.debug("fullCoverage: query composed is {}", queryBuilder);
@@ -857,9 +1032,10 @@ public class EsServices {
 
 		final SearchRequest searchRequest = new SearchRequest(getIndexForProductFamily(productFamily, productType));
 		searchRequest.source(sourceBuilder);
-		try {
-			final SearchResponse searchResponse = elasticsearchDAO.search(searchRequest);
+		return new SelectionPolicySearch(searchRequest, responses -> {
+			final SearchResponse searchResponse = responses.get(0);
 			LOGGER.debug("fullCoverage: Total Hits Found  {}", this.getTotalSearchHitsStr(searchResponse.getHits()));
+			warnIfTruncated("fullCoverage", productType, searchResponse);
 
 			if (this.isNotEmpty(searchResponse)) {
 				final List<SearchMetadata> r = new ArrayList<>();
@@ -896,11 +1072,8 @@ public class EsServices {
 				}
 				return checkIfFullyCoverage(r, beginDate);
 			}
-		} catch (final IOException e) {
-			throw new Exception(e.getMessage());
-		}
-
-		return null;
+			return null;
+		});
 	}
 
 	private List<SearchMetadata> checkIfFullyCoverage(final List<SearchMetadata> products, final String beginDateStr) {
@@ -936,10 +1109,15 @@ public class EsServices {
 
 	public SearchMetadata latestStartValidity(final String productType, final ProductFamily productFamily,
 			final String satelliteId) throws Exception {
+		return first(execute(latestStartValiditySearch(productType, productFamily, satelliteId)));
+	}
+
+	private SelectionPolicySearch latestStartValiditySearch(final String productType,
+			final ProductFamily productFamily, final String satelliteId) {
 		final SearchSourceBuilder sourceBuilder = new SearchSourceBuilder();
 		// Generic fields
 		final BoolQueryBuilder queryBuilder = QueryBuilders.boolQuery()
-				.must(QueryBuilders.regexpQuery("productType.keyword", productType)).must(satelliteId(satelliteId));
+				.must(productType(getIndexForProductFamily(productFamily, productType), productType)).must(satelliteId(satelliteId));
 
 		sourceBuilder.query(queryBuilder);
 		LOGGER.debug("latestStartValidity: query composed is {}", queryBuilder);
@@ -949,50 +1127,20 @@ public class EsServices {
 
 		final SearchRequest searchRequest = new SearchRequest(getIndexForProductFamily(productFamily, productType));
 		searchRequest.source(sourceBuilder);
-
-		try {
-			final SearchResponse searchResponse = elasticsearchDAO.search(searchRequest);
-			if (this.isNotEmpty(searchResponse)) {
-				final Map<String, Object> source = searchResponse.getHits().getAt(0).getSourceAsMap();
-				final SearchMetadata r = new SearchMetadata();
-				r.setProductName(source.get("productName").toString());
-				r.setProductType(source.get("productType").toString());
-				r.setKeyObjectStorage(source.get("url").toString());
-				if (source.containsKey("validityStartTime")) {
-					try {
-						r.setValidityStart(
-								DateUtils.convertToMetadataDateTimeFormat(source.get("validityStartTime").toString()));
-					} catch (final DateTimeParseException e) {
-						throw new MetadataMalformedException("validityStartTime");
-					}
-				}
-				if (source.containsKey("validityStopTime")) {
-					try {
-						r.setValidityStop(
-								DateUtils.convertToMetadataDateTimeFormat(source.get("validityStopTime").toString()));
-					} catch (final DateTimeParseException e) {
-						throw new MetadataMalformedException("validityStopTime");
-					}
-				}
-				source.forEach((key, value) -> {
-					if (value != null)
-						r.addAdditionalProperty(key, value.toString());
-				});
-				return r;
-			}
-		} catch (final IOException e) {
-			throw new Exception(e.getMessage());
-		}
-
-		return null;
+		return new SelectionPolicySearch(searchRequest, responses -> single(firstHitOf(responses.get(0))));
 	}
-	
+
 	public SearchMetadata latestStopValidity(final String productType,
 											 final ProductFamily productFamily, final String satelliteId) throws Exception {
+		return first(execute(latestStopValiditySearch(productType, productFamily, satelliteId)));
+	}
+
+	private SelectionPolicySearch latestStopValiditySearch(final String productType,
+			final ProductFamily productFamily, final String satelliteId) {
 		final SearchSourceBuilder sourceBuilder = new SearchSourceBuilder();
 		// Generic fields
 		final BoolQueryBuilder queryBuilder = QueryBuilders.boolQuery()
-				.must(QueryBuilders.regexpQuery("productType.keyword", productType)).must(satelliteId(satelliteId));
+				.must(productType(getIndexForProductFamily(productFamily, productType), productType)).must(satelliteId(satelliteId));
 
 		sourceBuilder.query(queryBuilder);
 		LOGGER.debug("latestStopValidity: query composed is {}", queryBuilder);
@@ -1002,42 +1150,7 @@ public class EsServices {
 
 		final SearchRequest searchRequest = new SearchRequest(getIndexForProductFamily(productFamily, productType));
 		searchRequest.source(sourceBuilder);
-
-		try {
-			final SearchResponse searchResponse = elasticsearchDAO.search(searchRequest);
-			if (this.isNotEmpty(searchResponse)) {
-				final Map<String, Object> source = searchResponse.getHits().getAt(0).getSourceAsMap();
-				final SearchMetadata r = new SearchMetadata();
-				r.setProductName(source.get("productName").toString());
-				r.setProductType(source.get("productType").toString());
-				r.setKeyObjectStorage(source.get("url").toString());
-				if (source.containsKey("validityStartTime")) {
-					try {
-						r.setValidityStart(
-								DateUtils.convertToMetadataDateTimeFormat(source.get("validityStartTime").toString()));
-					} catch (final DateTimeParseException e) {
-						throw new MetadataMalformedException("validityStartTime");
-					}
-				}
-				if (source.containsKey("validityStopTime")) {
-					try {
-						r.setValidityStop(
-								DateUtils.convertToMetadataDateTimeFormat(source.get("validityStopTime").toString()));
-					} catch (final DateTimeParseException e) {
-						throw new MetadataMalformedException("validityStopTime");
-					}
-				}
-				source.forEach((key, value) -> {
-					if (value != null) 
-						r.addAdditionalProperty(key, value.toString());
-				});
-				return r;
-			}
-		} catch (final IOException e) {
-			throw new Exception(e.getMessage());
-		}
-
-		return null;
+		return new SelectionPolicySearch(searchRequest, responses -> single(firstHitOf(responses.get(0))));
 	}
 
 	/**
@@ -1046,13 +1159,20 @@ public class EsServices {
 	 */
 	public SearchMetadata latestValidityClosest(final String beginDate, final String endDate, final String productType,
 			final ProductFamily productFamily, final String processMode, final String satelliteId) throws Exception {
+		return first(execute(latestValidityClosestSearch(beginDate, endDate, productType, productFamily, processMode,
+				satelliteId)));
+	}
+
+	private SelectionPolicySearch latestValidityClosestSearch(final String beginDate, final String endDate,
+			final String productType, final ProductFamily productFamily, final String processMode,
+			final String satelliteId) {
 
 		final SearchSourceBuilder sourceBuilder = new SearchSourceBuilder();
 		// Generic fields
 		final BoolQueryBuilder queryBuilder = QueryBuilders.boolQuery()
 				.must(QueryBuilders.rangeQuery("startTime").lt(endDate))
 				.must(QueryBuilders.rangeQuery("stopTime").gt(beginDate)).must(satelliteId(satelliteId))
-				.must(QueryBuilders.regexpQuery("productType.keyword", productType))
+				.must(productType(getIndexForProductFamily(productFamily, productType), productType))
 				.must(QueryBuilders.termQuery("processMode.keyword", processMode));
 		sourceBuilder.query(queryBuilder);
 		LOGGER.debug("latestValidityClosest: query composed is {}", queryBuilder);
@@ -1061,12 +1181,12 @@ public class EsServices {
 		final SearchRequest searchRequest = new SearchRequest(getIndexForProductFamily(productFamily, productType));
 		searchRequest.source(sourceBuilder);
 
-		Map<String, Object> r = null;
-		try {
-			final SearchResponse searchResponse = elasticsearchDAO.search(searchRequest);
+		return new SelectionPolicySearch(searchRequest, responses -> {
+			final SearchResponse searchResponse = responses.get(0);
 			LOGGER.debug("latestValidityClosest: Total Hits Found  {}",
 					this.getTotalSearchHitsStr(searchResponse.getHits()));
 
+			Map<String, Object> r = null;
 			if (this.isNotEmpty(searchResponse)) {
 
 				BigInteger distance = null;
@@ -1089,37 +1209,35 @@ public class EsServices {
 			} else {
 				return null;
 			}
-		} catch (final IOException e) {
-			throw new Exception(e.getMessage());
-		}
 
-		if(r == null) {
-			return null;
-		}
+			if(r == null) {
+				return null;
+			}
 
-		final SearchMetadata local = new SearchMetadata();
-		local.setProductName(r.get("productName").toString());
-		local.setProductType(r.get("productType").toString());
-		local.setKeyObjectStorage(r.get("url").toString());
+			final SearchMetadata local = new SearchMetadata();
+			local.setProductName(r.get("productName").toString());
+			local.setProductType(r.get("productType").toString());
+			local.setKeyObjectStorage(r.get("url").toString());
 
-		if (r.containsKey("startTime")) {
-			try {
-				local.setValidityStart(DateUtils.convertToMetadataDateTimeFormat(r.get("startTime").toString()));
-			} catch (final DateTimeParseException e) {
-				throw new MetadataMalformedException("startTime");
+			if (r.containsKey("startTime")) {
+				try {
+					local.setValidityStart(DateUtils.convertToMetadataDateTimeFormat(r.get("startTime").toString()));
+				} catch (final DateTimeParseException e) {
+					throw new MetadataMalformedException("startTime");
+				}
 			}
-		}
-		if (r.containsKey("stopTime")) {
-			try {
-				local.setValidityStop(DateUtils.convertToMetadataDateTimeFormat(r.get("stopTime").toString()));
-			} catch (final DateTimeParseException e) {
-				throw new MetadataMalformedException("stopTime");
+			if (r.containsKey("stopTime")) {
+				try {
+					local.setValidityStop(DateUtils.convertToMetadataDateTimeFormat(r.get("stopTime").toString()));
+				} catch (final DateTimeParseException e) {
+					throw new MetadataMalformedException("stopTime");
+				}
 			}
-		}
 
-		r.forEach((key, value) -> local.addAdditionalProperty(key, value.toString()));
+			r.forEach((key, value) -> local.addAdditionalProperty(key, value.toString()));
 
-		return local;
+			return single(local);
+		});
 	}
 
 	/**
@@ -1130,13 +1248,18 @@ public class EsServices {
 	 */
 	public SearchMetadata lastValIntersect(final String beginDate, final String endDate, final String productType,
 										   final ProductFamily productFamily, final String satelliteId) throws Exception {
+		return first(execute(lastValIntersectSearch(beginDate, endDate, productType, productFamily, satelliteId)));
+	}
+
+	private SelectionPolicySearch lastValIntersectSearch(final String beginDate, final String endDate,
+			final String productType, final ProductFamily productFamily, final String satelliteId) {
 
 		final SearchSourceBuilder sourceBuilder = new SearchSourceBuilder();
 		// Generic fields
 		final BoolQueryBuilder queryBuilder = QueryBuilders.boolQuery()
 				.must(QueryBuilders.rangeQuery("validityStartTime").lt(endDate))
 				.must(QueryBuilders.rangeQuery("validityStopTime").gt(beginDate)).must(satelliteId(satelliteId))
-				.must(QueryBuilders.regexpQuery("productType.keyword", productType));
+				.must(productType(getIndexForProductFamily(productFamily, productType), productType));
 		sourceBuilder.query(queryBuilder);
 		LOGGER.debug("latestValIntersect: query composed is {}", queryBuilder);
 
@@ -1145,58 +1268,30 @@ public class EsServices {
 
 		final SearchRequest searchRequest = new SearchRequest(getIndexForProductFamily(productFamily, productType));
 		searchRequest.source(sourceBuilder);
-		try {
-			final SearchResponse searchResponse = elasticsearchDAO.search(searchRequest);
-			if (this.isNotEmpty(searchResponse)) {
-				final Map<String, Object> source = searchResponse.getHits().getAt(0).getSourceAsMap();
-				final SearchMetadata r = new SearchMetadata();
-				r.setProductName(source.get("productName").toString());
-				r.setProductType(source.get("productType").toString());
-				r.setKeyObjectStorage(source.get("url").toString());
-				if (source.containsKey("validityStartTime")) {
-					try {
-						r.setValidityStart(
-								DateUtils.convertToMetadataDateTimeFormat(source.get("validityStartTime").toString()));
-					} catch (final DateTimeParseException e) {
-						throw new MetadataMalformedException("validityStartTime");
-					}
-				}
-				if (source.containsKey("validityStopTime")) {
-					try {
-						r.setValidityStop(
-								DateUtils.convertToMetadataDateTimeFormat(source.get("validityStopTime").toString()));
-					} catch (final DateTimeParseException e) {
-						throw new MetadataMalformedException("validityStopTime");
-					}
-				}
-				source.forEach((key, value) -> {
-					if (value != null)
-						r.addAdditionalProperty(key, value.toString());
-				});
-				return r;
-			}
-		} catch (final IOException e) {
-			throw new Exception(e.getMessage());
-		}
-		return null;
+		return new SelectionPolicySearch(searchRequest, responses -> single(firstHitOf(responses.get(0))));
 	}
 
 	/**
 	 * Returned product covers entire interval and has the closest start time to the
 	 * beginning of the interval
-	 * 
+	 *
 	 * @return product that matches mode
 	 * @throws Exception if start or stop time is in an invalid format, or the
 	 *                   search itself throws an error
 	 */
 	public SearchMetadata latestValCoverClosest(final String beginDate, final String endDate, final String productType,
 												final ProductFamily productFamily, final String satelliteId) throws Exception {
+		return first(execute(latestValCoverClosestSearch(beginDate, endDate, productType, productFamily, satelliteId)));
+	}
+
+	private SelectionPolicySearch latestValCoverClosestSearch(final String beginDate, final String endDate,
+			final String productType, final ProductFamily productFamily, final String satelliteId) {
 		final SearchSourceBuilder sourceBuilder = new SearchSourceBuilder();
 		// Generic fields
 		final BoolQueryBuilder queryBuilder = QueryBuilders.boolQuery()
 				.must(QueryBuilders.rangeQuery("validityStartTime").lte(beginDate))
 				.must(QueryBuilders.rangeQuery("validityStopTime").gte(endDate)).must(satelliteId(satelliteId))
-				.must(QueryBuilders.regexpQuery("productType.keyword", productType));
+				.must(productType(getIndexForProductFamily(productFamily, productType), productType));
 		sourceBuilder.query(queryBuilder);
 		LOGGER.debug("latestValCoverClosest: query composed is {}", queryBuilder);
 
@@ -1205,8 +1300,8 @@ public class EsServices {
 
 		final SearchRequest searchRequest = new SearchRequest(getIndexForProductFamily(productFamily, productType));
 		searchRequest.source(sourceBuilder);
-		try {
-			final SearchResponse searchResponse = elasticsearchDAO.search(searchRequest);
+		return new SelectionPolicySearch(searchRequest, responses -> {
+			final SearchResponse searchResponse = responses.get(0);
 			if (this.isNotEmpty(searchResponse)) {
 				SearchMetadata result = null;
 				for (final SearchHit hit : searchResponse.getHits().getHits()) {
@@ -1246,12 +1341,10 @@ public class EsServices {
 						result = local;
 					}
 				}
-				return result;
+				return single(result);
 			}
-		} catch (final IOException e) {
-			throw new Exception(e.getMessage());
-		}
-		return null;
+			return null;
+		});
 	}
 
 	/**
@@ -1268,32 +1361,21 @@ public class EsServices {
 		final BoolQueryBuilder queryBuilder = QueryBuilders.boolQuery()
 				.must(QueryBuilders.rangeQuery("startTime").lt(stopTime))
 				.must(QueryBuilders.rangeQuery("stopTime").gt(startTime)).must(satelliteId(satelliteId))
-				.must(QueryBuilders.regexpQuery("productType.keyword", productType));
+				.must(productType(productFamily.name().toLowerCase(), productType));
 
 		LOGGER.debug("query composed is {}", queryBuilder);
 
 		sourceBuilder.query(queryBuilder);
 		sourceBuilder.sort("startTime", SortOrder.ASC);
-		sourceBuilder.size(SIZE_LIMIT);
-
-		final String index = productFamily.name().toLowerCase();
-		final SearchRequest searchRequest = new SearchRequest(index);
-		searchRequest.source(sourceBuilder);
 
+		final List<S3Metadata> r = new ArrayList<>();
 		try {
-			final SearchResponse searchResponse = elasticsearchDAO.search(searchRequest);
-			if (this.isNotEmpty(searchResponse)) {
-				final List<S3Metadata> r = new ArrayList<>();
-				for (final SearchHit hit : searchResponse.getHits().getHits()) {
-					r.add(toS3Metadata(hit));
-				}
-				return r;
-			}
+			forEachHit(productFamily.name().toLowerCase(), sourceBuilder, hit -> r.add(toS3Metadata(hit)));
 		} catch (final IOException e) {
 			throw new Exception(e.getMessage());
 		}
 
-		return null;
+		return r.isEmpty() ? null : r;
 	}
 
 	/**
@@ -1381,7 +1463,7 @@ public class EsServices {
 			final String satelliteId, final long orbitNumber) throws Exception {
 		final SearchSourceBuilder sourceBuilder = new SearchSourceBuilder();
 		final BoolQueryBuilder queryBuilder = QueryBuilders.boolQuery()
-				.must(QueryBuilders.regexpQuery("productType.keyword", productType))
+				.must(productType(productFamily.name().toLowerCase(), productType))
 				.must(satelliteId(satelliteId))
 				.must(QueryBuilders.termQuery("absoluteStartOrbit", orbitNumber));
 
@@ -1421,7 +1503,7 @@ public class EsServices {
 	) throws Exception {
 		final SearchSourceBuilder sourceBuilder = new SearchSourceBuilder();
 		final BoolQueryBuilder queryBuilder = QueryBuilders.boolQuery()
-				.must(QueryBuilders.regexpQuery("productType.keyword", productType))
+				.must(productType(productFamily.name().toLowerCase(), productType))
 				.must(satelliteId(satelliteId))
 				.must(QueryBuilders.boolQuery()
 						.should(QueryBuilders.termQuery("absoluteStartOrbit", orbitNumber))
@@ -1454,6 +1536,44 @@ public class EsServices {
 
 	public List<SearchMetadata> intervalQuery(final String startTime, final String stopTime,
 			final ProductFamily productFamily, final String productType) throws Exception {
+		final SearchSourceBuilder sourceBuilder = intervalQuerySource(startTime, stopTime);
+		sourceBuilder.size(SIZE_LIMIT);
+
+		final SearchRequest searchRequest = new SearchRequest(intervalQueryIndex(productFamily, productType));
+		searchRequest.source(sourceBuilder);
+
+		final List<SearchMetadata> result = new ArrayList<>();
+		
+		try {
+			final SearchResponse searchResponse = elasticsearchDAO.search(searchRequest);
+			if (this.isNotEmpty(searchResponse)) {
+				for (final SearchHit hit : searchResponse.getHits().getHits()) {
+					result.add(toIntervalMetadata(hit.getSourceAsMap()));
+				}
+			}
+		} catch (final IOException e) {
+			throw new Exception(e.getMessage());
+		}
+		return result;
+	}
+
+	/**
+	 * Streams all products of {@link #intervalQuery(String, String, ProductFamily, String)}
+	 * page by page to the consumer, without the limit on the number of results
+	 * 
+	 * @param fields the source fields to return in addition to the ones needed, or
+	 *               null for all of them
+	 */
+	public void intervalQuery(final String startTime, final String stopTime, final ProductFamily productFamily,
+			final String productType, final List<String> fields, final MetadataConsumer<SearchMetadata> consumer)
+			throws Exception {
+		final SearchSourceBuilder sourceBuilder = intervalQuerySource(startTime, stopTime);
+		fetchSource(sourceBuilder, INTERVAL_QUERY_FIELDS, fields);
+		forEachHit(intervalQueryIndex(productFamily, productType), sourceBuilder,
+				hit -> consumer.accept(toIntervalMetadata(hit.getSourceAsMap())));
+	}
+
+	private SearchSourceBuilder intervalQuerySource(final String startTime, final String stopTime) {
 		final SearchSourceBuilder sourceBuilder = new SearchSourceBuilder();
 		final BoolQueryBuilder queryBuilder = QueryBuilders.boolQuery()
 				.must(QueryBuilders.rangeQuery("insertionTime").from(startTime).to(stopTime));
@@ -1465,76 +1585,108 @@ public class EsServices {
 		LOGGER.debug("query composed is {}", queryBuilder);
 
 		sourceBuilder.query(queryBuilder);
-		sourceBuilder.size(SIZE_LIMIT);
+		return sourceBuilder;
+	}
 
-		final String index;
+	private String intervalQueryIndex(final ProductFamily productFamily, final String productType) {
 		if (ProductFamily.EDRS_SESSION.equals(productFamily)) {
-			index = "raw";
+			return "raw";
 		} else if (ProductFamily.AUXILIARY_FILE.equals(productFamily)) {
-			index = productType;
+			return productType;
+		}
+		return productFamily.name().toLowerCase();
+	}
+
+	private SearchMetadata toIntervalMetadata(final Map<String, Object> source) throws MetadataMalformedException {
+		final SearchMetadata local = new SearchMetadata();
+		local.setProductName(source.get("productName").toString());
+		local.setProductType(source.get("productType").toString());
+		
+		if (source.containsKey("url")) {
+			local.setKeyObjectStorage(source.get("url").toString());
 		} else {
-			index = productFamily.name().toLowerCase();
+			local.setKeyObjectStorage(source.get("productName").toString());
 		}
+		if (source.containsKey("startTime")) {
+			try {
+				local.setValidityStart(
+						DateUtils.convertToMetadataDateTimeFormat(source.get("startTime").toString()));
+			} catch (final DateTimeParseException e) {
+				throw new MetadataMalformedException("startTime");
+			}
+		}
+		if (source.containsKey("stopTime")) {
+			try {
+				local.setValidityStop(
+						DateUtils.convertToMetadataDateTimeFormat(source.get("stopTime").toString()));
+			} catch (final DateTimeParseException e) {
+				throw new MetadataMalformedException("stopTime");
+			}
+		}
+		source.forEach((key, value) -> {
+			if (value != null)
+				local.addAdditionalProperty(key, value.toString());
+		});
+		return local;
+	}
+	
+	/**
+	 * Searches for matchings products with an insertionTime inside the given
+	 * interval (lower bound not included), and matching productFamily and productType
+	 */
+	public List<SearchMetadata> intervalTypeQuery(final String startTime, final String stopTime,
+			final ProductFamily productFamily, final String productType, final String satelliteId,
+			final String timeliness) throws Exception {
+		final SearchSourceBuilder sourceBuilder = intervalTypeQuerySource(startTime, stopTime, productFamily,
+				productType, satelliteId, timeliness);
+		sourceBuilder.size(SIZE_LIMIT);
+
+		final String index = getIndexForProductFamily(productFamily, productType);
 		final SearchRequest searchRequest = new SearchRequest(index);
 		searchRequest.source(sourceBuilder);
 
-		final List<SearchMetadata> result = new ArrayList<>();
-		
 		try {
 			final SearchResponse searchResponse = elasticsearchDAO.search(searchRequest);
 			if (this.isNotEmpty(searchResponse)) {
+				final List<SearchMetadata> r = new ArrayList<>();
 				for (final SearchHit hit : searchResponse.getHits().getHits()) {
-					final Map<String, Object> source = hit.getSourceAsMap();
-					final SearchMetadata local = new SearchMetadata();
-					local.setProductName(source.get("productName").toString());
-					local.setProductType(source.get("productType").toString());
-					
-					if (source.containsKey("url")) {
-						local.setKeyObjectStorage(source.get("url").toString());
-					} else {
-						local.setKeyObjectStorage(source.get("productName").toString());
-					}
-					if (source.containsKey("startTime")) {
-						try {
-							local.setValidityStart(
-									DateUtils.convertToMetadataDateTimeFormat(source.get("startTime").toString()));
-						} catch (final DateTimeParseException e) {
-							throw new MetadataMalformedException("startTime");
-						}
-					}
-					if (source.containsKey("stopTime")) {
-						try {
-							local.setValidityStop(
-									DateUtils.convertToMetadataDateTimeFormat(source.get("stopTime").toString()));
-						} catch (final DateTimeParseException e) {
-							throw new MetadataMalformedException("stopTime");
-						}
-					}
-					source.forEach((key, value) -> {
-						if (value != null)
-							local.addAdditionalProperty(key, value.toString());
-					});
-					result.add(local);
+					r.add(toIntervalTypeMetadata(hit.getSourceAsMap()));
 				}
+				return r;
 			}
 		} catch (final IOException e) {
 			throw new Exception(e.getMessage());
 		}
-		return result;
+
+		return null;
 	}
-	
+
 	/**
-	 * Searches for matchings products with an insertionTime inside the given
-	 * interval (lower bound not included), and matching productFamily and productType
+	 * Streams all products of
+	 * {@link #intervalTypeQuery(String, String, ProductFamily, String, String, String)}
+	 * page by page to the consumer, without the limit on the number of results
+	 * 
+	 * @param fields the source fields to return in addition to the ones needed, or
+	 *               null for all of them
 	 */
-	public List<SearchMetadata> intervalTypeQuery(final String startTime, final String stopTime,
+	public void intervalTypeQuery(final String startTime, final String stopTime, final ProductFamily productFamily,
+			final String productType, final String satelliteId, final String timeliness, final List<String> fields,
+			final MetadataConsumer<SearchMetadata> consumer) throws Exception {
+		final SearchSourceBuilder sourceBuilder = intervalTypeQuerySource(startTime, stopTime, productFamily,
+				productType, satelliteId, timeliness);
+		fetchSource(sourceBuilder, INTERVAL_TYPE_QUERY_FIELDS, fields);
+		forEachHit(getIndexForProductFamily(productFamily, productType), sourceBuilder,
+				hit -> consumer.accept(toIntervalTypeMetadata(hit.getSourceAsMap())));
+	}
+
+	private SearchSourceBuilder intervalTypeQuerySource(final String startTime, final String stopTime,
 			final ProductFamily productFamily, final String productType, final String satelliteId,
-			final String timeliness) throws Exception {
+			final String timeliness) {
 		final SearchSourceBuilder sourceBuilder = new SearchSourceBuilder();
 		BoolQueryBuilder queryBuilder = QueryBuilders.boolQuery()
 				.must(QueryBuilders.rangeQuery("insertionTime").from(startTime, false).to(stopTime))
 				.must(QueryBuilders.termQuery("satelliteId.keyword", satelliteId))
-				.must(QueryBuilders.regexpQuery("productType.keyword", productType));
+				.must(productType(productType));
 		
 		if (!timeliness.isEmpty()) {
 			queryBuilder = queryBuilder.must(QueryBuilders.termsQuery("timeliness", timeliness));
@@ -1543,83 +1695,59 @@ public class EsServices {
 		LOGGER.debug("query composed is {}", queryBuilder);
 
 		sourceBuilder.query(queryBuilder);
-		sourceBuilder.size(SIZE_LIMIT);
 		sourceBuilder.sort(new FieldSortBuilder("insertionTime").order(SortOrder.ASC));
+		return sourceBuilder;
+	}
 
-		final String index = getIndexForProductFamily(productFamily, productType);
-		final SearchRequest searchRequest = new SearchRequest(index);
-		searchRequest.source(sourceBuilder);
-
-		try {
-			final SearchResponse searchResponse = elasticsearchDAO.search(searchRequest);
-			if (this.isNotEmpty(searchResponse)) {
-				final List<SearchMetadata> r = new ArrayList<>();
-				for (final SearchHit hit : searchResponse.getHits().getHits()) {
-					final Map<String, Object> source = hit.getSourceAsMap();
-					final SearchMetadata local = new SearchMetadata();
-					local.setProductName(source.get("productName").toString());
-					local.setProductType(source.get("productType").toString());
-					local.setMissionId(source.get(MissionId.FIELD_NAME).toString());
-					local.setKeyObjectStorage(source.get("url").toString());
-					if (source.containsKey("satelliteId")) {
-						local.setSatelliteId(source.get("satelliteId").toString());
-					}
-					if (source.containsKey("startTime")) {
-						try {
-							local.setValidityStart(
-									DateUtils.convertToMetadataDateTimeFormat(source.get("startTime").toString()));
-						} catch (final DateTimeParseException e) {
-							throw new MetadataMalformedException("startTime");
-						}
-					}
-					if (source.containsKey("stopTime")) {
-						try {
-							local.setValidityStop(
-									DateUtils.convertToMetadataDateTimeFormat(source.get("stopTime").toString()));
-						} catch (final DateTimeParseException e) {
-							throw new MetadataMalformedException("stopTime");
-						}
-					}
-					if (source.containsKey("insertionTime")) {
-						try {
-							local.setInsertionTime(
-									DateUtils.convertToMetadataDateTimeFormat(source.get("insertionTime").toString()));
-						} catch (final DateTimeParseException e) {
-							throw new MetadataMalformedException("insertionTime");
-						}
-					}
-					
-					source.forEach((key, value) -> {
-						if (value != null)
-							local.addAdditionalProperty(key, value.toString());
-					});
-					
-					r.add(local);
-				}
-				return r;
+	private SearchMetadata toIntervalTypeMetadata(final Map<String, Object> source) throws MetadataMalformedException {
+		final SearchMetadata local = new SearchMetadata();
+		local.setProductName(source.get("productName").toString());
+		local.setProductType(source.get("productType").toString());
+		local.setMissionId(source.get(MissionId.FIELD_NAME).toString());
+		local.setKeyObjectStorage(source.get("url").toString());
+		if (source.containsKey("satelliteId")) {
+			local.setSatelliteId(source.get("satelliteId").toString());
+		}
+		if (source.containsKey("startTime")) {
+			try {
+				local.setValidityStart(
+						DateUtils.convertToMetadataDateTimeFormat(source.get("startTime").toString()));
+			} catch (final DateTimeParseException e) {
+				throw new MetadataMalformedException("startTime");
 			}
-		} catch (final IOException e) {
-			throw new Exception(e.getMessage());
 		}
-
-		return null;
+		if (source.containsKey("stopTime")) {
+			try {
+				local.setValidityStop(
+						DateUtils.convertToMetadataDateTimeFormat(source.get("stopTime").toString()));
+			} catch (final DateTimeParseException e) {
+				throw new MetadataMalformedException("stopTime");
+			}
+		}
+		if (source.containsKey("insertionTime")) {
+			try {
+				local.setInsertionTime(
+						DateUtils.convertToMetadataDateTimeFormat(source.get("insertionTime").toString()));
+			} catch (final DateTimeParseException e) {
+				throw new MetadataMalformedException("insertionTime");
+			}
+		}
+		
+		source.forEach((key, value) -> {
+			if (value != null)
+				local.addAdditionalProperty(key, value.toString());
+		});
+		return local;
 	}
+
 	public List<SearchMetadata> query(
 			final ProductFamily family,
 			final String productType, 
 			final TimeInterval timeInterval
 	) 
 		throws MetadataMalformedException {
-		final SearchSourceBuilder sourceBuilder = new SearchSourceBuilder();		
-		final String start = DateUtils.METADATA_DATE_FORMATTER.format(timeInterval.getStart());
-		final String stop = DateUtils.METADATA_DATE_FORMATTER.format(timeInterval.getStop());
-		final BoolQueryBuilder queryBuilder = QueryBuilders.boolQuery()
-				.must(QueryBuilders.rangeQuery("insertionTime").from(start, false).to(stop))
-				.must(QueryBuilders.regexpQuery("productType.keyword", productType));
-		LOGGER.debug("query compost is {}", queryBuilder);		
-		sourceBuilder.query(queryBuilder);
+		final SearchSourceBuilder sourceBuilder = querySource(family, productType, timeInterval);
 		sourceBuilder.size(SIZE_LIMIT);
-		sourceBuilder.sort(new FieldSortBuilder("insertionTime").order(SortOrder.ASC));
 		final String index = getIndexForProductFamily(family, productType);
 		final SearchRequest searchRequest = new SearchRequest(index);
 		searchRequest.source(sourceBuilder);
@@ -1628,71 +1756,7 @@ public class EsServices {
 			if (this.isNotEmpty(searchResponse)) {
 				final List<SearchMetadata> r = new ArrayList<>();
 				for (final SearchHit hit : searchResponse.getHits().getHits()) {
-					final Map<String, Object> source = hit.getSourceAsMap();
-					final SearchMetadata local = new SearchMetadata();
-					local.setProductName(source.get("productName").toString());
-					local.setProductType(source.get("productType").toString());
-					local.setMissionId(source.get(MissionId.FIELD_NAME).toString());
-					local.setKeyObjectStorage(source.get("url").toString());
-					if (source.containsKey("stationCode")) {
-						local.setSatelliteId(source.get("stationCode").toString());
-					}
-					if (source.containsKey("satelliteId")) {
-						local.setSatelliteId(source.get("satelliteId").toString());
-					}
-					if (source.containsKey("startTime")) {
-						try {
-							local.setValidityStart(
-									DateUtils.convertToMetadataDateTimeFormat(source.get("startTime").toString()));
-						} catch (final DateTimeParseException e) {
-							throw new MetadataMalformedException("startTime");
-						}
-					}
-					if (source.containsKey("stopTime")) {
-						try {
-							local.setValidityStop(
-									DateUtils.convertToMetadataDateTimeFormat(source.get("stopTime").toString()));
-						} catch (final DateTimeParseException e) {
-							throw new MetadataMalformedException("stopTime");
-						}
-					}
-					if (source.containsKey("insertionTime")) {
-						try {
-							local.setInsertionTime(
-									DateUtils.convertToMetadataDateTimeFormat(source.get("insertionTime").toString()));
-						} catch (final DateTimeParseException e) {
-							throw new MetadataMalformedException("insertionTime");
-						}
-					}
-					if (source.containsKey("satelliteId")) {
-						try {
-							local.setSatelliteId(source.get("satelliteId").toString());
-						} catch (final DateTimeParseException e) {
-							throw new MetadataMalformedException("satelliteId");
-						}
-					}
-					if (source.containsKey("swathtype")) {
-						try {
-							local.setSwathtype(source.get("swathtype").toString());
-						} catch (final DateTimeParseException e) {
-							throw new MetadataMalformedException("swathtype");
-						}
-					}
-					else {
-						final String leType = source.get("productType").toString();
-						final String firstTwoCharsOfType = leType.substring(0,2);
-						local.setSwathtype(firstTwoCharsOfType);
-					}
-					
-					source.forEach((key, value) -> {
-						if (value != null)
-							local.addAdditionalProperty(key, value.toString());
-					});
-					
-					if (!local.getAdditionalProperties().containsKey("dataTakeId")) {
-						throw new MetadataMalformedException("dataTakeId");
-					}
-					r.add(local);
+					r.add(toQueryMetadata(hit.getSourceAsMap()));
 				}
 				return r;
 			}
@@ -1705,6 +1769,102 @@ public class EsServices {
 		return null;
 	}
 
+	/**
+	 * Streams all products of {@link #query(ProductFamily, String, TimeInterval)}
+	 * page by page to the consumer, without the limit on the number of results
+	 * 
+	 * @param fields the source fields to return in addition to the ones needed, or
+	 *               null for all of them
+	 */
+	public void query(final ProductFamily family, final String productType, final TimeInterval timeInterval,
+			final List<String> fields, final MetadataConsumer<SearchMetadata> consumer) throws Exception {
+		final SearchSourceBuilder sourceBuilder = querySource(family, productType, timeInterval);
+		fetchSource(sourceBuilder, QUERY_FIELDS, fields);
+		forEachHit(getIndexForProductFamily(family, productType), sourceBuilder,
+				hit -> consumer.accept(toQueryMetadata(hit.getSourceAsMap())));
+	}
+
+	private SearchSourceBuilder querySource(final ProductFamily family, final String productType,
+			final TimeInterval timeInterval) {
+		final SearchSourceBuilder sourceBuilder = new SearchSourceBuilder();		
+		final String start = DateUtils.METADATA_DATE_FORMATTER.format(timeInterval.getStart());
+		final String stop = DateUtils.METADATA_DATE_FORMATTER.format(timeInterval.getStop());
+		final BoolQueryBuilder queryBuilder = QueryBuilders.boolQuery()
+				.must(QueryBuilders.rangeQuery("insertionTime").from(start, false).to(stop))
+				.must(productType(productType));
+		LOGGER.debug("query compost is {}", queryBuilder);		
+		sourceBuilder.query(queryBuilder);
+		sourceBuilder.sort(new FieldSortBuilder("insertionTime").order(SortOrder.ASC));
+		return sourceBuilder;
+	}
+
+	private SearchMetadata toQueryMetadata(final Map<String, Object> source) throws MetadataMalformedException {
+		final SearchMetadata local = new SearchMetadata();
+		local.setProductName(source.get("productName").toString());
+		local.setProductType(source.get("productType").toString());
+		local.setMissionId(source.get(MissionId.FIELD_NAME).toString());
+		local.setKeyObjectStorage(source.get("url").toString());
+		if (source.containsKey("stationCode")) {
+			local.setSatelliteId(source.get("stationCode").toString());
+		}
+		if (source.containsKey("satelliteId")) {
+			local.setSatelliteId(source.get("satelliteId").toString());
+		}
+		if (source.containsKey("startTime")) {
+			try {
+				local.setValidityStart(
+						DateUtils.convertToMetadataDateTimeFormat(source.get("startTime").toString()));
+			} catch (final DateTimeParseException e) {
+				throw new MetadataMalformedException("startTime");
+			}
+		}
+		if (source.containsKey("stopTime")) {
+			try {
+				local.setValidityStop(
+						DateUtils.convertToMetadataDateTimeFormat(source.get("stopTime").toString()));
+			} catch (final DateTimeParseException e) {
+				throw new MetadataMalformedException("stopTime");
+			}
+		}
+		if (source.containsKey("insertionTime")) {
+			try {
+				local.setInsertionTime(
+						DateUtils.convertToMetadataDateTimeFormat(source.get("insertionTime").toString()));
+			} catch (final DateTimeParseException e) {
+				throw new MetadataMalformedException("insertionTime");
+			}
+		}
+		if (source.containsKey("satelliteId")) {
+			try {
+				local.setSatelliteId(source.get("satelliteId").toString());
+			} catch (final DateTimeParseException e) {
+				throw new MetadataMalformedException("satelliteId");
+			}
+		}
+		if (source.containsKey("swathtype")) {
+			try {
+				local.setSwathtype(source.get("swathtype").toString());
+			} catch (final DateTimeParseException e) {
+				throw new MetadataMalformedException("swathtype");
+			}
+		}
+		else {
+			final String leType = source.get("productType").toString();
+			final String firstTwoCharsOfType = leType.substring(0,2);
+			local.setSwathtype(firstTwoCharsOfType);
+		}
+		
+		source.forEach((key, value) -> {
+			if (value != null)
+				local.addAdditionalProperty(key, value.toString());
+		});
+		
+		if (!local.getAdditionalProperties().containsKey("dataTakeId")) {
+			throw new MetadataMalformedException("dataTakeId");
+		}
+		return local;
+	}
+
 	public AuxMetadata auxiliaryQuery(final String searchProductType, final String searchProductName) throws IOException, MetadataNotPresentException, MetadataMalformedException {
 
 		final Map<String, Object> source = getRequest(searchProductType, searchProductName);
@@ -1858,7 +2018,7 @@ public class EsServices {
 		final SearchSourceBuilder sourceBuilder = new SearchSourceBuilder();
 		final BoolQueryBuilder queryBuilder = QueryBuilders.boolQuery()
 				.must(QueryBuilders.termQuery("dataTakeId.keyword", dataTakeId))
-				.must(QueryBuilders.regexpQuery("productType.keyword", productType));		
+				.must(productType(ProductFamily.L1_ACN.name().toLowerCase(), productType));		
 		sourceBuilder.query(queryBuilder);
 		LOGGER.debug("L1ACN Datatake Query: query compost is {}", queryBuilder);
 		sourceBuilder.size(SIZE_LIMIT);
@@ -2282,12 +2442,107 @@ public class EsServices {
 		return r;
 	}
 
+	/**
+	 * Product types given as pattern are searched by the concrete product types of
+	 * the index matching it, if known
+	 */
+	private QueryBuilder productType(final String index, final String productType) {
+		final Set<String> productTypes = productTypeResolver.resolve(index, productType);
+		if (productTypes == null) {
+			return productType(productType);
+		} else if (productTypes.size() == 1) {
+			return QueryBuilders.termQuery("productType.keyword", productTypes.iterator().next());
+		}
+		return QueryBuilders.termsQuery("productType.keyword", productTypes);
+	}
+
+	/**
+	 * Product types without any regular expression syntax are searched with a term
+	 * query instead of a regexp query visiting the terms dictionary. Used as is by
+	 * the searches on the insertion time, which look for the products just
+	 * inserted, possibly of a product type not known yet.
+	 */
+	static QueryBuilder productType(final String productType) {
+		if (REGEXP_SYNTAX.matcher(productType).find()) {
+			return QueryBuilders.regexpQuery("productType.keyword", productType);
+		}
+		return QueryBuilders.termQuery("productType.keyword", productType);
+	}
+
 	private QueryBuilder satelliteId(final String satelliteId) {
 		return QueryBuilders.boolQuery().should(QueryBuilders.termQuery("satelliteId.keyword", satelliteId))
 				.should(QueryBuilders.termQuery("satelliteId.keyword", "_"));
 
 	}
 
+	@FunctionalInterface
+	private interface HitConsumer {
+		void accept(SearchHit hit) throws Exception;
+	}
+
+	/**
+	 * Pages through all hits of the search on the index with a point in time and
+	 * search_after, so the results are neither truncated to SIZE_LIMIT nor held in
+	 * memory at once
+	 */
+	private void forEachHit(final String index, final SearchSourceBuilder sourceBuilder, final HitConsumer consumer)
+			throws Exception {
+		sourceBuilder.size(SIZE_LIMIT);
+		if (sourceBuilder.sorts() == null || sourceBuilder.sorts().isEmpty()) {
+			// cheapest sort, any other sort gets it added as tiebreaker
+			sourceBuilder.sort(SortBuilders.fieldSort("_shard_doc"));
+		}
+
+		String pointInTimeId = elasticsearchDAO.openPointInTime(index, POINT_IN_TIME_KEEP_ALIVE);
+		try {
+			int pages = 0;
+			long hits = 0;
+			while (true) {
+				sourceBuilder.pointInTimeBuilder(
+						new PointInTimeBuilder(pointInTimeId).setKeepAlive(POINT_IN_TIME_KEEP_ALIVE));
+				final SearchResponse searchResponse = elasticsearchDAO.search(new SearchRequest().source(sourceBuilder));
+				pages++;
+				if (searchResponse.pointInTimeId() != null) {
+					pointInTimeId = searchResponse.pointInTimeId();
+				}
+				if (!isNotEmpty(searchResponse)) {
+					break;
+				}
+				final SearchHit[] page = searchResponse.getHits().getHits();
+				for (final SearchHit hit : page) {
+					consumer.accept(hit);
+				}
+				hits += page.length;
+				if (page.length < SIZE_LIMIT) {
+					break;
+				}
+				sourceBuilder.searchAfter(page[page.length - 1].getSortValues());
+			}
+			LOGGER.debug("Streamed {} hits of index {} in {} pages", hits, index, pages);
+		} finally {
+			try {
+				elasticsearchDAO.closePointInTime(pointInTimeId);
+			} catch (final IOException e) {
+				// expires by itself after the keep alive
+				LOGGER.warn("Could not close point in time of index {}: {}", index, LogUtils.toString(e));
+			}
+		}
+	}
+
+	/**
+	 * Restricts the source of the hits to the needed and the requested fields, if
+	 * any are requested
+	 */
+	private static void fetchSource(final SearchSourceBuilder sourceBuilder, final List<String> neededFields,
+			final List<String> fields) {
+		if (fields == null || fields.isEmpty()) {
+			return;
+		}
+		final Set<String> includes = new LinkedHashSet<>(neededFields);
+		includes.addAll(fields);
+		sourceBuilder.fetchSource(includes.toArray(new String[0]), null);
+	}
+
 	private boolean isNotEmpty(final SearchResponse searchResponse) {
 		if (null != searchResponse) {
 			return this.isNotEmpty(searchResponse.getHits());
@@ -2351,6 +2606,26 @@ public class EsServices {
 		}
 	}
 
+	/**
+	 * The selection policies are also evaluated in a multi search, which cannot
+	 * page with a point in time, and their results are post-processed as a whole,
+	 * so they are limited to SIZE_LIMIT hits. Their window is bounded by the
+	 * validity of the products, so the limit is not expected to be reached; when
+	 * it is, the truncation is reported instead of being silent.
+	 */
+	private void warnIfTruncated(final String selectionPolicyName, final String productType,
+			final SearchResponse searchResponse) {
+		if (null == searchResponse || null == searchResponse.getHits()) {
+			return;
+		}
+		final SearchHits searchHits = searchResponse.getHits();
+		final TotalHits hits = searchHits.getTotalHits();
+		if (searchHits.getHits().length >= SIZE_LIMIT || (null != hits && hits.value > SIZE_LIMIT)) {
+			LOGGER.warn("{}: {} hits found for product type {}, only the first {} are used", selectionPolicyName,
+					this.getTotalSearchHitsStr(searchHits), productType, searchHits.getHits().length);
+		}
+	}
+
 	private String getTotalSearchHitsStr(final SearchHits searchHits) {
 		if (null != searchHits) {
 			final TotalHits hits = searchHits.getTotalHits();
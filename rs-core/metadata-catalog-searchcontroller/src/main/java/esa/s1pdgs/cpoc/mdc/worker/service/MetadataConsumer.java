@@ -0,0 +1,10 @@
+package esa.s1pdgs.cpoc.mdc.worker.service;
+
+/**
+ * Receives the products of a streamed search one by one
+ */
+@FunctionalInterface
+public interface MetadataConsumer<E> {
+
+	void accept(E metadata) throws Exception;
+}
@@ -0,0 +1,181 @@
+package esa.s1pdgs.cpoc.mdc.worker.service;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.LongSupplier;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.elasticsearch.action.search.SearchRequest;
+import org.elasticsearch.action.search.SearchResponse;
+import org.elasticsearch.search.aggregations.AggregationBuilders;
+import org.elasticsearch.search.aggregations.bucket.terms.Terms;
+import org.elasticsearch.search.builder.SearchSourceBuilder;
+
+import esa.s1pdgs.cpoc.common.utils.LogUtils;
+import esa.s1pdgs.cpoc.mdc.worker.es.ElasticsearchDAO;
+
+/**
+ * Resolves the product type patterns of the searches to the concrete product
+ * types known in an index, so they can be searched with a terms query instead
+ * of a regexp query visiting the whole terms dictionary.
+ * <p>
+ * The product types of an index are read with a terms aggregation and kept for
+ * the configured time. When a pattern matches none of the known product types,
+ * the product types of the index are read again, as a matching one may have
+ * been inserted since. A pattern still matching none of them is not resolved.
+ * Patterns using the operators only known by the Lucene syntax are not resolved
+ * either, as they have another meaning for Java patterns.
+ */
+public class ProductTypeResolver {
+
+	private static final Logger LOGGER = LogManager.getLogger(ProductTypeResolver.class);
+
+	private static final String AGGREGATION_NAME = "productTypes";
+
+	/**
+	 * Maximum number of product types read per index
+	 */
+	private static final int MAX_PRODUCT_TYPES = 10000;
+
+	/**
+	 * Characters having a special meaning in the Lucene regular expression syntax
+	 */
+	private static final Pattern REGEXP_SYNTAX = Pattern.compile("[.?+*|{}\\[\\]()\"\\\\#@&<>~]");
+
+	/**
+	 * Characters of the Lucene regular expression syntax without the same meaning
+	 * in Java patterns
+	 */
+	private static final Pattern LUCENE_ONLY_SYNTAX = Pattern.compile("[\"#@&<>~]");
+
+	/**
+	 * Minimum time between two reads of the product types of an index triggered by
+	 * a pattern matching none of them
+	 */
+	static final long MIN_REFRESH_INTERVAL_MS = 1000;
+
+	private static final class KnownProductTypes {
+		private final Set<String> productTypes;
+		private final long loaded;
+		private final long expiry;
+
+		KnownProductTypes(final Set<String> productTypes, final long loaded, final long expiry) {
+			this.productTypes = productTypes;
+			this.loaded = loaded;
+			this.expiry = expiry;
+		}
+	}
+
+	private final ElasticsearchDAO elasticsearchDAO;
+
+	private final long ttlMs;
+
+	private final LongSupplier clock;
+
+	private final Map<String, KnownProductTypes> knownProductTypes = new ConcurrentHashMap<>();
+
+	public ProductTypeResolver(final ElasticsearchDAO elasticsearchDAO, final long ttlMs, final LongSupplier clock) {
+		this.elasticsearchDAO = elasticsearchDAO;
+		this.ttlMs = ttlMs;
+		this.clock = clock;
+	}
+
+	/**
+	 * @return the product types of the index matching the given product type
+	 *         pattern, or null if it can not be resolved
+	 */
+	public Set<String> resolve(final String index, final String productType) {
+		if (!isPattern(productType)) {
+			return Collections.singleton(productType);
+		}
+		if (ttlMs <= 0 || LUCENE_ONLY_SYNTAX.matcher(productType).find()) {
+			return null;
+		}
+
+		final Pattern pattern;
+		try {
+			// Lucene regular expressions are always anchored, like a full match
+			pattern = Pattern.compile(productType);
+		} catch (final PatternSyntaxException e) {
+			LOGGER.debug("Product type pattern {} can not be resolved: {}", productType, e.getMessage());
+			return null;
+		}
+
+		KnownProductTypes known = knownProductTypesOf(index);
+		Set<String> result = matching(known, pattern);
+		if (result.isEmpty() && known.productTypes != null
+				&& clock.getAsLong() - known.loaded >= MIN_REFRESH_INTERVAL_MS) {
+			LOGGER.debug("Product type pattern {} matches no known product type of index {}, refreshing them",
+					productType, index);
+			known = refresh(index);
+			result = matching(known, pattern);
+		}
+		if (result.isEmpty()) {
+			return null;
+		}
+		LOGGER.trace("Resolved product type pattern {} of index {} to {}", productType, index, result);
+		return result;
+	}
+
+	private static Set<String> matching(final KnownProductTypes known, final Pattern pattern) {
+		final Set<String> result = new TreeSet<>();
+		if (known.productTypes != null) {
+			for (final String candidate : known.productTypes) {
+				if (pattern.matcher(candidate).matches()) {
+					result.add(candidate);
+				}
+			}
+		}
+		return result;
+	}
+
+	static boolean isPattern(final String productType) {
+		return REGEXP_SYNTAX.matcher(productType).find();
+	}
+
+	private KnownProductTypes knownProductTypesOf(final String index) {
+		final KnownProductTypes cached = knownProductTypes.get(index);
+		if (cached != null && cached.expiry > clock.getAsLong()) {
+			return cached;
+		}
+		return refresh(index);
+	}
+
+	private KnownProductTypes refresh(final String index) {
+		final long now = clock.getAsLong();
+		// failures are kept as well to not retry on each search
+		final KnownProductTypes known = new KnownProductTypes(readProductTypesOf(index), now, now + ttlMs);
+		knownProductTypes.put(index, known);
+		return known;
+	}
+
+	private Set<String> readProductTypesOf(final String index) {
+		final SearchSourceBuilder sourceBuilder = new SearchSourceBuilder().size(0).aggregation(
+				AggregationBuilders.terms(AGGREGATION_NAME).field("productType.keyword").size(MAX_PRODUCT_TYPES));
+		final SearchRequest searchRequest = new SearchRequest(index);
+		searchRequest.source(sourceBuilder);
+		try {
+			final SearchResponse searchResponse = elasticsearchDAO.search(searchRequest);
+			if (searchResponse == null || searchResponse.getAggregations() == null
+					|| searchResponse.getAggregations().get(AGGREGATION_NAME) == null) {
+				return null;
+			}
+			final Terms terms = searchResponse.getAggregations().get(AGGREGATION_NAME);
+			final Set<String> productTypes = new TreeSet<>();
+			for (final Terms.Bucket bucket : terms.getBuckets()) {
+				productTypes.add(bucket.getKeyAsString());
+			}
+			LOGGER.debug("Known product types of index {}: {}", index, productTypes);
+			return productTypes;
+		} catch (final Exception e) {
+			LOGGER.debug("Could not read the product types of index {}: {}", index, LogUtils.toString(e));
+			return null;
+		}
+	}
+}
@@ -0,0 +1,47 @@
+package esa.s1pdgs.cpoc.mdc.worker.service;
+
+import java.util.Collections;
+import java.util.List;
+
+import org.elasticsearch.action.search.SearchRequest;
+import org.elasticsearch.action.search.SearchResponse;
+
+import esa.s1pdgs.cpoc.metadata.model.SearchMetadata;
+
+/**
+ * Elasticsearch requests of a selection policy together with the selection of
+ * the products out of their responses, so the requests of several selection
+ * policies can be sent at once.
+ */
+public class SelectionPolicySearch {
+
+	@FunctionalInterface
+	interface Selection {
+		List<SearchMetadata> select(List<SearchResponse> responses) throws Exception;
+	}
+
+	private final List<SearchRequest> requests;
+
+	private final Selection selection;
+
+	SelectionPolicySearch(final SearchRequest request, final Selection selection) {
+		this(Collections.singletonList(request), selection);
+	}
+
+	SelectionPolicySearch(final List<SearchRequest> requests, final Selection selection) {
+		this.requests = requests;
+		this.selection = selection;
+	}
+
+	List<SearchRequest> getRequests() {
+		return requests;
+	}
+
+	/**
+	 * @param responses the responses of the requests, in the same order
+	 * @return the selected products or null if there is none
+	 */
+	List<SearchMetadata> evaluate(final List<SearchResponse> responses) throws Exception {
+		return selection.select(responses);
+	}
+}
@@ -1,12 +1,18 @@
 package esa.s1pdgs.cpoc.mdc.worker.rest;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.doThrow;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 
 import org.junit.Before;
@@ -14,13 +20,18 @@ import org.junit.Test;
 import org.mockito.Mock;
 import org.mockito.Mockito;
 import org.mockito.MockitoAnnotations;
+import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.test.web.servlet.result.MockMvcResultMatchers;
 
 import esa.s1pdgs.cpoc.common.ProductFamily;
 import esa.s1pdgs.cpoc.common.errors.processing.MetadataNotPresentException;
+import esa.s1pdgs.cpoc.common.time.TimeInterval;
 import esa.s1pdgs.cpoc.mdc.worker.service.EsServices;
+import esa.s1pdgs.cpoc.mdc.worker.service.MetadataConsumer;
+import esa.s1pdgs.cpoc.mdc.worker.service.SelectionPolicySearch;
 import esa.s1pdgs.cpoc.metadata.model.SearchMetadata;
+import esa.s1pdgs.cpoc.metadata.model.SelectionPolicyResult;
 
 public class SearchMetadataControllerTest extends RestControllerTest {
 
@@ -166,4 +177,87 @@ public class SearchMetadataControllerTest extends RestControllerTest {
 		assertEquals("Result is not returning the HTTP NOT FOUND Status code", 500, result.getResponse().getStatus());
 	}
 	
+	@Test
+	public void testSearchBatch() throws Exception {
+		final SelectionPolicySearch search = Mockito.mock(SelectionPolicySearch.class);
+		doReturn(search).when(esServices).selectionPolicySearch(Mockito.eq("ValCover"), Mockito.eq("AUX_CAL"),
+				Mockito.eq(ProductFamily.AUXILIARY_FILE), Mockito.eq("2017-12-08T12:44:23.000000Z"),
+				Mockito.eq("2017-12-08T13:04:19.000000Z"), Mockito.eq("S1A"), Mockito.eq(-1), Mockito.eq("NONE"),
+				Mockito.eq("NONE"), Mockito.isNull());
+		final SearchMetadata r = new SearchMetadata();
+		r.setProductName("name");
+		doReturn(Arrays.asList(SelectionPolicyResult.found(Collections.singletonList(r)),
+				SelectionPolicyResult.failed("failed"))).when(esServices).searchAll(Arrays.asList(search, search));
+
+		final String query = "{\"productFamily\":\"AUXILIARY_FILE\",\"productType\":\"AUX_CAL\",\"mode\":\"ValCover \","
+				+ "\"satellite\":\"S1A\",\"t0\":\"2017-12-08T12:45:23.000000Z\",\"t1\":\"2017-12-08T13:02:19.000000Z\","
+				+ "\"dt0\":60.0,\"dt1\":120.0}";
+		final MvcResult result = request(post("/metadata/searchBatch").contentType(MediaType.APPLICATION_JSON)
+				.content("[" + query + "," + query + "]")).andExpect(MockMvcResultMatchers.status().isOk()).andReturn();
+		final String content = result.getResponse().getContentAsString();
+		assertTrue(content.startsWith("[{\"results\":[{") && content.contains("\"productName\":\"name\"")
+				&& content.endsWith("}],\"error\":null},{\"results\":[],\"error\":\"failed\"}]"));
+	}
+
+	@Test
+	public void testSearchBatchBadMode() throws Exception {
+		final SelectionPolicySearch search = Mockito.mock(SelectionPolicySearch.class);
+		doReturn(search).when(esServices).selectionPolicySearch(Mockito.eq("ValCover"), Mockito.any(), Mockito.any(),
+				Mockito.any(), Mockito.any(), Mockito.any(), Mockito.anyInt(), Mockito.any(), Mockito.any(),
+				Mockito.any());
+		doReturn(Collections.singletonList(SelectionPolicyResult.found(Collections.emptyList()))).when(esServices)
+				.searchAll(Collections.singletonList(search));
+
+		// the other searches of the batch are performed anyway
+		final MvcResult result = request(post("/metadata/searchBatch").contentType(MediaType.APPLICATION_JSON)
+				.content("[{\"productFamily\":\"AUXILIARY_FILE\",\"productType\":\"AUX_CAL\",\"mode\":\"BADMODE\","
+						+ "\"t0\":\"2017-12-08T12:45:23.000000Z\",\"t1\":\"2017-12-08T13:02:19.000000Z\"},"
+						+ "{\"productFamily\":\"AUXILIARY_FILE\",\"productType\":\"AUX_CAL\",\"mode\":\"ValCover\","
+						+ "\"t0\":\"2017-12-08T12:45:23.000000Z\",\"t1\":\"2017-12-08T13:02:19.000000Z\"}]"))
+				.andExpect(MockMvcResultMatchers.status().isOk()).andReturn();
+		assertEquals("[{\"results\":[],\"error\":\"Invalid selection policy mode BADMODE\"},"
+				+ "{\"results\":[],\"error\":null}]", result.getResponse().getContentAsString());
+	}
+
+	@Test
+	public void testQueryStreamed() throws Exception {
+		doAnswer(invocation -> {
+			final MetadataConsumer<SearchMetadata> consumer = invocation.getArgument(4);
+			consumer.accept(new SearchMetadata("name1", "type", "kobs", "startDate", "stopDate", "mission", "satellite",
+					"station"));
+			consumer.accept(new SearchMetadata("name2", "type", "kobs", "startDate", "stopDate", "mission", "satellite",
+					"station"));
+			return null;
+		}).when(esServices).query(Mockito.eq(ProductFamily.L0_ACN), Mockito.eq("type"), Mockito.any(TimeInterval.class),
+				Mockito.eq(Arrays.asList("dataTakeId")), Mockito.any());
+
+		final MvcResult result = doGet("/metadata/L0_ACN/query?productType=type"
+				+ "&intervalStart=2000-01-01T00:00:00.000000Z&intervalStop=2001-01-01T00:00:00.000000Z&fields=dataTakeId")
+				.andExpect(MockMvcResultMatchers.request().asyncStarted()).andReturn();
+		mockMvc.perform(asyncDispatch(result)).andExpect(MockMvcResultMatchers.status().isOk());
+
+		final String content = result.getResponse().getContentAsString();
+		assertTrue(content.startsWith("[{"));
+		assertTrue(content.contains("\"productName\":\"name1\""));
+		assertTrue(content.contains("\"productName\":\"name2\""));
+		assertTrue(content.endsWith("}]"));
+	}
+
+	@Test
+	public void testQueryStreamedError() throws Exception {
+		doThrow(new RuntimeException("expected")).when(esServices).query(Mockito.eq(ProductFamily.L0_ACN),
+				Mockito.eq("type"), Mockito.any(TimeInterval.class), Mockito.isNull(), Mockito.any());
+
+		final MvcResult result = doGet("/metadata/L0_ACN/query?productType=type"
+				+ "&intervalStart=2000-01-01T00:00:00.000000Z&intervalStop=2001-01-01T00:00:00.000000Z")
+				.andExpect(MockMvcResultMatchers.request().asyncStarted()).andReturn();
+		try {
+			mockMvc.perform(asyncDispatch(result));
+		} catch (final Exception e) {
+			// depending on the dispatch the failure is rethrown
+		}
+		// the array is left open for the client to detect the failure
+		assertTrue(!result.getResponse().getContentAsString().endsWith("]"));
+	}
+
 }
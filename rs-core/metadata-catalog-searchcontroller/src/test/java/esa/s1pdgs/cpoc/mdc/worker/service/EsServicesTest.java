@@ -2,10 +2,13 @@ package esa.s1pdgs.cpoc.mdc.worker.service;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import java.io.IOException;
@@ -24,6 +27,8 @@ import org.elasticsearch.action.get.GetRequest;
 import org.elasticsearch.action.get.GetResponse;
 import org.elasticsearch.action.index.IndexRequest;
 import org.elasticsearch.action.index.IndexResponse;
+import org.elasticsearch.action.search.MultiSearchRequest;
+import org.elasticsearch.action.search.MultiSearchResponse;
 import org.elasticsearch.action.search.SearchRequest;
 import org.elasticsearch.action.search.SearchResponse;
 import org.elasticsearch.action.search.SearchResponse.Clusters;
@@ -33,6 +38,8 @@ import org.elasticsearch.common.bytes.BytesArray;
 import org.elasticsearch.common.bytes.BytesReference;
 import org.elasticsearch.index.Index;
 import org.elasticsearch.index.get.GetResult;
+import org.elasticsearch.index.query.RegexpQueryBuilder;
+import org.elasticsearch.index.query.TermQueryBuilder;
 import org.elasticsearch.index.seqno.SequenceNumbers;
 import org.elasticsearch.index.shard.ShardId;
 import org.elasticsearch.search.SearchHit;
@@ -41,6 +48,7 @@ import org.elasticsearch.search.aggregations.InternalAggregations;
 import org.elasticsearch.search.internal.InternalSearchResponse;
 import org.junit.Before;
 import org.junit.Test;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.Mockito;
@@ -58,7 +66,9 @@ import esa.s1pdgs.cpoc.metadata.model.AuxMetadata;
 import esa.s1pdgs.cpoc.metadata.model.EdrsSessionMetadata;
 import esa.s1pdgs.cpoc.metadata.model.L0AcnMetadata;
 import esa.s1pdgs.cpoc.metadata.model.L0SliceMetadata;
+import esa.s1pdgs.cpoc.metadata.model.S3Metadata;
 import esa.s1pdgs.cpoc.metadata.model.SearchMetadata;
+import esa.s1pdgs.cpoc.metadata.model.SelectionPolicyResult;
 
 
 public class EsServicesTest{
@@ -315,6 +325,100 @@ public class EsServicesTest{
 
 	}
 	
+	@Test
+	public void searchAllTest() throws Exception {
+		// Product
+		final SearchMetadata expectedResult = new SearchMetadata();
+		expectedResult.setProductName("name");
+		expectedResult.setProductType("product_type");
+		expectedResult.setKeyObjectStorage("url");
+		expectedResult.setValidityStart("2012-05-05T10:10:12.000120Z");
+		expectedResult.setValidityStop("2019-05-05T10:10:12.001230Z");
+		expectedResult.setAdditionalProperties(new HashMap<String,String>() {
+		{
+		    put("validityStartTime", "2012-05-05T10:10:12.000120Z");
+		    put("validityStopTime", "2019-05-05T10:10:12.001230Z");
+		    put("productName", "name");
+		    put("productType", "product_type");
+		    put("url", "url");
+		}});
+
+		//Responses
+		final BytesReference source = new BytesArray("{\"productName\":\"name\",\"url\""
+		        + ":\"url\",\"validityStartTime\":\"2012-05-05T10:10:12.000120Z\",\"validityStopTime\":"
+		        + "\"2019-05-05T10:10:12.001230Z\", \"productType\": \"product_type\"}");
+		final SearchHit hit = new SearchHit(1);
+		hit.sourceRef(source);
+		final SearchHit[] hits = {hit};
+		final SearchHits searchHits = new SearchHits(hits, new TotalHits(1, Relation.EQUAL_TO), 1.0F);
+		final SearchResponse response = new SearchResponse(new SearchResponseSections(searchHits, null, null, false, Boolean.FALSE, null, 0), "1", 1,1,0,25,null,null);
+		final SearchHits noHits = new SearchHits(new SearchHit[0], new TotalHits(0, Relation.EQUAL_TO), 1.0F);
+		final SearchResponse emptyResponse = new SearchResponse(new SearchResponseSections(noHits, null, null, false, Boolean.FALSE, null, 0), "1", 1,1,0,25,null,null);
+
+		//Mocking the multi search request: one request for LatestValCover, two for ClosestStartValidity and one for ValCover
+		final MultiSearchResponse multiResponse = new MultiSearchResponse(new MultiSearchResponse.Item[] {
+				new MultiSearchResponse.Item(response, null),
+				new MultiSearchResponse.Item(emptyResponse, null),
+				new MultiSearchResponse.Item(response, null),
+				new MultiSearchResponse.Item(emptyResponse, null)}, 1L);
+		doReturn(multiResponse).when(elasticsearchDAO).msearch(Mockito.any(MultiSearchRequest.class));
+
+		final List<SelectionPolicyResult> result = esServices.searchAll(Arrays.asList(
+				esServices.selectionPolicySearch("LatestValCover", "type", ProductFamily.AUXILIARY_FILE,
+						"2012-05-05T10:10:12.000120Z", "2019-05-05T10:10:12.001230Z", "A", -1, "NRT", "NONE", null),
+				esServices.selectionPolicySearch("ClosestStartValidity", "type", ProductFamily.AUXILIARY_FILE,
+						"2012-05-05T10:10:12.000120Z", "2019-05-05T10:10:12.001230Z", "A", -1, "NRT", "NONE", null),
+				esServices.selectionPolicySearch("ValCover", "type", ProductFamily.AUXILIARY_FILE,
+						"2012-05-05T10:10:12.000120Z", "2019-05-05T10:10:12.001230Z", "A", -1, "NRT", "NONE", null)));
+
+		assertEquals(Arrays.asList(SelectionPolicyResult.found(Collections.singletonList(expectedResult)),
+				SelectionPolicyResult.found(Collections.singletonList(expectedResult)),
+				SelectionPolicyResult.found(Collections.emptyList())), result);
+
+		final ArgumentCaptor<MultiSearchRequest> request = ArgumentCaptor.forClass(MultiSearchRequest.class);
+		verify(elasticsearchDAO).msearch(request.capture());
+		assertEquals(4, request.getValue().requests().size());
+		verify(elasticsearchDAO, never()).search(Mockito.any(SearchRequest.class));
+	}
+
+	@Test
+	public void searchAllFailedItemTest() throws Exception {
+		final SearchHits noHits = new SearchHits(new SearchHit[0], new TotalHits(0, Relation.EQUAL_TO), 1.0F);
+		final SearchResponse emptyResponse = new SearchResponse(new SearchResponseSections(noHits, null, null, false, Boolean.FALSE, null, 0), "1", 1,1,0,25,null,null);
+
+		// the failure of the first search does not fail the second one
+		final MultiSearchResponse multiResponse = new MultiSearchResponse(new MultiSearchResponse.Item[] {
+				new MultiSearchResponse.Item(null, new IOException("expected")),
+				new MultiSearchResponse.Item(emptyResponse, null)}, 1L);
+		doReturn(multiResponse).when(elasticsearchDAO).msearch(Mockito.any(MultiSearchRequest.class));
+
+		final List<SelectionPolicyResult> result = esServices.searchAll(Arrays.asList(
+				esServices.selectionPolicySearch("LatestValCover", "type", ProductFamily.AUXILIARY_FILE,
+						"2012-05-05T10:10:12.000120Z", "2019-05-05T10:10:12.001230Z", "A", -1, "NRT", "NONE", null),
+				esServices.selectionPolicySearch("ValCover", "type", ProductFamily.AUXILIARY_FILE,
+						"2012-05-05T10:10:12.000120Z", "2019-05-05T10:10:12.001230Z", "A", -1, "NRT", "NONE", null)));
+
+		assertEquals(2, result.size());
+		assertNotNull(result.get(0).getError());
+		assertEquals(SelectionPolicyResult.found(Collections.emptyList()), result.get(1));
+	}
+
+	@Test
+	public void selectionPolicySearchUnknownModeTest() {
+		assertEquals(null, esServices.selectionPolicySearch("BADMODE", "type", ProductFamily.AUXILIARY_FILE,
+				"2012-05-05T10:10:12.000120Z", "2019-05-05T10:10:12.001230Z", "A", -1, "NRT", "NONE", null));
+	}
+
+	@Test
+	public void productTypeQueryTest() {
+		// literal product types are matched with a term query, patterns keep the regexp query
+		assertTrue(EsServices.productType("AUX_CAL") instanceof TermQueryBuilder);
+		assertTrue(EsServices.productType("IW_RAW__0S") instanceof TermQueryBuilder);
+		assertTrue(EsServices.productType("AUX_CAL|AUX_INS") instanceof RegexpQueryBuilder);
+		assertTrue(EsServices.productType("IW_RAW__0.*") instanceof RegexpQueryBuilder);
+		assertTrue(EsServices.productType("S[1-3]_RAW") instanceof RegexpQueryBuilder);
+	}
+
 	@Test
 	public void closestStopValidityTest() throws IOException {
 		// Product
@@ -1427,6 +1531,67 @@ public class EsServicesTest{
 		}
 	}
 	
+	@Test
+	public final void intervalTypeQueryStreamed() throws Exception {
+		final BytesReference source = new BytesArray("{\"productName\":\"name\",\"url\""
+		        + ":\"url\",\"startTime\":\"2000-01-01T00:00:00.000000Z\",\"stopTime\":"
+		        + "\"2001-01-01T00:00:00.000000Z\", \"productType\": \"product_type\", \"missionId\": \"missionId\"}");
+		final SearchHit hit = new SearchHit(1);
+		hit.sourceRef(source);
+		final SearchHit[] hits = {hit};
+		final TotalHits totalHits = new TotalHits(1, Relation.EQUAL_TO);
+		final SearchHits searchHits = new SearchHits(hits, totalHits, 1.0F);
+		final SearchResponseSections searchResponsSections = new SearchResponseSections(searchHits, null, null, false, Boolean.FALSE, null, 0);
+		final SearchResponse response = new SearchResponse(searchResponsSections, "1", 1,1,0,25,null,null);
+
+		doReturn("pit").when(elasticsearchDAO).openPointInTime(Mockito.eq("l0_acn"), Mockito.any());
+		this.mockSearchRequest(response);
+
+		final List<SearchMetadata> result = new ArrayList<>();
+		esServices.intervalTypeQuery("2000-01-01T00:00:00.000000Z", "2001-01-01T00:00:00.000000Z",
+				ProductFamily.L0_ACN, "type", "satelliteId", "", Arrays.asList("dataTakeId"), result::add);
+
+		assertEquals(1, result.size());
+		assertEquals("name", result.get(0).getProductName());
+		assertEquals("missionId", result.get(0).getMissionId());
+
+		final ArgumentCaptor<SearchRequest> request = ArgumentCaptor.forClass(SearchRequest.class);
+		verify(elasticsearchDAO).search(request.capture());
+		assertTrue(request.getValue().source().pointInTimeBuilder() != null);
+		assertTrue(Arrays.asList(request.getValue().source().fetchSource().includes()).contains("dataTakeId"));
+		assertTrue(Arrays.asList(request.getValue().source().fetchSource().includes()).contains("url"));
+		verify(elasticsearchDAO).closePointInTime("pit");
+	}
+
+	@Test
+	public final void rangeCoverQueryPaged() throws Exception {
+		final BytesReference source = new BytesArray("{\"productName\":\"name\",\"url\":\"url\","
+				+ "\"productType\":\"product_type\",\"satelliteId\":\"A\",\"granuleNumber\":\"1\","
+				+ "\"granulePosition\":\"FIRST\",\"absoluteStartOrbit\":\"123\","
+				+ "\"startTime\":\"2000-01-01T00:00:00.000000Z\",\"stopTime\":\"2001-01-01T00:00:00.000000Z\"}");
+		final SearchHit hit = new SearchHit(1);
+		hit.sourceRef(source);
+		final SearchHit[] hits = {hit};
+		final TotalHits totalHits = new TotalHits(1, Relation.EQUAL_TO);
+		final SearchHits searchHits = new SearchHits(hits, totalHits, 1.0F);
+		final SearchResponseSections searchResponsSections = new SearchResponseSections(searchHits, null, null, false, Boolean.FALSE, null, 0);
+		final SearchResponse response = new SearchResponse(searchResponsSections, "1", 1,1,0,25,null,null);
+
+		doReturn("pit").when(elasticsearchDAO).openPointInTime(Mockito.eq("s3_l0"), Mockito.any());
+		this.mockSearchRequest(response);
+
+		final List<S3Metadata> result = esServices.rangeCoverQuery("2000-01-01T00:00:00.000000Z",
+				"2001-01-01T00:00:00.000000Z", "product_type", "A", ProductFamily.S3_L0);
+
+		assertEquals(1, result.size());
+		assertEquals("name", result.get(0).getProductName());
+
+		final ArgumentCaptor<SearchRequest> request = ArgumentCaptor.forClass(SearchRequest.class);
+		verify(elasticsearchDAO).search(request.capture());
+		assertTrue(request.getValue().source().pointInTimeBuilder() != null);
+		verify(elasticsearchDAO).closePointInTime("pit");
+	}
+
 	@Test
 	public final void auxiliaryQuery() throws IOException {
 
@@ -0,0 +1,147 @@
+package esa.s1pdgs.cpoc.mdc.worker.service;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.http.HttpHost;
+import org.elasticsearch.action.admin.indices.delete.DeleteIndexRequest;
+import org.elasticsearch.action.admin.indices.refresh.RefreshRequest;
+import org.elasticsearch.action.bulk.BulkRequest;
+import org.elasticsearch.action.index.IndexRequest;
+import org.elasticsearch.action.search.SearchRequest;
+import org.elasticsearch.action.search.SearchResponse;
+import org.elasticsearch.client.RequestOptions;
+import org.elasticsearch.client.RestClient;
+import org.elasticsearch.client.RestHighLevelClient;
+import org.elasticsearch.client.indices.GetIndexRequest;
+import org.elasticsearch.index.query.QueryBuilder;
+import org.elasticsearch.index.query.QueryBuilders;
+import org.elasticsearch.search.builder.SearchSourceBuilder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import esa.s1pdgs.cpoc.mdc.worker.es.ElasticsearchDAO;
+
+/**
+ * Compares the search of a product type pattern with a regexp query to the
+ * search of the product types it is resolved to with a terms query. Not a unit
+ * test: it needs a local Elasticsearch, e.g. started with
+ * {@code docker run -p 9200:9200 -e discovery.type=single-node elasticsearch:7.14.0},
+ * and is run via {@link #main(String[])}. The index is filled once with
+ * {@code es.documents} (default: 1000000) segments of 64 product types and
+ * kept for the next runs; {@code es.host} and {@code es.port} locate the
+ * Elasticsearch.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class ProductTypeQueryBenchmark {
+
+	private static final String INDEX = "product_type_benchmark";
+
+	private static final String PATTERN = "S[1-6]_RAW__0S";
+
+	private static final String[] MODES = { "S1", "S2", "S3", "S4", "S5", "S6", "IW", "EW", "WV", "RF", "EN", "AN",
+			"ZS", "ZI", "ZE", "ZW" };
+
+	private static final String[] SUFFIXES = { "RAW__0S", "RAW__0A", "RAW__0C", "RAW__0N" };
+
+	private static final int BULK_SIZE = 5000;
+
+	private RestHighLevelClient client;
+
+	private ProductTypeResolver resolver;
+
+	@Setup
+	public void setup() throws IOException {
+		client = new RestHighLevelClient(RestClient.builder(new HttpHost(System.getProperty("es.host", "localhost"),
+				Integer.getInteger("es.port", 9200), "http")));
+		if (!client.indices().exists(new GetIndexRequest(INDEX), RequestOptions.DEFAULT)) {
+			fill(Integer.getInteger("es.documents", 1000000));
+		}
+		final ElasticsearchDAO elasticsearchDAO = new ElasticsearchDAO() {
+			@Override
+			public SearchResponse search(final SearchRequest searchRequest) throws IOException {
+				return client.search(searchRequest, RequestOptions.DEFAULT);
+			}
+		};
+		resolver = new ProductTypeResolver(elasticsearchDAO, 60000, System::currentTimeMillis);
+	}
+
+	@TearDown
+	public void tearDown() throws IOException {
+		if (Boolean.getBoolean("es.delete")) {
+			client.indices().delete(new DeleteIndexRequest(INDEX), RequestOptions.DEFAULT);
+		}
+		client.close();
+	}
+
+	private void fill(final int documents) throws IOException {
+		final List<String> productTypes = new ArrayList<>();
+		for (final String mode : MODES) {
+			for (final String suffix : SUFFIXES) {
+				productTypes.add(mode + "_" + suffix);
+			}
+		}
+		BulkRequest bulk = new BulkRequest();
+		for (int i = 0; i < documents; i++) {
+			final String productType = productTypes.get(i % productTypes.size());
+			final Map<String, Object> source = new HashMap<>();
+			source.put("productName", String.format("S1A_%s_20200101T%06d_%08d.SAFE", productType, i % 240000, i));
+			source.put("productType", productType);
+			source.put("satelliteId", i % 2 == 0 ? "A" : "B");
+			bulk.add(new IndexRequest(INDEX).source(source));
+			if (bulk.numberOfActions() == BULK_SIZE) {
+				client.bulk(bulk, RequestOptions.DEFAULT);
+				bulk = new BulkRequest();
+			}
+		}
+		if (bulk.numberOfActions() > 0) {
+			client.bulk(bulk, RequestOptions.DEFAULT);
+		}
+		client.indices().refresh(new RefreshRequest(INDEX), RequestOptions.DEFAULT);
+	}
+
+	private long search(final QueryBuilder productTypeQuery) throws IOException {
+		final SearchSourceBuilder sourceBuilder = new SearchSourceBuilder().size(10).query(QueryBuilders.boolQuery()
+				.must(productTypeQuery).must(QueryBuilders.termQuery("satelliteId.keyword", "A")));
+		// the request cache would hide the cost of the query
+		final SearchRequest searchRequest = new SearchRequest(INDEX).source(sourceBuilder).requestCache(false);
+		return client.search(searchRequest, RequestOptions.DEFAULT).getHits().getTotalHits().value;
+	}
+
+	@Benchmark
+	public long regexp() throws IOException {
+		return search(QueryBuilders.regexpQuery("productType.keyword", PATTERN));
+	}
+
+	@Benchmark
+	public long resolved() throws IOException {
+		final Set<String> productTypes = resolver.resolve(INDEX, PATTERN);
+		return search(QueryBuilders.termsQuery("productType.keyword", productTypes));
+	}
+
+	public static void main(final String[] args) throws RunnerException {
+		new Runner(new OptionsBuilder().include(ProductTypeQueryBenchmark.class.getSimpleName()).build()).run();
+	}
+}
@@ -0,0 +1,149 @@
+package esa.s1pdgs.cpoc.mdc.worker.service;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.TreeSet;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.elasticsearch.action.search.SearchRequest;
+import org.elasticsearch.action.search.SearchResponse;
+import org.elasticsearch.search.aggregations.Aggregations;
+import org.elasticsearch.search.aggregations.bucket.terms.Terms;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import esa.s1pdgs.cpoc.mdc.worker.es.ElasticsearchDAO;
+
+public class ProductTypeResolverTest {
+
+	@Mock
+	private ElasticsearchDAO elasticsearchDAO;
+
+	private final AtomicLong clock = new AtomicLong(1000);
+
+	private ProductTypeResolver uut;
+
+	@Before
+	public void init() {
+		MockitoAnnotations.initMocks(this);
+		uut = new ProductTypeResolver(elasticsearchDAO, 60000, clock::get);
+	}
+
+	private SearchResponse productTypesResponse(final String... productTypes) {
+		final List<Terms.Bucket> buckets = new ArrayList<>();
+		for (final String productType : productTypes) {
+			final Terms.Bucket bucket = mock(Terms.Bucket.class);
+			doReturn(productType).when(bucket).getKeyAsString();
+			buckets.add(bucket);
+		}
+		final Terms terms = mock(Terms.class);
+		doReturn(buckets).when(terms).getBuckets();
+		final Aggregations aggregations = mock(Aggregations.class);
+		doReturn(terms).when(aggregations).get("productTypes");
+		final SearchResponse response = mock(SearchResponse.class);
+		doReturn(aggregations).when(response).getAggregations();
+		return response;
+	}
+
+	@Test
+	public void testIsPattern() {
+		assertFalse(ProductTypeResolver.isPattern("AUX_CAL"));
+		assertFalse(ProductTypeResolver.isPattern("IW_RAW__0S"));
+		assertTrue(ProductTypeResolver.isPattern("AUX_CAL|AUX_INS"));
+		assertTrue(ProductTypeResolver.isPattern("IW_RAW__0.*"));
+		assertTrue(ProductTypeResolver.isPattern("S[1-3]_RAW"));
+	}
+
+	@Test
+	public void testResolveLiteral() throws IOException {
+		assertEquals(Collections.singleton("AUX_CAL"), uut.resolve("aux_cal", "AUX_CAL"));
+		verify(elasticsearchDAO, never()).search(any());
+	}
+
+	@Test
+	public void testResolvePattern() throws IOException {
+		doReturn(productTypesResponse("IW_RAW__0S", "IW_RAW__0A", "EW_RAW__0S")).when(elasticsearchDAO)
+				.search(any(SearchRequest.class));
+
+		assertEquals(new TreeSet<>(Arrays.asList("IW_RAW__0A", "IW_RAW__0S")), uut.resolve("l0_segment", "IW_RAW__0.*"));
+		assertEquals(new TreeSet<>(Arrays.asList("EW_RAW__0S", "IW_RAW__0S")), uut.resolve("l0_segment", "(IW|EW)_RAW__0S"));
+		// known product types are read once
+		verify(elasticsearchDAO, times(1)).search(any());
+	}
+
+	@Test
+	public void testResolveRefreshesAfterTtl() throws IOException {
+		doReturn(productTypesResponse("AUX_CAL")).when(elasticsearchDAO).search(any(SearchRequest.class));
+		assertEquals(Collections.singleton("AUX_CAL"), uut.resolve("aux", "AUX_.*"));
+
+		doReturn(productTypesResponse("AUX_CAL", "AUX_INS")).when(elasticsearchDAO).search(any(SearchRequest.class));
+		clock.addAndGet(59999);
+		assertEquals(Collections.singleton("AUX_CAL"), uut.resolve("aux", "AUX_.*"));
+		clock.addAndGet(1);
+		assertEquals(new TreeSet<>(Arrays.asList("AUX_CAL", "AUX_INS")), uut.resolve("aux", "AUX_.*"));
+		verify(elasticsearchDAO, times(2)).search(any());
+	}
+
+	@Test
+	public void testResolveNoMatch() throws IOException {
+		doReturn(productTypesResponse("AUX_CAL")).when(elasticsearchDAO).search(any(SearchRequest.class));
+		assertNull(uut.resolve("aux", "AUX_P.*"));
+		clock.addAndGet(ProductTypeResolver.MIN_REFRESH_INTERVAL_MS);
+		assertNull(uut.resolve("aux", "AUX_P.*"));
+		// refreshed once after the minimum interval
+		verify(elasticsearchDAO, times(2)).search(any());
+	}
+
+	@Test
+	public void testResolveRefreshesOnNewProductType() throws IOException {
+		doReturn(productTypesResponse("AUX_CAL")).when(elasticsearchDAO).search(any(SearchRequest.class));
+		assertEquals(Collections.singleton("AUX_CAL"), uut.resolve("aux", "AUX_C.*"));
+
+		// inserted before the expiry of the known product types
+		doReturn(productTypesResponse("AUX_CAL", "AUX_INS")).when(elasticsearchDAO).search(any(SearchRequest.class));
+		clock.addAndGet(ProductTypeResolver.MIN_REFRESH_INTERVAL_MS);
+		assertEquals(Collections.singleton("AUX_INS"), uut.resolve("aux", "AUX_I.*"));
+		verify(elasticsearchDAO, times(2)).search(any());
+	}
+
+	@Test
+	public void testLuceneOnlySyntaxNotResolved() throws IOException {
+		assertNull(uut.resolve("aux", "AUX_.*&~(AUX_CAL)"));
+		assertNull(uut.resolve("aux", "AUX_<1-3>"));
+		verify(elasticsearchDAO, never()).search(any());
+	}
+
+	@Test
+	public void testResolveFailure() throws IOException {
+		doThrow(new IOException("expected")).when(elasticsearchDAO).search(any(SearchRequest.class));
+		assertNull(uut.resolve("aux", "AUX_.*"));
+		assertNull(uut.resolve("aux", "AUX_.*"));
+		// failures are not retried until expiry
+		verify(elasticsearchDAO, times(1)).search(any());
+	}
+
+	@Test
+	public void testResolveDisabled() throws IOException {
+		uut = new ProductTypeResolver(elasticsearchDAO, 0, clock::get);
+		assertNull(uut.resolve("aux", "AUX_.*"));
+		assertEquals(Collections.singleton("AUX_CAL"), uut.resolve("aux", "AUX_CAL"));
+		verify(elasticsearchDAO, never()).search(any());
+	}
+}
@@ -1,11 +1,14 @@
 package esa.s1pdgs.cpoc.preparation.worker.config;
 
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.web.client.RestTemplateBuilder;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
+import esa.s1pdgs.cpoc.metadata.client.MetadataCache;
 import esa.s1pdgs.cpoc.metadata.client.MetadataClient;
+import io.micrometer.core.instrument.MeterRegistry;
 
 @Configuration
 public class MetadataClientConfiguration {
@@ -14,9 +17,12 @@ public class MetadataClientConfiguration {
 	private MetadataClientProperties properties;
 
 	@Bean
-	public MetadataClient metadataClient(final RestTemplateBuilder builder) {
+	public MetadataClient metadataClient(final RestTemplateBuilder builder,
+			final ObjectProvider<MeterRegistry> meterRegistry) {
+		final MetadataCache cache = new MetadataCache(properties.getCacheMaxSize(), properties.getCacheTtlMs(),
+				properties.getCacheShortTtlMs(), meterRegistry.getIfAvailable());
 		return new MetadataClient(builder.build(), properties.getMetadataHostname(), properties.getNbretry(),
-				properties.getTemporetryms());
+				properties.getTemporetryms(), cache);
 	}
 
 }
@@ -30,6 +30,22 @@ public class MetadataClientProperties {
 	 */
 	private boolean valIntersectNoDuplicatesWorkaround = false;
 
+	/**
+	 * Maximal number of single product lookups kept in the cache, 0 to disable it
+	 */
+	private int cacheMaxSize = 10000;
+
+	/**
+	 * Time in ms the metadata of a product is kept in the cache
+	 */
+	private long cacheTtlMs = 600000;
+
+	/**
+	 * Time in ms products not found yet and the products of a session or
+	 * datatake are kept in the cache
+	 */
+	private long cacheShortTtlMs = 2000;
+
 	public String getMetadataHostname() {
 		return metadataHostname;
 	}
@@ -61,6 +77,30 @@ public class MetadataClientProperties {
 	public void setValIntersectNoDuplicatesWorkaround(boolean valIntersectNoDuplicatesWorkaround) {
 		this.valIntersectNoDuplicatesWorkaround = valIntersectNoDuplicatesWorkaround;
 	}
+
+	public int getCacheMaxSize() {
+		return cacheMaxSize;
+	}
+
+	public void setCacheMaxSize(int cacheMaxSize) {
+		this.cacheMaxSize = cacheMaxSize;
+	}
+
+	public long getCacheTtlMs() {
+		return cacheTtlMs;
+	}
+
+	public void setCacheTtlMs(long cacheTtlMs) {
+		this.cacheTtlMs = cacheTtlMs;
+	}
+
+	public long getCacheShortTtlMs() {
+		return cacheShortTtlMs;
+	}
+
+	public void setCacheShortTtlMs(long cacheShortTtlMs) {
+		this.cacheShortTtlMs = cacheShortTtlMs;
+	}
 	
 	
 }
@@ -25,6 +25,11 @@ public class MongoProperties {
     private int connectTimeoutMs = 60000;
 
     private int socketTimeoutMS = 60000;
+
+    /**
+     * Number of sequence ids reserved at once by each pod
+     */
+    private int sequenceBlockSize = 50;
     
     public String getHost() {
 		return host;
@@ -81,4 +86,12 @@ public class MongoProperties {
 	public void setSocketTimeoutMS(int socketTimeoutMS) {
 		this.socketTimeoutMS = socketTimeoutMS;
 	}
+
+	public int getSequenceBlockSize() {
+		return sequenceBlockSize;
+	}
+
+	public void setSequenceBlockSize(int sequenceBlockSize) {
+		this.sequenceBlockSize = sequenceBlockSize;
+	}
 }
@@ -225,6 +225,50 @@ public class PreparationWorkerProperties {
 	 */
 	private boolean useLatestOnly = false;
 
+	/**
+	 * Only check the jobs waiting for a product on its catalog event, instead of
+	 * all jobs of its product type
+	 */
+	private boolean missingInputIndexEnabled = true;
+
+	/**
+	 * Interval of the housekeeping to re-check all pending jobs, in case the
+	 * missing input index missed a product (0 = never)
+	 */
+	private long pendingJobsRecheckIntervalMs = 600000;
+
+	/**
+	 * Maximal number of jobs deleted per state and of timed out jobs continued by
+	 * one run of the housekeeping
+	 */
+	private int housekeepingJobsPerRun = 100;
+
+	/**
+	 * Interval to reload the jobs timing out soon from the database
+	 */
+	private long timeoutScheduleRefreshMs = 60000;
+
+	/**
+	 * Number of threads checking the readiness of the jobs in parallel
+	 */
+	private int inputSearchThreads = 4;
+
+	/**
+	 * Number of threads sending the metadata searches of the AUX queries
+	 */
+	private int auxSearchThreads = 8;
+
+	/**
+	 * Time to reuse non-empty results of identical AUX searches (0 = never)
+	 */
+	private long auxSearchCacheTtlMs = 30000;
+
+	/**
+	 * Send the AUX searches of a job to the metadata catalog in a single batch
+	 * instead of one by one
+	 */
+	private boolean auxSearchBatch = true;
+
 	/**
 	 * Initialization function:
 	 * <li>Build maps by splitting the corresponding string (note: we cannot map
@@ -502,6 +546,70 @@ public class PreparationWorkerProperties {
 		this.useLatestOnly = useLatestOnly;
 	}
 
+	public boolean isMissingInputIndexEnabled() {
+		return missingInputIndexEnabled;
+	}
+
+	public void setMissingInputIndexEnabled(final boolean missingInputIndexEnabled) {
+		this.missingInputIndexEnabled = missingInputIndexEnabled;
+	}
+
+	public long getPendingJobsRecheckIntervalMs() {
+		return pendingJobsRecheckIntervalMs;
+	}
+
+	public void setPendingJobsRecheckIntervalMs(final long pendingJobsRecheckIntervalMs) {
+		this.pendingJobsRecheckIntervalMs = pendingJobsRecheckIntervalMs;
+	}
+
+	public int getHousekeepingJobsPerRun() {
+		return housekeepingJobsPerRun;
+	}
+
+	public void setHousekeepingJobsPerRun(final int housekeepingJobsPerRun) {
+		this.housekeepingJobsPerRun = housekeepingJobsPerRun;
+	}
+
+	public long getTimeoutScheduleRefreshMs() {
+		return timeoutScheduleRefreshMs;
+	}
+
+	public void setTimeoutScheduleRefreshMs(final long timeoutScheduleRefreshMs) {
+		this.timeoutScheduleRefreshMs = timeoutScheduleRefreshMs;
+	}
+
+	public int getInputSearchThreads() {
+		return inputSearchThreads;
+	}
+
+	public void setInputSearchThreads(final int inputSearchThreads) {
+		this.inputSearchThreads = inputSearchThreads;
+	}
+
+	public int getAuxSearchThreads() {
+		return auxSearchThreads;
+	}
+
+	public void setAuxSearchThreads(final int auxSearchThreads) {
+		this.auxSearchThreads = auxSearchThreads;
+	}
+
+	public long getAuxSearchCacheTtlMs() {
+		return auxSearchCacheTtlMs;
+	}
+
+	public void setAuxSearchCacheTtlMs(final long auxSearchCacheTtlMs) {
+		this.auxSearchCacheTtlMs = auxSearchCacheTtlMs;
+	}
+
+	public boolean isAuxSearchBatch() {
+		return auxSearchBatch;
+	}
+
+	public void setAuxSearchBatch(final boolean auxSearchBatch) {
+		this.auxSearchBatch = auxSearchBatch;
+	}
+
 	/**
 	 * Display object in JSON format
 	 */
@@ -514,6 +622,10 @@ public class PreparationWorkerProperties {
 				+ "\", typeSliceLength: \"" + typeSliceLength + "\", mapTypeMeta: \"" + mapTypeMeta + "\", oqcCheck: \""
 				+ oqcCheck + "\", productMode: \"" + productMode + "\", inputWaiting: \"" + inputWaiting
 				+ "\", joborderTimelinessCategoryMapping:" + joborderTimelinessCategoryMapping + "\", maxAgeJobMs:"
-				+ maxAgeJobMs + "\", pathTaskTableXslt:" + pathTaskTableXslt + "\", useLatestOnly:" + useLatestOnly + "\"}";
+				+ maxAgeJobMs + "\", pathTaskTableXslt:" + pathTaskTableXslt + "\", useLatestOnly:" + useLatestOnly
+				+ "\", missingInputIndexEnabled:" + missingInputIndexEnabled + "\", pendingJobsRecheckIntervalMs:"
+				+ pendingJobsRecheckIntervalMs + "\", inputSearchThreads:" + inputSearchThreads + "\", auxSearchThreads:"
+				+ auxSearchThreads + "\", auxSearchCacheTtlMs:" + auxSearchCacheTtlMs + "\", auxSearchBatch:"
+				+ auxSearchBatch + "\"}";
 	}
 }
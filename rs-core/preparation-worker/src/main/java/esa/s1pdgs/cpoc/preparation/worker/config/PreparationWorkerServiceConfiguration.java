@@ -11,13 +11,16 @@ import org.springframework.context.annotation.Configuration;
 import org.springframework.messaging.Message;
 
 import esa.s1pdgs.cpoc.common.CommonConfigurationProperties;
+import esa.s1pdgs.cpoc.metadata.client.MetadataClient;
 import esa.s1pdgs.cpoc.mqi.model.queue.CatalogEvent;
 import esa.s1pdgs.cpoc.mqi.model.queue.IpfExecutionJob;
 import esa.s1pdgs.cpoc.preparation.worker.service.AppCatJobService;
 import esa.s1pdgs.cpoc.preparation.worker.service.HousekeepingService;
 import esa.s1pdgs.cpoc.preparation.worker.service.InputSearchService;
+import esa.s1pdgs.cpoc.preparation.worker.service.MissingInputIndex;
 import esa.s1pdgs.cpoc.preparation.worker.service.PreparationWorkerService;
 import esa.s1pdgs.cpoc.preparation.worker.service.TaskTableMapperService;
+import esa.s1pdgs.cpoc.preparation.worker.service.TimeoutScheduler;
 import esa.s1pdgs.cpoc.preparation.worker.type.ProductTypeAdapter;
 
 /**
@@ -47,15 +50,31 @@ public class PreparationWorkerServiceConfiguration {
 	@Autowired
 	private PreparationWorkerProperties preparationWorkerProperties;
 
+	@Autowired
+	private MissingInputIndex missingInputIndex;
+
+	@Autowired
+	private MetadataClient metadataClient;
+
 	@Bean
 	public Function<CatalogEvent, List<Message<IpfExecutionJob>>> prepareExecutionJobs() {
-		return new PreparationWorkerService(taskTableMapperService, typeAdapter, processProperties, appCatJobService,
-				inputSearchService, commonProperties, preparationWorkerProperties);
+		final PreparationWorkerService service = new PreparationWorkerService(taskTableMapperService, typeAdapter,
+				processProperties, appCatJobService, inputSearchService, commonProperties, preparationWorkerProperties,
+				missingInputIndex);
+		return catalogEvent -> {
+			// the catalogued product may have been cached as not found yet
+			metadataClient.invalidate(catalogEvent);
+			return service.apply(catalogEvent);
+		};
 	}
 
 	@Bean
 	public Function<Message<?>, List<Message<IpfExecutionJob>>> houseKeepAppDataJobs() {
+		// the schedule keeps the timeouts of several runs
+		final TimeoutScheduler timeoutScheduler = new TimeoutScheduler(appCatJobService,
+				preparationWorkerProperties.getTimeoutScheduleRefreshMs(),
+				10 * preparationWorkerProperties.getHousekeepingJobsPerRun());
 		return new HousekeepingService(appCatJobService, inputSearchService, preparationWorkerProperties,
-				commonProperties);
+				commonProperties, missingInputIndex, timeoutScheduler);
 	}
 }
@@ -23,12 +23,16 @@ import esa.s1pdgs.cpoc.common.CommonConfigurationProperties;
 import esa.s1pdgs.cpoc.metadata.client.MetadataClient;
 import esa.s1pdgs.cpoc.preparation.worker.config.PreparationWorkerProperties.InputWaitingConfig;
 import esa.s1pdgs.cpoc.preparation.worker.db.AppDataJobRepository;
+import esa.s1pdgs.cpoc.preparation.worker.db.MissingInputRepository;
+import esa.s1pdgs.cpoc.preparation.worker.db.AppDataJobPatchDao;
 import esa.s1pdgs.cpoc.preparation.worker.db.SequenceDao;
 import esa.s1pdgs.cpoc.preparation.worker.model.joborder.JobOrderAdapter;
 import esa.s1pdgs.cpoc.preparation.worker.query.AuxQueryHandler;
+import esa.s1pdgs.cpoc.preparation.worker.query.AuxSearch;
 import esa.s1pdgs.cpoc.preparation.worker.service.AppCatJobService;
 import esa.s1pdgs.cpoc.preparation.worker.service.InputSearchService;
 import esa.s1pdgs.cpoc.preparation.worker.service.JobCreationService;
+import esa.s1pdgs.cpoc.preparation.worker.service.MissingInputIndex;
 import esa.s1pdgs.cpoc.preparation.worker.service.TaskTableMapperService;
 import esa.s1pdgs.cpoc.preparation.worker.tasktable.adapter.ElementMapper;
 import esa.s1pdgs.cpoc.preparation.worker.tasktable.adapter.TaskTableAdapter;
@@ -69,9 +73,9 @@ public class ServiceConfiguration {
 	@Bean
 	@Autowired
 	public AppCatJobService appCatJobService(final AppDataJobRepository repository, final SequenceDao sequenceDao,
-			final ProcessProperties processSettings) {
+			final AppDataJobPatchDao patchDao, final ProcessProperties processSettings) {
 		LOG.info("Create new AppCatJobService with {} and {}", repository.toString(), sequenceDao.toString());
-		return new AppCatJobService(repository, sequenceDao, processSettings);
+		return new AppCatJobService(repository, sequenceDao, patchDao, processSettings);
 	}
 
 	@Bean
@@ -123,18 +127,35 @@ public class ServiceConfiguration {
 
 	@Bean
 	@Autowired
-	public AuxQueryHandler auxQueryHandler(final MetadataClient metadataClient,
+	public AuxSearch auxSearch(final MetadataClient metadataClient, final PreparationWorkerProperties settings) {
+		return new AuxSearch(metadataClient, settings.getAuxSearchThreads(), settings.getAuxSearchCacheTtlMs(),
+				settings.isAuxSearchBatch());
+	}
+
+	@Bean
+	@Autowired
+	public AuxQueryHandler auxQueryHandler(final AuxSearch auxSearch,
 			final PreparationWorkerProperties settings, final Function<TaskTable, InputTimeoutChecker> timeoutChecker) {
-		return new AuxQueryHandler(metadataClient, settings.getProductMode(), timeoutChecker);
+		return new AuxQueryHandler(auxSearch, settings.getProductMode(), timeoutChecker);
 	}
 
 	@Bean
 	@Autowired
 	public InputSearchService inputSearchService(final ProductTypeAdapter typeAdapter,
 			final AuxQueryHandler auxQueryHandler, final Map<String, TaskTableAdapter> taskTableAdapters,
-			final AppCatJobService appCatJobService, final JobCreationService jobCreationService) {
+			final AppCatJobService appCatJobService, final JobCreationService jobCreationService,
+			final MissingInputIndex missingInputIndex, final PreparationWorkerProperties settings) {
 		return new InputSearchService(typeAdapter, auxQueryHandler, taskTableAdapters, appCatJobService,
-				jobCreationService);
+				jobCreationService, missingInputIndex, settings.getInputSearchThreads());
+	}
+
+	@Bean
+	@Autowired
+	public MissingInputIndex missingInputIndex(final MissingInputRepository repository,
+			final Map<String, TaskTableAdapter> taskTableAdapters, final ProcessProperties processSettings,
+			final PreparationWorkerProperties settings) {
+		return new MissingInputIndex(repository, taskTableAdapters, processSettings.getHostname(),
+				settings.isMissingInputIndexEnabled());
 	}
 
 	@Bean
@@ -0,0 +1,55 @@
+package esa.s1pdgs.cpoc.preparation.worker.db;
+
+import javax.annotation.PostConstruct;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Sort.Direction;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.data.mongodb.core.index.IndexOperations;
+import org.springframework.stereotype.Service;
+
+import esa.s1pdgs.cpoc.appcatalog.AppDataJob;
+import esa.s1pdgs.cpoc.common.utils.LogUtils;
+
+/**
+ * Creates the compound indexes the housekeeping queries of the AppDataJobs
+ * rely on
+ */
+@Service
+public class AppDataJobIndexes {
+
+	private static final Logger LOGGER = LogManager.getLogger(AppDataJobIndexes.class);
+
+	/**
+	 * Mongo client
+	 */
+	private final MongoTemplate mongoClient;
+
+	@Autowired
+	public AppDataJobIndexes(final MongoTemplate mongoClient) {
+		this.mongoClient = mongoClient;
+	}
+
+	@PostConstruct
+	public void ensureIndexes() {
+		try {
+			final IndexOperations indexOps = mongoClient.indexOps(AppDataJob.class);
+			// jobs timing out, sorted by their timeout
+			indexOps.ensureIndex(new Index().named("pod_timeoutDate_generationState")
+					.on("pod", Direction.ASC)
+					.on("timeoutDate", Direction.ASC)
+					.on("generation.state", Direction.ASC));
+			// old jobs to delete
+			indexOps.ensureIndex(new Index().named("pod_state_lastUpdateDate")
+					.on("pod", Direction.ASC)
+					.on("state", Direction.ASC)
+					.on("lastUpdateDate", Direction.ASC));
+		} catch (final Exception e) {
+			// the queries still work without the indexes
+			LOGGER.warn("Could not create the indexes of the AppDataJobs: {}", LogUtils.toString(e));
+		}
+	}
+}
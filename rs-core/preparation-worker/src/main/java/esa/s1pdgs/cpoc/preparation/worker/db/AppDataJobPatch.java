@@ -0,0 +1,148 @@
+package esa.s1pdgs.cpoc.preparation.worker.db;
+
+import java.util.Date;
+import java.util.List;
+
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import esa.s1pdgs.cpoc.appcatalog.AppDataJob;
+import esa.s1pdgs.cpoc.appcatalog.AppDataJobGeneration;
+import esa.s1pdgs.cpoc.appcatalog.AppDataJobPreselectedInput;
+import esa.s1pdgs.cpoc.appcatalog.AppDataJobProduct;
+import esa.s1pdgs.cpoc.appcatalog.AppDataJobState;
+import esa.s1pdgs.cpoc.appcatalog.AppDataJobTaskInputs;
+import esa.s1pdgs.cpoc.mqi.model.queue.CatalogEvent;
+
+/**
+ * Partial update of an AppDataJob, only writing the given fields instead of the
+ * whole document.
+ * <p>
+ * A versioned patch only applies to the version of the job it has been created
+ * from and increments it. A patch created with
+ * {@link #ifGenerationState(AppDataJob)} only applies while the generation of
+ * the job is in the same state, without changing the version.
+ */
+public class AppDataJobPatch {
+
+	static final String VERSION = "version";
+
+	private final AppDataJob job;
+
+	private final boolean versioned;
+
+	private final Criteria criteria;
+
+	private final Update update = new Update();
+
+	private AppDataJobPatch(final AppDataJob job, final boolean versioned, final Criteria criteria) {
+		this.job = job;
+		this.versioned = versioned;
+		this.criteria = criteria;
+	}
+
+	/**
+	 * Patch applying only to the current version of the given job
+	 */
+	public static AppDataJobPatch of(final AppDataJob job) {
+		final Criteria criteria = Criteria.where("_id").is(job.getId());
+		if (job.getVersion() == 0) {
+			// jobs never patched before have no version yet
+			criteria.orOperator(Criteria.where(VERSION).is(0L), Criteria.where(VERSION).exists(false));
+		} else {
+			criteria.and(VERSION).is(job.getVersion());
+		}
+		final AppDataJobPatch patch = new AppDataJobPatch(job, true, criteria);
+		patch.update.inc(VERSION, 1);
+		return patch;
+	}
+
+	/**
+	 * Patch applying to the given job as long as its generation is in the current
+	 * state
+	 */
+	public static AppDataJobPatch ifGenerationState(final AppDataJob job) {
+		return new AppDataJobPatch(job, false,
+				Criteria.where("_id").is(job.getId()).and("generation.state").is(job.getGeneration().getState()));
+	}
+
+	/**
+	 * Patch applying to the given job whatever its version
+	 */
+	public static AppDataJobPatch unconditional(final AppDataJob job) {
+		return new AppDataJobPatch(job, false, Criteria.where("_id").is(job.getId()));
+	}
+
+	public AppDataJobPatch state(final AppDataJobState state) {
+		update.set("state", state);
+		return this;
+	}
+
+	public AppDataJobPatch generation(final AppDataJobGeneration generation) {
+		update.set("generation", generation);
+		return this;
+	}
+
+	public AppDataJobPatch timeout(final Date timeoutDate, final boolean timedOut) {
+		update.set("timeoutDate", timeoutDate).set("timedOut", timedOut);
+		return this;
+	}
+
+	public AppDataJobPatch lastUpdateDate(final Date lastUpdateDate) {
+		update.set("lastUpdateDate", lastUpdateDate);
+		return this;
+	}
+
+	public AppDataJobPatch product(final AppDataJobProduct product) {
+		update.set("product", product);
+		return this;
+	}
+
+	public AppDataJobPatch validity(final String startTime, final String stopTime) {
+		update.set("startTime", startTime).set("stopTime", stopTime);
+		return this;
+	}
+
+	public AppDataJobPatch additionalInputs(final List<AppDataJobTaskInputs> additionalInputs) {
+		update.set("additionalInputs", additionalInputs);
+		return this;
+	}
+
+	public AppDataJobPatch preselectedInputs(final List<AppDataJobPreselectedInput> preselectedInputs) {
+		update.set("preselectedInputs", preselectedInputs);
+		return this;
+	}
+
+	public AppDataJobPatch pushCatalogEvent(final CatalogEvent catalogEvent) {
+		update.push("catalogEvents", catalogEvent);
+		return this;
+	}
+
+	public long getJobId() {
+		return job.getId();
+	}
+
+	Query query() {
+		return new Query(criteria);
+	}
+
+	Update update() {
+		return update;
+	}
+
+	/**
+	 * Keeps the version of the patched job in sync with the database
+	 */
+	void applied() {
+		if (versioned) {
+			job.setVersion(job.getVersion() + 1);
+		}
+	}
+
+	@Override
+	public String toString() {
+		return "AppDataJobPatch [jobId=" + job.getId() + ", versioned=" + versioned + ", update="
+				+ update.getUpdateObject().keySet() + "]";
+	}
+}
@@ -0,0 +1,19 @@
+package esa.s1pdgs.cpoc.preparation.worker.db;
+
+import java.util.Collection;
+
+public interface AppDataJobPatchDao {
+
+	/**
+	 * @return true if the patch has been applied, false if the job has been
+	 *         modified or removed meanwhile
+	 */
+	boolean patch(AppDataJobPatch patch);
+
+	/**
+	 * Applies the given patches with a single bulk write
+	 * 
+	 * @return the number of patches applied
+	 */
+	int patchAll(Collection<AppDataJobPatch> patches);
+}
@@ -0,0 +1,54 @@
+package esa.s1pdgs.cpoc.preparation.worker.db;
+
+import java.util.Collection;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.BulkOperations.BulkMode;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.stereotype.Service;
+
+import com.mongodb.client.result.UpdateResult;
+
+import esa.s1pdgs.cpoc.appcatalog.AppDataJob;
+
+/**
+ * Applies the partial updates of AppDataJobs with targeted $set and $push
+ * updates
+ */
+@Service
+public class AppDataJobPatchDaoImp implements AppDataJobPatchDao {
+
+	/**
+	 * Mongo client
+	 */
+	private final MongoTemplate mongoClient;
+
+	@Autowired
+	public AppDataJobPatchDaoImp(final MongoTemplate mongoClient) {
+		this.mongoClient = mongoClient;
+	}
+
+	@Override
+	public boolean patch(final AppDataJobPatch patch) {
+		final UpdateResult result = mongoClient.updateFirst(patch.query(), patch.update(), AppDataJob.class);
+		if (result.getMatchedCount() == 0) {
+			return false;
+		}
+		patch.applied();
+		return true;
+	}
+
+	@Override
+	public int patchAll(final Collection<AppDataJobPatch> patches) {
+		if (patches.isEmpty()) {
+			return 0;
+		}
+		final BulkOperations bulk = mongoClient.bulkOps(BulkMode.UNORDERED, AppDataJob.class);
+		for (final AppDataJobPatch patch : patches) {
+			bulk.updateOne(patch.query(), patch.update());
+		}
+		// the versions of the jobs patched in bulk are not tracked
+		return bulk.execute().getMatchedCount();
+	}
+}
@@ -1,8 +1,10 @@
 package esa.s1pdgs.cpoc.preparation.worker.db;
 
+import java.util.Collection;
 import java.util.Date;
 import java.util.List;
 
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.mongodb.repository.MongoRepository;
 import org.springframework.data.mongodb.repository.Query;
 import org.springframework.stereotype.Service;
@@ -31,6 +33,12 @@ public interface AppDataJobRepository extends MongoRepository<AppDataJob, Long>
 	@Query(value = "{ 'triggerProducts' : ?0, 'pod' : ?1, 'state' : { $ne: 'TERMINATED' }, 'generation.state' : { $ne: 'SENT' } }")
 	List<AppDataJob> findByTriggerProduct(final String productType, final String podName);
 
+	@Query(value = "{ '_id' : { $in : ?0 }, 'pod' : ?1, 'state' : { $ne: 'TERMINATED' }, 'generation.state' : { $ne: 'SENT' } }")
+	List<AppDataJob> findPendingByIds(final Collection<Long> ids, final String podName);
+
+	@Query(value = "{ 'pod' : ?0, 'state' : { $ne: 'TERMINATED' }, 'generation.state' : { $ne: 'SENT' } }")
+	List<AppDataJob> findPending(final String podName);
+
 	@Query(value = "{ 'product.metadata.sessionId' : ?0, 'state' : { $ne: 'TERMINATED' } }")
 	List<AppDataJob> findByProductSessionId(final String sessionId);
 
@@ -39,6 +47,23 @@ public interface AppDataJobRepository extends MongoRepository<AppDataJob, Long>
 	
 	@Query(value = "{ 'state': ?0, 'pod': ?1, 'lastUpdateDate': { $lt: ?2 } }")
 	List<AppDataJob> findByStateAndLastUpdateDateLessThan(final String state, final String podName, final Date lastUpdated);
+
+	/**
+	 * Only reads the ids of the jobs
+	 */
+	@Query(value = "{ 'state': ?0, 'pod': ?1, 'lastUpdateDate': { $lt: ?2 } }", fields = "{ '_id' : 1 }")
+	List<AppDataJob> findIdsByStateAndLastUpdateDateLessThan(final String state, final String podName,
+			final Date lastUpdated, final Pageable pageable);
+
+	/**
+	 * Only reads the ids and timeout dates of the pending jobs timing out before
+	 * the given date, after the given timeout date and id
+	 */
+	@Query(value = "{ 'pod': ?0, 'state' : { $ne: 'TERMINATED' }, 'generation.state' : { $ne: 'SENT' }, "
+			+ "'timeoutDate' : { $lt: ?1 }, $or : [ { 'timeoutDate' : { $gt: ?2 } }, "
+			+ "{ 'timeoutDate' : ?2, '_id' : { $gt: ?3 } } ] }", fields = "{ '_id' : 1, 'timeoutDate' : 1 }")
+	List<AppDataJob> findTimeoutSchedule(final String podName, final Date until, final Date afterTimeoutDate,
+			final long afterId, final Pageable pageable);
 	
 	@Query(value = "{ 'generation.state' : { $ne: 'SENT' }, 'state' : { $ne: 'TERMINATED' }, 'pod': ?0 }", count = true)
 	Long countByPod(final String podName);
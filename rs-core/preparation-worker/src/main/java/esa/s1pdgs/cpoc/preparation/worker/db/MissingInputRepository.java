@@ -0,0 +1,34 @@
+package esa.s1pdgs.cpoc.preparation.worker.db;
+
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+
+import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.data.mongodb.repository.Query;
+import org.springframework.stereotype.Service;
+
+import esa.s1pdgs.cpoc.preparation.worker.model.missinginput.MissingInput;
+
+/**
+ * Access class to the index of missing inputs of the AppDataJobs in mongo DB
+ */
+@Service
+public interface MissingInputRepository extends MongoRepository<MissingInput, String> {
+
+	/**
+	 * Entries without dataTakeId, sessionId or time window match any value of the
+	 * product. Entries with a product type pattern are all returned, the pattern
+	 * has to be matched by the caller.
+	 */
+	@Query(value = "{ 'pod' : ?0, $or : [ { 'productType' : { $in : ?1 } }, { 'pattern' : true } ], "
+			+ "'dataTakeId' : { $in : [ null, ?2 ] }, 'sessionId' : { $in : [ null, ?3 ] }, "
+			+ "'startTime' : { $not : { $gt : ?5 } }, 'stopTime' : { $not : { $lt : ?4 } } }",
+			fields = "{ 'jobId' : 1, 'productType' : 1, 'pattern' : 1 }")
+	List<MissingInput> findSatisfiableBy(final String podName, final Collection<String> productTypes,
+			final String dataTakeId, final String sessionId, final Date validityStart, final Date validityStop);
+
+	void deleteByJobId(final long jobId);
+
+	void deleteByJobIdIn(final Collection<Long> jobIds);
+}
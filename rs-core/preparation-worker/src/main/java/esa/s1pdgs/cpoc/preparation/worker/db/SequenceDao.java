@@ -1,8 +1,12 @@
 package esa.s1pdgs.cpoc.preparation.worker.db;
 
+import java.util.List;
+
 import esa.s1pdgs.cpoc.preparation.worker.model.exception.SequenceException;
 
 public interface SequenceDao {
 
 	long getNextSequenceId(String key) throws SequenceException;
+
+	List<Long> getNextSequenceIds(String key, int count) throws SequenceException;
 }
@@ -1,5 +1,12 @@
 package esa.s1pdgs.cpoc.preparation.worker.db;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.mongodb.core.FindAndModifyOptions;
 import org.springframework.data.mongodb.core.MongoTemplate;
@@ -8,29 +15,76 @@ import org.springframework.data.mongodb.core.query.Query;
 import org.springframework.data.mongodb.core.query.Update;
 import org.springframework.stereotype.Service;
 
+import esa.s1pdgs.cpoc.preparation.worker.config.MongoProperties;
 import esa.s1pdgs.cpoc.preparation.worker.model.exception.SequenceException;
 import esa.s1pdgs.cpoc.preparation.worker.model.sequence.SequenceId;
 
 /**
- * 
+ * Hands out the sequence ids from blocks reserved in the database.
+ * <p>
+ * Each block is reserved by increasing the sequence of the key by the block
+ * size in a single atomic operation, so the blocks of several pods never
+ * overlap. The ids of a block are then handed out without accessing the
+ * database. The ids left in a block when the pod stops are skipped.
+ *
  * @author Viveris Technologies
  *
  */
 @Service
 public class SequenceDaoImp implements SequenceDao {
 
+	private static final Logger LOGGER = LogManager.getLogger(SequenceDaoImp.class);
+
+	private static final class Block {
+		private long next;
+		private final long last;
+
+		Block(final long first, final long last) {
+			this.next = first;
+			this.last = last;
+		}
+
+		boolean isExhausted() {
+			return next > last;
+		}
+	}
+
     /**
      * Mongo client
      */
     private final MongoTemplate mongoClient;
-    
+
+    /**
+     * Number of ids reserved at once
+     */
+    private final int blockSize;
+
+    /**
+     * Block currently handed out per key
+     */
+    private final Map<String, Block> blocks = new HashMap<>();
+
+    /**
+     * Constructor reserving the ids one by one
+     * @param mongoClient
+     */
+    public SequenceDaoImp(final MongoTemplate mongoClient) {
+        this(mongoClient, 1);
+    }
+
     /**
      * Constructor
      * @param mongoClient
+     * @param mongoProperties
      */
     @Autowired
-    public SequenceDaoImp(final MongoTemplate mongoClient) {
+    public SequenceDaoImp(final MongoTemplate mongoClient, final MongoProperties mongoProperties) {
+        this(mongoClient, mongoProperties.getSequenceBlockSize());
+    }
+
+    SequenceDaoImp(final MongoTemplate mongoClient, final int blockSize) {
         this.mongoClient = mongoClient;
+        this.blockSize = Math.max(1, blockSize);
     }
 
     /**
@@ -38,29 +92,49 @@ public class SequenceDaoImp implements SequenceDao {
      */
     @Override
 	public long getNextSequenceId(final String key) throws SequenceException {
-		
-	  //get sequence id
-	  Query query = new Query(Criteria.where("_id").is(key));
+		return getNextSequenceIds(key, 1).get(0);
+	}
+
+	/**
+	 * Get the given number of next sequence ids for the given key, reserving at
+	 * most one new block
+	 */
+	@Override
+	public synchronized List<Long> getNextSequenceIds(final String key, final int count) throws SequenceException {
+		final List<Long> ids = new ArrayList<>(count);
+		Block block = blocks.get(key);
+		while (ids.size() < count) {
+			if (block == null || block.isExhausted()) {
+				block = reserveBlock(key, Math.max(blockSize, count - ids.size()));
+				blocks.put(key, block);
+			}
+			ids.add(block.next++);
+		}
+		return ids;
+	}
 
-	  //increase sequence id by 1
-	  Update update = new Update();
-	  update.inc("seq", 1);
+	private Block reserveBlock(final String key, final int size) throws SequenceException {
+		// get sequence id
+		final Query query = new Query(Criteria.where("_id").is(key));
 
-	  //return new increased id
-	  FindAndModifyOptions options = new FindAndModifyOptions();
-	  options.returnNew(true);
+		// increase sequence id by the size of the block
+		final Update update = new Update();
+		update.inc("seq", size);
 
-	  //this is the magic happened.
-	  SequenceId seqId = 
-			  mongoClient.findAndModify(query, update, options, SequenceId.class);
+		// return new increased id, the last one of the block
+		final FindAndModifyOptions options = new FindAndModifyOptions();
+		options.returnNew(true);
 
-	  //if no id, throws SequenceException
-          //optional, just a way to tell user when the sequence id is failed to generate.
-	  if (seqId == null) {
-		throw new SequenceException("Unable to get sequence id for key : " + key);
-	  }
+		final SequenceId seqId = mongoClient.findAndModify(query, update, options, SequenceId.class);
 
-	  return seqId.getSeq();
+		// if no id, throws SequenceException
+		// optional, just a way to tell user when the sequence id is failed to generate.
+		if (seqId == null) {
+			throw new SequenceException("Unable to get sequence id for key : " + key);
+		}
 
+		final long last = seqId.getSeq();
+		LOGGER.debug("Reserved sequence ids {} to {} for key {}", last - size + 1, last, key);
+		return new Block(last - size + 1, last);
 	}
 }
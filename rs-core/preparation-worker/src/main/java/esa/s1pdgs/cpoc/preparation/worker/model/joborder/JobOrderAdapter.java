@@ -8,8 +8,10 @@ import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.function.Function;
 import java.util.function.Predicate;
 import java.util.function.Supplier;
@@ -190,6 +192,24 @@ public final class JobOrderAdapter
 			.collect(toList());
 	}
 	
+	/**
+	 * @return the file names of the inputs of the processors of the job order,
+	 *         per task name
+	 */
+	public final Map<String, Set<String>> inputFilenamesByTask() {
+		final Map<String, Set<String>> result = new HashMap<>();
+		jobOrder.getProcs().stream()
+			.filter(proc -> proc != null)
+			.forEach(proc -> {
+				final Set<String> filenames = result.computeIfAbsent(proc.getTaskName(), name -> new HashSet<>());
+				if (!CollectionUtils.isEmpty(proc.getInputs())) {
+					proc.getInputs().forEach(input -> input.getFilenames()
+							.forEach(filename -> filenames.add(filename.getFilename())));
+				}
+			});
+		return result;
+	}
+	
 	@SafeVarargs
 	private final Predicate<JobOrderOutput> filenameTypeFilter(final JobOrderFileNameType fnt, final String ... outputTypes) {	
 		final List<String> allowedTypes = CollectionUtil.toList(outputTypes); 
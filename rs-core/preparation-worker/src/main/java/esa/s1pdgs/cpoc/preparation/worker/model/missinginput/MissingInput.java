@@ -0,0 +1,154 @@
+package esa.s1pdgs.cpoc.preparation.worker.model.missinginput;
+
+import java.util.Date;
+import java.util.Objects;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.CompoundIndexes;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+/**
+ * Entry of the reverse index from the products an AppDataJob is still waiting
+ * for to the job.
+ * <p>
+ * A product satisfies the entry, if it has the product type of the entry (or
+ * one matching it, if the product type of the entry is a pattern), the same
+ * dataTakeId and sessionId if the entry defines them, and a validity
+ * intersecting the time window of the entry if it defines one.
+ */
+@Document(collection = "missingInput")
+@CompoundIndexes({ @CompoundIndex(name = "pod_productType", def = "{'pod' : 1, 'productType' : 1}"),
+		@CompoundIndex(name = "pod_pattern", def = "{'pod' : 1, 'pattern' : 1}") })
+public class MissingInput {
+
+	@Id
+	private String id;
+
+	private long jobId;
+
+	private String pod;
+
+	private String productType;
+
+	/**
+	 * Indicates that the product type is a regular expression, e.g. mapped by
+	 * map-type-meta
+	 */
+	private boolean pattern;
+
+	private String dataTakeId;
+
+	private String sessionId;
+
+	private Date startTime;
+
+	private Date stopTime;
+
+	public MissingInput() {
+		super();
+	}
+
+	public MissingInput(final long jobId, final String pod, final String productType) {
+		this.jobId = jobId;
+		this.pod = pod;
+		this.productType = productType;
+	}
+
+	public String getId() {
+		return id;
+	}
+
+	public void setId(final String id) {
+		this.id = id;
+	}
+
+	public long getJobId() {
+		return jobId;
+	}
+
+	public void setJobId(final long jobId) {
+		this.jobId = jobId;
+	}
+
+	public String getPod() {
+		return pod;
+	}
+
+	public void setPod(final String pod) {
+		this.pod = pod;
+	}
+
+	public String getProductType() {
+		return productType;
+	}
+
+	public void setProductType(final String productType) {
+		this.productType = productType;
+	}
+
+	public boolean isPattern() {
+		return pattern;
+	}
+
+	public void setPattern(final boolean pattern) {
+		this.pattern = pattern;
+	}
+
+	public String getDataTakeId() {
+		return dataTakeId;
+	}
+
+	public void setDataTakeId(final String dataTakeId) {
+		this.dataTakeId = dataTakeId;
+	}
+
+	public String getSessionId() {
+		return sessionId;
+	}
+
+	public void setSessionId(final String sessionId) {
+		this.sessionId = sessionId;
+	}
+
+	public Date getStartTime() {
+		return startTime;
+	}
+
+	public void setStartTime(final Date startTime) {
+		this.startTime = startTime;
+	}
+
+	public Date getStopTime() {
+		return stopTime;
+	}
+
+	public void setStopTime(final Date stopTime) {
+		this.stopTime = stopTime;
+	}
+
+	@Override
+	public int hashCode() {
+		return Objects.hash(jobId, pod, productType, pattern, dataTakeId, sessionId, startTime, stopTime);
+	}
+
+	@Override
+	public boolean equals(final Object obj) {
+		if (this == obj) {
+			return true;
+		}
+		if (obj == null || getClass() != obj.getClass()) {
+			return false;
+		}
+		final MissingInput other = (MissingInput) obj;
+		return jobId == other.jobId && Objects.equals(pod, other.pod) && Objects.equals(productType, other.productType)
+				&& pattern == other.pattern && Objects.equals(dataTakeId, other.dataTakeId) && Objects.equals(sessionId, other.sessionId)
+				&& Objects.equals(startTime, other.startTime) && Objects.equals(stopTime, other.stopTime);
+	}
+
+	@Override
+	public String toString() {
+		return "MissingInput [jobId=" + jobId + ", pod=" + pod + ", productType=" + productType + ", pattern=" + pattern + ", dataTakeId="
+				+ dataTakeId + ", sessionId=" + sessionId + ", startTime=" + startTime + ", stopTime=" + stopTime + "]";
+	}
+}
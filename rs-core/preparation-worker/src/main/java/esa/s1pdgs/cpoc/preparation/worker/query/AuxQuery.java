@@ -10,8 +10,11 @@ import java.time.ZoneId;
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
@@ -47,7 +50,7 @@ import esa.s1pdgs.cpoc.xml.model.tasktable.enums.TaskTableMandatoryEnum;
 public class AuxQuery {
 	private static final Logger LOGGER = LogManager.getLogger(AuxQuery.class);
 
-	private final MetadataClient metadataClient;
+	private final AuxSearch auxSearch;
 	private final AppDataJob job;
 	private final ProductMode mode;
 	private final TaskTableAdapter taskTableAdapter;
@@ -55,7 +58,12 @@ public class AuxQuery {
 
 	public AuxQuery(final MetadataClient metadataClient, final AppDataJob job, final ProductMode mode,
 			 final TaskTableAdapter ttAdapter, final InputTimeoutChecker timeoutChecker) {
-		this.metadataClient = metadataClient;
+		this(AuxSearch.direct(metadataClient), job, mode, ttAdapter, timeoutChecker);
+	}
+
+	public AuxQuery(final AuxSearch auxSearch, final AppDataJob job, final ProductMode mode,
+			 final TaskTableAdapter ttAdapter, final InputTimeoutChecker timeoutChecker) {
+		this.auxSearch = auxSearch;
 		this.job = job;
 		this.mode = mode;
 		this.taskTableAdapter = ttAdapter;
@@ -198,6 +206,9 @@ public class AuxQuery {
 		final Map<TaskTableInputAlternative.TaskTableInputAltKey, SearchMetadataResult> queries = toQueries(
 				queryTemplatesFor(alternatives));
 		LOGGER.debug("Query inputs for queries {}", queries);
+
+		// send all queries at once, the alternatives are independent of each other
+		final Map<String, List<SearchMetadataResult>> toSearch = new LinkedHashMap<>();
 		for (final SearchMetadataResult result : queries.values()) {
 			if (result.hasResult()) {
 				continue;
@@ -205,11 +216,27 @@ public class AuxQuery {
 
 			LOGGER.debug("Get query from result {}", result);
 			final SearchMetadataQuery query = result.getQuery();
-			try {
-				LOGGER.debug("Querying input product of type {}, AppJobId {}: {}", query.getProductType(), job.getId(),
-						query);
+			LOGGER.debug("Querying input product of type {}, AppJobId {}: {}", query.getProductType(), job.getId(),
+					query);
+			// a batch of searches shares the same polarisation
+			toSearch.computeIfAbsent(String.valueOf(polarisationFor(query.getProductType())), p -> new ArrayList<>())
+					.add(result);
+		}
+		final Map<SearchMetadataResult, CompletableFuture<List<SearchMetadata>>> searches = new LinkedHashMap<>();
+		for (final List<SearchMetadataResult> batch : toSearch.values()) {
+			final List<CompletableFuture<List<SearchMetadata>>> found = queryAux(
+					batch.stream().map(SearchMetadataResult::getQuery).collect(toList()));
+			for (int i = 0; i < batch.size(); i++) {
+				searches.put(batch.get(i), found.get(i));
+			}
+		}
 
-				final List<SearchMetadata> results = queryAux(query);
+		for (final Map.Entry<SearchMetadataResult, CompletableFuture<List<SearchMetadata>>> search : searches
+				.entrySet()) {
+			final SearchMetadataResult result = search.getKey();
+			final SearchMetadataQuery query = result.getQuery();
+			try {
+				final List<SearchMetadata> results = search.getValue().join();
 				// save query results
 				// this means, only if query has found something, the result is set
 				// otherwise query again later
@@ -219,9 +246,15 @@ public class AuxQuery {
 				if (!results.isEmpty()) {
 					result.setResult(results);
 				}
-			} catch (final MetadataQueryException me) {
+			} catch (final CompletionException e) {
+				if (e.getCause() instanceof RuntimeException) {
+					throw (RuntimeException) e.getCause();
+				}
+				if (!(e.getCause() instanceof MetadataQueryException)) {
+					throw e;
+				}
 				LOGGER.warn("Exception occurred when searching alternative {} for job {} with product {}: {}",
-						query.toLogMessage(), job.getId(), job.getProductName(), me.getMessage());
+						query.toLogMessage(), job.getId(), job.getProductName(), e.getCause().getMessage());
 			}
 		}
 
@@ -350,22 +383,24 @@ public class AuxQuery {
 		);
 	}
 
-	private List<SearchMetadata> queryAux(final SearchMetadataQuery query) throws MetadataQueryException {
+	private List<CompletableFuture<List<SearchMetadata>>> queryAux(final List<SearchMetadataQuery> queries) {
 		final AppDataJobProductAdapter productAdapter = new AppDataJobProductAdapter(job.getProduct());
 		
 		// S1PRO-2111: log query attempts to MDC
-		LOGGER.info("Querying product for type '{}' using startTime '{}' and stopTime '{}' using '{}'", 
-				query.getProductType(), job.getStartTime(), job.getStopTime(), 
-				query.getRetrievalMode());
+		for (final SearchMetadataQuery query : queries) {
+			LOGGER.info("Querying product for type '{}' using startTime '{}' and stopTime '{}' using '{}'", 
+					query.getProductType(), job.getStartTime(), job.getStopTime(), 
+					query.getRetrievalMode());
+		}
 		
-		return metadataClient.search(
-				query,
+		return auxSearch.searchAll(
+				queries,
 				sanitizeDateString(job.getStartTime()),
 				sanitizeDateString(job.getStopTime()),
 				productAdapter.getSatelliteId(),
 				productAdapter.getInsConfId(),
 				productAdapter.getProcessMode(),
-				polarisationFor(query.getProductType())
+				polarisationFor(queries.get(0).getProductType())
 		);
 	}
 
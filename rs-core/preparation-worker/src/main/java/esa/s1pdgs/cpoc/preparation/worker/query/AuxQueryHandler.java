@@ -10,19 +10,24 @@ import esa.s1pdgs.cpoc.preparation.worker.timeout.InputTimeoutChecker;
 import esa.s1pdgs.cpoc.xml.model.tasktable.TaskTable;
 
 public class AuxQueryHandler {
-	private final MetadataClient metadataClient;
+	private final AuxSearch auxSearch;
 	private final ProductMode mode;
 	private final Function<TaskTable, InputTimeoutChecker> timeoutChecker;
 
 	public AuxQueryHandler(final MetadataClient metadataClient, final ProductMode mode,
 			final Function<TaskTable, InputTimeoutChecker> timeoutChecker) {
-		this.metadataClient = metadataClient;
+		this(AuxSearch.direct(metadataClient), mode, timeoutChecker);
+	}
+
+	public AuxQueryHandler(final AuxSearch auxSearch, final ProductMode mode,
+			final Function<TaskTable, InputTimeoutChecker> timeoutChecker) {
+		this.auxSearch = auxSearch;
 		this.mode = mode;
 		this.timeoutChecker = timeoutChecker;
 	}
 
 	public AuxQuery queryFor(final AppDataJob job, final TaskTableAdapter taskTableAdapter) {
-		return new AuxQuery(metadataClient, job, mode, taskTableAdapter,
+		return new AuxQuery(auxSearch, job, mode, taskTableAdapter,
 				timeoutChecker.apply(taskTableAdapter.taskTable()));
 	}
 }
@@ -0,0 +1,295 @@
+package esa.s1pdgs.cpoc.preparation.worker.query;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.LongSupplier;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import esa.s1pdgs.cpoc.common.errors.processing.MetadataQueryException;
+import esa.s1pdgs.cpoc.metadata.client.MetadataClient;
+import esa.s1pdgs.cpoc.metadata.client.SearchMetadataQuery;
+import esa.s1pdgs.cpoc.metadata.model.SearchMetadata;
+import esa.s1pdgs.cpoc.metadata.model.SelectionPolicyResult;
+
+/**
+ * Performs the metadata searches of the AUX queries of all jobs.
+ * <p>
+ * The searches are executed concurrently. Identical searches requested while
+ * the first one is still running share its result, and non-empty results are
+ * kept for a short time to be reused by the jobs checked afterwards. Empty
+ * results are never kept, so a newly available input is found on the next
+ * check.
+ * <p>
+ * In batch mode, the searches of a job which are neither cached nor running
+ * are sent to the metadata catalog in a single call, each search completing
+ * with its own result or error.
+ */
+public class AuxSearch {
+
+	private static final Logger LOGGER = LogManager.getLogger(AuxSearch.class);
+
+	/**
+	 * Number of cached results above which the expired ones are removed
+	 */
+	private static final int CACHE_PURGE_SIZE = 1000;
+
+	private static final class CachedResult {
+		private final List<SearchMetadata> result;
+		private final long expiry;
+
+		CachedResult(final List<SearchMetadata> result, final long expiry) {
+			this.result = result;
+			this.expiry = expiry;
+		}
+	}
+
+	@FunctionalInterface
+	interface Search {
+		List<SearchMetadata> call() throws MetadataQueryException;
+	}
+
+	@FunctionalInterface
+	interface BatchSearch {
+		/**
+		 * @param indexes indexes of the searches to perform
+		 * @return the results of the searches, in the order of the indexes
+		 */
+		List<SelectionPolicyResult> call(List<Integer> indexes) throws MetadataQueryException;
+	}
+
+	private final MetadataClient metadataClient;
+
+	private final Executor executor;
+
+	private final long cacheTtlMs;
+
+	private final LongSupplier clock;
+
+	private final boolean batch;
+
+	private final Map<String, CompletableFuture<List<SearchMetadata>>> running = new ConcurrentHashMap<>();
+
+	private final Map<String, CachedResult> cache = new ConcurrentHashMap<>();
+
+	public AuxSearch(final MetadataClient metadataClient, final int nbThreads, final long cacheTtlMs,
+			final boolean batch) {
+		this(metadataClient, Executors.newFixedThreadPool(Math.max(1, nbThreads), new ThreadFactory() {
+			private final AtomicInteger count = new AtomicInteger();
+
+			@Override
+			public Thread newThread(final Runnable runnable) {
+				final Thread thread = new Thread(runnable, "aux-search-" + count.incrementAndGet());
+				thread.setDaemon(true);
+				return thread;
+			}
+		}), cacheTtlMs, System::currentTimeMillis, batch);
+	}
+
+	AuxSearch(final MetadataClient metadataClient, final Executor executor, final long cacheTtlMs,
+			final LongSupplier clock, final boolean batch) {
+		this.metadataClient = metadataClient;
+		this.executor = executor;
+		this.cacheTtlMs = cacheTtlMs;
+		this.clock = clock;
+		this.batch = batch;
+	}
+
+	/**
+	 * Searches sequentially in the calling thread without sharing any result, as
+	 * before
+	 */
+	public static AuxSearch direct(final MetadataClient metadataClient) {
+		return new AuxSearch(metadataClient, Runnable::run, 0L, System::currentTimeMillis, false);
+	}
+
+	/**
+	 * Starts the search of the products matching the query
+	 *
+	 * @return the future result, completed exceptionally with the
+	 *         {@link MetadataQueryException} of a failed search
+	 */
+	public CompletableFuture<List<SearchMetadata>> search(final SearchMetadataQuery query, final String t0,
+			final String t1, final String satelliteId, final int insConfId, final String processMode,
+			final String polarisation) {
+		return search(keyOf(query, t0, t1, satelliteId, insConfId, processMode, polarisation),
+				() -> metadataClient.search(query, t0, t1, satelliteId, insConfId, processMode, polarisation))
+						.thenApply(AuxSearch::copyOf);
+	}
+
+	/**
+	 * Starts the search of the products matching each query, in a single call to
+	 * the metadata catalog in batch mode
+	 *
+	 * @return the future results, in the order of the queries
+	 */
+	public List<CompletableFuture<List<SearchMetadata>>> searchAll(final List<SearchMetadataQuery> queries,
+			final String t0, final String t1, final String satelliteId, final int insConfId,
+			final String processMode, final String polarisation) {
+		final List<CompletableFuture<List<SearchMetadata>>> results = new ArrayList<>(queries.size());
+		if (!batch) {
+			for (final SearchMetadataQuery query : queries) {
+				results.add(search(query, t0, t1, satelliteId, insConfId, processMode, polarisation));
+			}
+			return results;
+		}
+		final List<String> keys = new ArrayList<>(queries.size());
+		for (final SearchMetadataQuery query : queries) {
+			keys.add(keyOf(query, t0, t1, satelliteId, insConfId, processMode, polarisation));
+		}
+		for (final CompletableFuture<List<SearchMetadata>> result : searchAll(keys, indexes -> {
+			final List<SearchMetadataQuery> searched = new ArrayList<>(indexes.size());
+			for (final int index : indexes) {
+				searched.add(queries.get(index));
+			}
+			return metadataClient.searchAll(searched, t0, t1, satelliteId, insConfId, processMode, polarisation);
+		})) {
+			results.add(result.thenApply(AuxSearch::copyOf));
+		}
+		return results;
+	}
+
+	public void shutdown() {
+		if (executor instanceof ExecutorService) {
+			((ExecutorService) executor).shutdownNow();
+		}
+	}
+
+	CompletableFuture<List<SearchMetadata>> search(final String key, final Search search) {
+		final CompletableFuture<List<SearchMetadata>> shared = cachedResultOf(key);
+		if (shared != null) {
+			return shared;
+		}
+
+		final CompletableFuture<List<SearchMetadata>> result = new CompletableFuture<>();
+		final CompletableFuture<List<SearchMetadata>> alreadyRunning = running.putIfAbsent(key, result);
+		if (alreadyRunning != null) {
+			LOGGER.debug("Joining running search {}", key);
+			return alreadyRunning;
+		}
+
+		try {
+			executor.execute(() -> {
+				try {
+					complete(key, result, search.call());
+				} catch (final Exception e) {
+					fail(key, result, e);
+				}
+			});
+		} catch (final RuntimeException e) {
+			fail(key, result, e);
+		}
+		return result;
+	}
+
+	List<CompletableFuture<List<SearchMetadata>>> searchAll(final List<String> keys, final BatchSearch search) {
+		final List<CompletableFuture<List<SearchMetadata>>> results = new ArrayList<>(keys.size());
+		final List<Integer> indexes = new ArrayList<>();
+		final List<CompletableFuture<List<SearchMetadata>>> started = new ArrayList<>();
+		for (int i = 0; i < keys.size(); i++) {
+			final String key = keys.get(i);
+			final CompletableFuture<List<SearchMetadata>> shared = cachedResultOf(key);
+			if (shared != null) {
+				results.add(shared);
+				continue;
+			}
+			final CompletableFuture<List<SearchMetadata>> result = new CompletableFuture<>();
+			final CompletableFuture<List<SearchMetadata>> alreadyRunning = running.putIfAbsent(key, result);
+			if (alreadyRunning != null) {
+				LOGGER.debug("Joining running search {}", key);
+				results.add(alreadyRunning);
+				continue;
+			}
+			results.add(result);
+			indexes.add(i);
+			started.add(result);
+		}
+		if (indexes.isEmpty()) {
+			return results;
+		}
+
+		try {
+			executor.execute(() -> {
+				try {
+					final List<SelectionPolicyResult> found = search.call(indexes);
+					for (int i = 0; i < indexes.size(); i++) {
+						final String key = keys.get(indexes.get(i));
+						final SelectionPolicyResult item = found.get(i);
+						if (item.getError() != null) {
+							fail(key, started.get(i), new MetadataQueryException(item.getError()));
+						} else {
+							complete(key, started.get(i), item.getResults());
+						}
+					}
+				} catch (final Exception e) {
+					for (int i = 0; i < indexes.size(); i++) {
+						fail(keys.get(indexes.get(i)), started.get(i), e);
+					}
+				}
+			});
+		} catch (final RuntimeException e) {
+			for (int i = 0; i < indexes.size(); i++) {
+				fail(keys.get(indexes.get(i)), started.get(i), e);
+			}
+		}
+		return results;
+	}
+
+	private static String keyOf(final SearchMetadataQuery query, final String t0, final String t1,
+			final String satelliteId, final int insConfId, final String processMode, final String polarisation) {
+		return String.join("|", String.valueOf(query.getProductFamily()), query.getProductType(),
+				query.getRetrievalMode(), String.valueOf(query.getDeltaTime0()), String.valueOf(query.getDeltaTime1()),
+				String.valueOf(query.getMinResults()), String.valueOf(query.getMaxResults()), t0, t1, satelliteId,
+				String.valueOf(insConfId), processMode, polarisation);
+	}
+
+	private static List<SearchMetadata> copyOf(final List<SearchMetadata> found) {
+		return found == null ? new ArrayList<>() : new ArrayList<>(found);
+	}
+
+	/**
+	 * @return the cached result of the search or null if there is none
+	 */
+	private CompletableFuture<List<SearchMetadata>> cachedResultOf(final String key) {
+		final CachedResult cached = cache.get(key);
+		if (cached != null) {
+			if (cached.expiry > clock.getAsLong()) {
+				LOGGER.debug("Using cached result of search {}", key);
+				return CompletableFuture.completedFuture(cached.result);
+			}
+			cache.remove(key, cached);
+		}
+		return null;
+	}
+
+	private void complete(final String key, final CompletableFuture<List<SearchMetadata>> result,
+			final List<SearchMetadata> found) {
+		if (cacheTtlMs > 0 && found != null && !found.isEmpty()) {
+			purgeExpired();
+			cache.put(key, new CachedResult(found, clock.getAsLong() + cacheTtlMs));
+		}
+		running.remove(key, result);
+		result.complete(found);
+	}
+
+	private void fail(final String key, final CompletableFuture<List<SearchMetadata>> result, final Exception e) {
+		running.remove(key, result);
+		result.completeExceptionally(e);
+	}
+
+	private void purgeExpired() {
+		if (cache.size() >= CACHE_PURGE_SIZE) {
+			final long now = clock.getAsLong();
+			cache.values().removeIf(cached -> cached.expiry <= now);
+		}
+	}
+}
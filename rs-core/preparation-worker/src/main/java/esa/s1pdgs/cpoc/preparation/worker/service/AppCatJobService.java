@@ -1,17 +1,23 @@
 package esa.s1pdgs.cpoc.preparation.worker.service;
 
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Date;
 import java.util.List;
 import java.util.UUID;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
 
 import esa.s1pdgs.cpoc.appcatalog.AppDataJob;
 import esa.s1pdgs.cpoc.appcatalog.AppDataJobState;
 import esa.s1pdgs.cpoc.common.utils.Exceptions;
 import esa.s1pdgs.cpoc.mqi.model.queue.CatalogEvent;
 import esa.s1pdgs.cpoc.preparation.worker.config.ProcessProperties;
+import esa.s1pdgs.cpoc.preparation.worker.db.AppDataJobPatch;
+import esa.s1pdgs.cpoc.preparation.worker.db.AppDataJobPatchDao;
 import esa.s1pdgs.cpoc.preparation.worker.db.AppDataJobRepository;
 import esa.s1pdgs.cpoc.preparation.worker.db.SequenceDao;
 import esa.s1pdgs.cpoc.preparation.worker.model.exception.AppCatJobUpdateFailedException;
@@ -25,12 +31,15 @@ public class AppCatJobService {
 
 	private final AppDataJobRepository appDataJobRepository;
 	private final SequenceDao sequenceDao;
+	private final AppDataJobPatchDao appDataJobPatchDao;
 	
 	private ProcessProperties processProperties;
 
-	public AppCatJobService(final AppDataJobRepository appDataJobDao, final SequenceDao sequenceDao, final ProcessProperties processProperties) {
+	public AppCatJobService(final AppDataJobRepository appDataJobDao, final SequenceDao sequenceDao,
+			final AppDataJobPatchDao appDataJobPatchDao, final ProcessProperties processProperties) {
 		this.appDataJobRepository = appDataJobDao;
 		this.sequenceDao = sequenceDao;
+		this.appDataJobPatchDao = appDataJobPatchDao;
 		this.processProperties = processProperties;
 	}
 
@@ -43,6 +52,25 @@ public class AppCatJobService {
 		return appDataJobRepository.save(newJob);
 	}
 
+	/**
+	 * Persists the given new jobs with a single bulk insert
+	 */
+	public List<AppDataJob> newJobs(final List<AppDataJob> newJobs) {
+		if (newJobs.isEmpty()) {
+			return newJobs;
+		}
+		final List<Long> sequences = sequenceDao.getNextSequenceIds(JOB_SEQ_KEY, newJobs.size());
+		final Date now = new Date();
+		for (int i = 0; i < newJobs.size(); i++) {
+			final AppDataJob newJob = newJobs.get(i);
+			newJob.setId(sequences.get(i));
+			newJob.setCreationDate(now);
+			newJob.setLastUpdateDate(now);
+		}
+		LOGGER.debug("Creating new appDataJobs {}", sequences);
+		return appDataJobRepository.insert(newJobs);
+	}
+
 	public AppDataJob getJob(final Long identifier) throws AppCatalogJobNotFoundException {
 		return appDataJobRepository.findById(identifier)
 				.orElseThrow(() -> new AppCatalogJobNotFoundException(identifier));
@@ -60,6 +88,14 @@ public class AppCatJobService {
 		return appDataJobRepository.findByTriggerProduct(productType, processProperties.getHostname());
 	}
 
+	public List<AppDataJob> findPendingByIds(final Collection<Long> ids) {
+		return appDataJobRepository.findPendingByIds(ids, processProperties.getHostname());
+	}
+
+	public List<AppDataJob> findPending() {
+		return appDataJobRepository.findPending(processProperties.getHostname());
+	}
+
 	public List<AppDataJob> findByProductSessionId(final String sessionId) {
 		return appDataJobRepository.findByProductSessionId(sessionId);
 	}
@@ -80,17 +116,43 @@ public class AppCatJobService {
 		return appDataJobRepository.findByStateAndLastUpdateDateLessThan(state.name(), processProperties.getHostname(), lastUpdatedDate);
 	}
 	
+	/**
+	 * @return the ids of at most the given number of jobs in the given state not
+	 *         updated since the given date
+	 */
+	public List<Long> findIdsByStateAndLastUpdateDateLessThan(final AppDataJobState state,
+			final Date lastUpdatedDate, final int limit) {
+		final List<Long> ids = new ArrayList<>();
+		for (final AppDataJob job : appDataJobRepository.findIdsByStateAndLastUpdateDateLessThan(state.name(),
+				processProperties.getHostname(), lastUpdatedDate, PageRequest.of(0, limit))) {
+			ids.add(job.getId());
+		}
+		return ids;
+	}
+
+	/**
+	 * @return at most the given number of pending jobs timing out before the given
+	 *         date, after the given timeout date and id if any, ordered by
+	 *         timeout date and id, with only their id and timeout date
+	 */
+	public List<AppDataJob> findTimeoutSchedule(final Date until, final Date afterTimeoutDate, final long afterId,
+			final int limit) {
+		return appDataJobRepository.findTimeoutSchedule(processProperties.getHostname(), until,
+				afterTimeoutDate == null ? new Date(0L) : afterTimeoutDate,
+				afterTimeoutDate == null ? Long.MIN_VALUE : afterId,
+				PageRequest.of(0, limit, Sort.by("timeoutDate", "id")));
+	}
+
 	public Number getCountOfPendingJobs() {
 		return appDataJobRepository.countByPod(processProperties.getHostname());
 	}
 
 	public void appendCatalogEvent(final long id, final CatalogEvent event) throws AppCatJobUpdateFailedException {
 		try {
-			AppDataJob job = getJob(id);
-			job.getCatalogEvents().add(event);
-			job.setLastUpdateDate(new Date());
-			updateJob(job);
-		} catch (AppCatalogJobNotFoundException e) {
+			// the event is pushed without reading the job
+			patchJob(AppDataJobPatch.unconditional(new AppDataJob(id)).pushCatalogEvent(event)
+					.lastUpdateDate(new Date()));
+		} catch (AppCatJobUpdateFailedException e) {
 			final String message = String.format(
 					"Error on appDataJob %s %s update: %s. Trying next time...", 
 					id, 
@@ -106,10 +168,54 @@ public class AppCatJobService {
 		appDataJobRepository.deleteById(jobId);
 	}
 
+	public void deleteJobs(final Collection<Long> jobIds) {
+		LOGGER.debug("Deleting appDataJobs {}", jobIds);
+		appDataJobRepository.deleteAllById(jobIds);
+	}
+
 	public AppDataJob updateJob(final AppDataJob patchJob) throws AppCatalogJobNotFoundException {
 		// assert job exists
 		getJob(patchJob.getId());
 		LOGGER.debug("Updating appDataJob {}", patchJob.getId());
+		// invalidates the patches of concurrent modifications
+		patchJob.setVersion(patchJob.getVersion() + 1);
 		return appDataJobRepository.save(patchJob);
 	}
+
+	/**
+	 * Writes only the fields of the patch
+	 * 
+	 * @throws AppCatJobUpdateFailedException if the job has been modified or
+	 *                                        removed meanwhile
+	 */
+	public void patchJob(final AppDataJobPatch patch) throws AppCatJobUpdateFailedException {
+		LOGGER.debug("Patching appDataJob {}", patch);
+		if (!appDataJobPatchDao.patch(patch)) {
+			throw new AppCatJobUpdateFailedException(String.format(
+					"AppDataJob %s has been modified or removed meanwhile", patch.getJobId()));
+		}
+	}
+
+	/**
+	 * Increments the version of the job if it has not been modified meanwhile, so
+	 * the patches of concurrent checks of the same job fail
+	 * 
+	 * @throws AppCatJobUpdateFailedException if the job has been modified or
+	 *                                        removed meanwhile
+	 */
+	public void claimJob(final AppDataJob job) throws AppCatJobUpdateFailedException {
+		patchJob(AppDataJobPatch.of(job));
+	}
+
+	/**
+	 * Writes the given patches at once, skipping the ones of jobs modified or
+	 * removed meanwhile
+	 * 
+	 * @return the number of jobs patched
+	 */
+	public int patchJobs(final List<AppDataJobPatch> patches) {
+		final int patched = appDataJobPatchDao.patchAll(patches);
+		LOGGER.debug("Patched {} of {} appDataJobs", patched, patches.size());
+		return patched;
+	}
 }
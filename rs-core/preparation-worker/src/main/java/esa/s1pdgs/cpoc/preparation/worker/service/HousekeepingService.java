@@ -1,8 +1,11 @@
 package esa.s1pdgs.cpoc.preparation.worker.service;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Date;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.function.Function;
 import java.util.stream.Collector;
 import java.util.stream.Collectors;
@@ -30,12 +33,21 @@ public class HousekeepingService implements Function<Message<?>, List<Message<Ip
 
 	private final CommonConfigurationProperties commonProperties;
 
+	private final MissingInputIndex missingInputIndex;
+
+	private final TimeoutScheduler timeoutScheduler;
+
+	private long lastPendingJobsRecheck = System.currentTimeMillis();
+
 	public HousekeepingService(final AppCatJobService appCat, final InputSearchService inputSearchService,
-			final PreparationWorkerProperties prepProperties, CommonConfigurationProperties commonProperties) {
+			final PreparationWorkerProperties prepProperties, CommonConfigurationProperties commonProperties,
+			final MissingInputIndex missingInputIndex, final TimeoutScheduler timeoutScheduler) {
 		this.appCatJobService = appCat;
 		this.inputSearchService = inputSearchService;
 		this.prepProperties = prepProperties;
 		this.commonProperties = commonProperties;
+		this.missingInputIndex = missingInputIndex;
+		this.timeoutScheduler = timeoutScheduler;
 	}
 
 	/**
@@ -43,6 +55,8 @@ public class HousekeepingService implements Function<Message<?>, List<Message<Ip
 	 * jobs remain in the system, by forcing a progress when a given job reaches its
 	 * timeout. Secondly it also deletes jobs, that already finished and are not
 	 * necessary to be kept in the system to prevent duplicated jobs (and products).
+	 * As the PreparationWorkerService only checks the jobs waiting for a new
+	 * product, all pending jobs are additionally re-checked periodically.
 	 * Each HousekeepingService is responsible for a PreparationWorkerService and is
 	 * provided as a SCDF Source Application.
 	 */
@@ -60,7 +74,9 @@ public class HousekeepingService implements Function<Message<?>, List<Message<Ip
 
 	/**
 	 * Find and delete jobs in each state, that reached a configured job age. Makes
-	 * sure the database is kept small and no unnecessary jobs are kept.
+	 * sure the database is kept small and no unnecessary jobs are kept. At most
+	 * the configured number of jobs per state are deleted at once, the remaining
+	 * ones are deleted by the next runs.
 	 */
 	private void deleteOldFinishedJobs() {
 		// Calculate time, based on configuration
@@ -75,15 +91,14 @@ public class HousekeepingService implements Function<Message<?>, List<Message<Ip
 
 		if (maxAgeMs != 0) {
 			final Date oldJobsDate = new Date(System.currentTimeMillis() - maxAgeMs);
-			final List<AppDataJob> oldJobs = appCatJobService.findByStateAndLastUpdateDateLessThan(state, oldJobsDate);
-	
-			for (final AppDataJob oldJob : oldJobs) {
-				final String logMessage = String.format("Remove %s job %s (%s) for enough time", oldJob.getLevel(),
-						oldJob.getId(), state);
-	
-				LOGGER.info(logMessage);
-	
-				appCatJobService.deleteJob(oldJob.getId());
+			final List<Long> oldJobIds = appCatJobService.findIdsByStateAndLastUpdateDateLessThan(state,
+					oldJobsDate, prepProperties.getHousekeepingJobsPerRun());
+
+			if (!oldJobIds.isEmpty()) {
+				LOGGER.info("Remove {} jobs {} ({}) for enough time", oldJobIds.size(), oldJobIds, state);
+
+				appCatJobService.deleteJobs(oldJobIds);
+				missingInputIndex.removeAll(oldJobIds);
 			}
 		} else {
 			LOGGER.warn("Could not find configuration for maxAgeJobMs -> state \"{}\"", state.name().toLowerCase());
@@ -95,13 +110,22 @@ public class HousekeepingService implements Function<Message<?>, List<Message<Ip
 	 * to make sure as many products are produced as possible. This mechanism is
 	 * needed for jobs, that wait for inputs, that the system is not receiving to
 	 * prevent pending jobs in the system. The logic whether or not the job is
-	 * aborted or continued is contained in the specific TypeAdapter.
+	 * aborted or continued is contained in the specific TypeAdapter. Only the jobs
+	 * whose timeout passed since are woken, at most the configured number per run.
 	 * 
 	 * @return List of ExecutionJobs, that finished during the timeout process.
 	 */
 	private List<Message<IpfExecutionJob>> continueTimeoutJobs() {
-		List<AppDataJob> timedoutJobs = appCatJobService.findTimeoutJobs(new Date());
+		List<AppDataJob> timedoutJobs = findTimeoutJobs();
 		List<IpfExecutionJob> result = new ArrayList<>();
+
+		if (isPendingJobsRecheckDue()) {
+			LOGGER.debug("Start re-checking all pending jobs");
+			final Map<Long, AppDataJob> jobs = new LinkedHashMap<>();
+			timedoutJobs.forEach(job -> jobs.put(job.getId(), job));
+			appCatJobService.findPending().forEach(job -> jobs.putIfAbsent(job.getId(), job));
+			timedoutJobs = new ArrayList<>(jobs.values());
+		}
 		
 		result = inputSearchService.checkIfJobsAreReady(timedoutJobs);
 
@@ -114,4 +138,42 @@ public class HousekeepingService implements Function<Message<?>, List<Message<Ip
 		}
 	}
 
+	private List<AppDataJob> findTimeoutJobs() {
+		final List<Long> dueIds = timeoutScheduler.pollDue(prepProperties.getHousekeepingJobsPerRun());
+		if (dueIds.isEmpty()) {
+			return Collections.emptyList();
+		}
+
+		final Date now = new Date();
+		final List<AppDataJob> timedoutJobs = new ArrayList<>();
+		for (final AppDataJob job : appCatJobService.findPendingByIds(dueIds)) {
+			if (job.getTimeoutDate() != null && job.getTimeoutDate().after(now)) {
+				// the timeout has been postponed meanwhile
+				timeoutScheduler.schedule(job.getId(), job.getTimeoutDate());
+			} else if (job.getTimeoutDate() != null) {
+				timedoutJobs.add(job);
+			}
+		}
+		LOGGER.debug("{} of {} scheduled AppDataJobs timed out", timedoutJobs.size(), dueIds.size());
+		return timedoutJobs;
+	}
+
+	/**
+	 * Pending jobs only need to be re-checked regularly, if the
+	 * PreparationWorkerService relies on the missing input index to find the jobs
+	 * waiting for a product
+	 */
+	private boolean isPendingJobsRecheckDue() {
+		final long intervalMs = prepProperties.getPendingJobsRecheckIntervalMs();
+		if (!missingInputIndex.isEnabled() || intervalMs <= 0) {
+			return false;
+		}
+		final long now = System.currentTimeMillis();
+		if (now - lastPendingJobsRecheck < intervalMs) {
+			return false;
+		}
+		lastPendingJobsRecheck = now;
+		return true;
+	}
+
 }
@@ -6,7 +6,15 @@ import java.util.Date;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
@@ -19,8 +27,11 @@ import esa.s1pdgs.cpoc.appcatalog.AppDataJobTaskInputs;
 import esa.s1pdgs.cpoc.appcatalog.util.AppDataJobProductAdapter;
 import esa.s1pdgs.cpoc.common.errors.processing.IpfPrepWorkerInputsMissingException;
 import esa.s1pdgs.cpoc.common.utils.Exceptions;
+import esa.s1pdgs.cpoc.common.utils.LogUtils;
 import esa.s1pdgs.cpoc.mqi.model.queue.IpfExecutionJob;
+import esa.s1pdgs.cpoc.preparation.worker.db.AppDataJobPatch;
 import esa.s1pdgs.cpoc.preparation.worker.model.exception.AppCatJobUpdateFailed;
+import esa.s1pdgs.cpoc.preparation.worker.model.exception.AppCatJobUpdateFailedException;
 import esa.s1pdgs.cpoc.preparation.worker.model.exception.AppCatalogJobNotFoundException;
 import esa.s1pdgs.cpoc.preparation.worker.model.exception.DiscardedException;
 import esa.s1pdgs.cpoc.preparation.worker.model.exception.JobStateTransistionFailed;
@@ -36,6 +47,11 @@ public class InputSearchService {
 
 	static final Logger LOGGER = LogManager.getLogger(InputSearchService.class);
 
+	/**
+	 * Number of locks the jobs are distributed on by their id
+	 */
+	private static final int LOCK_STRIPES = 64;
+
 	private ProductTypeAdapter typeAdapter;
 
 	private AuxQueryHandler auxQueryHandler;
@@ -46,72 +62,219 @@ public class InputSearchService {
 
 	private JobCreationService jobCreationService;
 
+	private MissingInputIndex missingInputIndex;
+
+	private final ExecutorService executor;
+
+	private final Lock[] jobLocks = new Lock[LOCK_STRIPES];
+
+	/**
+	 * Outcome of the check of a job. Checks not advancing the job are written
+	 * after all checks at once.
+	 */
+	private static final class JobCheck {
+		private final IpfExecutionJob executionJob;
+		private final AppDataJobPatch deferredPatch;
+
+		JobCheck(final IpfExecutionJob executionJob, final AppDataJobPatch deferredPatch) {
+			this.executionJob = executionJob;
+			this.deferredPatch = deferredPatch;
+		}
+	}
+
 	public InputSearchService(final ProductTypeAdapter typeAdapter, final AuxQueryHandler auxQueryHandler,
 			final Map<String, TaskTableAdapter> taskTableAdapters, final AppCatJobService appCatJobService,
-			final JobCreationService jobCreationService) {
+			final JobCreationService jobCreationService, final MissingInputIndex missingInputIndex,
+			final int nbThreads) {
 		this.typeAdapter = typeAdapter;
 		this.auxQueryHandler = auxQueryHandler;
 		this.taskTableAdapters = taskTableAdapters;
 		this.appCatJobService = appCatJobService;
 		this.jobCreationService = jobCreationService;
+		this.missingInputIndex = missingInputIndex;
+		this.executor = Executors.newFixedThreadPool(Math.max(1, nbThreads), new ThreadFactory() {
+			private final AtomicInteger count = new AtomicInteger();
+
+			@Override
+			public Thread newThread(final Runnable runnable) {
+				final Thread thread = new Thread(runnable, "input-search-" + count.incrementAndGet());
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+		for (int i = 0; i < jobLocks.length; i++) {
+			jobLocks[i] = new ReentrantLock();
+		}
 	}
 
-	public synchronized List<IpfExecutionJob> checkIfJobsAreReady(List<AppDataJob> appDataJobs) {
+	/**
+	 * Checks the given jobs in parallel. Each job is locked while being checked and
+	 * reloaded once locked, so a job given to concurrent calls is only advanced
+	 * once.
+	 */
+	public List<IpfExecutionJob> checkIfJobsAreReady(List<AppDataJob> appDataJobs) {
+
+		final List<Future<JobCheck>> futures = new ArrayList<>();
+		for (final AppDataJob job : appDataJobs) {
+			futures.add(executor.submit(() -> checkIfJobIsReady(job.getId())));
+		}
 
 		List<IpfExecutionJob> executionJobs = new ArrayList<>();
+		final List<AppDataJobPatch> deferredPatches = new ArrayList<>();
 
-		for (AppDataJob job : appDataJobs) {
+		for (final Future<JobCheck> future : futures) {
 			try {
-				if (job.getGeneration().getState() == AppDataJobGenerationState.INITIAL) {
-					try {
-						LOGGER.info("Start main input search for AppDataJob {}", job.getId());
-						job = mainInputSearch(job, taskTableAdapters.get(job.getTaskTableName()));
-					} catch (JobStateTransistionFailed e) {
-						LOGGER.info("Main input search did not complete successfully: {}", e.getMessage());
-					} catch (DiscardedException e) {
-						// Terminate Job
-						LOGGER.info("Received signal to discard job {}: {}", job.getId(), e.getMessage());
-						job.setState(AppDataJobState.TERMINATED);
-						job.setTimeoutDate(null);
-					}
+				final JobCheck check = future.get();
+				if (check == null) {
+					continue;
 				}
-	
-				if (job.getGeneration().getState() == AppDataJobGenerationState.PRIMARY_CHECK) {
-					try {
-						LOGGER.info("Start aux input search for AppDataJob {}", job.getId());
-						job = auxInputSearch(job, taskTableAdapters.get(job.getTaskTableName()));
-					} catch (JobStateTransistionFailed e) {
-						LOGGER.info("Aux input search did not complete successfully: {}", e.getMessage());
-					}
+				if (check.executionJob != null) {
+					executionJobs.add(check.executionJob);
 				}
-	
-				if (job.getGeneration().getState() == AppDataJobGenerationState.READY) {
-					try {
-						LOGGER.info("Start generating IpfExecutionJob for AppDataJob {}", job.getId());
-	
-						IpfExecutionJob executionJob = jobCreationService.createExecutionJob(job,
-								taskTableAdapters.get(job.getTaskTableName()));
-						if (executionJob != null) {
-							executionJobs.add(executionJob);
-						} else {
-							// TODO: Improve Error Handling
-							LOGGER.error("Could not generate ExecutionJob for AppDataJob {}", job.getId());
-						}
-					} catch (JobStateTransistionFailed e) {
-						LOGGER.info("Generation of IpfExecutionJob did not complete successfully: {}", e.getMessage());
-					}
+				if (check.deferredPatch != null) {
+					deferredPatches.add(check.deferredPatch);
 				}
+			} catch (final InterruptedException e) {
+				// the remaining checks still complete, their jobs are sent on the next check
+				LOGGER.warn("Interrupted while waiting for the check of AppDataJobs");
+				Thread.currentThread().interrupt();
+				break;
+			} catch (final ExecutionException e) {
+				LOGGER.error("An unexpected exception occured while checking AppDataJob: {}",
+						LogUtils.toString(e.getCause()));
+			}
+		}
+
+		try {
+			appCatJobService.patchJobs(deferredPatches);
+		} catch (final Exception e) {
+			// only the error counts and timeouts of jobs not advanced are lost
+			LOGGER.error("Error while saving the checks of {} AppDataJobs: {}", deferredPatches.size(),
+					LogUtils.toString(e));
+		}
 
-				// Update Job in Mongo
-				appCatJobService.updateJob(job);
+		return executionJobs;
+	}
+
+	public void shutdown() {
+		executor.shutdownNow();
+	}
+
+	private JobCheck checkIfJobIsReady(final long jobId) {
+		final Lock lock = jobLocks[(int) Math.floorMod(jobId, (long) jobLocks.length)];
+		lock.lock();
+		try {
+			AppDataJob job;
+			try {
+				// the job may have been advanced by a concurrent check meanwhile
+				job = appCatJobService.getJob(jobId);
 			} catch (AppCatalogJobNotFoundException e) {
-				LOGGER.error("Error while saving new state of AppDataJob {}: {}", job.getId(), e.getMessage());
-			} catch (Exception e) {
-				LOGGER.error("An unexpected exception occured while processing AppDataJob {}: {}", job.getId(), e.getMessage());
+				LOGGER.info("AppDataJob {} has been removed meanwhile", jobId);
+				return null;
+			}
+			if (job.getState() == AppDataJobState.TERMINATED
+					|| job.getGeneration().getState() == AppDataJobGenerationState.SENT) {
+				LOGGER.debug("AppDataJob {} has already been handled", jobId);
+				return null;
 			}
+			return checkIfJobIsReady(job);
+		} finally {
+			lock.unlock();
 		}
+	}
 
-		return executionJobs;
+	private JobCheck checkIfJobIsReady(AppDataJob job) {
+		IpfExecutionJob result = null;
+		final AppDataJobState initialState = job.getState();
+		final AppDataJobGenerationState initialGenerationState = job.getGeneration().getState();
+		boolean mainInputSearched = false;
+		boolean auxInputSearched = false;
+		try {
+			if (job.getGeneration().getState() == AppDataJobGenerationState.INITIAL) {
+				mainInputSearched = true;
+				try {
+					LOGGER.info("Start main input search for AppDataJob {}", job.getId());
+					job = mainInputSearch(job, taskTableAdapters.get(job.getTaskTableName()));
+				} catch (JobStateTransistionFailed e) {
+					LOGGER.info("Main input search did not complete successfully: {}", e.getMessage());
+				} catch (DiscardedException e) {
+					// Terminate Job
+					LOGGER.info("Received signal to discard job {}: {}", job.getId(), e.getMessage());
+					job.setState(AppDataJobState.TERMINATED);
+					job.setTimeoutDate(null);
+				}
+			}
+
+			if (job.getGeneration().getState() == AppDataJobGenerationState.PRIMARY_CHECK) {
+				auxInputSearched = true;
+				try {
+					LOGGER.info("Start aux input search for AppDataJob {}", job.getId());
+					job = auxInputSearch(job, taskTableAdapters.get(job.getTaskTableName()));
+				} catch (JobStateTransistionFailed e) {
+					LOGGER.info("Aux input search did not complete successfully: {}", e.getMessage());
+				}
+			}
+
+			if (job.getGeneration().getState() == AppDataJobGenerationState.READY) {
+				// a job modified meanwhile fails here, before its generation is reported
+				appCatJobService.claimJob(job);
+				try {
+					LOGGER.info("Start generating IpfExecutionJob for AppDataJob {}", job.getId());
+
+					IpfExecutionJob executionJob = jobCreationService.createExecutionJob(job,
+							taskTableAdapters.get(job.getTaskTableName()));
+					if (executionJob != null) {
+						result = executionJob;
+					} else {
+						// TODO: Improve Error Handling
+						LOGGER.error("Could not generate ExecutionJob for AppDataJob {}", job.getId());
+					}
+				} catch (JobStateTransistionFailed e) {
+					LOGGER.info("Generation of IpfExecutionJob did not complete successfully: {}", e.getMessage());
+				}
+			}
+
+			// Wake the job again on products it is still waiting for
+			missingInputIndex.update(job);
+
+			final boolean advanced = result != null || job.getState() != initialState
+					|| job.getGeneration().getState() != initialGenerationState;
+			if (!advanced) {
+				return new JobCheck(null, patchFor(AppDataJobPatch.ifGenerationState(job), job, mainInputSearched,
+						auxInputSearched));
+			}
+
+			// Update Job in Mongo
+			appCatJobService.patchJob(patchFor(AppDataJobPatch.of(job), job, mainInputSearched, auxInputSearched));
+		} catch (AppCatJobUpdateFailedException e) {
+			// the job is checked again with its new state
+			LOGGER.warn("Could not save new state of AppDataJob {}: {}", job.getId(), e.getMessage());
+			return null;
+		} catch (Exception e) {
+			LOGGER.error("An unexpected exception occured while processing AppDataJob {}: {}", job.getId(), e.getMessage());
+		}
+		return new JobCheck(result, null);
+	}
+
+	/**
+	 * Adds the fields the input searches may have changed to the patch, leaving
+	 * the catalog events and the preparation job untouched
+	 */
+	private static AppDataJobPatch patchFor(final AppDataJobPatch patch, final AppDataJob job,
+			final boolean mainInputSearched, final boolean auxInputSearched) {
+		patch.state(job.getState())
+				.generation(job.getGeneration())
+				.timeout(job.getTimeoutDate(), job.getTimedOut())
+				.lastUpdateDate(job.getLastUpdateDate());
+		if (mainInputSearched) {
+			patch.product(job.getProduct())
+					.validity(job.getStartTime(), job.getStopTime())
+					.preselectedInputs(job.getPreselectedInputs());
+		}
+		if (mainInputSearched || auxInputSearched) {
+			patch.additionalInputs(job.getAdditionalInputs());
+		}
+		return patch;
 	}
 
 	public AppDataJob mainInputSearch(AppDataJob job, TaskTableAdapter taskTableAdapter)
@@ -1,12 +1,17 @@
 package esa.s1pdgs.cpoc.preparation.worker.service;
 
 import static java.util.stream.Collectors.toList;
+import static java.util.stream.Collectors.toSet;
 
 import java.io.File;
 import java.io.IOException;
 import java.time.ZoneId;
+import java.util.ArrayList;
 import java.util.Date;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 import javax.xml.bind.JAXBException;
 
@@ -44,6 +49,8 @@ import esa.s1pdgs.cpoc.report.ReportingOutput;
 import esa.s1pdgs.cpoc.report.ReportingUtils;
 import esa.s1pdgs.cpoc.report.message.output.JobOrderReportingOutput;
 import esa.s1pdgs.cpoc.xml.model.joborder.JobOrderInputFile;
+import esa.s1pdgs.cpoc.xml.model.tasktable.TaskTablePool;
+import esa.s1pdgs.cpoc.xml.model.tasktable.TaskTableTask;
 import esa.s1pdgs.cpoc.xml.model.tasktable.enums.TaskTableInputOrigin;
 
 public class JobCreationService {
@@ -182,6 +189,7 @@ public class JobCreationService {
 			}
 
 			typeAdapter.customJobDto(job, execJob);
+			addTaskInputs(jobOrderAdapter, tasktableAdapter, execJob);
 			return execJob;
 		} catch (IOException | JAXBException e) {
 			throw new InternalErrorException("Cannot send the job", e);
@@ -210,6 +218,43 @@ public class JobCreationService {
 		});
 	}
 
+	/**
+	 * Declare the inputs each task needs, so the execution worker can launch it
+	 * as soon as they are downloaded. When the execution job has inputs which are
+	 * not in the job order, the tasks are left waiting for all the inputs.
+	 */
+	private void addTaskInputs(final JobOrderAdapter jobOrderAdapter, final TaskTableAdapter tasktableAdapter,
+			final IpfExecutionJob execJob) {
+		final Map<String, Set<String>> filenamesByTask = jobOrderAdapter.inputFilenamesByTask();
+		final List<String> localPaths = execJob.getInputs().stream()
+				.filter(input -> !ProductFamily.JOB_ORDER.name().equals(input.getFamily()))
+				.map(LevelJobInputDto::getLocalPath).collect(toList());
+
+		final Set<String> jobOrderFilenames = filenamesByTask.values().stream()
+				.flatMap(Set::stream).collect(toSet());
+		if (!jobOrderFilenames.containsAll(localPaths)) {
+			LOGGER.debug("Job {} has inputs outside of the job order, tasks will wait for all inputs",
+					execJob.getKeyObjectStorage());
+			return;
+		}
+
+		final Iterator<LevelJobPoolDto> poolDtos = execJob.getPools().iterator();
+		for (final TaskTablePool pool : tasktableAdapter.pools()) {
+			final Iterator<LevelJobTaskDto> taskDtos = poolDtos.next().getTasks().iterator();
+			for (final TaskTableTask task : pool.tasks().collect(toList())) {
+				final Set<String> filenames = filenamesByTask.get(task.getName());
+				if (filenames != null) {
+					// inputs produced by a previous pool are not downloaded
+					final List<String> taskInputs = new ArrayList<>(localPaths);
+					taskInputs.retainAll(filenames);
+					taskDtos.next().setInputs(taskInputs);
+				} else {
+					taskDtos.next();
+				}
+			}
+		}
+	}
+
 	private IpfExecutionJob addOqcFlags(final IpfExecutionJob execJob) {
 		for (final LevelJobOutputDto output : execJob.getOutputs()) {
 			// Iterate over the outputs and identify if an OQC check is required
@@ -0,0 +1,260 @@
+package esa.s1pdgs.cpoc.preparation.worker.service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Date;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.function.Function;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import esa.s1pdgs.cpoc.appcatalog.AppDataJob;
+import esa.s1pdgs.cpoc.appcatalog.AppDataJobGenerationState;
+import esa.s1pdgs.cpoc.appcatalog.AppDataJobInput;
+import esa.s1pdgs.cpoc.appcatalog.AppDataJobState;
+import esa.s1pdgs.cpoc.appcatalog.AppDataJobTaskInputs;
+import esa.s1pdgs.cpoc.common.utils.DateUtils;
+import esa.s1pdgs.cpoc.common.utils.LogUtils;
+import esa.s1pdgs.cpoc.mqi.model.queue.CatalogEvent;
+import esa.s1pdgs.cpoc.mqi.model.queue.util.CatalogEventAdapter;
+import esa.s1pdgs.cpoc.preparation.worker.db.MissingInputRepository;
+import esa.s1pdgs.cpoc.preparation.worker.model.missinginput.MissingInput;
+import esa.s1pdgs.cpoc.preparation.worker.tasktable.adapter.TaskTableAdapter;
+import esa.s1pdgs.cpoc.xml.model.tasktable.TaskTableInput;
+import esa.s1pdgs.cpoc.xml.model.tasktable.TaskTableInputAlternative;
+import esa.s1pdgs.cpoc.xml.model.tasktable.enums.TaskTableInputOrigin;
+
+/**
+ * Persisted reverse index from the products the pending AppDataJobs are still
+ * waiting for to the jobs, so a new product only has to wake the jobs it might
+ * complete.
+ * <p>
+ * Jobs waiting for their main input are indexed by their trigger products,
+ * restricted to their dataTakeId or sessionId if already known. Jobs waiting for
+ * auxiliary inputs are indexed by the product types of the missing inputs,
+ * restricted to the validity window of the selection policy if it is time
+ * bounded. The product types are the ones searched in the metadata catalog, so
+ * a product type mapped to a pattern (e.g. S[1-6]_RAW__0S) is kept as pattern
+ * and matched against the product type of each new product. All other pending
+ * jobs are indexed by their trigger products as before. As the index is only updated on checks of the jobs, the housekeeping
+ * re-checks all pending jobs periodically.
+ */
+public class MissingInputIndex {
+
+	static final Logger LOGGER = LogManager.getLogger(MissingInputIndex.class);
+
+	/**
+	 * Selection policies only selecting products intersecting the validity of the
+	 * job extended by the deltas of the alternative
+	 */
+	private static final Set<String> TIME_BOUNDED_RETRIEVAL_MODES = new TreeSet<>(
+			Arrays.asList("ValCover", "LatestValCover", "ValIntersect", "ValIntersectWithoutDuplicates"));
+
+	/**
+	 * Characters making a product type a regular expression, as in the metadata
+	 * search controller
+	 */
+	private static final Pattern REGEXP_SYNTAX = Pattern.compile("[.?+*|{}\\[\\]()\"\\\\#@&<>~]");
+
+	private static final Date MIN_DATE = new Date(0L);
+	private static final Date MAX_DATE = new Date(Long.MAX_VALUE);
+
+	private final MissingInputRepository repository;
+
+	private final Map<String, TaskTableAdapter> taskTableAdapters;
+
+	private final String pod;
+
+	private final boolean enabled;
+
+	public MissingInputIndex(final MissingInputRepository repository,
+			final Map<String, TaskTableAdapter> taskTableAdapters, final String pod, final boolean enabled) {
+		this.repository = repository;
+		this.taskTableAdapters = taskTableAdapters;
+		this.pod = pod;
+		this.enabled = enabled;
+	}
+
+	public boolean isEnabled() {
+		return enabled;
+	}
+
+	/**
+	 * Replaces the entries of the job by the ones of its current missing inputs.
+	 * Failures are only logged, as the job is re-checked by the housekeeping
+	 * anyway.
+	 */
+	public void update(final AppDataJob job) {
+		if (!enabled) {
+			return;
+		}
+		try {
+			repository.deleteByJobId(job.getId());
+			if (isPending(job)) {
+				final TaskTableAdapter taskTableAdapter = taskTableAdapters.get(job.getTaskTableName());
+				final List<MissingInput> entries = taskTableAdapter == null
+						? entriesFor(job, pod, null, null)
+						: entriesFor(job, pod, taskTableAdapter.taskTableInputs(),
+								alternative -> taskTableAdapter.metadataSearchQueryFor(alternative).getProductType());
+				LOGGER.debug("Indexing missing inputs of AppDataJob {}: {}", job.getId(), entries);
+				repository.saveAll(entries);
+			}
+		} catch (final Exception e) {
+			LOGGER.warn("Could not index missing inputs of AppDataJob {}: {}", job.getId(), LogUtils.toString(e));
+		}
+	}
+
+	public void remove(final long jobId) {
+		if (enabled) {
+			repository.deleteByJobId(jobId);
+		}
+	}
+
+	public void removeAll(final Collection<Long> jobIds) {
+		if (enabled && !jobIds.isEmpty()) {
+			repository.deleteByJobIdIn(jobIds);
+		}
+	}
+
+	/**
+	 * @return the ids of the jobs waiting for a product of one of the given types
+	 *         and the dataTakeId, sessionId and validity of the event
+	 */
+	public Set<Long> jobsWaitingFor(final CatalogEvent event, final Collection<String> productTypes) {
+		final CatalogEventAdapter eventAdapter = CatalogEventAdapter.of(event);
+		Date validityStart = toDate(eventAdapter.validityStartTime());
+		Date validityStop = toDate(eventAdapter.validityStopTime());
+		if (validityStart == null || validityStop == null) {
+			validityStart = toDate(eventAdapter.startTime());
+			validityStop = toDate(eventAdapter.stopTime());
+		}
+		if (validityStart == null || validityStop == null) {
+			validityStart = MIN_DATE;
+			validityStop = MAX_DATE;
+		}
+
+		final Set<Long> jobIds = new LinkedHashSet<>();
+		for (final MissingInput entry : repository.findSatisfiableBy(pod, productTypes,
+				defined(eventAdapter.datatakeId()), defined(eventAdapter.sessionId()), validityStart, validityStop)) {
+			if (!entry.isPattern() || matchesAny(entry.getProductType(), productTypes)) {
+				jobIds.add(entry.getJobId());
+			}
+		}
+		return jobIds;
+	}
+
+	static boolean isPattern(final String productType) {
+		return productType != null && REGEXP_SYNTAX.matcher(productType).find();
+	}
+
+	private static boolean matchesAny(final String pattern, final Collection<String> productTypes) {
+		try {
+			final Pattern compiled = Pattern.compile(pattern);
+			for (final String productType : productTypes) {
+				if (productType != null && compiled.matcher(productType).matches()) {
+					return true;
+				}
+			}
+		} catch (final PatternSyntaxException e) {
+			LOGGER.warn("Ignoring invalid product type pattern {}: {}", pattern, e.getMessage());
+		}
+		return false;
+	}
+
+	static List<MissingInput> entriesFor(final AppDataJob job, final String pod,
+			final Map<String, TaskTableInput> taskTableInputs,
+			final Function<TaskTableInputAlternative, String> productTypeOf) {
+		final Set<MissingInput> entries = new LinkedHashSet<>();
+		final AppDataJobGenerationState state = job.getGeneration().getState();
+
+		if (state == AppDataJobGenerationState.PRIMARY_CHECK && taskTableInputs != null) {
+			final Date jobStart = toDate(job.getStartTime());
+			final Date jobStop = toDate(job.getStopTime());
+			for (final AppDataJobInput input : missingInputsOf(job)) {
+				final TaskTableInput taskTableInput = taskTableInputs.get(input.getTaskTableInputReference());
+				if (taskTableInput == null) {
+					continue;
+				}
+				for (final TaskTableInputAlternative alternative : taskTableInput.getAlternatives()) {
+					if (alternative.getOrigin() != TaskTableInputOrigin.DB) {
+						continue;
+					}
+					final String productType = productTypeOf.apply(alternative);
+					final MissingInput entry = new MissingInput(job.getId(), pod, productType);
+					entry.setPattern(isPattern(productType));
+					if (jobStart != null && jobStop != null && alternative.getRetrievalMode() != null
+							&& TIME_BOUNDED_RETRIEVAL_MODES.contains(alternative.getRetrievalMode().trim())) {
+						entry.setStartTime(plusSeconds(jobStart, -alternative.getDeltaTime0()));
+						entry.setStopTime(plusSeconds(jobStop, alternative.getDeltaTime1()));
+					}
+					entries.add(entry);
+				}
+			}
+		}
+
+		// main input or unknown missing inputs: wait for the trigger products
+		if (entries.isEmpty()) {
+			final boolean mainInputSearch = state == AppDataJobGenerationState.INITIAL;
+			for (final String triggerProduct : job.getTriggerProducts()) {
+				final MissingInput entry = new MissingInput(job.getId(), pod, triggerProduct);
+				if (mainInputSearch) {
+					entry.setDataTakeId(defined(Objects.toString(job.getProduct().getMetadata().get("dataTakeId"), null)));
+					entry.setSessionId(defined(Objects.toString(job.getProduct().getMetadata().get("sessionId"), null)));
+				}
+				entries.add(entry);
+			}
+		}
+		return new ArrayList<>(entries);
+	}
+
+	private static boolean isPending(final AppDataJob job) {
+		return job.getState() != AppDataJobState.TERMINATED && job.getGeneration() != null
+				&& job.getGeneration().getState() != AppDataJobGenerationState.SENT;
+	}
+
+	private static List<AppDataJobInput> missingInputsOf(final AppDataJob job) {
+		final List<AppDataJobInput> result = new ArrayList<>();
+		if (job.getAdditionalInputs() != null) {
+			for (final AppDataJobTaskInputs taskInputs : job.getAdditionalInputs()) {
+				for (final AppDataJobInput input : taskInputs.getInputs()) {
+					if (!input.getHasResults()) {
+						result.add(input);
+					}
+				}
+			}
+		}
+		return result;
+	}
+
+	private static Date plusSeconds(final Date date, final double seconds) {
+		return new Date(date.getTime() + Math.round(seconds) * 1000L);
+	}
+
+	private static String defined(final String value) {
+		if (value == null || value.isEmpty() || CatalogEventAdapter.NOT_DEFINED.equals(value)) {
+			return null;
+		}
+		return value;
+	}
+
+	private static Date toDate(final String value) {
+		if (defined(value) == null) {
+			return null;
+		}
+		try {
+			return DateUtils.toDate(value);
+		} catch (final RuntimeException e) {
+			LOGGER.trace("Ignoring unparsable date {}", value);
+			return null;
+		}
+	}
+}
@@ -3,9 +3,11 @@ package esa.s1pdgs.cpoc.preparation.worker.service;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Date;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map.Entry;
 import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
 import java.util.function.Function;
 import java.util.stream.Collectors;
@@ -54,10 +56,12 @@ public class PreparationWorkerService implements Function<CatalogEvent, List<Mes
 
 	private PreparationWorkerProperties workerProperties;
 
+	private MissingInputIndex missingInputIndex;
+
 	public PreparationWorkerService(final TaskTableMapperService taskTableService, final ProductTypeAdapter typeAdapter,
 			final ProcessProperties properties, final AppCatJobService appCat,
 			final InputSearchService inputSearchService, final CommonConfigurationProperties commonProperties,
-			final PreparationWorkerProperties workerProperties) {
+			final PreparationWorkerProperties workerProperties, final MissingInputIndex missingInputIndex) {
 		this.taskTableService = taskTableService;
 		this.typeAdapter = typeAdapter;
 		this.processProperties = properties;
@@ -65,6 +69,7 @@ public class PreparationWorkerService implements Function<CatalogEvent, List<Mes
 		this.inputSearchService = inputSearchService;
 		this.commonProperties = commonProperties;
 		this.workerProperties = workerProperties;
+		this.missingInputIndex = missingInputIndex;
 	}
 
 	@Override
@@ -107,7 +112,12 @@ public class PreparationWorkerService implements Function<CatalogEvent, List<Mes
 				}
 			}
 
-			List<AppDataJob> appDataJobs = appCatJobService.findByTriggerProduct(triggerString);
+			final List<AppDataJob> appDataJobs;
+			if (missingInputIndex.isEnabled()) {
+				appDataJobs = findJobsWaitingFor(catalogEvent, triggerString);
+			} else {
+				appDataJobs = appCatJobService.findByTriggerProduct(triggerString);
+			}
 
 			// Check if jobs are ready
 			result = inputSearchService.checkIfJobsAreReady(appDataJobs);
@@ -128,6 +138,28 @@ public class PreparationWorkerService implements Function<CatalogEvent, List<Mes
 		}
 	}
 
+	/**
+	 * Returns the jobs the event has been associated to and the jobs waiting for a
+	 * product like the one of the event
+	 */
+	private List<AppDataJob> findJobsWaitingFor(final CatalogEvent catalogEvent, final String triggerString) {
+		final Set<String> productTypes = new LinkedHashSet<>();
+		productTypes.add(catalogEvent.getMetadataProductType());
+		productTypes.add(triggerString);
+
+		final Set<Long> jobIds = new LinkedHashSet<>();
+		for (final AppDataJob job : appCatJobService.findByCatalogEventsUid(catalogEvent.getUid())) {
+			jobIds.add(job.getId());
+		}
+		jobIds.addAll(missingInputIndex.jobsWaitingFor(catalogEvent, productTypes));
+
+		LOGGER.debug("Product {} of type {} wakes AppDataJobs {}", catalogEvent.getProductName(), productTypes, jobIds);
+		if (jobIds.isEmpty()) {
+			return Collections.emptyList();
+		}
+		return appCatJobService.findPendingByIds(jobIds);
+	}
+
 	public final List<AppDataJob> dispatch(final IpfPreparationJob preparationJob) throws Exception {
 
 		final List<AppDataJob> jobs = typeAdapter.createAppDataJobs(preparationJob);
@@ -159,7 +191,7 @@ public class PreparationWorkerService implements Function<CatalogEvent, List<Mes
 		final CatalogEvent firstEvent = firstJob.getCatalogEvents().get(0);
 		final List<AppDataJob> jobForMess = appCatJobService.findByCatalogEventsUid(firstEvent.getUid());
 
-		List<AppDataJob> dispatchedJobs = new ArrayList<>();
+		final List<AppDataJob> newJobs = new ArrayList<>();
 
 		// there is already a job for this message --> possible restart scenario -->
 		// just update the pod name
@@ -197,14 +229,20 @@ public class PreparationWorkerService implements Function<CatalogEvent, List<Mes
 					job.setState(AppDataJobState.GENERATING); // will activate that this request can be polled
 					job.setPod(processProperties.getHostname());
 
-					LOGGER.info("Try to save new job in MongoDB...");
-					final AppDataJob newlyCreatedJob = appCatJobService.newJob(job);
-					LOGGER.info("dispatched job {}", newlyCreatedJob.getId());
-					dispatchedJobs.add(newlyCreatedJob);
+					newJobs.add(job);
 				}
 			}
 		}
 
+		// the new jobs of the message are saved at once
+		if (newJobs.isEmpty()) {
+			return newJobs;
+		}
+		LOGGER.info("Try to save {} new jobs in MongoDB...", newJobs.size());
+		final List<AppDataJob> dispatchedJobs = appCatJobService.newJobs(newJobs);
+		for (final AppDataJob newlyCreatedJob : dispatchedJobs) {
+			LOGGER.info("dispatched job {}", newlyCreatedJob.getId());
+		}
 		return dispatchedJobs;
 	}
 
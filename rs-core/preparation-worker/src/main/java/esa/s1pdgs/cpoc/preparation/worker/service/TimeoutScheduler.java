@@ -0,0 +1,178 @@
+package esa.s1pdgs.cpoc.preparation.worker.service;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.function.LongSupplier;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import esa.s1pdgs.cpoc.appcatalog.AppDataJob;
+
+/**
+ * Queue of the AppDataJobs of the pod ordered by their timeout, so the
+ * housekeeping only wakes the jobs whose timeout has passed.
+ * <p>
+ * The queue is reloaded periodically with the jobs timing out within twice the
+ * refresh interval, reading only their ids and timeout dates. A timeout set
+ * less than one refresh interval ahead and not given to
+ * {@link #schedule(long, Date)} is handled with the next reload.
+ * <p>
+ * At most the capacity of jobs is loaded at once. If more jobs time out within
+ * the reload, the next ones are loaded after the last loaded timeout date and
+ * id once the loaded ones are handled, so jobs staying timed out cannot keep
+ * the later ones out of the queue. The next reload only starts over once all
+ * of them have been loaded.
+ */
+public class TimeoutScheduler {
+
+	static final Logger LOGGER = LogManager.getLogger(TimeoutScheduler.class);
+
+	@FunctionalInterface
+	interface ScheduleLoader {
+		/**
+		 * @return at most the given number of jobs timing out before the given date,
+		 *         after the given timeout date and id if the date is not null,
+		 *         ordered by timeout date and id
+		 */
+		List<AppDataJob> load(Date until, Date afterTimeoutDate, long afterId, int limit);
+	}
+
+	private static final class Entry {
+		private final long jobId;
+		private final long deadline;
+
+		Entry(final long jobId, final long deadline) {
+			this.jobId = jobId;
+			this.deadline = deadline;
+		}
+	}
+
+	private final ScheduleLoader loader;
+
+	private final long refreshIntervalMs;
+
+	private final int capacity;
+
+	private final LongSupplier clock;
+
+	private final PriorityQueue<Entry> queue = new PriorityQueue<>(
+			Comparator.comparingLong((Entry e) -> e.deadline));
+
+	// current deadline per job, entries of the queue with another deadline are stale
+	private final Map<Long, Long> deadlines = new HashMap<>();
+
+	private long nextRefresh = Long.MIN_VALUE;
+
+	private long horizon = Long.MIN_VALUE;
+
+	// end of the time frame of the current reload
+	private long until;
+
+	private boolean truncated;
+
+	// timeout date and id of the last job loaded by a truncated reload
+	private Date lastLoadedTimeout;
+
+	private long lastLoadedId;
+
+	public TimeoutScheduler(final AppCatJobService appCatJobService, final long refreshIntervalMs,
+			final int capacity) {
+		this(appCatJobService::findTimeoutSchedule, refreshIntervalMs, capacity, System::currentTimeMillis);
+	}
+
+	TimeoutScheduler(final ScheduleLoader loader, final long refreshIntervalMs, final int capacity,
+			final LongSupplier clock) {
+		this.loader = loader;
+		this.refreshIntervalMs = Math.max(1, refreshIntervalMs);
+		this.capacity = Math.max(1, capacity);
+		this.clock = clock;
+	}
+
+	/**
+	 * @return the ids of at most the given number of jobs whose timeout has
+	 *         passed, the earliest first. The other ones are kept for the next
+	 *         calls.
+	 */
+	public synchronized List<Long> pollDue(final int max) {
+		final long now = clock.getAsLong();
+		if (truncated) {
+			if (queue.isEmpty()) {
+				load();
+			}
+		} else if (now >= nextRefresh) {
+			refresh(now);
+		}
+		final List<Long> due = new ArrayList<>();
+		while (due.size() < max && !queue.isEmpty() && queue.peek().deadline <= now) {
+			final Entry entry = queue.poll();
+			final Long deadline = deadlines.get(entry.jobId);
+			if (deadline != null && deadline == entry.deadline) {
+				deadlines.remove(entry.jobId);
+				due.add(entry.jobId);
+			}
+		}
+		return due;
+	}
+
+	/**
+	 * Schedules the job for its current timeout, replacing the previous one
+	 */
+	public synchronized void schedule(final long jobId, final Date timeoutDate) {
+		if (timeoutDate == null) {
+			deadlines.remove(jobId);
+			return;
+		}
+		final long deadline = timeoutDate.getTime();
+		// later timeouts are loaded by a next refresh
+		if (deadline < horizon) {
+			deadlines.put(jobId, deadline);
+			queue.add(new Entry(jobId, deadline));
+		} else {
+			deadlines.remove(jobId);
+		}
+	}
+
+	public synchronized int size() {
+		return deadlines.size();
+	}
+
+	private void refresh(final long now) {
+		until = now + 2 * refreshIntervalMs;
+		nextRefresh = now + refreshIntervalMs;
+		queue.clear();
+		deadlines.clear();
+		lastLoadedTimeout = null;
+		load();
+	}
+
+	/**
+	 * Loads the jobs of the current reload following the last loaded one, if any
+	 */
+	private void load() {
+		final List<AppDataJob> jobs = loader.load(new Date(until), lastLoadedTimeout, lastLoadedId, capacity);
+		for (final AppDataJob job : jobs) {
+			if (job.getTimeoutDate() != null) {
+				deadlines.put(job.getId(), job.getTimeoutDate().getTime());
+				queue.add(new Entry(job.getId(), job.getTimeoutDate().getTime()));
+			}
+		}
+		truncated = jobs.size() >= capacity;
+		if (truncated) {
+			// the jobs timing out later are only known once the loaded ones are handled
+			final AppDataJob last = jobs.get(jobs.size() - 1);
+			lastLoadedTimeout = last.getTimeoutDate();
+			lastLoadedId = last.getId();
+			horizon = lastLoadedTimeout.getTime();
+		} else {
+			lastLoadedTimeout = null;
+			horizon = until;
+		}
+		LOGGER.debug("Loaded {} AppDataJobs timing out before {}", deadlines.size(), new Date(horizon));
+	}
+}
@@ -3,9 +3,11 @@ package esa.s1pdgs.cpoc.preparation.worker.util;
 import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
 
 import javax.xml.parsers.ParserConfigurationException;
 import javax.xml.xpath.XPathExpressionException;
@@ -18,6 +20,9 @@ import org.locationtech.jts.geom.Geometry;
 import org.locationtech.jts.geom.GeometryFactory;
 import org.locationtech.jts.geom.LinearRing;
 import org.locationtech.jts.geom.Polygon;
+import org.locationtech.jts.geom.prep.PreparedGeometry;
+import org.locationtech.jts.geom.prep.PreparedGeometryFactory;
+import org.locationtech.jts.index.strtree.STRtree;
 import org.xml.sax.SAXException;
 
 import esa.s1pdgs.cpoc.common.MaskType;
@@ -27,34 +32,79 @@ public class GeoIntersection {
 	
 	private static final Logger LOG = LogManager.getLogger(GeoIntersection.class);
 	
+	/**
+	 * Mask polygons in a spatial index, shared by all instances loading the same
+	 * version of a mask file
+	 */
+	static final class MaskIndex {
+		private final STRtree tree = new STRtree();
+		private final int size;
+		private final long lastModified;
+
+		MaskIndex(final List<Polygon> polygons, final long lastModified) {
+			this.lastModified = lastModified;
+			for (final Polygon polygon : polygons) {
+				tree.insert(polygon.getEnvelopeInternal(), PreparedGeometryFactory.prepare(polygon));
+			}
+			tree.build();
+			size = polygons.size();
+		}
+
+		@SuppressWarnings("unchecked")
+		List<PreparedGeometry> candidatesFor(final Geometry geometry) {
+			return tree.query(geometry.getEnvelopeInternal());
+		}
+
+		int size() {
+			return size;
+		}
+	}
+
+	/**
+	 * Index of the last loaded version of each mask file, by mask type and path
+	 */
+	static final Map<String, MaskIndex> MASK_INDEXES = new ConcurrentHashMap<>();
+	
 	private final File maskFile;
 	
 	private final MaskType maskType;
 	
-	private final List<Polygon> maskPolygos;
+	private MaskIndex maskIndex = new MaskIndex(Collections.emptyList(), 0L);
 	
 	public GeoIntersection(final File maskFile, final MaskType maskType) {
 	
 		this.maskFile = maskFile;
 		this.maskType = maskType;
-		this.maskPolygos = new ArrayList<>();
 	}
 	
 	
 	public void loadMaskFile() throws XPathExpressionException, ParserConfigurationException, SAXException, IOException {
-		
+		final String key = maskType + ":" + maskFile.getAbsolutePath();
+		final long lastModified = maskFile.lastModified();
+		final MaskIndex cached = MASK_INDEXES.get(key);
+		if (cached != null && cached.lastModified == lastModified) {
+			LOG.info("using {} {} polygons already loaded from {}", cached.size(), maskType, maskFile);
+			maskIndex = cached;
+			return;
+		}
+
 		final List<Map<String, Object>> featureCollection = new MaskExtractor().extract(maskFile);
 		
 		LOG.info("loading {} {} polygons", featureCollection.size(), maskType.toString());
+		final List<Polygon> maskPolygons = new ArrayList<>();
 		for (final Map<String, Object> feature : featureCollection) {
 			LOG.trace("{} json: {}", maskType, feature.toString());
 			@SuppressWarnings("unchecked")
 			final Map<String, Object> geometry = (Map<String, Object>) feature.get("geometry");
 			Optional<Polygon> polygon = extractPolygon(geometry);
 			if (polygon.isPresent()) {
-				maskPolygos.add(polygon.get());
+				maskPolygons.add(polygon.get());
 			}
 		}
+		// replaces the index of a previous version of the file
+		maskIndex = MASK_INDEXES.compute(key, (k, current) -> current != null && current.lastModified == lastModified
+				? current
+				: new MaskIndex(maskPolygons, lastModified));
 	}
 	
 	public long getCoverage(CatalogEvent catalogEvent) {
@@ -65,11 +115,16 @@ public class GeoIntersection {
 		Optional<Polygon> polygon = extractPolygonFrom(catalogEvent); 
 		
 		if (polygon.isPresent()) {
+			final Polygon footprint = polygon.get();
+			final PreparedGeometry preparedFootprint = PreparedGeometryFactory.prepare(footprint);
 			
-			for (Polygon maskPolygon: maskPolygos) {
-				if (polygon.get().intersects(maskPolygon)) {
-					Geometry intersection = polygon.get().intersection(maskPolygon);
-					intersectionArea += (100.0 * intersection.getArea() / polygon.get().getArea());
+			// only mask polygons with an overlapping envelope can intersect
+			for (final PreparedGeometry maskPolygon : maskIndex.candidatesFor(footprint)) {
+				if (preparedFootprint.covers(maskPolygon.getGeometry())) {
+					intersectionArea += (100.0 * maskPolygon.getGeometry().getArea() / footprint.getArea());
+				} else if (maskPolygon.intersects(footprint)) {
+					Geometry intersection = footprint.intersection(maskPolygon.getGeometry());
+					intersectionArea += (100.0 * intersection.getArea() / footprint.getArea());
 				}
 			}
 			coverage = 100 - Math.round(intersectionArea);
@@ -85,8 +140,8 @@ public class GeoIntersection {
 		
 		if (polygon.isPresent()) {
 			
-			for (Polygon maskPolygon: maskPolygos) {
-				if (polygon.get().intersects(maskPolygon)) {
+			for (final PreparedGeometry maskPolygon : maskIndex.candidatesFor(polygon.get())) {
+				if (maskPolygon.intersects(polygon.get())) {
 					intersects = true;
 					break;
 				}
@@ -95,6 +150,10 @@ public class GeoIntersection {
 		return intersects;
 	}
 	
+	MaskIndex maskIndex() {
+		return maskIndex;
+	}
+	
 	private Optional<Polygon> extractPolygonFrom(CatalogEvent catalogEvent) {
 		@SuppressWarnings("unchecked")
 		final Map<String, Object> sliceCoordinates = (Map<String, Object>) catalogEvent.getMetadata().get("sliceCoordinates");
@@ -0,0 +1,92 @@
+package esa.s1pdgs.cpoc.preparation.worker.db;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+
+import org.bson.Document;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.MockitoAnnotations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+
+import com.mongodb.client.result.UpdateResult;
+
+import esa.s1pdgs.cpoc.appcatalog.AppDataJob;
+import esa.s1pdgs.cpoc.appcatalog.AppDataJobGeneration;
+import esa.s1pdgs.cpoc.appcatalog.AppDataJobGenerationState;
+import esa.s1pdgs.cpoc.appcatalog.AppDataJobState;
+
+public class AppDataJobPatchTest {
+
+	@Mock
+	private MongoTemplate mongoClient;
+
+	private AppDataJobPatchDaoImp dao;
+
+	private AppDataJob job;
+
+	@Before
+	public void init() {
+		MockitoAnnotations.initMocks(this);
+		dao = new AppDataJobPatchDaoImp(mongoClient);
+		job = new AppDataJob(12L);
+		final AppDataJobGeneration generation = new AppDataJobGeneration();
+		generation.setState(AppDataJobGenerationState.PRIMARY_CHECK);
+		job.setGeneration(generation);
+	}
+
+	private void mockMatched(final long matched) {
+		final UpdateResult result = mock(UpdateResult.class);
+		doReturn(matched).when(result).getMatchedCount();
+		doReturn(result).when(mongoClient).updateFirst(Mockito.any(), Mockito.any(), Mockito.eq(AppDataJob.class));
+	}
+
+	@Test
+	public void testVersionedPatch() {
+		job.setVersion(3L);
+		final AppDataJobPatch patch = AppDataJobPatch.of(job).state(AppDataJobState.TERMINATED);
+
+		final Document query = patch.query().getQueryObject();
+		assertEquals(12L, query.get("_id"));
+		assertEquals(3L, query.get("version"));
+		final Document update = patch.update().getUpdateObject();
+		assertEquals(new Document("version", 1), update.get("$inc"));
+		assertEquals(new Document("state", AppDataJobState.TERMINATED), update.get("$set"));
+		// catalog events and other fields are not written
+		assertEquals(2, update.size());
+	}
+
+	@Test
+	public void testVersionedPatchOfJobWithoutVersion() {
+		final Document query = AppDataJobPatch.of(job).query().getQueryObject();
+		assertTrue(query.containsKey("$or"));
+		assertFalse(query.containsKey("version"));
+	}
+
+	@Test
+	public void testGenerationStatePatch() {
+		final AppDataJobPatch patch = AppDataJobPatch.ifGenerationState(job).lastUpdateDate(null);
+
+		assertEquals(AppDataJobGenerationState.PRIMARY_CHECK, patch.query().getQueryObject().get("generation.state"));
+		assertFalse(patch.update().getUpdateObject().containsKey("$inc"));
+	}
+
+	@Test
+	public void testPatchAppliedIncrementsVersion() {
+		mockMatched(1L);
+		assertTrue(dao.patch(AppDataJobPatch.of(job).state(AppDataJobState.TERMINATED)));
+		assertEquals(1L, job.getVersion());
+	}
+
+	@Test
+	public void testPatchOfModifiedJob() {
+		mockMatched(0L);
+		assertFalse(dao.patch(AppDataJobPatch.of(job).state(AppDataJobState.TERMINATED)));
+		assertEquals(0L, job.getVersion());
+	}
+}
@@ -2,6 +2,10 @@ package esa.s1pdgs.cpoc.preparation.worker.db;
 
 import static org.junit.Assert.assertEquals;
 import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import java.util.Arrays;
 
 import org.junit.Before;
 import org.junit.Test;
@@ -43,4 +47,35 @@ public class SequenceDaoImplTest {
                 Mockito.any(), Mockito.any(FindAndModifyOptions.class), Mockito.any());
         assertEquals(125L, dao.getNextSequenceId("key"));
     }
+
+    private SequenceId sequence(final long value) {
+        SequenceId seq = new SequenceId();
+        seq.setId("key");
+        seq.setSeq(value);
+        return seq;
+    }
+
+    @Test
+    public void testGetSequenceFromBlock() {
+        dao = new SequenceDaoImp(mongoClient, 10);
+        doReturn(sequence(130L), sequence(140L)).when(mongoClient).findAndModify(Mockito.any(),
+                Mockito.any(), Mockito.any(FindAndModifyOptions.class), Mockito.any());
+        for (long expected = 121L; expected <= 131L; expected++) {
+            assertEquals(expected, dao.getNextSequenceId("key"));
+        }
+        // a new block is reserved once the first one is used
+        verify(mongoClient, times(2)).findAndModify(Mockito.any(),
+                Mockito.any(), Mockito.any(FindAndModifyOptions.class), Mockito.any());
+    }
+
+    @Test
+    public void testGetSequencesLargerThanBlock() {
+        dao = new SequenceDaoImp(mongoClient, 2);
+        doReturn(sequence(2L), sequence(6L)).when(mongoClient).findAndModify(Mockito.any(),
+                Mockito.any(), Mockito.any(FindAndModifyOptions.class), Mockito.any());
+        assertEquals(Arrays.asList(1L), dao.getNextSequenceIds("key", 1));
+        assertEquals(Arrays.asList(2L, 3L, 4L, 5L, 6L), dao.getNextSequenceIds("key", 5));
+        verify(mongoClient, times(2)).findAndModify(Mockito.any(),
+                Mockito.any(), Mockito.any(FindAndModifyOptions.class), Mockito.any());
+    }
 }
@@ -45,6 +45,7 @@ import esa.s1pdgs.cpoc.common.errors.processing.MetadataQueryException;
 import esa.s1pdgs.cpoc.metadata.client.MetadataClient;
 import esa.s1pdgs.cpoc.metadata.client.SearchMetadataQuery;
 import esa.s1pdgs.cpoc.metadata.model.SearchMetadata;
+import esa.s1pdgs.cpoc.metadata.model.SelectionPolicyResult;
 import esa.s1pdgs.cpoc.preparation.worker.config.ProcessProperties;
 import esa.s1pdgs.cpoc.preparation.worker.model.ProductMode;
 import esa.s1pdgs.cpoc.preparation.worker.tasktable.adapter.ElementMapper;
@@ -199,6 +200,52 @@ public class AuxQueryTest {
                 hasInputs("AUX_OBMEMC_RESULT"));
     }
 
+    @Test
+    public void callInBatch() throws Exception {
+
+        final File xmlFile = new File("./test/data/generic_config/task_tables/TaskTable.AIOP.xml");
+
+        final TaskTableAdapter taskTableAdapter = new TaskTableAdapter(
+                xmlFile,
+                taskTableFactory.buildTaskTable(xmlFile, processSettings.getLevel(), ""),
+                elementMapper,
+                ProductMode.ALWAYS
+        );
+
+        final AppDataJob job = new AppDataJob(133L);
+        job.setStartTime("2020-07-13T12:20:00.000000Z");
+        job.setStopTime("2020-07-13T12:25:00.000000Z");
+        final AppDataJobProduct product = new AppDataJobProduct();
+        product.getMetadata().put("satelliteId", "S1A");
+
+        job.setProduct(product);
+
+        when(metadataClient.searchAll(any(), any(), any(), any(), anyInt(), any(), any())).thenAnswer(invocation -> {
+            final List<SearchMetadataQuery> queries = invocation.getArgument(0);
+            return queries.stream().map(query -> "MPL_ORBSCT".equals(query.getProductType())
+                    ? SelectionPolicyResult.failed("failed")
+                    : SelectionPolicyResult.found(singletonList(new SearchMetadata(query.getProductType() + "_RESULT",
+                            "aux", "aux", "2020-07-13T12:20:00.000000Z", "2020-07-13T12:25:00.000000Z", "S1A", "S1A",
+                            "")))).collect(toList());
+        });
+        when(inputTimeoutChecker.apply(any())).thenReturn(InputTimeoutChecker.NULL);
+
+        //actual test
+        final List<AppDataJobTaskInputs> appDataJobTaskInputs = new AuxQueryHandler(
+                new AuxSearch(metadataClient, Runnable::run, 0L, System::currentTimeMillis, true),
+                ProductMode.SLICING, inputTimeoutChecker).queryFor(job, taskTableAdapter).queryAux();
+
+        //the three distinct alternatives of the task table are searched in a single call
+        verify(metadataClient, times(1)).searchAll(argThat(queries -> queries.size() == 3),
+                eq("2020-07-13T12:20:00.000000Z"), eq("2020-07-13T12:25:00.000000Z"), any(), anyInt(), any(), any());
+        verify(metadataClient, times(0)).search(any(), any(), any(), any(), anyInt(), any(), any());
+
+        //the failed search does not prevent the others from being used
+        assertThat(inputsForTask(
+                "AIOP_LIST_APP:01.00", appDataJobTaskInputs),
+                hasInputs("AUX_OBMEMC_RESULT"));
+    }
+
     @Test
     public void callWithMultipleAlternativesAndRefInputs() throws Exception {
 
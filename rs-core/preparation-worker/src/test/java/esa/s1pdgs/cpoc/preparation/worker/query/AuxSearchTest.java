@@ -0,0 +1,169 @@
+package esa.s1pdgs.cpoc.preparation.worker.query;
+
+import static java.util.Arrays.asList;
+import static java.util.Collections.emptyList;
+import static java.util.Collections.singletonList;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.Test;
+
+import esa.s1pdgs.cpoc.common.ProductFamily;
+import esa.s1pdgs.cpoc.common.errors.processing.MetadataQueryException;
+import esa.s1pdgs.cpoc.metadata.client.MetadataClient;
+import esa.s1pdgs.cpoc.metadata.client.SearchMetadataQuery;
+import esa.s1pdgs.cpoc.metadata.model.SearchMetadata;
+import esa.s1pdgs.cpoc.metadata.model.SelectionPolicyResult;
+
+public class AuxSearchTest {
+
+	private final List<Runnable> pending = new ArrayList<>();
+
+	private final AtomicLong now = new AtomicLong(1000L);
+
+	private final AtomicInteger calls = new AtomicInteger();
+
+	private final AuxSearch uut = new AuxSearch(null, pending::add, 100L, now::get, true);
+
+	@Test
+	public void testIdenticalSearchesAreCoalesced() {
+		final List<SearchMetadata> found = singletonList(new SearchMetadata());
+
+		final CompletableFuture<List<SearchMetadata>> first = uut.search("key", () -> count(found));
+		final CompletableFuture<List<SearchMetadata>> second = uut.search("key", () -> count(found));
+		final CompletableFuture<List<SearchMetadata>> other = uut.search("other", () -> count(found));
+		assertSame(first, second);
+		assertEquals(2, pending.size());
+
+		pending.forEach(Runnable::run);
+		assertEquals(2, calls.get());
+		assertSame(found, first.join());
+		assertSame(found, other.join());
+	}
+
+	@Test
+	public void testNonEmptyResultIsCachedUntilExpiry() {
+		final List<SearchMetadata> found = singletonList(new SearchMetadata());
+		uut.search("key", () -> count(found));
+		pending.forEach(Runnable::run);
+		pending.clear();
+
+		now.addAndGet(99L);
+		assertSame(found, uut.search("key", () -> count(found)).join());
+		assertTrue(pending.isEmpty());
+
+		now.addAndGet(1L);
+		uut.search("key", () -> count(found));
+		assertEquals(1, pending.size());
+	}
+
+	@Test
+	public void testEmptyResultIsNotCached() {
+		uut.search("key", () -> count(emptyList()));
+		pending.forEach(Runnable::run);
+		pending.clear();
+
+		uut.search("key", () -> count(emptyList()));
+		assertEquals(1, pending.size());
+	}
+
+	@Test(expected = CompletionException.class)
+	public void testFailureIsPropagated() {
+		final CompletableFuture<List<SearchMetadata>> result = uut.search("key", () -> {
+			throw new MetadataQueryException("failed");
+		});
+		pending.forEach(Runnable::run);
+		pending.clear();
+
+		// a failed search is not kept running
+		uut.search("key", () -> count(emptyList()));
+		assertEquals(1, pending.size());
+		result.join();
+	}
+
+	@Test
+	public void testQueriesDifferingByNumberOfResultsAreNotShared() throws Exception {
+		final MetadataClient metadataClient = mock(MetadataClient.class);
+		when(metadataClient.search(any(), any(), any(), any(), anyInt(), any(), any()))
+				.thenReturn(singletonList(new SearchMetadata()));
+		final AuxSearch search = new AuxSearch(metadataClient, pending::add, 100L, now::get, false);
+		final SearchMetadataQuery one = new SearchMetadataQuery(1, "LatestValCover", 0.0, 0.0, 1, 1, "AUX_CAL",
+				ProductFamily.AUXILIARY_FILE);
+		final SearchMetadataQuery two = new SearchMetadataQuery(1, "LatestValCover", 0.0, 0.0, 2, 2, "AUX_CAL",
+				ProductFamily.AUXILIARY_FILE);
+
+		search.search(one, "t0", "t1", "S1", 0, "NOMINAL", "NONE");
+		search.search(two, "t0", "t1", "S1", 0, "NOMINAL", "NONE");
+		assertEquals(2, pending.size());
+
+		pending.forEach(Runnable::run);
+		verify(metadataClient, times(2)).search(any(), any(), any(), any(), anyInt(), any(), any());
+	}
+
+	@Test
+	public void testBatchSearchesOnlyWhatIsNeitherCachedNorRunning() {
+		final List<SearchMetadata> found = singletonList(new SearchMetadata());
+		final CompletableFuture<List<SearchMetadata>> running = uut.search("running", () -> count(found));
+		uut.search("cached", () -> count(found));
+		pending.get(1).run();
+		pending.clear();
+
+		final List<List<Integer>> searched = new ArrayList<>();
+		final List<CompletableFuture<List<SearchMetadata>>> results = uut
+				.searchAll(asList("new", "running", "cached", "failing", "new"), indexes -> {
+					searched.add(indexes);
+					return asList(SelectionPolicyResult.found(found), SelectionPolicyResult.failed("failed"));
+				});
+		assertSame(running, results.get(1));
+		assertSame(found, results.get(2).join());
+		assertSame(results.get(0), results.get(4));
+		assertEquals(1, pending.size());
+
+		pending.forEach(Runnable::run);
+		assertEquals(singletonList(asList(0, 3)), searched);
+		assertSame(found, results.get(0).join());
+		try {
+			results.get(3).join();
+			fail("CompletionException expected");
+		} catch (final CompletionException e) {
+			assertTrue(e.getCause() instanceof MetadataQueryException);
+		}
+	}
+
+	@Test
+	public void testBatchFailureFailsAllItsSearches() {
+		final List<CompletableFuture<List<SearchMetadata>>> results = uut.searchAll(asList("one", "two"),
+				indexes -> {
+					throw new MetadataQueryException("failed");
+				});
+		pending.forEach(Runnable::run);
+		pending.clear();
+
+		for (final CompletableFuture<List<SearchMetadata>> result : results) {
+			assertTrue(result.isCompletedExceptionally());
+		}
+		// a failed search is not kept running
+		uut.search("one", () -> count(emptyList()));
+		assertEquals(1, pending.size());
+	}
+
+	private List<SearchMetadata> count(final List<SearchMetadata> result) {
+		calls.incrementAndGet();
+		return result;
+	}
+}
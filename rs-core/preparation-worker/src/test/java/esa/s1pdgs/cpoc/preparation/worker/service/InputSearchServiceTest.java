@@ -0,0 +1,146 @@
+package esa.s1pdgs.cpoc.preparation.worker.service;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import esa.s1pdgs.cpoc.appcatalog.AppDataJob;
+import esa.s1pdgs.cpoc.appcatalog.AppDataJobGeneration;
+import esa.s1pdgs.cpoc.appcatalog.AppDataJobGenerationState;
+import esa.s1pdgs.cpoc.mqi.model.queue.IpfExecutionJob;
+import esa.s1pdgs.cpoc.preparation.worker.db.AppDataJobPatch;
+import esa.s1pdgs.cpoc.preparation.worker.model.exception.AppCatJobUpdateFailedException;
+import esa.s1pdgs.cpoc.preparation.worker.model.exception.AppCatalogJobNotFoundException;
+import esa.s1pdgs.cpoc.preparation.worker.query.AuxQueryHandler;
+import esa.s1pdgs.cpoc.preparation.worker.type.ProductTypeAdapter;
+
+public class InputSearchServiceTest {
+
+	@Mock
+	private ProductTypeAdapter typeAdapter;
+
+	@Mock
+	private AuxQueryHandler auxQueryHandler;
+
+	@Mock
+	private AppCatJobService appCatJobService;
+
+	@Mock
+	private JobCreationService jobCreationService;
+
+	@Mock
+	private MissingInputIndex missingInputIndex;
+
+	private InputSearchService uut;
+
+	@Before
+	public void init() {
+		MockitoAnnotations.initMocks(this);
+		uut = new InputSearchService(typeAdapter, auxQueryHandler, Collections.emptyMap(), appCatJobService,
+				jobCreationService, missingInputIndex, 4);
+	}
+
+	@After
+	public void shutdown() {
+		uut.shutdown();
+	}
+
+	@Test
+	public void testJobCheckedTwiceIsOnlySentOnce() throws Exception {
+		final AppDataJob job = job(1L, AppDataJobGenerationState.READY);
+		final IpfExecutionJob executionJob = new IpfExecutionJob();
+		doReturn(job).when(appCatJobService).getJob(1L);
+		doAnswer(i -> {
+			job.getGeneration().setState(AppDataJobGenerationState.SENT);
+			return executionJob;
+		}).when(jobCreationService).createExecutionJob(any(), any());
+
+		final List<IpfExecutionJob> result = uut.checkIfJobsAreReady(Arrays.asList(job, job, job));
+
+		assertEquals(1, result.size());
+		assertSame(executionJob, result.get(0));
+		verify(jobCreationService, times(1)).createExecutionJob(any(), any());
+		verify(appCatJobService, times(1)).patchJob(any());
+		verify(missingInputIndex, times(1)).update(job);
+	}
+
+	@Test
+	public void testRemovedJobIsSkipped() throws Exception {
+		final AppDataJob removed = job(1L, AppDataJobGenerationState.READY);
+		final AppDataJob job = job(2L, AppDataJobGenerationState.READY);
+		final IpfExecutionJob executionJob = new IpfExecutionJob();
+		doThrow(new AppCatalogJobNotFoundException(1L)).when(appCatJobService).getJob(1L);
+		doReturn(job).when(appCatJobService).getJob(2L);
+		doReturn(executionJob).when(jobCreationService).createExecutionJob(job, null);
+
+		final List<IpfExecutionJob> result = uut.checkIfJobsAreReady(Arrays.asList(removed, job));
+
+		assertEquals(Collections.singletonList(executionJob), result);
+		verify(jobCreationService, times(1)).createExecutionJob(any(), any());
+	}
+
+	@Test
+	public void testConflictingUpdateIsNotSent() throws Exception {
+		final AppDataJob job = job(1L, AppDataJobGenerationState.READY);
+		doReturn(job).when(appCatJobService).getJob(1L);
+		doAnswer(i -> {
+			job.getGeneration().setState(AppDataJobGenerationState.SENT);
+			return new IpfExecutionJob();
+		}).when(jobCreationService).createExecutionJob(any(), any());
+		doThrow(new AppCatJobUpdateFailedException("expected")).when(appCatJobService)
+				.patchJob(any(AppDataJobPatch.class));
+
+		assertTrue(uut.checkIfJobsAreReady(Collections.singletonList(job)).isEmpty());
+	}
+
+	@Test
+	public void testConflictingJobIsNotGenerated() throws Exception {
+		final AppDataJob job = job(1L, AppDataJobGenerationState.READY);
+		doReturn(job).when(appCatJobService).getJob(1L);
+		doThrow(new AppCatJobUpdateFailedException("expected")).when(appCatJobService).claimJob(job);
+
+		assertTrue(uut.checkIfJobsAreReady(Collections.singletonList(job)).isEmpty());
+		verify(jobCreationService, never()).createExecutionJob(any(), any());
+		verify(appCatJobService, never()).patchJob(any());
+	}
+
+	@Test
+	public void testJobNotAdvancedIsSavedInBulk() throws Exception {
+		final AppDataJob job1 = job(1L, AppDataJobGenerationState.READY);
+		final AppDataJob job2 = job(2L, AppDataJobGenerationState.READY);
+		doReturn(job1).when(appCatJobService).getJob(1L);
+		doReturn(job2).when(appCatJobService).getJob(2L);
+
+		assertTrue(uut.checkIfJobsAreReady(Arrays.asList(job1, job2)).isEmpty());
+
+		verify(appCatJobService, never()).patchJob(any());
+		verify(appCatJobService, times(1)).patchJobs(
+				argThat(patches -> patches.size() == 2));
+	}
+
+	private static AppDataJob job(final long id, final AppDataJobGenerationState state) {
+		final AppDataJob job = new AppDataJob(id);
+		final AppDataJobGeneration generation = new AppDataJobGeneration();
+		generation.setState(state);
+		job.setGeneration(generation);
+		return job;
+	}
+}
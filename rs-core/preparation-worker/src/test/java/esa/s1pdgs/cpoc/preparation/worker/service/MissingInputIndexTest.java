@@ -0,0 +1,150 @@
+package esa.s1pdgs.cpoc.preparation.worker.service;
+
+import static java.util.Collections.emptyList;
+import static java.util.Collections.singleton;
+import static java.util.Collections.singletonList;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+
+import esa.s1pdgs.cpoc.appcatalog.AppDataJob;
+import esa.s1pdgs.cpoc.appcatalog.AppDataJobFile;
+import esa.s1pdgs.cpoc.appcatalog.AppDataJobGeneration;
+import esa.s1pdgs.cpoc.appcatalog.AppDataJobGenerationState;
+import esa.s1pdgs.cpoc.appcatalog.AppDataJobInput;
+import esa.s1pdgs.cpoc.appcatalog.AppDataJobTaskInputs;
+import esa.s1pdgs.cpoc.common.utils.DateUtils;
+import esa.s1pdgs.cpoc.mqi.model.queue.CatalogEvent;
+import esa.s1pdgs.cpoc.preparation.worker.db.MissingInputRepository;
+import esa.s1pdgs.cpoc.preparation.worker.model.missinginput.MissingInput;
+import esa.s1pdgs.cpoc.xml.model.tasktable.TaskTableInput;
+import esa.s1pdgs.cpoc.xml.model.tasktable.TaskTableInputAlternative;
+import esa.s1pdgs.cpoc.xml.model.tasktable.enums.TaskTableFileNameType;
+import esa.s1pdgs.cpoc.xml.model.tasktable.enums.TaskTableInputOrigin;
+
+public class MissingInputIndexTest {
+
+	@Test
+	public void testMainInputSearchWaitsForTriggerProductsOfDataTake() {
+		final AppDataJob job = job(AppDataJobGenerationState.INITIAL);
+		job.getProduct().getMetadata().put("dataTakeId", "0123AB");
+
+		final List<MissingInput> entries = MissingInputIndex.entriesFor(job, "pod", new HashMap<>(),
+				TaskTableInputAlternative::getFileType);
+
+		assertEquals(1, entries.size());
+		assertEquals(42L, entries.get(0).getJobId());
+		assertEquals("pod", entries.get(0).getPod());
+		assertEquals("IW_RAW__0S", entries.get(0).getProductType());
+		assertEquals("0123AB", entries.get(0).getDataTakeId());
+		assertNull(entries.get(0).getSessionId());
+		assertNull(entries.get(0).getStartTime());
+	}
+
+	@Test
+	public void testAuxSearchWaitsForMissingInputsOnly() {
+		final AppDataJob job = job(AppDataJobGenerationState.PRIMARY_CHECK);
+		job.setAdditionalInputs(singletonList(new AppDataJobTaskInputs("task", "01.00", Arrays.asList(
+				new AppDataJobInput("T0I0", "AUX_CAL", "Physical", true, emptyList()),
+				new AppDataJobInput("T0I1", "SM_RAW__0S", "Physical", true, emptyList()),
+				new AppDataJobInput("T0I2", "AUX_PP1", "Physical", true,
+						singletonList(new AppDataJobFile("S1A_AUX_PP1"))),
+				new AppDataJobInput("T0I3", "AUX_ICE", "Physical", false, emptyList())))));
+
+		final Map<String, TaskTableInput> inputs = new HashMap<>();
+		inputs.put("T0I0", input(new TaskTableInputAlternative(1, TaskTableInputOrigin.DB, "ValCover ", 60.0, 120.0,
+				"AUX_CAL", TaskTableFileNameType.PHYSICAL)));
+		inputs.put("T0I1", input(new TaskTableInputAlternative(1, TaskTableInputOrigin.DB, "LatestValidity", 0.0,
+				0.0, "SM_RAW__0S", TaskTableFileNameType.PHYSICAL)));
+		inputs.put("T0I2", input(new TaskTableInputAlternative(1, TaskTableInputOrigin.DB, "ValCover", 0.0, 0.0,
+				"AUX_PP1", TaskTableFileNameType.PHYSICAL)));
+		inputs.put("T0I3", input(new TaskTableInputAlternative(1, TaskTableInputOrigin.PROC, "ValCover", 0.0, 0.0,
+				"AUX_ICE", TaskTableFileNameType.PHYSICAL)));
+
+		final List<MissingInput> entries = MissingInputIndex.entriesFor(job, "pod", inputs, MissingInputIndexTest::mapped);
+
+		assertEquals(2, entries.size());
+		final MissingInput cal = entries.stream().filter(e -> e.getProductType().equals("AUX_CAL")).findAny()
+				.get();
+		assertEquals(DateUtils.toDate("2020-07-13T12:19:00.000000Z"), cal.getStartTime());
+		assertEquals(DateUtils.toDate("2020-07-13T12:27:00.000000Z"), cal.getStopTime());
+		assertNull(cal.getDataTakeId());
+		assertFalse(cal.isPattern());
+
+		final MissingInput raw = entries.stream().filter(e -> e.getProductType().equals("S[1-6]_RAW__0S")).findAny()
+				.get();
+		assertNull(raw.getStartTime());
+		assertNull(raw.getStopTime());
+		assertTrue(raw.isPattern());
+	}
+
+	@Test
+	public void testProductTypePatternMatchedOnNewProduct() {
+		final MissingInputRepository repository = mock(MissingInputRepository.class);
+		final MissingInputIndex uut = new MissingInputIndex(repository, new HashMap<>(), "pod", true);
+
+		final MissingInput raw = new MissingInput(42L, "pod", "S[1-6]_RAW__0S");
+		raw.setPattern(true);
+		final MissingInput cal = new MissingInput(43L, "pod", "AUX_CAL");
+		// the repository returns the pattern entries whatever the product type
+		when(repository.findSatisfiableBy(eq("pod"), any(), any(), any(), any(), any()))
+				.thenReturn(singletonList(raw), Arrays.asList(raw, cal));
+
+		assertEquals(singleton(42L), uut.jobsWaitingFor(event("S3_RAW__0S"), Arrays.asList("S3_RAW__0S")));
+		assertEquals(singleton(43L), uut.jobsWaitingFor(event("AUX_CAL"), Arrays.asList("AUX_CAL")));
+	}
+
+	@Test
+	public void testReadyJobWaitsForAnyTriggerProduct() {
+		final AppDataJob job = job(AppDataJobGenerationState.READY);
+		job.getProduct().getMetadata().put("dataTakeId", "0123AB");
+
+		final List<MissingInput> entries = MissingInputIndex.entriesFor(job, "pod", new HashMap<>(),
+				TaskTableInputAlternative::getFileType);
+
+		assertEquals(1, entries.size());
+		assertEquals("IW_RAW__0S", entries.get(0).getProductType());
+		assertNull(entries.get(0).getDataTakeId());
+	}
+
+	private static String mapped(final TaskTableInputAlternative alternative) {
+		// as configured by map-type-meta
+		return alternative.getFileType().endsWith("_RAW__0S") ? "S[1-6]_RAW__0S" : alternative.getFileType();
+	}
+
+	private static CatalogEvent event(final String productType) {
+		final CatalogEvent event = new CatalogEvent();
+		event.setMetadataProductType(productType);
+		event.setMetadata(new HashMap<>());
+		return event;
+	}
+
+	private static AppDataJob job(final AppDataJobGenerationState state) {
+		final AppDataJob job = new AppDataJob(42L);
+		job.setStartTime("2020-07-13T12:20:00.000000Z");
+		job.setStopTime("2020-07-13T12:25:00.000000Z");
+		job.setTriggerProducts(singletonList("IW_RAW__0S"));
+		final AppDataJobGeneration generation = new AppDataJobGeneration();
+		generation.setState(state);
+		job.setGeneration(generation);
+		return job;
+	}
+
+	private static TaskTableInput input(final TaskTableInputAlternative alternative) {
+		final TaskTableInput input = new TaskTableInput();
+		input.addAlternative(alternative);
+		return input;
+	}
+}
@@ -0,0 +1,136 @@
+package esa.s1pdgs.cpoc.preparation.worker.service;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import esa.s1pdgs.cpoc.appcatalog.AppDataJob;
+
+public class TimeoutSchedulerTest {
+
+	private final AtomicLong clock = new AtomicLong(100000);
+
+	private final AtomicInteger loads = new AtomicInteger();
+
+	private final List<AppDataJob> jobs = new ArrayList<>();
+
+	private TimeoutScheduler uut;
+
+	@Before
+	public void init() {
+		uut = new TimeoutScheduler(this::load, 60000, 10, clock::get);
+	}
+
+	private List<AppDataJob> load(final Date until, final Date afterTimeoutDate, final long afterId,
+			final int limit) {
+		loads.incrementAndGet();
+		final Comparator<AppDataJob> order = Comparator.comparing(AppDataJob::getTimeoutDate)
+				.thenComparingLong(AppDataJob::getId);
+		final AppDataJob after = new AppDataJob(afterId);
+		after.setTimeoutDate(afterTimeoutDate);
+		final List<AppDataJob> result = new ArrayList<>();
+		jobs.stream().filter(job -> job.getTimeoutDate().before(until))
+				.filter(job -> afterTimeoutDate == null || order.compare(job, after) > 0).sorted(order).limit(limit)
+				.forEach(result::add);
+		return result;
+	}
+
+	private void addJob(final long id, final long timeout) {
+		final AppDataJob job = new AppDataJob(id);
+		job.setTimeoutDate(new Date(timeout));
+		jobs.add(job);
+	}
+
+	@Test
+	public void testPollOnlyDueJobs() {
+		addJob(1L, 90000);
+		addJob(2L, 80000);
+		addJob(3L, 110000);
+
+		assertEquals(Arrays.asList(2L, 1L), uut.pollDue(100));
+		assertTrue(uut.pollDue(100).isEmpty());
+
+		clock.set(110000);
+		assertEquals(Collections.singletonList(3L), uut.pollDue(100));
+		// the schedule is only loaded once per refresh interval
+		assertEquals(1, loads.get());
+	}
+
+	@Test
+	public void testPollSpreadOverRuns() {
+		addJob(1L, 10000);
+		addJob(2L, 20000);
+		addJob(3L, 30000);
+
+		assertEquals(Arrays.asList(1L, 2L), uut.pollDue(2));
+		assertEquals(Collections.singletonList(3L), uut.pollDue(2));
+	}
+
+	@Test
+	public void testRefreshLoadsNewTimeouts() {
+		assertTrue(uut.pollDue(100).isEmpty());
+		addJob(1L, 150000);
+
+		clock.set(159999);
+		assertTrue(uut.pollDue(100).isEmpty());
+		clock.set(160000);
+		assertEquals(Collections.singletonList(1L), uut.pollDue(100));
+		assertEquals(2, loads.get());
+	}
+
+	@Test
+	public void testSchedulePostponesTimeout() {
+		addJob(1L, 110000);
+		assertTrue(uut.pollDue(100).isEmpty());
+
+		uut.schedule(1L, new Date(120000));
+		clock.set(110000);
+		assertTrue(uut.pollDue(100).isEmpty());
+		clock.set(120000);
+		assertEquals(Collections.singletonList(1L), uut.pollDue(100));
+	}
+
+	@Test
+	public void testTruncatedScheduleReloadedWhenHandled() {
+		uut = new TimeoutScheduler(this::load, 60000, 2, clock::get);
+		addJob(1L, 10000);
+		addJob(2L, 20000);
+		addJob(3L, 30000);
+
+		assertEquals(Arrays.asList(1L, 2L), uut.pollDue(100));
+		jobs.remove(0);
+		jobs.remove(0);
+		assertEquals(Collections.singletonList(3L), uut.pollDue(100));
+		assertEquals(2, loads.get());
+	}
+
+	@Test
+	public void testJobsStayingTimedOutDoNotStarveLaterOnes() {
+		uut = new TimeoutScheduler(this::load, 60000, 2, clock::get);
+		for (long id = 1; id <= 5; id++) {
+			addJob(id, 10000);
+		}
+
+		// the jobs are not handled, their timeout does not move
+		assertEquals(Arrays.asList(1L, 2L), uut.pollDue(100));
+		assertEquals(Arrays.asList(3L, 4L), uut.pollDue(100));
+		assertEquals(Collections.singletonList(5L), uut.pollDue(100));
+		assertTrue(uut.pollDue(100).isEmpty());
+
+		// the next reload starts over
+		clock.addAndGet(60000);
+		assertEquals(Arrays.asList(1L, 2L), uut.pollDue(100));
+		assertEquals(4, loads.get());
+	}
+}
@@ -0,0 +1,124 @@
+package esa.s1pdgs.cpoc.preparation.worker.util;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.geotools.geometry.jts.JTSFactoryFinder;
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.Geometry;
+import org.locationtech.jts.geom.GeometryFactory;
+import org.locationtech.jts.geom.Polygon;
+import org.locationtech.jts.geom.prep.PreparedGeometry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import esa.s1pdgs.cpoc.common.MaskType;
+import esa.s1pdgs.cpoc.mqi.model.queue.CatalogEvent;
+
+/**
+ * Compares the sea coverage calculation on the indexed land mask with the
+ * former loop over all mask polygons, for the footprints of the
+ * {@link GeoIntersectionTest}. Not a unit test, run it via
+ * {@link #main(String[])} from the module directory.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class GeoIntersectionBenchmark {
+
+	private static final String LAND_MASK = "src/test/resources/S1__OPER_MSK__LAND__V20140403T210200_G20200914T080808.EOF";
+
+	private static final double[][][] FOOTPRINTS = {
+			{ { -31.9482421875, 42.00032514831621 }, { -23.37890625, 39.977120098439634 }, { -26.323242187499996, 44.49650533109345 } },
+			{ { 1.40625, 15.961329081596647 }, { 13.18359375, 12.382928338487396 }, { 12.12890625, 20.797201434307 } },
+			{ { -11.22802734375, 41.12074559016745 }, { -12.183837890625, 38.64261790634527 }, { -7.745361328125, 39.85072092501597 } },
+			{ { 39.2431640625, 5.309766171943691 }, { 46.40625, 0.21972602392080884 }, { 52.3828125, 6.970049417296232 } } };
+
+	private GeoIntersection geoIntersection;
+	private List<Polygon> maskPolygons;
+	private List<CatalogEvent> events;
+	private List<Polygon> footprints;
+
+	@Setup
+	public void setup() throws Exception {
+		geoIntersection = new GeoIntersection(new File(LAND_MASK), MaskType.LAND);
+		geoIntersection.loadMaskFile();
+
+		final GeometryFactory factory = JTSFactoryFinder.getGeometryFactory();
+		maskPolygons = new ArrayList<>();
+		final Polygon world = factory.createPolygon(new Coordinate[] { new Coordinate(-180, -90),
+				new Coordinate(180, -90), new Coordinate(180, 90), new Coordinate(-180, 90), new Coordinate(-180, -90) });
+		for (final PreparedGeometry polygon : geoIntersection.maskIndex().candidatesFor(world)) {
+			maskPolygons.add((Polygon) polygon.getGeometry());
+		}
+
+		events = new ArrayList<>();
+		footprints = new ArrayList<>();
+		for (final double[][] footprint : FOOTPRINTS) {
+			final List<List<Double>> ring = new ArrayList<>();
+			final Coordinate[] coordinates = new Coordinate[footprint.length + 1];
+			for (int i = 0; i <= footprint.length; i++) {
+				final double[] point = footprint[i % footprint.length];
+				ring.add(Arrays.asList(point[0], point[1]));
+				coordinates[i] = new Coordinate(point[0], point[1]);
+			}
+			final Map<String, Object> geometry = new HashMap<>();
+			geometry.put("type", "Polygon");
+			geometry.put("coordinates", Arrays.asList(ring));
+			final Map<String, Object> metadata = new HashMap<>();
+			metadata.put("sliceCoordinates", geometry);
+			final CatalogEvent event = new CatalogEvent();
+			event.setMetadata(metadata);
+			events.add(event);
+			footprints.add(factory.createPolygon(coordinates));
+		}
+	}
+
+	@Benchmark
+	public long indexed() {
+		long result = 0;
+		for (final CatalogEvent event : events) {
+			result += geoIntersection.getCoverage(event);
+		}
+		return result;
+	}
+
+	@Benchmark
+	public long allPolygons() {
+		long result = 0;
+		for (final Polygon footprint : footprints) {
+			double intersectionArea = 0.0;
+			for (final Polygon maskPolygon : maskPolygons) {
+				if (footprint.intersects(maskPolygon)) {
+					final Geometry intersection = footprint.intersection(maskPolygon);
+					intersectionArea += (100.0 * intersection.getArea() / footprint.getArea());
+				}
+			}
+			result += 100 - Math.round(intersectionArea);
+		}
+		return result;
+	}
+
+	public static void main(final String[] args) throws RunnerException {
+		new Runner(new OptionsBuilder().include(GeoIntersectionBenchmark.class.getSimpleName()).build()).run();
+	}
+}
@@ -2,6 +2,9 @@ package esa.s1pdgs.cpoc.preparation.worker.util;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
@@ -252,6 +255,44 @@ public class GeoIntersectionTest {
 		Assert.assertEquals(true, intersecting);
 	}
 
+	@Test
+	public void loadMaskFile_sharedIndex() throws Exception {
+		final File maskFile = new File("src/test/resources/S1__OPER_MSK_EW_SLC_V20140427T000000_G20210108T170000.EOF");
+
+		GeoIntersection first = new GeoIntersection(maskFile, MaskType.EW_SLC);
+		first.loadMaskFile();
+		GeoIntersection second = new GeoIntersection(maskFile, MaskType.EW_SLC);
+		second.loadMaskFile();
+
+		Assert.assertSame(first.maskIndex(), second.maskIndex());
+		Assert.assertTrue(first.maskIndex().size() > 0);
+	}
+
+	@Test
+	public void loadMaskFile_updatedFileReplacesIndex() throws Exception {
+		final File maskFile = File.createTempFile("S1__OPER_MSK_EW_SLC_", ".EOF");
+		try {
+			Files.copy(Paths.get("src/test/resources/S1__OPER_MSK_EW_SLC_V20140427T000000_G20210108T170000.EOF"),
+					maskFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+			maskFile.setLastModified(1000000000000L);
+			GeoIntersection first = new GeoIntersection(maskFile, MaskType.EW_SLC);
+			first.loadMaskFile();
+
+			maskFile.setLastModified(1000000001000L);
+			GeoIntersection second = new GeoIntersection(maskFile, MaskType.EW_SLC);
+			second.loadMaskFile();
+
+			Assert.assertNotSame(first.maskIndex(), second.maskIndex());
+			final String key = MaskType.EW_SLC + ":" + maskFile.getAbsolutePath();
+			// the index of the previous version is no longer kept
+			Assert.assertSame(second.maskIndex(), GeoIntersection.MASK_INDEXES.get(key));
+			Assert.assertFalse(GeoIntersection.MASK_INDEXES.containsValue(first.maskIndex()));
+		} finally {
+			GeoIntersection.MASK_INDEXES.remove(MaskType.EW_SLC + ":" + maskFile.getAbsolutePath());
+			maskFile.delete();
+		}
+	}
+
 	private CatalogEvent buildCatalogEvent(List<Double> p1, List<Double> p2, List<Double> p3, List<Double> p4) {
 		List<List<List<Double>>> coordinates = new ArrayList<>();
 		coordinates.add(List.of(p1, p2, p3, p4));
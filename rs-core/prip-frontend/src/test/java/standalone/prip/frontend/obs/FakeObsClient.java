@@ -8,6 +8,7 @@ import java.time.Instant;
 import java.util.Date;
 import java.util.List;
 import java.util.Map;
+import java.util.stream.Stream;
 
 import esa.s1pdgs.cpoc.common.ProductFamily;
 import esa.s1pdgs.cpoc.common.errors.AbstractCodedException;
@@ -80,6 +81,13 @@ public class FakeObsClient implements ObsClient {
 		return null;
 	}
 
+	@Override
+	public Stream<ObsObject> streamInterval(final ProductFamily family, final Date intervalStart, final Date intervalEnd)
+			throws SdkClientException {
+		// TODO Auto-generated method stub
+		return null;
+	}
+
 	@Override
 	public InputStream getAsStream(ProductFamily family, String key) throws SdkClientException {
 		return null;
@@ -138,6 +146,11 @@ public class FakeObsClient implements ObsClient {
 		// TODO Auto-generated method stub
 	}
 
+	@Override
+	public void delete(List<ObsObject> objects) throws ObsException, ObsServiceException {
+		// TODO Auto-generated method stub
+	}
+
 	@Override
 	public String getAbsoluteStoragePath(ProductFamily family, String keyObs) {
 		// TODO Auto-generated method stub
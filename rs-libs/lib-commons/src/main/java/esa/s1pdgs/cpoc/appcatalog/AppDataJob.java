@@ -105,6 +105,12 @@ public class AppDataJob {
 
 	private boolean timedOut = false;
 
+	/**
+	 * Number of the partial updates done on the job, used to detect concurrent
+	 * modifications
+	 */
+	private long version;
+
 	/**
 	 * generate an AppDataJob from an IpfPreparationJob
 	 * 
@@ -378,6 +384,14 @@ public class AppDataJob {
 		this.timedOut = timedOut;
 	}
 
+	public long getVersion() {
+		return version;
+	}
+
+	public void setVersion(final long version) {
+		this.version = version;
+	}
+
 	public List<String> getTriggerProducts() {
 		return triggerProducts;
 	}
@@ -394,7 +408,7 @@ public class AppDataJob {
 				+ catalogEvents + ", product=" + product + ", additionalInputs=" + additionalInputs + ", generation="
 				+ generation + ", reportingId=" + reportingId + ", prepJob=" + prepJob + ", processingGroup="
 				+ processingGroup + ", timedOut=" + timedOut + ", preselectedInputs=" + preselectedInputs
-				+ ", triggerProducts=" + triggerProducts + ", timeoutDate=" + timeoutDate + "]";
+				+ ", triggerProducts=" + triggerProducts + ", timeoutDate=" + timeoutDate + ", version=" + version + "]";
 	}
 
 	@Override
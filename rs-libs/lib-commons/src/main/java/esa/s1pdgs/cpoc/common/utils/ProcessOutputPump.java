@@ -0,0 +1,254 @@
+package esa.s1pdgs.cpoc.common.utils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Consumes the output of child processes line by line on a small shared pool
+ * of threads instead of one thread per stream.
+ * <p>
+ * The pipes of a process cannot be selected, so each stream is polled: only
+ * the bytes already available are read, a chunk at a time, and the stream is
+ * polled again later when it has nothing to read. At most one chunk and one
+ * line are buffered per stream; when the consumer is slow the pipe fills up and
+ * the process is blocked on its writes. The stream is complete when the
+ * process is terminated and everything it wrote has been consumed. As with
+ * {@link java.io.BufferedReader#readLine()}, a line is ended by a line feed, a
+ * carriage return or a carriage return followed by a line feed.
+ */
+public class ProcessOutputPump {
+
+	private static final Logger LOGGER = LogManager.getLogger(ProcessOutputPump.class);
+
+	private static final int DEFAULT_THREADS = 2;
+
+	private static final int DEFAULT_CHUNK_SIZE = 8192;
+
+	private static final int DEFAULT_MAX_LINE_LENGTH = 65536;
+
+	private static final long DEFAULT_IDLE_DELAY_MS = 50;
+
+	private static final ProcessOutputPump SHARED = new ProcessOutputPump(DEFAULT_THREADS, DEFAULT_CHUNK_SIZE,
+			DEFAULT_MAX_LINE_LENGTH, DEFAULT_IDLE_DELAY_MS);
+
+	private final ScheduledExecutorService executor;
+
+	/**
+	 * Maximal number of bytes read from a stream before letting the others be
+	 * polled
+	 */
+	private final int chunkSize;
+
+	/**
+	 * Length from which a line without end is passed to the consumer anyway
+	 */
+	private final int maxLineLength;
+
+	/**
+	 * Time to wait before polling again a stream without bytes to read
+	 */
+	private final long idleDelayMs;
+
+	public ProcessOutputPump(final int threads, final int chunkSize, final int maxLineLength,
+			final long idleDelayMs) {
+		final AtomicInteger count = new AtomicInteger();
+		final ScheduledThreadPoolExecutor pool = new ScheduledThreadPoolExecutor(threads, r -> {
+			final Thread thread = new Thread(r, "process-output-pump-" + count.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		});
+		pool.setRemoveOnCancelPolicy(true);
+		this.executor = pool;
+		this.chunkSize = chunkSize;
+		this.maxLineLength = maxLineLength;
+		this.idleDelayMs = idleDelayMs;
+	}
+
+	/**
+	 * @return the pump shared by all the processes of the application
+	 */
+	public static ProcessOutputPump shared() {
+		return SHARED;
+	}
+
+	/**
+	 * Pass each line written by the process on its standard output to the
+	 * consumer
+	 */
+	public Pump pumpStdout(final Process process, final Consumer<String> consumer) {
+		return pump(process.getInputStream(), process::isAlive, consumer);
+	}
+
+	/**
+	 * Pass each line written by the process on its error output to the consumer
+	 */
+	public Pump pumpStderr(final Process process, final Consumer<String> consumer) {
+		return pump(process.getErrorStream(), process::isAlive, consumer);
+	}
+
+	/**
+	 * Pass each line of the stream to the consumer until the stream has nothing
+	 * more to read and its writer is not alive anymore
+	 */
+	public Pump pump(final InputStream in, final BooleanSupplier writerAlive, final Consumer<String> consumer) {
+		final Pump pump = new Pump(in, writerAlive, consumer);
+		executor.execute(pump::poll);
+		return pump;
+	}
+
+	public void shutdown() {
+		executor.shutdownNow();
+	}
+
+	/**
+	 * Consumption of one stream
+	 */
+	public final class Pump {
+
+		private final InputStream in;
+
+		private final BooleanSupplier writerAlive;
+
+		private final Consumer<String> consumer;
+
+		private final byte[] buffer = new byte[chunkSize];
+
+		/**
+		 * Bytes of the line not ended yet
+		 */
+		private final ByteArrayOutputStream line = new ByteArrayOutputStream();
+
+		/**
+		 * Indicate if the last byte read ended a line with a carriage return, so a
+		 * line feed following it does not end another line
+		 */
+		private boolean afterCarriageReturn;
+
+		private final CompletableFuture<Void> completion = new CompletableFuture<>();
+
+		private final long start = System.currentTimeMillis();
+
+		private final AtomicLong lines = new AtomicLong();
+
+		private final AtomicLong bytes = new AtomicLong();
+
+		private volatile long end;
+
+		Pump(final InputStream in, final BooleanSupplier writerAlive, final Consumer<String> consumer) {
+			this.in = in;
+			this.writerAlive = writerAlive;
+			this.consumer = consumer;
+		}
+
+		/**
+		 * Wait until the whole stream is consumed
+		 *
+		 * @throws ExecutionException if the stream could not be read or the consumer
+		 *                            failed
+		 */
+		public void get() throws InterruptedException, ExecutionException {
+			completion.get();
+		}
+
+		public boolean isDone() {
+			return completion.isDone();
+		}
+
+		/**
+		 * @return the number of lines consumed
+		 */
+		public long getLines() {
+			return lines.get();
+		}
+
+		/**
+		 * @return the number of bytes consumed
+		 */
+		public long getBytes() {
+			return bytes.get();
+		}
+
+		/**
+		 * @return the time in milliseconds the stream has been consumed for
+		 */
+		public long getDurationMs() {
+			return (end == 0 ? System.currentTimeMillis() : end) - start;
+		}
+
+		private void poll() {
+			try {
+				int read = 0;
+				int available;
+				while (read < chunkSize && (available = in.available()) > 0) {
+					final int count = in.read(buffer, 0, Math.min(available, buffer.length));
+					if (count < 0) {
+						complete();
+						return;
+					}
+					frame(count);
+					read += count;
+				}
+				if (read > 0) {
+					// let the other streams be polled before reading more
+					executor.execute(this::poll);
+				} else if (!writerAlive.getAsBoolean() && in.available() == 0) {
+					complete();
+				} else {
+					executor.schedule(this::poll, idleDelayMs, TimeUnit.MILLISECONDS);
+				}
+			} catch (final IOException | RuntimeException e) {
+				LOGGER.debug("Error on consuming process output: {}", e.getMessage());
+				end = System.currentTimeMillis();
+				completion.completeExceptionally(e);
+			}
+		}
+
+		private void frame(final int count) {
+			bytes.addAndGet(count);
+			for (int i = 0; i < count; i++) {
+				final boolean lineFeedAfterCarriageReturn = afterCarriageReturn && buffer[i] == '\n';
+				afterCarriageReturn = buffer[i] == '\r';
+				if (lineFeedAfterCarriageReturn) {
+					continue;
+				}
+				if (buffer[i] == '\n' || buffer[i] == '\r') {
+					emit();
+				} else {
+					line.write(buffer[i]);
+					if (line.size() >= maxLineLength) {
+						emit();
+					}
+				}
+			}
+		}
+
+		private void emit() {
+			consumer.accept(new String(line.toByteArray(), Charset.defaultCharset()));
+			line.reset();
+			lines.incrementAndGet();
+		}
+
+		private void complete() throws IOException {
+			if (line.size() > 0) {
+				emit();
+			}
+			in.close();
+			end = System.currentTimeMillis();
+			completion.complete(null);
+		}
+	}
+}
@@ -0,0 +1,180 @@
+package esa.s1pdgs.cpoc.metadata.model;
+
+import java.util.Objects;
+
+/**
+ * One search of a batch of metadata searches, holding the same parameters as a
+ * single search by selection policy
+ */
+public class SelectionPolicyQuery {
+
+	private String productFamily;
+
+	private String productType;
+
+	private String mode;
+
+	private String satellite;
+
+	private String t0;
+
+	private String t1;
+
+	private String processMode;
+
+	private int insConfId = -1;
+
+	private double dt0;
+
+	private double dt1;
+
+	private String polarisation;
+
+	private String bandIndexId;
+
+	public SelectionPolicyQuery() {
+	}
+
+	public SelectionPolicyQuery(final String productFamily, final String productType, final String mode,
+			final String satellite, final String t0, final String t1, final String processMode, final int insConfId,
+			final double dt0, final double dt1, final String polarisation) {
+		this.productFamily = productFamily;
+		this.productType = productType;
+		this.mode = mode;
+		this.satellite = satellite;
+		this.t0 = t0;
+		this.t1 = t1;
+		this.processMode = processMode;
+		this.insConfId = insConfId;
+		this.dt0 = dt0;
+		this.dt1 = dt1;
+		this.polarisation = polarisation;
+	}
+
+	public String getProductFamily() {
+		return productFamily;
+	}
+
+	public void setProductFamily(final String productFamily) {
+		this.productFamily = productFamily;
+	}
+
+	public String getProductType() {
+		return productType;
+	}
+
+	public void setProductType(final String productType) {
+		this.productType = productType;
+	}
+
+	public String getMode() {
+		return mode;
+	}
+
+	public void setMode(final String mode) {
+		this.mode = mode;
+	}
+
+	public String getSatellite() {
+		return satellite;
+	}
+
+	public void setSatellite(final String satellite) {
+		this.satellite = satellite;
+	}
+
+	public String getT0() {
+		return t0;
+	}
+
+	public void setT0(final String t0) {
+		this.t0 = t0;
+	}
+
+	public String getT1() {
+		return t1;
+	}
+
+	public void setT1(final String t1) {
+		this.t1 = t1;
+	}
+
+	public String getProcessMode() {
+		return processMode;
+	}
+
+	public void setProcessMode(final String processMode) {
+		this.processMode = processMode;
+	}
+
+	public int getInsConfId() {
+		return insConfId;
+	}
+
+	public void setInsConfId(final int insConfId) {
+		this.insConfId = insConfId;
+	}
+
+	public double getDt0() {
+		return dt0;
+	}
+
+	public void setDt0(final double dt0) {
+		this.dt0 = dt0;
+	}
+
+	public double getDt1() {
+		return dt1;
+	}
+
+	public void setDt1(final double dt1) {
+		this.dt1 = dt1;
+	}
+
+	public String getPolarisation() {
+		return polarisation;
+	}
+
+	public void setPolarisation(final String polarisation) {
+		this.polarisation = polarisation;
+	}
+
+	public String getBandIndexId() {
+		return bandIndexId;
+	}
+
+	public void setBandIndexId(final String bandIndexId) {
+		this.bandIndexId = bandIndexId;
+	}
+
+	@Override
+	public int hashCode() {
+		return Objects.hash(productFamily, productType, mode, satellite, t0, t1, processMode, insConfId, dt0, dt1,
+				polarisation, bandIndexId);
+	}
+
+	@Override
+	public boolean equals(final Object obj) {
+		if (this == obj) {
+			return true;
+		}
+		if (obj == null || getClass() != obj.getClass()) {
+			return false;
+		}
+		final SelectionPolicyQuery other = (SelectionPolicyQuery) obj;
+		return Objects.equals(productFamily, other.productFamily) && Objects.equals(productType, other.productType)
+				&& Objects.equals(mode, other.mode) && Objects.equals(satellite, other.satellite)
+				&& Objects.equals(t0, other.t0) && Objects.equals(t1, other.t1)
+				&& Objects.equals(processMode, other.processMode) && insConfId == other.insConfId
+				&& Double.compare(dt0, other.dt0) == 0 && Double.compare(dt1, other.dt1) == 0
+				&& Objects.equals(polarisation, other.polarisation) && Objects.equals(bandIndexId, other.bandIndexId);
+	}
+
+	@Override
+	public String toString() {
+		return "SelectionPolicyQuery [productFamily=" + productFamily + ", productType=" + productType + ", mode="
+				+ mode + ", satellite=" + satellite + ", t0=" + t0 + ", t1=" + t1 + ", processMode=" + processMode
+				+ ", insConfId=" + insConfId + ", dt0=" + dt0 + ", dt1=" + dt1 + ", polarisation=" + polarisation
+				+ ", bandIndexId=" + bandIndexId + "]";
+	}
+}
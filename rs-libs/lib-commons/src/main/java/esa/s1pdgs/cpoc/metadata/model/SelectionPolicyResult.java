@@ -0,0 +1,71 @@
+package esa.s1pdgs.cpoc.metadata.model;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Result of one search of a batch of metadata searches: either the products
+ * found or the reason why the search failed, so a failed search does not fail
+ * the other searches of the batch
+ */
+public class SelectionPolicyResult {
+
+	private List<SearchMetadata> results = new ArrayList<>();
+
+	private String error;
+
+	public SelectionPolicyResult() {
+	}
+
+	public SelectionPolicyResult(final List<SearchMetadata> results, final String error) {
+		this.results = results;
+		this.error = error;
+	}
+
+	public static SelectionPolicyResult found(final List<SearchMetadata> results) {
+		return new SelectionPolicyResult(results == null ? new ArrayList<>() : results, null);
+	}
+
+	public static SelectionPolicyResult failed(final String error) {
+		return new SelectionPolicyResult(new ArrayList<>(), error);
+	}
+
+	public List<SearchMetadata> getResults() {
+		return results;
+	}
+
+	public void setResults(final List<SearchMetadata> results) {
+		this.results = results;
+	}
+
+	public String getError() {
+		return error;
+	}
+
+	public void setError(final String error) {
+		this.error = error;
+	}
+
+	@Override
+	public int hashCode() {
+		return Objects.hash(results, error);
+	}
+
+	@Override
+	public boolean equals(final Object obj) {
+		if (this == obj) {
+			return true;
+		}
+		if (obj == null || getClass() != obj.getClass()) {
+			return false;
+		}
+		final SelectionPolicyResult other = (SelectionPolicyResult) obj;
+		return Objects.equals(results, other.results) && Objects.equals(error, other.error);
+	}
+
+	@Override
+	public String toString() {
+		return "SelectionPolicyResult [results=" + results + ", error=" + error + "]";
+	}
+}
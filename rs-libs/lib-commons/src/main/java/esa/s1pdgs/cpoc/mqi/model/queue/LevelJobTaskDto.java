@@ -1,5 +1,6 @@
 package esa.s1pdgs.cpoc.mqi.model.queue;
 
+import java.util.List;
 import java.util.Objects;
 
 /**
@@ -13,6 +14,12 @@ public class LevelJobTaskDto {
      */
     private String binaryPath;
 
+    /**
+     * Local paths of the inputs the task needs before being launched. When
+     * null, the task waits for all the inputs of the job
+     */
+    private List<String> inputs;
+
     /**
      * Default constructor
      */
@@ -30,6 +37,17 @@ public class LevelJobTaskDto {
         this.binaryPath = binaryPath;
     }
 
+    /**
+     * Constructor using fields
+     * 
+     * @param binaryPath
+     * @param inputs
+     */
+    public LevelJobTaskDto(final String binaryPath, final List<String> inputs) {
+        this(binaryPath);
+        this.inputs = inputs;
+    }
+
     /**
      * @return the binaryPath
      */
@@ -45,12 +63,27 @@ public class LevelJobTaskDto {
         this.binaryPath = binaryPath;
     }
 
+    /**
+     * @return the inputs
+     */
+    public List<String> getInputs() {
+        return inputs;
+    }
+
+    /**
+     * @param inputs
+     *            the inputs to set
+     */
+    public void setInputs(final List<String> inputs) {
+        this.inputs = inputs;
+    }
+
     /**
      * to string
      */
     @Override
     public String toString() {
-        return String.format("{binaryPath: %s}", binaryPath);
+        return String.format("{binaryPath: %s, inputs: %s}", binaryPath, inputs);
     }
 
     /**
@@ -58,7 +91,7 @@ public class LevelJobTaskDto {
      */
     @Override
     public int hashCode() {
-        return Objects.hash(binaryPath);
+        return Objects.hash(binaryPath, inputs);
     }
 
     /**
@@ -73,7 +106,8 @@ public class LevelJobTaskDto {
             ret = false;
         } else {
             LevelJobTaskDto other = (LevelJobTaskDto) obj;
-            ret = Objects.equals(binaryPath, other.binaryPath);
+            ret = Objects.equals(binaryPath, other.binaryPath)
+                    && Objects.equals(inputs, other.inputs);
         }
         return ret;
     }
@@ -0,0 +1,102 @@
+package esa.s1pdgs.cpoc.common.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.PipedInputStream;
+import java.io.PipedOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.After;
+import org.junit.Test;
+
+import esa.s1pdgs.cpoc.common.utils.ProcessOutputPump.Pump;
+
+public class ProcessOutputPumpTest {
+
+	private final ProcessOutputPump uut = new ProcessOutputPump(1, 4, 10, 10);
+
+	private final List<String> lines = new CopyOnWriteArrayList<>();
+
+	@After
+	public final void tearDown() {
+		uut.shutdown();
+	}
+
+	private static ByteArrayInputStream streamOf(final String content) {
+		return new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8));
+	}
+
+	@Test
+	public void testLineFraming() throws Exception {
+		final Pump pump = uut.pump(streamOf("first\r\nsecond\n\nlast"), () -> false, lines::add);
+		pump.get();
+
+		assertEquals(Arrays.asList("first", "second", "", "last"), lines);
+		assertEquals(4, pump.getLines());
+		assertEquals(19, pump.getBytes());
+	}
+
+	@Test
+	public void testCarriageReturnEndsLine() throws Exception {
+		// the line feed of the first CRLF is read in the next chunk
+		uut.pump(streamOf("abc\r\ndef\rghi\r\r\n"), () -> false, lines::add).get();
+
+		assertEquals(Arrays.asList("abc", "def", "ghi", ""), lines);
+	}
+
+	@Test
+	public void testTooLongLineSplit() throws Exception {
+		uut.pump(streamOf("0123456789abc\n"), () -> false, lines::add).get();
+
+		assertEquals(Arrays.asList("0123456789", "abc"), lines);
+	}
+
+	@Test
+	public void testStreamsPumpedConcurrently() throws Exception {
+		final AtomicBoolean alive = new AtomicBoolean(true);
+		final PipedOutputStream writer1 = new PipedOutputStream();
+		final PipedOutputStream writer2 = new PipedOutputStream();
+		final List<String> lines2 = new CopyOnWriteArrayList<>();
+		final Pump pump1 = uut.pump(new PipedInputStream(writer1), alive::get, lines::add);
+		final Pump pump2 = uut.pump(new PipedInputStream(writer2), alive::get, lines2::add);
+
+		// a single thread consumes both streams while their writers are running
+		writer2.write("stream2\n".getBytes(StandardCharsets.UTF_8));
+		writer2.flush();
+		writer1.write("stream1\n".getBytes(StandardCharsets.UTF_8));
+		writer1.flush();
+		for (int i = 0; i < 100 && (lines.isEmpty() || lines2.isEmpty()); i++) {
+			Thread.sleep(20);
+		}
+		assertEquals(Collections.singletonList("stream1"), lines);
+		assertEquals(Collections.singletonList("stream2"), lines2);
+		assertFalse(pump1.isDone());
+
+		alive.set(false);
+		pump1.get();
+		pump2.get();
+	}
+
+	@Test
+	public void testConsumerErrorReported() throws Exception {
+		final Pump pump = uut.pump(streamOf("line\n"), () -> false, line -> {
+			throw new IllegalStateException("expected");
+		});
+		try {
+			pump.get();
+			fail("ExecutionException expected");
+		} catch (final ExecutionException e) {
+			assertTrue(e.getCause() instanceof IllegalStateException);
+		}
+	}
+}
@@ -1,7 +1,11 @@
 package esa.s1pdgs.cpoc.mqi.model.queue;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 
+import java.util.Arrays;
+
 import org.junit.Test;
 
 import esa.s1pdgs.cpoc.mqi.model.queue.LevelJobTaskDto;
@@ -22,6 +26,11 @@ public class LevelJobTaskDtoTest {
 	public void testConstructorAndGetters() {
 		LevelJobTaskDto dto = new LevelJobTaskDto("path1");
 		assertTrue("path1".equals(dto.getBinaryPath()));
+		assertNull(dto.getInputs());
+
+		dto = new LevelJobTaskDto("path1", Arrays.asList("input1", "input2"));
+		assertTrue("path1".equals(dto.getBinaryPath()));
+		assertEquals(Arrays.asList("input1", "input2"), dto.getInputs());
 	}
 	
 	/**
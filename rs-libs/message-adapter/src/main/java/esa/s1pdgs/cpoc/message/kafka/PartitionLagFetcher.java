@@ -1,16 +1,13 @@
 package esa.s1pdgs.cpoc.message.kafka;
 
 import static java.util.Collections.singletonList;
-import static java.util.stream.Collectors.groupingBy;
 import static java.util.stream.Collectors.toMap;
 
 import java.util.ArrayList;
-import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
@@ -42,8 +39,7 @@ public class PartitionLagFetcher implements Runnable {
 
     private volatile ScheduledExecutorService executor;
 
-    private final Map<String, List<ConsumerLag>> consumerLags = new ConcurrentHashMap<>();
-    private final Map<TopicPartition, AtomicLong> interimPublications = new ConcurrentHashMap<>();
+    private volatile PartitionRouting routing = PartitionRouting.EMPTY;
 
     public PartitionLagFetcher(final Admin adminClient, final KafkaLagBasedPartitionerProperties properties) {
         this.adminClient = adminClient;
@@ -56,28 +52,27 @@ public class PartitionLagFetcher implements Runnable {
     public void run() {
         LOG.debug("running lag kafka lag analyzing for consumer-group {}", properties.getConsumerGroup());
         try {
-            consumerLags.clear();
-            interimPublications.clear();
-            consumerLags.putAll(fetch());
+            // the previous routing stays in use until the new one is complete
+            routing = PartitionRouting.of(fetch(), properties.getTopicsWithPriority());
         } catch (Exception e) {
             LOG.error("error during fetch", e);
+            routing = PartitionRouting.EMPTY;
         }
     }
 
+    /**
+     * @return the routing of the last fetch, records published since are counted in it
+     */
+    public PartitionRouting getRouting() {
+        return routing;
+    }
+
     public Map<String, List<ConsumerLag>> getConsumerLags() {
-        return consumerLags.values().stream()
-                .flatMap(Collection::stream)
-                .map(lag -> lag.includingInterimPublications(
-                        interimPublications.get(lag.getTopicPartition())))
-                .collect(groupingBy(ConsumerLag::getTopic));
+        return routing.getConsumerLags();
     }
 
     public void incInterimPublicationsFor(TopicPartition partition) {
-        if (!interimPublications.containsKey(partition)) {
-            interimPublications.put(partition, new AtomicLong(0L));
-        }
-
-        interimPublications.get(partition).incrementAndGet();
+        routing.incInterimPublicationsFor(partition);
     }
 
     private Map<String, List<ConsumerLag>> fetch() throws InterruptedException, ExecutionException, TimeoutException {
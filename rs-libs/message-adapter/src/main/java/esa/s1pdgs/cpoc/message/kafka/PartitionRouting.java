@@ -0,0 +1,229 @@
+package esa.s1pdgs.cpoc.message.kafka;
+
+import static java.util.Collections.emptyList;
+import static java.util.Collections.emptyMap;
+import static java.util.Collections.singletonList;
+import static java.util.stream.Collectors.groupingBy;
+import static java.util.stream.Collectors.toList;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.kafka.common.TopicPartition;
+
+import esa.s1pdgs.cpoc.message.kafka.PartitionLagFetcher.ConsumerLag;
+
+/**
+ * Immutable routing snapshot of the consumer lags fetched by the
+ * {@link PartitionLagFetcher}. Everything which only depends on the fetched
+ * lags (raw client ids, the summed lags over the topics of equal or higher
+ * priority, the partitions of each consumer) is computed once per fetch, so
+ * choosing a partition for a record only compares a few counters.
+ * <p>
+ * Records published until the next fetch are counted in interim counters of
+ * the snapshot, which are added to the fetched lags just like the former
+ * interim publications of the fetcher.
+ */
+public final class PartitionRouting {
+
+    public static final PartitionRouting EMPTY = new PartitionRouting(emptyMap(), emptyMap(), emptyMap());
+
+    /**
+     * A consumer of a topic, i.e. the partitions of the topic assigned to the
+     * consumer, ranked by their fetched lag
+     */
+    static final class Candidate {
+        private final String rawClientId;
+        private final long summedLag;
+        private final AtomicLong interimSummedLag = new AtomicLong();
+        private final ConsumerLag[] lags;
+        private final AtomicLong[] interimPublications;
+        private AtomicLong[] affectedSummedLags = new AtomicLong[0];
+
+        Candidate(final String rawClientId, final long summedLag, final List<ConsumerLag> lags) {
+            this.rawClientId = rawClientId;
+            this.summedLag = summedLag;
+            this.lags = lags.stream().sorted(Comparator.comparingLong(ConsumerLag::getLag)).toArray(ConsumerLag[]::new);
+            this.interimPublications = new AtomicLong[this.lags.length];
+            for (int i = 0; i < this.interimPublications.length; i++) {
+                this.interimPublications[i] = new AtomicLong();
+            }
+        }
+
+        long currentSummedLag() {
+            return summedLag + interimSummedLag.get();
+        }
+
+        int indexWithLowestLag() {
+            int best = 0;
+            long bestLag = Long.MAX_VALUE;
+            for (int i = 0; i < lags.length; i++) {
+                final long lag = lags[i].getLag() + interimPublications[i].get();
+                if (lag < bestLag) {
+                    best = i;
+                    bestLag = lag;
+                }
+            }
+            return best;
+        }
+
+        void incInterimPublications(final int index) {
+            interimPublications[index].incrementAndGet();
+            for (final AtomicLong affected : affectedSummedLags) {
+                affected.incrementAndGet();
+            }
+        }
+
+        String getRawClientId() {
+            return rawClientId;
+        }
+    }
+
+    private static final class Slot {
+        private final Candidate candidate;
+        private final int index;
+
+        Slot(final Candidate candidate, final int index) {
+            this.candidate = candidate;
+            this.index = index;
+        }
+    }
+
+    private final Map<String, Candidate[]> candidatesByTopic;
+    private final Map<TopicPartition, Slot> slots;
+    private final Map<String, List<ConsumerLag>> consumerLags;
+
+    private PartitionRouting(final Map<String, Candidate[]> candidatesByTopic, final Map<TopicPartition, Slot> slots,
+            final Map<String, List<ConsumerLag>> consumerLags) {
+        this.candidatesByTopic = candidatesByTopic;
+        this.slots = slots;
+        this.consumerLags = consumerLags;
+    }
+
+    /**
+     * @param consumerLags       fetched lags per topic
+     * @param topicsWithPriority the lag of a consumer on a topic is summed up with
+     *                           its lags on all topics with an equal or higher
+     *                           priority value
+     */
+    public static PartitionRouting of(final Map<String, List<ConsumerLag>> consumerLags,
+            final Map<String, Integer> topicsWithPriority) {
+        // topic -> raw client id -> lags
+        final Map<String, Map<String, List<ConsumerLag>>> lagsByConsumer = new HashMap<>();
+        consumerLags.forEach((topic, lags) -> lagsByConsumer.put(topic,
+                lags.stream().collect(groupingBy(ConsumerLag::getRawClientId, LinkedHashMap::new, toList()))));
+
+        final Map<String, Candidate[]> candidatesByTopic = new HashMap<>();
+        final Map<String, Map<String, Candidate>> candidateByConsumer = new HashMap<>();
+        final Map<String, List<String>> summedTopics = new HashMap<>();
+        for (final Map.Entry<String, Map<String, List<ConsumerLag>>> topic : lagsByConsumer.entrySet()) {
+            final List<String> topics = equalOrHigherTopicsThan(topic.getKey(), topicsWithPriority);
+            summedTopics.put(topic.getKey(), topics);
+
+            final List<Candidate> candidates = new ArrayList<>();
+            for (final Map.Entry<String, List<ConsumerLag>> consumer : topic.getValue().entrySet()) {
+                long summedLag = 0L;
+                for (final String summedTopic : topics) {
+                    for (final ConsumerLag lag : lagsByConsumer.getOrDefault(summedTopic, emptyMap())
+                            .getOrDefault(consumer.getKey(), emptyList())) {
+                        summedLag += lag.getLag();
+                    }
+                }
+                candidates.add(new Candidate(consumer.getKey(), summedLag, consumer.getValue()));
+            }
+            candidates.sort(Comparator.comparingLong(c -> c.summedLag));
+            candidatesByTopic.put(topic.getKey(), candidates.toArray(new Candidate[0]));
+            final Map<String, Candidate> byConsumer = new HashMap<>();
+            candidates.forEach(c -> byConsumer.put(c.getRawClientId(), c));
+            candidateByConsumer.put(topic.getKey(), byConsumer);
+        }
+
+        // a publication on a topic increases the summed lags of the consumer on all topics summing it up
+        final Map<TopicPartition, Slot> slots = new HashMap<>();
+        for (final Map.Entry<String, Candidate[]> topic : candidatesByTopic.entrySet()) {
+            for (final Candidate candidate : topic.getValue()) {
+                final List<AtomicLong> affected = new ArrayList<>();
+                summedTopics.forEach((summingTopic, topics) -> {
+                    final Candidate summing = candidateByConsumer.get(summingTopic).get(candidate.getRawClientId());
+                    if (summing != null && topics.contains(topic.getKey())) {
+                        affected.add(summing.interimSummedLag);
+                    }
+                });
+                candidate.affectedSummedLags = affected.toArray(new AtomicLong[0]);
+                for (int i = 0; i < candidate.lags.length; i++) {
+                    slots.put(candidate.lags[i].getTopicPartition(), new Slot(candidate, i));
+                }
+            }
+        }
+        return new PartitionRouting(candidatesByTopic, slots, consumerLags);
+    }
+
+    /**
+     * Chooses the partition with the lowest lag of the consumer with the lowest
+     * summed lag and counts the publication on it
+     *
+     * @return the partition or null if there is no consumer for the topic
+     */
+    public Integer partitionFor(final String topic) {
+        final Candidate[] candidates = candidatesByTopic.get(topic);
+        if (candidates == null || candidates.length == 0) {
+            return null;
+        }
+        Candidate best = candidates[0];
+        long bestLag = best.currentSummedLag();
+        for (int i = 1; i < candidates.length; i++) {
+            final long lag = candidates[i].currentSummedLag();
+            if (lag < bestLag) {
+                best = candidates[i];
+                bestLag = lag;
+            }
+        }
+        final int index = best.indexWithLowestLag();
+        best.incInterimPublications(index);
+        return best.lags[index].getPartition();
+    }
+
+    public void incInterimPublicationsFor(final TopicPartition partition) {
+        final Slot slot = slots.get(partition);
+        if (slot != null) {
+            slot.candidate.incInterimPublications(slot.index);
+        }
+    }
+
+    /**
+     * @return the fetched lags including the interim publications
+     */
+    public Map<String, List<ConsumerLag>> getConsumerLags() {
+        final Map<String, List<ConsumerLag>> result = new HashMap<>();
+        consumerLags.values().stream().flatMap(Collection::stream).forEach(lag -> {
+            final Slot slot = slots.get(lag.getTopicPartition());
+            final ConsumerLag current = slot == null ? lag
+                    : lag.includingInterimPublications(slot.candidate.interimPublications[slot.index]);
+            result.computeIfAbsent(lag.getTopic(), t -> new ArrayList<>()).add(current);
+        });
+        return result;
+    }
+
+    private static List<String> equalOrHigherTopicsThan(final String topic,
+            final Map<String, Integer> topicsWithPriority) {
+        final Integer thisPriority = topicsWithPriority.getOrDefault(topic, Integer.MAX_VALUE);
+        final List<String> result = new ArrayList<>(singletonList(topic));
+        topicsWithPriority.forEach((otherTopic, priority) -> {
+            if (!otherTopic.equals(topic) && priority >= thisPriority) {
+                result.add(otherTopic);
+            }
+        });
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return "PartitionRouting [topics=" + candidatesByTopic.keySet() + ", partitions=" + slots.size() + "]";
+    }
+}
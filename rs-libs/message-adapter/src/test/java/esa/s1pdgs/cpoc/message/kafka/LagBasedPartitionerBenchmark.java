@@ -0,0 +1,140 @@
+package esa.s1pdgs.cpoc.message.kafka;
+
+import static java.util.Comparator.comparingLong;
+import static java.util.stream.Collectors.groupingBy;
+import static java.util.stream.Collectors.summingLong;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+import org.apache.kafka.common.TopicPartition;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import esa.s1pdgs.cpoc.message.kafka.PartitionLagFetcher.ConsumerLag;
+
+/**
+ * Compares the partition selection on the routing snapshot with the former
+ * calculation, which grouped and summed all fetched lags for each record.
+ * Not a unit test, run it via {@link #main(String[])} from the test classpath.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(4)
+public class LagBasedPartitionerBenchmark {
+
+    private static final String TOPIC = "topic0";
+
+    @Param({ "4", "32" })
+    private int consumers;
+
+    @Param({ "3" })
+    private int topics;
+
+    @Param({ "4" })
+    private int partitionsPerConsumer;
+
+    private final Map<String, Integer> topicsWithPriority = new HashMap<>();
+    private Map<String, List<ConsumerLag>> fetched;
+    private Map<TopicPartition, AtomicLong> interimPublications;
+    private PartitionRouting routing;
+
+    @Setup
+    public void setup() {
+        fetched = new HashMap<>();
+        for (int t = 0; t < topics; t++) {
+            final String topic = "topic" + t;
+            topicsWithPriority.put(topic, topics - t);
+            final List<ConsumerLag> lags = new ArrayList<>();
+            for (int c = 0; c < consumers; c++) {
+                for (int p = 0; p < partitionsPerConsumer; p++) {
+                    final int partition = c * partitionsPerConsumer + p;
+                    lags.add(new ConsumerLag("worker" + c + "-" + topic + "-" + p, "host" + c, topic, partition,
+                            1000L + (partition * 7919L) % 100L, 1000L));
+                }
+            }
+            fetched.put(topic, lags);
+        }
+        interimPublications = new ConcurrentHashMap<>();
+        routing = PartitionRouting.of(fetched, topicsWithPriority);
+    }
+
+    @Benchmark
+    public Integer snapshot() {
+        return routing.partitionFor(TOPIC);
+    }
+
+    @Benchmark
+    public Integer streams() {
+        final Integer partition = streamsPartitionFor(TOPIC);
+        if (partition != null) {
+            interimPublications.computeIfAbsent(new TopicPartition(TOPIC, partition), p -> new AtomicLong())
+                    .incrementAndGet();
+        }
+        return partition;
+    }
+
+    // the calculation of the LagBasedPartitioner before the routing snapshot
+
+    private Integer streamsPartitionFor(final String topic) {
+        final Map<String, List<ConsumerLag>> consumerLags = consumerLags();
+        final Integer thisPriority = topicsWithPriority.getOrDefault(topic, Integer.MAX_VALUE);
+        final Map<String, Long> sumOfLags = Stream.concat(Stream.of(topic), topicsWithPriority.entrySet().stream()
+                .filter(other -> !other.getKey().equals(topic) && other.getValue() >= thisPriority)
+                .map(Map.Entry::getKey))
+                .map(t -> lagsForTopic(consumerLags, t))
+                .flatMap(map -> map.entrySet().stream())
+                .collect(groupingBy(Map.Entry::getKey, summingLong(Map.Entry::getValue)));
+
+        final Map.Entry<String, Long> lowest = sumOfLags.entrySet().stream()
+                .min(Map.Entry.comparingByValue()).orElse(null);
+        if (lowest == null) {
+            return null;
+        }
+        return consumerLags().getOrDefault(topic, new ArrayList<>()).stream()
+                .filter(lag -> lag.getRawClientId().equals(lowest.getKey()))
+                .min(comparingLong(ConsumerLag::getLag))
+                .map(ConsumerLag::getPartition).orElse(null);
+    }
+
+    private Map<String, List<ConsumerLag>> consumerLags() {
+        return fetched.values().stream()
+                .flatMap(Collection::stream)
+                .map(lag -> lag.includingInterimPublications(interimPublications.get(lag.getTopicPartition())))
+                .collect(groupingBy(ConsumerLag::getTopic));
+    }
+
+    private static Map<String, Long> lagsForTopic(final Map<String, List<ConsumerLag>> consumerLags,
+            final String topic) {
+        return consumerLags.getOrDefault(topic, new ArrayList<>()).stream()
+                .collect(groupingBy(ConsumerLag::getRawClientId, summingLong(ConsumerLag::getLag)));
+    }
+
+    public static void main(final String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(LagBasedPartitionerBenchmark.class.getSimpleName()).build()).run();
+    }
+}
@@ -0,0 +1,68 @@
+package esa.s1pdgs.cpoc.message.kafka;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.kafka.common.TopicPartition;
+import org.junit.Test;
+
+import esa.s1pdgs.cpoc.message.kafka.PartitionLagFetcher.ConsumerLag;
+
+public class PartitionRoutingTest {
+
+    @Test
+    public void partitionWithLowestLagOfConsumerWithLowestLag() {
+        final Map<String, List<ConsumerLag>> lags = new HashMap<>();
+        lags.put("t1", Arrays.asList(
+                lag("worker0", "t1", 0, 5),
+                lag("worker0", "t1", 1, 1),
+                lag("worker1", "t1", 2, 4),
+                lag("worker1", "t1", 3, 3)));
+
+        final PartitionRouting routing = PartitionRouting.of(lags, new HashMap<>());
+
+        assertThat(routing.partitionFor("t1"), is(equalTo(1)));
+        assertThat(routing.partitionFor("t1"), is(equalTo(1)));
+        // worker0 has a summed lag of 8 now
+        assertThat(routing.partitionFor("t1"), is(equalTo(3)));
+        assertThat(routing.partitionFor("t1"), is(equalTo(1)));
+        assertThat(routing.partitionFor("unknown"), is(nullValue()));
+    }
+
+    @Test
+    public void lagsOfTopicsWithHigherPriorityAreSummedUp() {
+        final Map<String, List<ConsumerLag>> lags = new HashMap<>();
+        lags.put("low", Arrays.asList(
+                lag("worker0", "low", 0, 0),
+                lag("worker1", "low", 1, 2)));
+        lags.put("high", Arrays.asList(
+                lag("worker0", "high", 0, 10),
+                lag("worker1", "high", 1, 0)));
+        final Map<String, Integer> priorities = new HashMap<>();
+        priorities.put("low", 1);
+        priorities.put("high", 2);
+
+        final PartitionRouting routing = PartitionRouting.of(lags, priorities);
+
+        assertThat(routing.partitionFor("low"), is(equalTo(1)));
+        assertThat(routing.partitionFor("high"), is(equalTo(1)));
+
+        // publications on the topic with higher priority count for the lower one
+        for (int i = 0; i < 10; i++) {
+            routing.incInterimPublicationsFor(new TopicPartition("high", 1));
+        }
+        assertThat(routing.partitionFor("low"), is(equalTo(0)));
+        assertThat(routing.getConsumerLags().get("high").get(1).getLag(), is(equalTo(11L)));
+    }
+
+    private static ConsumerLag lag(final String rawClientId, final String topic, final int partition, final long lag) {
+        return new ConsumerLag(rawClientId + "-" + topic + "-0", "host", topic, partition, 100L + lag, 100L);
+    }
+}
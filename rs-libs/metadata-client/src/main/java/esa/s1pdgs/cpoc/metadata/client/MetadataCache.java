@@ -0,0 +1,184 @@
+package esa.s1pdgs.cpoc.metadata.client;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.LongSupplier;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import esa.s1pdgs.cpoc.common.errors.processing.MetadataQueryException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Size and time bounded cache of the point lookups of the metadata client.
+ * <p>
+ * The metadata of a catalogued product does not change, so it is kept for the
+ * configured time. Products not found yet and collections growing with the
+ * products of a session or datatake are kept for the short time only, unless
+ * they are invalidated before.
+ */
+public class MetadataCache {
+
+	private static final Logger LOGGER = LogManager.getLogger(MetadataCache.class);
+
+	@FunctionalInterface
+	interface Loader<T> {
+		T load() throws MetadataQueryException;
+	}
+
+	private static final class Entry {
+		private final Object value;
+		private final long expiry;
+
+		Entry(final Object value, final long expiry) {
+			this.value = value;
+			this.expiry = expiry;
+		}
+	}
+
+	private final int maxSize;
+
+	private final long ttlMs;
+
+	private final long shortTtlMs;
+
+	private final LongSupplier clock;
+
+	private final Counter hits;
+
+	private final Counter misses;
+
+	private final Counter evictions;
+
+	// incremented on each invalidation, so values loaded meanwhile are not kept
+	private long generation;
+
+	// access order, so the least recently used entry is evicted first
+	private final Map<String, Entry> entries = new LinkedHashMap<String, Entry>(16, 0.75f, true) {
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		protected boolean removeEldestEntry(final Map.Entry<String, Entry> eldest) {
+			if (size() > maxSize) {
+				evictions.increment();
+				return true;
+			}
+			return false;
+		}
+	};
+
+	public MetadataCache(final int maxSize, final long ttlMs, final long shortTtlMs, final MeterRegistry registry) {
+		this(maxSize, ttlMs, shortTtlMs, registry, System::currentTimeMillis);
+	}
+
+	MetadataCache(final int maxSize, final long ttlMs, final long shortTtlMs, final MeterRegistry registry,
+			final LongSupplier clock) {
+		this.maxSize = maxSize;
+		this.ttlMs = ttlMs;
+		this.shortTtlMs = shortTtlMs;
+		this.clock = clock;
+
+		final MeterRegistry meterRegistry = registry == null ? new SimpleMeterRegistry() : registry;
+		this.hits = Counter.builder("rs.metadata.client.cache.hits")
+				.description("Number of metadata lookups answered from the cache").register(meterRegistry);
+		this.misses = Counter.builder("rs.metadata.client.cache.misses")
+				.description("Number of metadata lookups sent to the catalog").register(meterRegistry);
+		this.evictions = Counter.builder("rs.metadata.client.cache.evictions")
+				.description("Number of metadata lookups evicted from the full cache").register(meterRegistry);
+		Gauge.builder("rs.metadata.client.cache.size", this, MetadataCache::size)
+				.description("Number of metadata lookups in the cache").register(meterRegistry);
+	}
+
+	/**
+	 * A cache keeping nothing
+	 */
+	public static MetadataCache disabled() {
+		return new MetadataCache(0, 0, 0, null);
+	}
+
+	public boolean isEnabled() {
+		return maxSize > 0 && ttlMs > 0;
+	}
+
+	/**
+	 * @return the value cached for the key, or the one loaded if there is none.
+	 *         Null values are kept for the short time.
+	 */
+	<T> T get(final String key, final Loader<T> loader) throws MetadataQueryException {
+		return get(key, false, loader);
+	}
+
+	/**
+	 * Like {@link #get(String, Loader)}, but any value is kept for the short time
+	 */
+	<T> T getVolatile(final String key, final Loader<T> loader) throws MetadataQueryException {
+		return get(key, true, loader);
+	}
+
+	@SuppressWarnings("unchecked")
+	private <T> T get(final String key, final boolean volatileValue, final Loader<T> loader)
+			throws MetadataQueryException {
+		if (!isEnabled()) {
+			return loader.load();
+		}
+		final long loadGeneration;
+		synchronized (entries) {
+			final Entry entry = entries.get(key);
+			if (entry != null) {
+				if (entry.expiry > clock.getAsLong()) {
+					hits.increment();
+					return (T) entry.value;
+				}
+				entries.remove(key);
+			}
+			loadGeneration = generation;
+		}
+		misses.increment();
+
+		// loaded outside of the lock, concurrent misses of the same key may load twice
+		final T value = loader.load();
+		final long ttl = volatileValue || value == null ? shortTtlMs : ttlMs;
+		if (ttl > 0) {
+			synchronized (entries) {
+				if (loadGeneration == generation) {
+					entries.put(key, new Entry(value, clock.getAsLong() + ttl));
+				}
+			}
+		}
+		return value;
+	}
+
+	/**
+	 * Removes the entries of the given keys
+	 */
+	void invalidate(final String... keys) {
+		if (!isEnabled()) {
+			return;
+		}
+		synchronized (entries) {
+			generation++;
+			for (final String key : keys) {
+				if (entries.remove(key) != null) {
+					LOGGER.trace("Invalidated cached metadata {}", key);
+				}
+			}
+		}
+	}
+
+	public void invalidateAll() {
+		synchronized (entries) {
+			generation++;
+			entries.clear();
+		}
+	}
+
+	public int size() {
+		synchronized (entries) {
+			return entries.size();
+		}
+	}
+}
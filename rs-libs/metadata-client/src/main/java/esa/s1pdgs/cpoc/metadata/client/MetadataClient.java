@@ -1,5 +1,6 @@
 package esa.s1pdgs.cpoc.metadata.client;
 
+import java.io.IOException;
 import java.net.URI;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
@@ -7,10 +8,13 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.HttpEntity;
 import org.springframework.http.HttpMethod;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
@@ -20,6 +24,12 @@ import org.springframework.web.client.RestClientException;
 import org.springframework.web.client.RestTemplate;
 import org.springframework.web.util.UriComponentsBuilder;
 
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
 import esa.s1pdgs.cpoc.common.ProductFamily;
 import esa.s1pdgs.cpoc.common.errors.processing.MetadataQueryException;
 import esa.s1pdgs.cpoc.common.time.TimeInterval;
@@ -32,22 +42,84 @@ import esa.s1pdgs.cpoc.metadata.model.L0SliceMetadata;
 import esa.s1pdgs.cpoc.metadata.model.LevelSegmentMetadata;
 import esa.s1pdgs.cpoc.metadata.model.S3Metadata;
 import esa.s1pdgs.cpoc.metadata.model.SearchMetadata;
+import esa.s1pdgs.cpoc.metadata.model.SelectionPolicyQuery;
+import esa.s1pdgs.cpoc.metadata.model.SelectionPolicyResult;
+import esa.s1pdgs.cpoc.mqi.model.queue.CatalogEvent;
 
 public class MetadataClient {
 
 	private static final Logger LOGGER = LogManager.getLogger(MetadataClient.class);
 
+	private static final JsonFactory JSON_FACTORY = new ObjectMapper()
+			.configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false).getFactory();
+
 	private final RestTemplate restTemplate;
 	private final String metadataBaseUri;
 	private final int maxRetries;
 	private final int retryInMillis;
+	private final MetadataCache cache;
 
 	public MetadataClient(final RestTemplate restTemplate, final String metadataHostname, final int maxRetries,
 			final int retryInMillis) {
+		this(restTemplate, metadataHostname, maxRetries, retryInMillis, MetadataCache.disabled());
+	}
+
+	public MetadataClient(final RestTemplate restTemplate, final String metadataHostname, final int maxRetries,
+			final int retryInMillis, final MetadataCache cache) {
 		this.restTemplate = restTemplate;
 		this.metadataBaseUri = "http://" + metadataHostname + "/";
 		this.maxRetries = maxRetries;
 		this.retryInMillis = retryInMillis;
+		this.cache = cache;
+	}
+
+	/**
+	 * Drops the cached lookups which may change with the product of the given
+	 * catalog event
+	 */
+	public void invalidate(final CatalogEvent event) {
+		final String family = String.valueOf(event.getProductFamily());
+		final Object sessionId = event.getMetadata().get("sessionId");
+		final Object dataTakeId = event.getMetadata().get("dataTakeId");
+		cache.invalidate(
+				s3MetadataKey(family, event.getProductName()),
+				s3MetadataKey(family, event.getMetadataProductName()),
+				productNameKey(family, event.getProductName()),
+				productNameKey(family, event.getMetadataProductName()),
+				l0SliceKey(event.getProductName()),
+				l0SliceKey(event.getMetadataProductName()),
+				edrsSessionKey(String.valueOf(sessionId)),
+				levelSegmentsKey(String.valueOf(dataTakeId)));
+	}
+
+	/**
+	 * Drops the cached lookups of the given product
+	 */
+	public void invalidate(final ProductFamily family, final String productName) {
+		cache.invalidate(
+				s3MetadataKey(family.name(), productName),
+				productNameKey(family.name(), productName),
+				l0SliceKey(productName));
+	}
+
+	private static String s3MetadataKey(final String family, final String productName) {
+		return "s3Metadata/" + family + "/" + productName;
+	}
+
+	private static String productNameKey(final String family, final String productName) {
+		return "productName/" + family + "/" + productName;
+	}
+
+	private static String l0SliceKey(final String productName) {
+		return "l0Slice/" + productName;
+	}
+
+	private static String edrsSessionKey(final String sessionId) {
+		return "edrsSession/" + sessionId;
+	}
+
+	private static String levelSegmentsKey(final String dataTakeId) {
+		return "levelSegments/" + dataTakeId;
 	}
 
 	/**
@@ -56,6 +128,11 @@ public class MetadataClient {
 	 * 
 	 */
 	public List<EdrsSessionMetadata> getEdrsSessionFor(final String sessionId) throws MetadataQueryException {
+		// the session grows with each catalogued channel file
+		return new ArrayList<>(cache.getVolatile(edrsSessionKey(sessionId), () -> queryEdrsSessionFor(sessionId)));
+	}
+
+	private List<EdrsSessionMetadata> queryEdrsSessionFor(final String sessionId) throws MetadataQueryException {
 
 		final String uri = this.metadataBaseUri + MetadataCatalogRestPath.EDRS_SESSION.path() + "/sessionId/"
 				+ sessionId;
@@ -80,15 +157,19 @@ public class MetadataClient {
 
 		final String uri = this.metadataBaseUri + MetadataCatalogRestPath.L0_SLICE.path() + "/" + productName;
 
-		final ResponseEntity<L0SliceMetadata> response = query(UriComponentsBuilder.fromUriString(uri).build().toUri(),
-				new ParameterizedTypeReference<L0SliceMetadata>() {
-				});
+		final L0SliceMetadata slice = cache.get(l0SliceKey(productName), () -> {
+			final ResponseEntity<L0SliceMetadata> response = query(
+					UriComponentsBuilder.fromUriString(uri).build().toUri(),
+					new ParameterizedTypeReference<L0SliceMetadata>() {
+					});
+			return response == null ? null : response.getBody();
+		});
 
-		if (response == null || response.getBody() == null) {
+		if (slice == null) {
 			throw new MetadataQueryException("L0 slice not found for product name {}" + productName);
 		} else {
-			LOGGER.debug("Returning L0 slice: {}", response.getBody());
-			return response.getBody();
+			LOGGER.debug("Returning L0 slice: {}", slice);
+			return slice;
 		}
 
 	}
@@ -96,6 +177,11 @@ public class MetadataClient {
 	/**
 	 */
 	public List<LevelSegmentMetadata> getLevelSegments(final String dataTakeId) throws MetadataQueryException {
+		// the datatake grows with each catalogued segment
+		return new ArrayList<>(cache.getVolatile(levelSegmentsKey(dataTakeId), () -> queryLevelSegments(dataTakeId)));
+	}
+
+	private List<LevelSegmentMetadata> queryLevelSegments(final String dataTakeId) throws MetadataQueryException {
 		final String uri = this.metadataBaseUri + MetadataCatalogRestPath.LEVEL_SEGMENT.path() + "/" + dataTakeId;
 
 		final ResponseEntity<List<LevelSegmentMetadata>> response = query(
@@ -213,18 +299,21 @@ public class MetadataClient {
 		final UriComponentsBuilder builder = UriComponentsBuilder.fromUriString(uri).queryParam("productName",
 				productName);
 
-		final ResponseEntity<S3Metadata> response = query(builder.build().toUri(),
-				new ParameterizedTypeReference<S3Metadata>() {
-				});
+		final S3Metadata metadata = cache.get(s3MetadataKey(productFamily.name(), productName), () -> {
+			final ResponseEntity<S3Metadata> response = query(builder.build().toUri(),
+					new ParameterizedTypeReference<S3Metadata>() {
+					});
+			return response == null ? null : response.getBody();
+		});
 
-		if (response == null || response.getBody() == null) {
+		if (metadata == null) {
 			LOGGER.debug("S3Metadata query for family '{}' and product name '{}' returned no results", productFamily,
 					productName);
 			return null;
 		} else {
 			LOGGER.info("S3Metadata query for family '{}' and product name '{}' returned {}", productFamily.toString(),
-					productName, response.getBody());
-			return response.getBody();
+					productName, metadata);
+			return metadata;
 		}
 	}
 
@@ -349,6 +438,73 @@ public class MetadataClient {
 		return response.getBody();
 	}
 
+	/**
+	 * Performs all the given searches in a single call, the metadata catalog
+	 * sending them to Elasticsearch as a single multi search
+	 * 
+	 * @return the results of the searches, in the order of the queries, a failed
+	 *         search being returned with its error without failing the others
+	 */
+	public List<SelectionPolicyResult> searchAll(final List<SearchMetadataQuery> queries, final String t0,
+			final String t1, final String satelliteId, final int instrumentConfigurationId, final String processMode,
+			final String polarisation) throws MetadataQueryException {
+		if (queries.isEmpty()) {
+			return new ArrayList<>();
+		}
+
+		final List<SelectionPolicyQuery> body = new ArrayList<>(queries.size());
+		for (final SearchMetadataQuery query : queries) {
+			final SelectionPolicyQuery selectionPolicyQuery = new SelectionPolicyQuery(
+					query.getProductFamily().toString(), query.getProductType(), query.getRetrievalMode(),
+					satelliteId, t0, t1, processMode, instrumentConfigurationId, query.getDeltaTime0(),
+					query.getDeltaTime1(), polarisation);
+			body.add(selectionPolicyQuery);
+		}
+
+		final String uri = this.metadataBaseUri + MetadataCatalogRestPath.METADATA.path() + "/searchBatch";
+		final ResponseEntity<List<SelectionPolicyResult>> response = post(
+				UriComponentsBuilder.fromUriString(uri).build().toUri(), body,
+				new ParameterizedTypeReference<List<SelectionPolicyResult>>() {
+				});
+
+		if (response == null || response.getBody() == null || response.getBody().size() != queries.size()) {
+			throw new MetadataQueryException(
+					String.format("Metadata batch of %s queries returned no or incomplete results", queries.size()));
+		}
+
+		final List<SelectionPolicyResult> results = new ArrayList<>(queries.size());
+		for (int i = 0; i < queries.size(); i++) {
+			final SearchMetadataQuery query = queries.get(i);
+			final SelectionPolicyResult item = response.getBody().get(i);
+			if (item == null) {
+				results.add(SelectionPolicyResult.failed("No result returned"));
+				continue;
+			}
+			if (item.getError() != null) {
+				LOGGER.warn("Metadata query for family '{}' and product type '{}' failed: {}",
+						query.getProductFamily(), query.getProductType(), item.getError());
+				results.add(item);
+				continue;
+			}
+			final List<SearchMetadata> result = item.getResults() == null ? new ArrayList<>() : item.getResults();
+
+			// Handling for ValIntersectWithoutDuplicates -> return no result, if amount does not match expectation
+			if (query.getRetrievalMode().equals("ValIntersectWithoutDuplicates")
+					&& (query.getMinResults() > result.size() || query.getMaxResults() < result.size())) {
+				LOGGER.info(
+						"Metadata query for family '{}' and product type '{}' returned unexpected number of results: expected between {} and {} results, returned {} results",
+						query.getProductFamily(), query.getProductType(), query.getMinResults(),
+						query.getMaxResults(), result.size());
+				results.add(SelectionPolicyResult.found(new ArrayList<>()));
+				continue;
+			}
+			LOGGER.info("Metadata query for family '{}' and product type '{}' returned {} results",
+					query.getProductFamily(), query.getProductType(), result.size());
+			results.add(SelectionPolicyResult.found(result));
+		}
+		return results;
+	}
+
 	/**
 	 * Queries the products inside a given time interval for the given producttype.
 	 * The time interval is applied on the insertionTime
@@ -396,6 +552,44 @@ public class MetadataClient {
 		}
 	}
 
+	/**
+	 * Queries all products inside a given time interval for the given producttype
+	 * like {@link #searchInterval(ProductFamily, String, LocalDateTime, LocalDateTime, String, String)},
+	 * handing them to the consumer while they are read from the response
+	 * 
+	 * @param fields the additional properties to return, or empty for all of them
+	 * @return the number of products
+	 */
+	public int searchInterval(final ProductFamily productFamily, final String productType,
+			final LocalDateTime intervalStart, final LocalDateTime intervalStop, final String satelliteId,
+			final String timeliness, final List<String> fields, final Consumer<SearchMetadata> consumer)
+			throws MetadataQueryException {
+
+		final String uri = this.metadataBaseUri + MetadataCatalogRestPath.METADATA.path() + "/"
+				+ productFamily.toString() + "/searchTypeInterval";
+
+		final UriComponentsBuilder builder = UriComponentsBuilder.fromUriString(uri)
+				.queryParam("productType", productType)
+				.queryParam("intervalStart", intervalStart.format(DateUtils.METADATA_DATE_FORMATTER))
+				.queryParam("intervalStop", intervalStop.format(DateUtils.METADATA_DATE_FORMATTER));
+
+		if (!StringUtils.isEmpty(satelliteId)) {
+			builder.queryParam("satelliteId", satelliteId);
+		}
+
+		if (!StringUtils.isEmpty(timeliness)) {
+			builder.queryParam("timeliness", timeliness);
+		}
+
+		if (!CollectionUtils.isEmpty(fields)) {
+			builder.queryParam("fields", String.join(",", fields));
+		}
+
+		final int count = stream(builder.build().toUri(), consumer);
+		LOGGER.info("Metadata query for family '{}' returned {} results", productFamily, count);
+		return count;
+	}
+
 	public List<SearchMetadata> getL1AcnProductsForDatatake(final String productType, final String datatakeId)
 			throws MetadataQueryException {
 		final String uri = this.metadataBaseUri + MetadataCatalogRestPath.L1_ACN.path() + "/" + productType + "/" + "/"
@@ -508,17 +702,20 @@ public class MetadataClient {
 		final UriComponentsBuilder builder = UriComponentsBuilder.fromUriString(uri).queryParam("productName",
 				productName);
 
-		final ResponseEntity<SearchMetadata> response = query(builder.build().toUri(),
-				new ParameterizedTypeReference<SearchMetadata>() {
-				});
+		final SearchMetadata metadata = cache.get(productNameKey(family, productName), () -> {
+			final ResponseEntity<SearchMetadata> response = query(builder.build().toUri(),
+					new ParameterizedTypeReference<SearchMetadata>() {
+					});
+			return response == null ? null : response.getBody();
+		});
 
-		if (response == null || response.getBody() == null) {
+		if (metadata == null) {
 			LOGGER.error("Metadata query for family '{}' and product name {} returned no result", family, productName);
 			throw new MetadataQueryException(String.format(
 					"Metadata query for family '%s' and product name %s returned no result", family, productName));
 		} else {
 			LOGGER.info("Metadata query for family '{}' and product name {} returned 1 result", family, productName);
-			return response.getBody();
+			return metadata;
 		}
 	}
 
@@ -568,6 +765,7 @@ public class MetadataClient {
 		}
 
 		if (deleted) {
+			invalidate(family, productName);
 			LOGGER.info("MDC metadata for family {} and name {} deleted", family, productName);
 		} else {
 			LOGGER.warn("MDC metadata for family {} and name {} not deleted!", family, productName);
@@ -668,6 +866,76 @@ public class MetadataClient {
 		});
 	}
 
+	private <T> ResponseEntity<T> post(final URI uri, final Object body,
+			final ParameterizedTypeReference<T> responseType) throws MetadataQueryException {
+		final String commandDescription = String.format("call rest metadata on %s", uri);
+
+		return performWithRetries(commandDescription, () -> {
+			LOGGER.debug(commandDescription);
+			final ResponseEntity<T> response = restTemplate.exchange(uri, HttpMethod.POST, new HttpEntity<>(body),
+					responseType);
+			handleReturnValueErrors(uri.toString(), response);
+			LOGGER.debug("Rest api metadata call returned result. URI: {}, RESPONSE: {}", uri, response.getBody());
+			return response;
+		});
+	}
+
+	/**
+	 * Reads the JSON array of products of the response one by one instead of
+	 * deserializing the whole body at once. A failed call is only retried as long
+	 * as no product has been handed over: the products of a new search may come in
+	 * another order, so the products already handed over could not be skipped
+	 * reliably.
+	 */
+	private int stream(final URI uri, final Consumer<SearchMetadata> consumer) throws MetadataQueryException {
+		final String commandDescription = String.format("call rest metadata on %s", uri);
+		final AtomicInteger delivered = new AtomicInteger();
+
+		for (int attempt = 1;; attempt++) {
+			try {
+				LOGGER.debug(commandDescription);
+				restTemplate.execute(uri, HttpMethod.GET, null, response -> {
+					try (final JsonParser parser = JSON_FACTORY.createParser(response.getBody())) {
+						final JsonToken start = parser.nextToken();
+						if (start == null) {
+							// no content
+							return null;
+						}
+						if (start != JsonToken.START_ARRAY) {
+							throw new IOException(String.format("Rest metadata call %s returned no array", uri));
+						}
+						while (parser.nextToken() == JsonToken.START_OBJECT) {
+							consumer.accept(parser.readValueAs(SearchMetadata.class));
+							delivered.incrementAndGet();
+						}
+						if (parser.currentToken() != JsonToken.END_ARRAY) {
+							throw new IOException(
+									String.format("Rest metadata call %s returned a truncated array", uri));
+						}
+						return null;
+					}
+				});
+				return delivered.get();
+			} catch (final RestClientException e) {
+				if (delivered.get() > 0 || attempt > maxRetries) {
+					throw new MetadataQueryException(
+							String.format("Error on performing %s after %s attempts and %s products: %s",
+									commandDescription, attempt, delivered.get(), e.getMessage()),
+							e);
+				}
+				LOGGER.warn("Error on performing {} ({}/{}), retrying in {}ms", commandDescription, attempt,
+						maxRetries + 1, retryInMillis);
+				try {
+					Thread.sleep(retryInMillis);
+				} catch (final InterruptedException ie) {
+					Thread.currentThread().interrupt();
+					throw new RuntimeException(
+							String.format("Interrupted on command execution of '%s'", commandDescription));
+				}
+			}
+		}
+	}
+
 	private <T> void handleReturnValueErrors(final String uri, final ResponseEntity<T> response)
 			throws MetadataQueryException {
 		if (response == null) {
@@ -0,0 +1,126 @@
+package esa.s1pdgs.cpoc.metadata.client;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import esa.s1pdgs.cpoc.common.errors.processing.MetadataQueryException;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+public class MetadataCacheTest {
+
+	private final AtomicLong clock = new AtomicLong(1000);
+
+	private final AtomicInteger loads = new AtomicInteger();
+
+	private MeterRegistry registry;
+
+	private MetadataCache uut;
+
+	@Before
+	public void init() {
+		registry = new SimpleMeterRegistry();
+		uut = new MetadataCache(2, 60000, 2000, registry, clock::get);
+	}
+
+	private MetadataCache.Loader<String> loader(final String value) {
+		return () -> {
+			loads.incrementAndGet();
+			return value;
+		};
+	}
+
+	private double count(final String name) {
+		return registry.get(name).counter().count();
+	}
+
+	@Test
+	public void testGetHitAndMiss() throws MetadataQueryException {
+		assertEquals("a", uut.get("key", loader("a")));
+		assertEquals("a", uut.get("key", loader("b")));
+		assertEquals(1, loads.get());
+		assertEquals(1.0, count("rs.metadata.client.cache.hits"), 0);
+		assertEquals(1.0, count("rs.metadata.client.cache.misses"), 0);
+		assertEquals(1.0, registry.get("rs.metadata.client.cache.size").gauge().value(), 0);
+	}
+
+	@Test
+	public void testGetExpires() throws MetadataQueryException {
+		uut.get("key", loader("a"));
+		clock.addAndGet(59999);
+		assertEquals("a", uut.get("key", loader("b")));
+		clock.addAndGet(1);
+		assertEquals("b", uut.get("key", loader("b")));
+		assertEquals(2, loads.get());
+	}
+
+	@Test
+	public void testGetNotFoundKeptShortly() throws MetadataQueryException {
+		assertNull(uut.get("key", loader(null)));
+		clock.addAndGet(1999);
+		assertNull(uut.get("key", loader("a")));
+		clock.addAndGet(1);
+		assertEquals("a", uut.get("key", loader("a")));
+		assertEquals(2, loads.get());
+	}
+
+	@Test
+	public void testGetVolatileKeptShortly() throws MetadataQueryException {
+		uut.getVolatile("key", loader("a"));
+		clock.addAndGet(2000);
+		assertEquals("b", uut.getVolatile("key", loader("b")));
+		assertEquals(2, loads.get());
+	}
+
+	@Test
+	public void testEvictsLeastRecentlyUsed() throws MetadataQueryException {
+		uut.get("key1", loader("a"));
+		uut.get("key2", loader("b"));
+		uut.get("key1", loader("a"));
+		uut.get("key3", loader("c"));
+
+		assertEquals(2, uut.size());
+		assertEquals(1.0, count("rs.metadata.client.cache.evictions"), 0);
+		assertEquals("a", uut.get("key1", loader("x")));
+		assertEquals("x", uut.get("key2", loader("x")));
+	}
+
+	@Test
+	public void testInvalidate() throws MetadataQueryException {
+		uut.get("key1", loader("a"));
+		uut.get("key2", loader("b"));
+		uut.invalidate("key1", "unknown");
+
+		assertEquals("x", uut.get("key1", loader("x")));
+		assertEquals("b", uut.get("key2", loader("x")));
+
+		uut.invalidateAll();
+		assertEquals(0, uut.size());
+	}
+
+	@Test
+	public void testLoadRacingInvalidationNotKept() throws MetadataQueryException {
+		assertEquals("a", uut.get("key", () -> {
+			uut.invalidate("key");
+			return "a";
+		}));
+		assertEquals(0, uut.size());
+	}
+
+	@Test
+	public void testDisabled() throws MetadataQueryException {
+		uut = MetadataCache.disabled();
+		assertFalse(uut.isEnabled());
+		uut.get("key", loader("a"));
+		uut.get("key", loader("a"));
+		assertEquals(2, loads.get());
+		assertEquals(0, uut.size());
+	}
+}
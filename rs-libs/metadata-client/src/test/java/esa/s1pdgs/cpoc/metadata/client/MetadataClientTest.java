@@ -10,11 +10,16 @@ import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
 import java.net.URI;
+import java.nio.charset.StandardCharsets;
 import java.text.ParseException;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.Iterator;
 import java.util.List;
 
 import org.junit.Assert;
@@ -22,13 +27,18 @@ import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.ExpectedException;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.Mockito;
 import org.mockito.MockitoAnnotations;
 import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.HttpEntity;
 import org.springframework.http.HttpMethod;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.client.ResponseExtractor;
 import org.springframework.web.client.RestClientException;
 import org.springframework.web.client.RestTemplate;
 import org.springframework.web.util.UriComponentsBuilder;
@@ -40,6 +50,7 @@ import esa.s1pdgs.cpoc.metadata.model.EdrsSessionMetadata;
 import esa.s1pdgs.cpoc.metadata.model.L0AcnMetadata;
 import esa.s1pdgs.cpoc.metadata.model.L0SliceMetadata;
 import esa.s1pdgs.cpoc.metadata.model.SearchMetadata;
+import esa.s1pdgs.cpoc.metadata.model.SelectionPolicyResult;
 
 public class MetadataClientTest {
 
@@ -313,6 +324,28 @@ public class MetadataClientTest {
 		this.metadataClient.getL0Slice(file);
 	}
 
+	@Test
+	public void testGetSliceCached() throws MetadataQueryException {
+		final String file = "S1A_IW_RAW__0SDV_20171213T121623_20171213T121656_019684_021735_C6DB.SAFE";
+		final L0SliceMetadata expectedResult = new L0SliceMetadata(file, "IW_RAW__0S", file, "2017-12-13T12:16:23",
+				"2017-12-13T12:16:56", "S1", "A", "WILE", 6, 2, "021735");
+		when(restTemplate.exchange(any(URI.class), eq(HttpMethod.GET), eq(null),
+				any((Class<ParameterizedTypeReference<L0SliceMetadata>>) (Object) ParameterizedTypeReference.class)))
+						.thenReturn(new ResponseEntity<L0SliceMetadata>(expectedResult, HttpStatus.OK));
+
+		final MetadataClient cachingClient = new MetadataClient(restTemplate, METADATA_HOST, nbRetry, tempoRetry,
+				new MetadataCache(10, 60000, 2000, null));
+		assertEquals(expectedResult, cachingClient.getL0Slice(file));
+		assertEquals(expectedResult, cachingClient.getL0Slice(file));
+		verify(this.restTemplate, times(1)).exchange(any(URI.class), eq(HttpMethod.GET), eq(null),
+				any((Class<ParameterizedTypeReference<L0SliceMetadata>>) (Object) ParameterizedTypeReference.class));
+
+		cachingClient.invalidate(ProductFamily.L0_SEGMENT, file);
+		cachingClient.getL0Slice(file);
+		verify(this.restTemplate, times(2)).exchange(any(URI.class), eq(HttpMethod.GET), eq(null),
+				any((Class<ParameterizedTypeReference<L0SliceMetadata>>) (Object) ParameterizedTypeReference.class));
+	}
+
 	// --------------------------------------------------
 	// Test around acn
 	// --------------------------------------------------
@@ -501,6 +534,114 @@ public class MetadataClientTest {
 
 	}
 
+	@Test
+	public void testSearchAllOk() throws MetadataQueryException {
+		final SearchMetadata expectedFile = new SearchMetadata("S1A_OPER_MPL_ORBPRE_20171208T200309_20171215T200309_0001.EOF",
+				"MPL_ORBPRE", "S1A_OPER_MPL_ORBPRE_20171208T200309_20171215T200309_0001.EOF", "2017-12-05T20:03:09",
+				"2017-12-15T20:03:09", "S1", "A", "WILE");
+		final ResponseEntity<List<SelectionPolicyResult>> r = new ResponseEntity<List<SelectionPolicyResult>>(
+				Arrays.asList(SelectionPolicyResult.found(Arrays.asList(expectedFile)),
+						SelectionPolicyResult.found(Arrays.asList(expectedFile, expectedFile)),
+						SelectionPolicyResult.failed("failed")),
+				HttpStatus.OK);
+		when(restTemplate.exchange(Mockito.any(URI.class), eq(HttpMethod.POST), Mockito.any(HttpEntity.class),
+				eq(new ParameterizedTypeReference<List<SelectionPolicyResult>>() {
+				}))).thenReturn(r);
+
+		final SearchMetadataQuery withoutDuplicates = new SearchMetadataQuery(2, "ValIntersectWithoutDuplicates", 1, 2,
+				1, 1, "AUX_TEC", ProductFamily.AUXILIARY_FILE);
+		final List<SelectionPolicyResult> files = this.metadataClient.searchAll(Arrays.asList(
+				new SearchMetadataQuery(1, "LatestValCover", 1, 2, "MPL_ORBPRE", ProductFamily.AUXILIARY_FILE),
+				withoutDuplicates,
+				new SearchMetadataQuery(3, "ValCover", 1, 2, "AUX_CAL", ProductFamily.AUXILIARY_FILE)),
+				"2017-11-20T22:15:16.123456Z", "2017-12-20T10:15:16.654321Z", "A", -1, null, "NONE");
+
+		assertEquals(3, files.size());
+		assertEquals(Arrays.asList(expectedFile), files.get(0).getResults());
+		// more results than expected
+		assertTrue(files.get(1).getResults().isEmpty());
+		assertEquals(null, files.get(1).getError());
+		// the failed search does not fail the others
+		assertEquals("failed", files.get(2).getError());
+		verify(restTemplate, times(1)).exchange(Mockito.any(URI.class), eq(HttpMethod.POST),
+				Mockito.any(HttpEntity.class), eq(new ParameterizedTypeReference<List<SelectionPolicyResult>>() {
+				}));
+	}
+
+	private void mockStreamedResponse(final String... bodies) throws IOException {
+		final List<ClientHttpResponse> responses = new ArrayList<>();
+		for (final String body : bodies) {
+			final ClientHttpResponse response = Mockito.mock(ClientHttpResponse.class);
+			when(response.getBody()).thenReturn(new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8)));
+			responses.add(response);
+		}
+		final Iterator<ClientHttpResponse> it = responses.iterator();
+		when(restTemplate.execute(any(URI.class), eq(HttpMethod.GET), eq(null), any(ResponseExtractor.class)))
+				.thenAnswer(invocation -> {
+					final ResponseExtractor<?> extractor = invocation.getArgument(3);
+					try {
+						return extractor.extractData(it.next());
+					} catch (final IOException e) {
+						throw new ResourceAccessException(e.getMessage(), e);
+					}
+				});
+	}
+
+	@Test
+	public void testSearchIntervalStreamed() throws Exception {
+		mockStreamedResponse("[{\"productName\":\"name1\",\"productType\":\"type\",\"unknown\":1},"
+				+ "{\"productName\":\"name2\",\"productType\":\"type\"}]");
+
+		final List<SearchMetadata> results = new ArrayList<>();
+		final int count = metadataClient.searchInterval(ProductFamily.L0_ACN, "type",
+				LocalDateTime.parse("2000-01-01T00:00:00"), LocalDateTime.parse("2001-01-01T00:00:00"), "A", "",
+				Arrays.asList("dataTakeId", "swathtype"), results::add);
+
+		assertEquals(2, count);
+		assertEquals("name1", results.get(0).getProductName());
+		assertEquals("name2", results.get(1).getProductName());
+		final ArgumentCaptor<URI> uri = ArgumentCaptor.forClass(URI.class);
+		verify(restTemplate).execute(uri.capture(), eq(HttpMethod.GET), eq(null), any(ResponseExtractor.class));
+		assertTrue(uri.getValue().toString().contains("fields=dataTakeId,swathtype"));
+	}
+
+	@Test
+	public void testSearchIntervalStreamedRetriedBeforeFirstProduct() throws Exception {
+		// first response is cut before the first product is complete
+		mockStreamedResponse("[{\"productName\":\"na",
+				"[{\"productName\":\"name1\",\"productType\":\"type\"},"
+						+ "{\"productName\":\"name2\",\"productType\":\"type\"}]");
+
+		final List<SearchMetadata> results = new ArrayList<>();
+		final int count = metadataClient.searchInterval(ProductFamily.L0_ACN, "type",
+				LocalDateTime.parse("2000-01-01T00:00:00"), LocalDateTime.parse("2001-01-01T00:00:00"), "A", "",
+				Collections.emptyList(), results::add);
+
+		assertEquals(2, count);
+		assertEquals(2, results.size());
+		assertEquals("name1", results.get(0).getProductName());
+		assertEquals("name2", results.get(1).getProductName());
+	}
+
+	@Test
+	public void testSearchIntervalStreamedNotRetriedAfterFirstProduct() throws Exception {
+		// first response is cut after the first product
+		mockStreamedResponse("[{\"productName\":\"name1\",\"productType\":\"type\"},{\"productName\":\"na",
+				"[{\"productName\":\"name1\",\"productType\":\"type\"},"
+						+ "{\"productName\":\"name2\",\"productType\":\"type\"}]");
+
+		final List<SearchMetadata> results = new ArrayList<>();
+		try {
+			metadataClient.searchInterval(ProductFamily.L0_ACN, "type", LocalDateTime.parse("2000-01-01T00:00:00"),
+					LocalDateTime.parse("2001-01-01T00:00:00"), "A", "", Collections.emptyList(), results::add);
+			Assert.fail("MetadataQueryException expected");
+		} catch (final MetadataQueryException e) {
+			assertEquals(1, results.size());
+			verify(restTemplate, times(1)).execute(any(URI.class), eq(HttpMethod.GET), eq(null),
+					any(ResponseExtractor.class));
+		}
+	}
+
 	@Test
 	public void testSearchKo() throws MetadataQueryException {
 		final ResponseEntity<List<SearchMetadata>> r = new ResponseEntity<List<SearchMetadata>>(
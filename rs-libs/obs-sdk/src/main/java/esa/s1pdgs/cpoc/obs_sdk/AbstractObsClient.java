@@ -1,7 +1,5 @@
 package esa.s1pdgs.cpoc.obs_sdk;
 
-import static esa.s1pdgs.cpoc.obs_sdk.AbstractObsClient.VoidCallable.wrap;
-
 import java.io.BufferedReader;
 import java.io.File;
 import java.io.IOException;
@@ -15,16 +13,15 @@ import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.Callable;
-import java.util.concurrent.CompletionService;
 import java.util.concurrent.ExecutionException;
-import java.util.concurrent.ExecutorCompletionService;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import esa.s1pdgs.cpoc.common.ProductFamily;
 import esa.s1pdgs.cpoc.common.errors.AbstractCodedException;
@@ -52,6 +49,7 @@ import esa.s1pdgs.cpoc.report.ReportingMessage;
 public abstract class AbstractObsClient implements ObsClient {
 	private final ObsConfigurationProperties configuration;
 	private final ReportingProductFactory reportingProductFactory;
+	private final ObsTransferScheduler transferScheduler;
 	
 	public AbstractObsClient(
 			final ObsConfigurationProperties configuration, 
@@ -59,6 +57,7 @@ public abstract class AbstractObsClient implements ObsClient {
 	) {
 		this.configuration = configuration;
 		this.reportingProductFactory = reportingProductFactory;
+		this.transferScheduler = new ObsTransferScheduler(Math.max(1, configuration.getTransferConcurrency()));
 	}
 
 	protected final String getBucketFor(final ProductFamily family) {
@@ -66,6 +65,15 @@ public abstract class AbstractObsClient implements ObsClient {
 	}
 
     protected abstract List<File> downloadObject(ObsDownloadObject object) throws SdkClientException;
+
+    /**
+     * Downloads the object, giving the client the possibility to report the
+     * progress of the transfer as sub tasks of the given reporting
+     */
+    protected List<File> downloadObject(final ObsDownloadObject object, final ReportingFactory reportingFactory)
+            throws SdkClientException {
+        return downloadObject(object);
+    }
     
     protected abstract void uploadObject(FileObsUploadObject object) throws SdkClientException, ObsException;
 
@@ -78,24 +86,12 @@ public abstract class AbstractObsClient implements ObsClient {
     	final List<File> files = new ArrayList<>();
         if (objects.size() > 1 && parallel) {
             // Download objects in parallel
-            final ExecutorService workerThread = Executors.newFixedThreadPool(objects.size());
-            final CompletionService<List<File>> service = new ExecutorCompletionService<>(workerThread);
-            // Launch all downloads
+            final BlockingQueue<Future<?>> completed = new LinkedBlockingQueue<>();
             final List<Future<List<File>>> futures = new ArrayList<>();
             for (final ObsDownloadObject object : objects) {
-            	futures.add(service.submit(downloadCall(reportingFactory, object)));
-            }
-            
-            waitForCompletion(workerThread, service, objects.size(),configuration.getTimeoutDownExec());
-
-            for (final Future<List<File>> future : futures) {
-	            try {
-	            	files.addAll(future.get());
-	            } catch (InterruptedException | ExecutionException e) {
-	            	// unlikely case, because waitForCompletion() already ensured that the executions are finished...
-	            	throw new ObsServiceException(e.getMessage(), e);
-	            }
+            	futures.add(transferScheduler.submit(object.getFamily(), 0L, downloadCall(reportingFactory, object), completed));
             }
+            files.addAll(waitForCompletion(futures, completed, configuration.getTimeoutDownExec()));
         } else {
     		final Reporting reporting = reportingFactory.newReporting("ObsRead");
       	
@@ -106,7 +102,7 @@ public abstract class AbstractObsClient implements ObsClient {
              			new ReportingMessage("Start downloading from OBS")
              	);
              	try {
-					final List<File> results = downloadObject(object);
+					final List<File> results = downloadObject(object, reporting);
 					if (results.size() <= 0) {
 						throw new ObsUnknownObjectException(object.getFamily(), object.getKey());
 					}					
@@ -140,15 +136,17 @@ public abstract class AbstractObsClient implements ObsClient {
             throws SdkClientException, ObsException {
         if (objects.size() > 1 && parallel) {
             // Upload objects in parallel
-            final ExecutorService workerThread =
-                    Executors.newFixedThreadPool(objects.size());
-            final CompletionService<Void> service =
-                    new ExecutorCompletionService<>(workerThread);
-            // Launch all downloads
+            final BlockingQueue<Future<?>> completed = new LinkedBlockingQueue<>();
+            final List<Future<Void>> futures = new ArrayList<>();
             for (final FileObsUploadObject object : objects) {
-                service.submit(wrap(()  -> upload(Collections.singletonList(object), reportingFactory)));
+                futures.add(transferScheduler.submit(
+                		object.getFamily(),
+                		FileUtils.size(object.getFile()),
+                		VoidCallable.wrap(()  -> upload(Collections.singletonList(object), reportingFactory)),
+                		completed
+                ));
             }
-            waitForCompletionVoid(workerThread, service, objects.size(), configuration.getTimeoutUpExec());
+            waitForCompletionVoid(futures, completed, configuration.getTimeoutUpExec());
 
         } else {
       		final Reporting reporting = reportingFactory.newReporting("ObsWrite");
@@ -172,15 +170,14 @@ public abstract class AbstractObsClient implements ObsClient {
         }
     }
 	
-    private void waitForCompletionVoid(final ExecutorService workerThread,
-            final CompletionService<?> service, final int nbTasks,
-            final int timeout) throws ObsServiceException {
+    protected void waitForCompletionVoid(final List<? extends Future<?>> futures,
+            final BlockingQueue<Future<?>> completed, final int timeout) throws ObsServiceException {
         try {
             try {
-                // Wait for download endings
-                for (int i = 0; i < nbTasks; i++) {
+                // Wait for transfer endings
+                for (int i = 0; i < futures.size(); i++) {
                     try {
-                        service.take().get(timeout, TimeUnit.SECONDS);
+                        completed.take().get(timeout, TimeUnit.SECONDS);
                     } catch (final ExecutionException e) {
                         if (e.getCause() instanceof ObsServiceException) {
                             throw (ObsServiceException) e.getCause();
@@ -190,9 +187,11 @@ public abstract class AbstractObsClient implements ObsClient {
                     }
                 }
             } finally {
-                // Shutdown thread in case of raised exceptions
-                workerThread.shutdownNow();
-                workerThread.awaitTermination(configuration.getTimeoutShutdown(),TimeUnit.SECONDS);
+                // Cancel remaining transfers in case of raised exceptions. The transfer
+                // threads are shared, so they are interrupted but not shut down
+                for (final Future<?> future : futures) {
+                    future.cancel(true);
+                }
             }
         } catch (InterruptedException | TimeoutException e) {
             throw new ObsServiceException(e.getMessage(), e);
@@ -203,34 +202,20 @@ public abstract class AbstractObsClient implements ObsClient {
      * Wait for completion ending of all tasks
      * 
      */
-    private <E> List<E> waitForCompletion(final ExecutorService workerThread,
-            final CompletionService<List<E>> service, final int nbTasks,
-            final int timeout) throws ObsServiceException {
-    	final List<E> results = new ArrayList<>();
-        try {
+    private <E> List<E> waitForCompletion(final List<? extends Future<List<E>>> futures,
+            final BlockingQueue<Future<?>> completed, final int timeout) throws ObsServiceException {
+        waitForCompletionVoid(futures, completed, timeout);
+
+        final List<E> results = new ArrayList<>();
+        for (final Future<List<E>> future : futures) {
             try {
-                // Wait for download endings
-                for (int i = 0; i < nbTasks; i++) {
-                    try {
-                        final List<E> res = service.take().get(timeout, TimeUnit.SECONDS);
-                        results.addAll(res);
-                    } catch (final ExecutionException e) {
-                        if (e.getCause() instanceof ObsServiceException) {
-                            throw (ObsServiceException) e.getCause();
-                        } else {
-                            throw new ObsServiceException(e.getMessage(), e);
-                        }
-                    }
-                }
-                return results;
-            } finally {
-                // Shutdown thread in case of raised exceptions
-                workerThread.shutdownNow();
-                workerThread.awaitTermination(configuration.getTimeoutShutdown(),TimeUnit.SECONDS);
+                results.addAll(future.get());
+            } catch (InterruptedException | ExecutionException e) {
+                // unlikely case, because waitForCompletionVoid() already ensured that the executions are finished...
+                throw new ObsServiceException(e.getMessage(), e);
             }
-        } catch (InterruptedException | TimeoutException e) {
-            throw new ObsServiceException(e.getMessage(), e);
         }
+        return results;
     }    
 	
 	/**
@@ -288,14 +273,11 @@ public abstract class AbstractObsClient implements ObsClient {
 
 	private <T extends ObsUploadObject>  void undoPartialFailedUpload(final List<T> uploadObjects) {
 		LOGGER.info("undo partial upload of multiple object: " + uploadObjects.stream().map(uO -> uO.getFamily() + ":" + uO.getKey()).collect(Collectors.joining(", ")));
-		for(final T uploadObject : uploadObjects) {
-			try {
-				LOGGER.info("deleting " + uploadObject);
-				delete(uploadObject);
-			} catch (ObsException | ObsServiceException e) {
-				LOGGER.error("deletion of " + uploadObject + " failed", e);
-				// don't rethrow the exception because it would suppress original exception
-			}
+		try {
+			delete(new ArrayList<>(uploadObjects));
+		} catch (ObsException | ObsServiceException | RuntimeException e) {
+			LOGGER.error("deletion of " + uploadObjects + " failed", e);
+			// don't rethrow the exception because it would suppress original exception
 		}
 	}
 
@@ -351,13 +333,17 @@ public abstract class AbstractObsClient implements ObsClient {
 	private List<Md5.Entry> uploadStreams(final List<StreamObsUploadObject> objects, final boolean parallel, final ReportingFactory reportingFactory) throws ObsServiceException, S3SdkClientException {
 		if (objects.size() > 1 && parallel) {
 			// Upload objects in parallel
-			final ExecutorService workerThread = Executors.newFixedThreadPool(objects.size());
-			final CompletionService<List<Md5.Entry>> service = new ExecutorCompletionService<>(workerThread);
-			// Launch all downloads
+			final BlockingQueue<Future<?>> completed = new LinkedBlockingQueue<>();
+			final List<Future<List<Md5.Entry>>> futures = new ArrayList<>();
 			for (final StreamObsUploadObject object : objects) {
-				service.submit(() -> uploadStreams(Collections.singletonList(object), parallel, reportingFactory));
+				futures.add(transferScheduler.submit(
+						object.getFamily(),
+						object.getContentLength(),
+						() -> uploadStreams(Collections.singletonList(object), parallel, reportingFactory),
+						completed
+				));
 			}
-			return waitForCompletion(workerThread, service, objects.size(), configuration.getTimeoutUpExec());
+			return waitForCompletion(futures, completed, configuration.getTimeoutUpExec());
 
 		} else {
 			final Reporting reporting = reportingFactory.newReporting("ObsWrite");
@@ -391,9 +377,14 @@ public abstract class AbstractObsClient implements ObsClient {
     	ValidArgumentAssertion.assertValidArgument(intervalStart);
     	ValidArgumentAssertion.assertValidArgument(intervalEnd);
     	
-    	final List<ObsObject> results = getObsObjectsOfFamilyWithinTimeFrame(family, intervalStart, intervalEnd);
-    	return results.stream()
-    		      .collect(Collectors.toMap(ObsObject::getKey, obsObject -> obsObject));
+    	try (final Stream<ObsObject> results = streamInterval(family, intervalStart, intervalEnd)) {
+    		return results.collect(Collectors.toMap(ObsObject::getKey, obsObject -> obsObject));
+    	} catch (final IllegalStateException e) {
+    		if (e.getCause() instanceof SdkClientException) {
+    			throw (SdkClientException) e.getCause();
+    		}
+    		throw e;
+    	}
     }
 
 	@Override
@@ -489,7 +480,7 @@ public abstract class AbstractObsClient implements ObsClient {
 	}
 
 	@FunctionalInterface
-	interface VoidCallable {
+	protected interface VoidCallable {
 
 		static Callable<Void> wrap(final VoidCallable callable) {
 			return () -> {
@@ -506,5 +497,9 @@ public abstract class AbstractObsClient implements ObsClient {
 	protected ObsConfigurationProperties getConfiguration() {
 		return this.configuration;
 	}
+
+	public ObsTransferScheduler getTransferScheduler() {
+		return this.transferScheduler;
+	}
 	
 }
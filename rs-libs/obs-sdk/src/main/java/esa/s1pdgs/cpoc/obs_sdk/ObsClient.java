@@ -7,6 +7,7 @@ import java.time.Instant;
 import java.util.Date;
 import java.util.List;
 import java.util.Map;
+import java.util.stream.Stream;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
@@ -93,8 +94,29 @@ public interface ObsClient {
     
     void delete(final ObsObject object) throws ObsException, ObsServiceException; 
 
+    /**
+     * Deletes all objects with the keys of the given objects as prefix. In
+     * contrast to {@link #delete(ObsObject)} for each object, the keys of all
+     * objects are deleted in batches.
+     * @param objects
+     * The objects to delete, possibly of different families
+     * @throws ObsServiceException
+     * If any of the keys could not be deleted, naming the failed keys
+     */
+    void delete(final List<ObsObject> objects) throws ObsException, ObsServiceException;
+
     Map<String,ObsObject> listInterval(final ProductFamily family, Date intervalStart, Date intervalEnd) throws SdkClientException;
 
+    /**
+     * Streams the objects of a family whose modification times in OBS are
+     * within the given interval, without holding the whole listing in memory.
+     * The stream has to be closed if it is not consumed completely.
+     * @throws SdkClientException
+     * If the listing can not be started. Failures during the listing are
+     * raised by the stream as {@link IllegalStateException}
+     */
+    Stream<ObsObject> streamInterval(final ProductFamily family, Date intervalStart, Date intervalEnd) throws SdkClientException;
+
     List<String> list(final ProductFamily family, final String keyPrefix) throws SdkClientException;
 
     InputStream getAsStream(final ProductFamily family, final String key) throws SdkClientException;
@@ -2,28 +2,48 @@ package esa.s1pdgs.cpoc.obs_sdk;
 
 import java.util.Arrays;
 
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
 import esa.s1pdgs.cpoc.obs_sdk.report.ReportingProductFactory;
 import esa.s1pdgs.cpoc.obs_sdk.s3.S3ObsClient;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
 
 @Configuration
 public class ObsConfiguration {	
 	private final ObsConfigurationProperties config;
 	private final ReportingProductFactory factory;
+	private final ObjectProvider<MeterRegistry> meterRegistry;
 		
 	@Autowired
-	public ObsConfiguration(final ObsConfigurationProperties config, final ReportingProductFactory factory) {
+	public ObsConfiguration(final ObsConfigurationProperties config, final ReportingProductFactory factory,
+			final ObjectProvider<MeterRegistry> meterRegistry) {
 		this.config = config;
 		this.factory = factory;
+		this.meterRegistry = meterRegistry;
 	}
 	
 	@Bean
 	public ObsClient newObsClient() {
 		final ObsClient.Factory obsClientFactory = factoryForBackend(config.getBackend());
-		return obsClientFactory.newObsClient(config, factory);		
+		final ObsClient client = obsClientFactory.newObsClient(config, factory);
+		if (client instanceof AbstractObsClient) {
+			meterRegistry.ifAvailable(registry -> registerTransferMetrics(registry,
+					((AbstractObsClient) client).getTransferScheduler()));
+		}
+		return client;
+	}
+
+	private static void registerTransferMetrics(final MeterRegistry registry, final ObsTransferScheduler scheduler) {
+		Gauge.builder("rs.obs.transfer.queue.depth", scheduler, ObsTransferScheduler::getQueueDepth)
+				.description("Number of OBS transfers waiting for execution").register(registry);
+		Gauge.builder("rs.obs.transfer.active", scheduler, ObsTransferScheduler::getActiveTransfers)
+				.description("Number of OBS transfers in execution").register(registry);
+		Gauge.builder("rs.obs.transfer.inflight.bytes", scheduler, ObsTransferScheduler::getInFlightBytes)
+				.description("Known size of the OBS transfers in execution").baseUnit("bytes").register(registry);
 	}
 	
 	public final ObsClient.Factory factoryForBackend(final String backend) {
@@ -55,6 +55,9 @@ public class ObsConfigurationProperties {
 	private int timeoutDownExec = 15;
 	
 	private int timeoutUpExec = 20;
+
+	// maximum number of parallel transfers of a client
+	private int transferConcurrency = 16;
 	
 	private boolean disableChunkedEncoding = false;
 
@@ -62,6 +65,30 @@ public class ObsConfigurationProperties {
 
 	private String uploadCacheLocation = "/tmp";
 
+	// upload streams as multipart uploads from memory instead of staging them in uploadCacheLocation
+	private boolean streamingUpload = false;
+
+	private int streamingUploadPartSizeMb = 16;
+
+	private int streamingUploadBuffers = 8;
+
+	// download objects with concurrent ranged GET requests instead of a single GET request each
+	private boolean rangedDownload = false;
+
+	private int rangedDownloadRangeSizeMb = 32;
+
+	private int rangedDownloadConcurrency = 8;
+
+	// list time frames in parallel prefixes instead of walking the whole bucket sequentially
+	private boolean parallelListing = false;
+
+	// time frame listings are split into the prefixes up to listingDepth occurrences of listingDelimiter
+	private String listingDelimiter = "_";
+
+	private int listingDepth = 3;
+
+	private int listingConcurrency = 4;
+
 	private Map<ProductFamily, String> bucket = new HashMap<>();
 	
 	public String getBucketFor(final ProductFamily family) {
@@ -188,6 +215,14 @@ public class ObsConfigurationProperties {
 		this.timeoutUpExec = timeoutUpExec;
 	}
 
+	public int getTransferConcurrency() {
+		return transferConcurrency;
+	}
+
+	public void setTransferConcurrency(int transferConcurrency) {
+		this.transferConcurrency = transferConcurrency;
+	}
+
 	public Map<ProductFamily, String> getBucket() {
 		return bucket;
 	}
@@ -244,6 +279,94 @@ public class ObsConfigurationProperties {
 		return Paths.get(uploadCacheLocation);
 	}
 
+	public boolean isStreamingUpload() {
+		return streamingUpload;
+	}
+
+	public void setStreamingUpload(boolean streamingUpload) {
+		this.streamingUpload = streamingUpload;
+	}
+
+	public int getStreamingUploadPartSizeMb() {
+		return streamingUploadPartSizeMb;
+	}
+
+	public void setStreamingUploadPartSizeMb(int streamingUploadPartSizeMb) {
+		this.streamingUploadPartSizeMb = streamingUploadPartSizeMb;
+	}
+
+	public long getStreamingUploadPartSize() {
+		return streamingUploadPartSizeMb * 1024L * 1024L;
+	}
+
+	public int getStreamingUploadBuffers() {
+		return streamingUploadBuffers;
+	}
+
+	public void setStreamingUploadBuffers(int streamingUploadBuffers) {
+		this.streamingUploadBuffers = streamingUploadBuffers;
+	}
+
+	public boolean isRangedDownload() {
+		return rangedDownload;
+	}
+
+	public void setRangedDownload(boolean rangedDownload) {
+		this.rangedDownload = rangedDownload;
+	}
+
+	public int getRangedDownloadRangeSizeMb() {
+		return rangedDownloadRangeSizeMb;
+	}
+
+	public void setRangedDownloadRangeSizeMb(int rangedDownloadRangeSizeMb) {
+		this.rangedDownloadRangeSizeMb = rangedDownloadRangeSizeMb;
+	}
+
+	public long getRangedDownloadRangeSize() {
+		return rangedDownloadRangeSizeMb * 1024L * 1024L;
+	}
+
+	public int getRangedDownloadConcurrency() {
+		return rangedDownloadConcurrency;
+	}
+
+	public void setRangedDownloadConcurrency(int rangedDownloadConcurrency) {
+		this.rangedDownloadConcurrency = rangedDownloadConcurrency;
+	}
+
+	public boolean isParallelListing() {
+		return parallelListing;
+	}
+
+	public void setParallelListing(boolean parallelListing) {
+		this.parallelListing = parallelListing;
+	}
+
+	public String getListingDelimiter() {
+		return listingDelimiter;
+	}
+
+	public void setListingDelimiter(String listingDelimiter) {
+		this.listingDelimiter = listingDelimiter;
+	}
+
+	public int getListingDepth() {
+		return listingDepth;
+	}
+
+	public void setListingDepth(int listingDepth) {
+		this.listingDepth = listingDepth;
+	}
+
+	public int getListingConcurrency() {
+		return listingConcurrency;
+	}
+
+	public void setListingConcurrency(int listingConcurrency) {
+		this.listingConcurrency = listingConcurrency;
+	}
+
 	@Override
 	public String toString() {
 		return "ObsConfigurationProperties [backend=" + backend + ", userId=" + userId + ", userSecret=" + userSecret
@@ -253,7 +376,12 @@ public class ObsConfigurationProperties {
 				+ maxRetries+ ", maxObsRetries=" + maxObsRetries + ", backoffBaseDelay=" + backoffBaseDelay
 				+ ", backoffThrottledBaseDelay=" + backoffThrottledBaseDelay + ", backoffMaxDelay=" + backoffMaxDelay
 				+ ", timeoutShutdown=" + timeoutShutdown + ", timeoutDownExec=" + timeoutDownExec + ", timeoutUpExec="
-				+ timeoutUpExec + ", disableChunkedEncoding=" + disableChunkedEncoding + ", bucket=" + bucket
-				+ ", uploadCacheLocation=" + uploadCacheLocation + "]";
+				+ timeoutUpExec + ", transferConcurrency=" + transferConcurrency + ", disableChunkedEncoding=" + disableChunkedEncoding + ", bucket=" + bucket
+				+ ", uploadCacheLocation=" + uploadCacheLocation + ", streamingUpload=" + streamingUpload
+				+ ", streamingUploadPartSizeMb=" + streamingUploadPartSizeMb + ", streamingUploadBuffers="
+				+ streamingUploadBuffers + ", rangedDownload=" + rangedDownload + ", rangedDownloadRangeSizeMb="
+				+ rangedDownloadRangeSizeMb + ", rangedDownloadConcurrency=" + rangedDownloadConcurrency
+				+ ", parallelListing=" + parallelListing + ", listingDelimiter=" + listingDelimiter + ", listingDepth=" + listingDepth + ", listingConcurrency="
+				+ listingConcurrency + "]";
 	}
 }
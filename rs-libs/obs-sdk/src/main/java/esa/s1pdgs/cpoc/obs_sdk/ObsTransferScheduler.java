@@ -0,0 +1,160 @@
+package esa.s1pdgs.cpoc.obs_sdk;
+
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import esa.s1pdgs.cpoc.common.ProductFamily;
+
+/**
+ * Executes the parallel transfers of an OBS client on a bounded number of
+ * threads, so the number of concurrent OBS requests of a pod no longer depends
+ * on the number of objects of a job.
+ * <p>
+ * Waiting transfers are ordered by {@link Priority} first. Within the same
+ * priority the families are served fair: each transfer gets a ticket of its
+ * family's virtual clock, which starts at the ticket of the last dispatched
+ * transfer, so a family submitting hundreds of objects can not starve a family
+ * submitting later.
+ */
+public final class ObsTransferScheduler {
+
+	public enum Priority {
+		NORMAL, LOW
+	}
+
+	private final ThreadPoolExecutor executor;
+	private final Map<ProductFamily, AtomicLong> familyClocks = new ConcurrentHashMap<>();
+	private final AtomicLong virtualTime = new AtomicLong();
+	private final AtomicLong sequence = new AtomicLong();
+	private final AtomicLong inFlightBytes = new AtomicLong();
+
+	public ObsTransferScheduler(final int concurrency) {
+		this.executor = new ThreadPoolExecutor(
+				concurrency,
+				concurrency,
+				60L,
+				TimeUnit.SECONDS,
+				new PriorityBlockingQueue<>(),
+				new TransferThreadFactory()
+		);
+		this.executor.allowCoreThreadTimeOut(true);
+	}
+
+	/**
+	 * Auxiliary data is usually bulk input, so it is transferred after the other
+	 * objects of the same client
+	 */
+	public static Priority priorityOf(final ProductFamily family) {
+		if (family.name().contains("AUX") || family == ProductFamily.DEBUG || family == ProductFamily.FAILED_WORKDIR) {
+			return Priority.LOW;
+		}
+		return Priority.NORMAL;
+	}
+
+	/**
+	 * @param bytes           size of the transfer if known in advance, 0 otherwise
+	 * @param completionQueue the transfer is added to this queue when it is done
+	 */
+	public <E> Transfer<E> submit(final ProductFamily family, final long bytes, final Callable<E> callable,
+			final BlockingQueue<Future<?>> completionQueue) {
+		final long ticket = familyClocks.computeIfAbsent(family, f -> new AtomicLong())
+				.updateAndGet(clock -> Math.max(clock, virtualTime.get()) + 1);
+		final Transfer<E> transfer = new Transfer<>(callable, priorityOf(family), ticket,
+				sequence.incrementAndGet(), bytes, completionQueue);
+		executor.execute(transfer);
+		return transfer;
+	}
+
+	public int getQueueDepth() {
+		return executor.getQueue().size();
+	}
+
+	public int getActiveTransfers() {
+		return executor.getActiveCount();
+	}
+
+	public long getInFlightBytes() {
+		return inFlightBytes.get();
+	}
+
+	public int getConcurrency() {
+		return executor.getMaximumPoolSize();
+	}
+
+	public void shutdown() {
+		executor.shutdownNow();
+	}
+
+	@Override
+	public String toString() {
+		return "ObsTransferScheduler [concurrency=" + getConcurrency() + ", queueDepth=" + getQueueDepth()
+				+ ", activeTransfers=" + getActiveTransfers() + ", inFlightBytes=" + getInFlightBytes() + "]";
+	}
+
+	public final class Transfer<E> extends FutureTask<E> implements Comparable<Transfer<?>> {
+		private final Priority priority;
+		private final long ticket;
+		private final long sequenceNumber;
+		private final long bytes;
+		private final BlockingQueue<Future<?>> completionQueue;
+
+		Transfer(final Callable<E> callable, final Priority priority, final long ticket, final long sequenceNumber,
+				final long bytes, final BlockingQueue<Future<?>> completionQueue) {
+			super(callable);
+			this.priority = priority;
+			this.ticket = ticket;
+			this.sequenceNumber = sequenceNumber;
+			this.bytes = bytes;
+			this.completionQueue = completionQueue;
+		}
+
+		@Override
+		public void run() {
+			virtualTime.accumulateAndGet(ticket, Math::max);
+			inFlightBytes.addAndGet(bytes);
+			try {
+				super.run();
+			} finally {
+				inFlightBytes.addAndGet(-bytes);
+			}
+		}
+
+		@Override
+		protected void done() {
+			completionQueue.add(this);
+		}
+
+		@Override
+		public int compareTo(final Transfer<?> other) {
+			int result = priority.compareTo(other.priority);
+			if (result == 0) {
+				result = Long.compare(ticket, other.ticket);
+			}
+			if (result == 0) {
+				result = Long.compare(sequenceNumber, other.sequenceNumber);
+			}
+			return result;
+		}
+	}
+
+	private static final class TransferThreadFactory implements ThreadFactory {
+		private final AtomicInteger count = new AtomicInteger();
+
+		@Override
+		public Thread newThread(final Runnable runnable) {
+			final Thread thread = new Thread(runnable, "obs-transfer-" + count.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		}
+	}
+}
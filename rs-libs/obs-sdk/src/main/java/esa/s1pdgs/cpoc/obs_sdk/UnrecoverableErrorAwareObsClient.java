@@ -7,6 +7,7 @@ import java.time.Instant;
 import java.util.Date;
 import java.util.List;
 import java.util.Map;
+import java.util.stream.Stream;
 
 import esa.s1pdgs.cpoc.common.ProductFamily;
 import esa.s1pdgs.cpoc.common.errors.AbstractCodedException;
@@ -72,11 +73,21 @@ public class UnrecoverableErrorAwareObsClient implements ObsClient {
         obsClient.delete(object);
     }
 
+    @Override
+    public void delete(List<ObsObject> objects) throws ObsException, ObsServiceException {
+        obsClient.delete(objects);
+    }
+
     @Override
     public Map<String, ObsObject> listInterval(ProductFamily family, Date intervalStart, Date intervalEnd) throws SdkClientException {
         return obsClient.listInterval(family, intervalStart, intervalEnd);
     }
 
+    @Override
+    public Stream<ObsObject> streamInterval(ProductFamily family, Date intervalStart, Date intervalEnd) throws SdkClientException {
+        return obsClient.streamInterval(family, intervalStart, intervalEnd);
+    }
+
     @Override
     public List<String> list(ProductFamily family, String keyPrefix) throws SdkClientException {
         return obsClient.list(family, keyPrefix);
@@ -0,0 +1,302 @@
+package esa.s1pdgs.cpoc.obs_sdk.s3;
+
+import static java.lang.String.format;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Queue;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import com.amazonaws.services.s3.model.ListObjectsRequest;
+import com.amazonaws.services.s3.model.ObjectListing;
+import com.amazonaws.services.s3.model.S3ObjectSummary;
+
+import esa.s1pdgs.cpoc.common.ProductFamily;
+import esa.s1pdgs.cpoc.obs_sdk.Md5;
+import esa.s1pdgs.cpoc.obs_sdk.ObsObject;
+
+/**
+ * Lists the objects of a bucket modified within a time frame as a stream. The
+ * key space is split into prefixes by listing the common prefixes up to the
+ * given depth of the delimiter (e.g. "S1A_", "S1A_IW_", "S1A_IW_RAW_"), and the
+ * prefixes are listed in parallel. Only a bounded number of listing pages is
+ * held in memory, the listing threads wait for the consumer of the stream. If
+ * the consumer takes no page for too long, the listing fails and its threads
+ * are released.
+ * <p>
+ * S3 cannot filter on the modification time, and the keys of a prefix do not
+ * sort by time (the product class comes before the date in the product names),
+ * so each prefix is always listed completely.
+ */
+public final class IntervalLister {
+	private static final Logger LOGGER = LogManager.getLogger(IntervalLister.class);
+
+	private static final int QUEUED_PAGES = 16;
+
+	private static final long CONSUMER_TIMEOUT_MS = 5 * 60 * 1000L;
+
+	/**
+	 * Time in milliseconds a listing thread waits for space in the page queue
+	 * before checking whether the listing is still consumed
+	 */
+	private static final long PUT_INTERVAL_MS = 1000L;
+
+	private final S3ObsServices s3Services;
+	private final String delimiter;
+	private final int depth;
+	private final int concurrency;
+	private final int queuedPages;
+	private final long consumerTimeoutMs;
+	private final ExecutorService executor;
+
+	public IntervalLister(final S3ObsServices s3Services, final String delimiter, final int depth,
+			final int concurrency) {
+		this(s3Services, delimiter, depth, concurrency, QUEUED_PAGES, CONSUMER_TIMEOUT_MS);
+	}
+
+	IntervalLister(final S3ObsServices s3Services, final String delimiter, final int depth,
+			final int concurrency, final int queuedPages, final long consumerTimeoutMs) {
+		if (concurrency <= 0) {
+			throw new IllegalArgumentException(format("invalid listing concurrency %s", concurrency));
+		}
+		this.s3Services = s3Services;
+		this.delimiter = delimiter;
+		this.depth = depth;
+		this.concurrency = concurrency;
+		this.queuedPages = queuedPages;
+		this.consumerTimeoutMs = consumerTimeoutMs;
+		this.executor = Executors.newFixedThreadPool(concurrency, new ListingThreadFactory());
+	}
+
+	/**
+	 * The returned stream has to be closed if it is not consumed completely. If a
+	 * listing request fails, the stream throws an {@link IllegalStateException}
+	 * caused by the {@link S3SdkClientException}.
+	 */
+	public Stream<ObsObject> list(final ProductFamily family, final String bucket, final Date timeFrameBegin,
+			final Date timeFrameEnd) {
+		final Listing listing = new Listing(family, bucket, timeFrameBegin, timeFrameEnd);
+		listing.submit("", 0);
+		return StreamSupport
+				.stream(Spliterators.spliteratorUnknownSize(listing, Spliterator.NONNULL | Spliterator.DISTINCT), false)
+				.onClose(listing::cancel);
+	}
+
+	public void shutdown() {
+		executor.shutdownNow();
+	}
+
+	@Override
+	public String toString() {
+		return "IntervalLister [delimiter=" + delimiter + ", depth=" + depth + ", concurrency=" + concurrency
+				+ ", queuedPages=" + queuedPages + ", consumerTimeoutMs=" + consumerTimeoutMs
+				+ "]";
+	}
+
+	private final class Listing implements Iterator<ObsObject> {
+		// marks that all prefixes have been listed or one of them failed
+		private final List<ObsObject> end = new ArrayList<>(0);
+
+		private final ProductFamily family;
+		private final String bucket;
+		private final Date timeFrameBegin;
+		private final Date timeFrameEnd;
+
+		private final BlockingQueue<List<ObsObject>> pages = new LinkedBlockingQueue<>(queuedPages);
+		private final AtomicInteger pending = new AtomicInteger();
+		private final AtomicReference<Exception> failure = new AtomicReference<>();
+		private final Queue<Future<?>> futures = new ConcurrentLinkedQueue<>();
+
+		private Iterator<ObsObject> current = new ArrayList<ObsObject>(0).iterator();
+		private boolean done = false;
+		private volatile boolean cancelled = false;
+		private volatile long lastConsumption = System.currentTimeMillis();
+
+		Listing(final ProductFamily family, final String bucket, final Date timeFrameBegin,
+				final Date timeFrameEnd) {
+			this.family = family;
+			this.bucket = bucket;
+			this.timeFrameBegin = timeFrameBegin;
+			this.timeFrameEnd = timeFrameEnd;
+		}
+
+		void submit(final String prefix, final int level) {
+			if (isStopped()) {
+				return;
+			}
+			pending.incrementAndGet();
+			futures.add(executor.submit(() -> {
+				try {
+					if (level < depth) {
+						split(prefix, level);
+					} else {
+						listAll(prefix);
+					}
+					if (pending.decrementAndGet() == 0) {
+						put(end);
+					}
+				} catch (final InterruptedException e) {
+					Thread.currentThread().interrupt();
+				} catch (final Exception e) {
+					fail(e);
+				}
+				return null;
+			}));
+		}
+
+		private boolean isStopped() {
+			return cancelled || failure.get() != null;
+		}
+
+		private void fail(final Exception e) {
+			if (failure.compareAndSet(null, e)) {
+				do {
+					pages.clear();
+				} while (!pages.offer(end));
+			}
+		}
+
+		/**
+		 * Queue the page for the consumer, unless the listing is stopped or the
+		 * consumer has gone away
+		 */
+		private void put(final List<ObsObject> page) throws InterruptedException {
+			while (!pages.offer(page, PUT_INTERVAL_MS, TimeUnit.MILLISECONDS)) {
+				if (isStopped()) {
+					return;
+				}
+				if (System.currentTimeMillis() - lastConsumption > consumerTimeoutMs) {
+					LOGGER.warn("Listing of bucket {} abandoned, no page consumed for {} ms", bucket,
+							consumerTimeoutMs);
+					fail(new IllegalStateException(
+							format("no listing page consumed for %s ms", consumerTimeoutMs)));
+					return;
+				}
+			}
+		}
+
+		private void split(final String prefix, final int level) throws S3SdkClientException, InterruptedException {
+			ObjectListing listing = s3Services.listObjects(new ListObjectsRequest()
+					.withBucketName(bucket)
+					.withPrefix(prefix)
+					.withDelimiter(delimiter));
+			while (true) {
+				// objects without a further delimiter are not part of any sub prefix
+				publish(listing.getObjectSummaries());
+				for (final String commonPrefix : listing.getCommonPrefixes()) {
+					submit(commonPrefix, level + 1);
+				}
+				if (!listing.isTruncated() || isStopped()) {
+					return;
+				}
+				listing = s3Services.listNextBatchOfObjectsFromBucket(bucket, listing);
+			}
+		}
+
+		private void listAll(final String prefix) throws S3SdkClientException, InterruptedException {
+			LOGGER.trace("Listing bucket {} with prefix {}", bucket, prefix);
+
+			ObjectListing listing = s3Services.listObjects(new ListObjectsRequest()
+					.withBucketName(bucket)
+					.withPrefix(prefix));
+			while (true) {
+				publish(listing.getObjectSummaries());
+				if (!listing.isTruncated() || isStopped()) {
+					return;
+				}
+				listing = s3Services.listNextBatchOfObjectsFromBucket(bucket, listing);
+			}
+		}
+
+		private void publish(final List<S3ObjectSummary> summaries) throws InterruptedException {
+			final List<ObsObject> page = new ArrayList<>();
+			for (final S3ObjectSummary summary : summaries) {
+				if (summary.getKey().endsWith(Md5.MD5SUM_SUFFIX)) {
+					continue;
+				}
+				final Date lastModified = summary.getLastModified();
+				if (lastModified.after(timeFrameBegin) && lastModified.before(timeFrameEnd)) {
+					page.add(new ObsObject(family, summary.getKey()));
+				}
+			}
+			if (!page.isEmpty() && !isStopped()) {
+				put(page);
+			}
+		}
+
+		@Override
+		public boolean hasNext() {
+			while (!current.hasNext() && !done) {
+				final List<ObsObject> page;
+				try {
+					page = pages.take();
+					lastConsumption = System.currentTimeMillis();
+				} catch (final InterruptedException e) {
+					Thread.currentThread().interrupt();
+					cancel();
+					throw new IllegalStateException(format("Listing of bucket %s interrupted", bucket), e);
+				}
+				if (page == end) {
+					done = true;
+					final Exception e = failure.get();
+					if (e != null) {
+						cancel();
+						throw new IllegalStateException(
+								format("Listing of bucket %s fails: %s", bucket, e.getMessage()), e);
+					}
+				} else {
+					current = page.iterator();
+				}
+			}
+			return current.hasNext();
+		}
+
+		@Override
+		public ObsObject next() {
+			if (!hasNext()) {
+				throw new NoSuchElementException();
+			}
+			return current.next();
+		}
+
+		void cancel() {
+			done = true;
+			cancelled = true;
+			Future<?> future;
+			while ((future = futures.poll()) != null) {
+				future.cancel(true);
+			}
+			pages.clear();
+		}
+	}
+
+	private static class ListingThreadFactory implements ThreadFactory {
+		private final AtomicInteger count = new AtomicInteger();
+
+		@Override
+		public Thread newThread(final Runnable runnable) {
+			final Thread thread = new Thread(runnable, "s3-listing-" + count.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		}
+	}
+}
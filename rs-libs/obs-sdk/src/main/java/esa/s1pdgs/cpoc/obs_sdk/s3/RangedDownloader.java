@@ -0,0 +1,226 @@
+package esa.s1pdgs.cpoc.obs_sdk.s3;
+
+import static java.lang.String.format;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import com.amazonaws.services.s3.AmazonS3;
+import com.amazonaws.services.s3.model.GetObjectRequest;
+import com.amazonaws.services.s3.model.S3Object;
+
+import esa.s1pdgs.cpoc.common.utils.LogUtils;
+import esa.s1pdgs.cpoc.common.utils.Retries;
+import esa.s1pdgs.cpoc.report.Reporting;
+import esa.s1pdgs.cpoc.report.ReportingFactory;
+import esa.s1pdgs.cpoc.report.ReportingMessage;
+
+/**
+ * Downloads objects with concurrent ranged GET requests. Each object is split
+ * into ranges of rangeSize bytes, which are written at their position into a
+ * preallocated local file, so a large product is no longer limited to the
+ * throughput of a single connection. The ranges of all objects of a call share
+ * one bounded executor, so the objects of a prefix are downloaded concurrently
+ * as well. A failed range is retried on its own.
+ */
+public final class RangedDownloader {
+	private static final Logger LOGGER = LogManager.getLogger(RangedDownloader.class);
+
+	private static final int COPY_BUFFER_SIZE = 64 * 1024;
+
+	private final AmazonS3 s3client;
+	private final long rangeSize;
+	private final int concurrency;
+	private final int numRetries;
+	private final int retryDelay;
+	private final ExecutorService executor;
+
+	public RangedDownloader(final AmazonS3 s3client, final long rangeSize, final int concurrency,
+			final int numRetries, final int retryDelay) {
+		if (rangeSize <= 0 || concurrency <= 0) {
+			throw new IllegalArgumentException(
+					format("invalid ranged download configuration %s x %s", concurrency, rangeSize));
+		}
+		this.s3client = s3client;
+		this.rangeSize = rangeSize;
+		this.concurrency = concurrency;
+		this.numRetries = numRetries;
+		this.retryDelay = retryDelay;
+		this.executor = Executors.newFixedThreadPool(concurrency, new RangeDownloadThreadFactory());
+	}
+
+	/**
+	 * Downloads each key of the bucket into its file. The files have to exist
+	 * and are overwritten.
+	 */
+	public void download(final String bucketName, final Map<String, File> targets,
+			final ReportingFactory reportingFactory) throws S3SdkClientException {
+		final List<RandomAccessFile> files = new ArrayList<>();
+		final List<Future<Long>> futures = new ArrayList<>();
+		try {
+			for (final Map.Entry<String, File> target : targets.entrySet()) {
+				final String key = target.getKey();
+				final long length = contentLength(bucketName, key);
+				final RandomAccessFile file = open(bucketName, key, target.getValue(), length);
+				files.add(file);
+
+				for (long start = 0; start < length; start += rangeSize) {
+					final Range range = new Range(bucketName, key, start, Math.min(start + rangeSize, length) - 1,
+							file.getChannel());
+					futures.add(executor.submit(() -> download(range, reportingFactory)));
+				}
+				LOGGER.debug("Downloading {} bytes of {}/{} in {} ranges", length, bucketName, key,
+						(length + rangeSize - 1) / rangeSize);
+			}
+			for (final Future<Long> future : futures) {
+				future.get();
+			}
+		} catch (final InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new S3SdkClientException(bucketName, "", "Ranged download interrupted", e);
+		} catch (final ExecutionException e) {
+			if (e.getCause() instanceof S3SdkClientException) {
+				throw (S3SdkClientException) e.getCause();
+			}
+			throw new S3SdkClientException(bucketName, "",
+					format("Ranged download fails: %s", e.getCause().getMessage()), e.getCause());
+		} finally {
+			for (final Future<Long> future : futures) {
+				future.cancel(true);
+			}
+			for (final RandomAccessFile file : files) {
+				try {
+					file.close();
+				} catch (final IOException e) {
+					LOGGER.warn("Error on closing downloaded file: {}", LogUtils.toString(e));
+				}
+			}
+		}
+	}
+
+	public void shutdown() {
+		executor.shutdownNow();
+	}
+
+	private long contentLength(final String bucketName, final String key)
+			throws S3SdkClientException, InterruptedException {
+		try {
+			return Retries.performWithRetries(
+					() -> s3client.getObjectMetadata(bucketName, key).getContentLength(),
+					format("content length of %s/%s", bucketName, key),
+					numRetries,
+					retryDelay);
+		} catch (final RuntimeException e) {
+			throw new S3SdkClientException(bucketName, key,
+					format("Getting content length fails: %s", e.getMessage()), e);
+		}
+	}
+
+	private RandomAccessFile open(final String bucketName, final String key, final File target, final long length)
+			throws S3SdkClientException {
+		try {
+			final RandomAccessFile file = new RandomAccessFile(target, "rw");
+			// the ranges are written in any order, so the file gets its final size first
+			file.setLength(length);
+			return file;
+		} catch (final IOException e) {
+			throw new S3SdkClientException(bucketName, key,
+					format("Preallocating %s bytes in %s fails: %s", length, target, e.getMessage()), e);
+		}
+	}
+
+	private long download(final Range range, final ReportingFactory reportingFactory)
+			throws S3SdkClientException, InterruptedException {
+		final Reporting reporting = reportingFactory.newReporting("ObsReadRange");
+		reporting.begin(new ReportingMessage("Start downloading bytes {}-{} of {}", range.start, range.end, range.key));
+		try {
+			final long bytes = Retries.performWithRetries(
+					() -> fetch(range),
+					format("download bytes %s-%s of %s/%s", range.start, range.end, range.bucketName, range.key),
+					numRetries,
+					retryDelay);
+			reporting.end(new ReportingMessage(bytes, "End downloading bytes {}-{} of {}", range.start, range.end,
+					range.key));
+			return bytes;
+		} catch (final RuntimeException e) {
+			reporting.error(new ReportingMessage("Error on downloading bytes {}-{} of {}: {}", range.start, range.end,
+					range.key, LogUtils.toString(e)));
+			throw new S3SdkClientException(range.bucketName, range.key,
+					format("Ranged download fails: %s", e.getMessage()), e);
+		}
+	}
+
+	private long fetch(final Range range) throws IOException {
+		final S3Object object = s3client.getObject(
+				new GetObjectRequest(range.bucketName, range.key).withRange(range.start, range.end));
+		try (final InputStream in = object.getObjectContent()) {
+			final byte[] buffer = new byte[COPY_BUFFER_SIZE];
+			long position = range.start;
+			int read;
+			while ((read = in.read(buffer)) != -1) {
+				if (position + read > range.end + 1) {
+					throw new IOException(format("Received more than the requested bytes %s-%s of %s", range.start,
+							range.end, range.key));
+				}
+				final ByteBuffer bytes = ByteBuffer.wrap(buffer, 0, read);
+				while (bytes.hasRemaining()) {
+					position += range.channel.write(bytes, position);
+				}
+			}
+			if (position != range.end + 1) {
+				throw new IOException(format("Received %s of the requested bytes %s-%s of %s", position - range.start,
+						range.start, range.end, range.key));
+			}
+			return position - range.start;
+		}
+	}
+
+	@Override
+	public String toString() {
+		return "RangedDownloader [rangeSize=" + rangeSize + ", concurrency=" + concurrency + "]";
+	}
+
+	private static final class Range {
+		private final String bucketName;
+		private final String key;
+		private final long start;
+		private final long end;
+		private final FileChannel channel;
+
+		Range(final String bucketName, final String key, final long start, final long end,
+				final FileChannel channel) {
+			this.bucketName = bucketName;
+			this.key = key;
+			this.start = start;
+			this.end = end;
+			this.channel = channel;
+		}
+	}
+
+	private static class RangeDownloadThreadFactory implements ThreadFactory {
+		private final AtomicInteger count = new AtomicInteger();
+
+		@Override
+		public Thread newThread(final Runnable runnable) {
+			final Thread thread = new Thread(runnable, "s3-range-download-" + count.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		}
+	}
+}
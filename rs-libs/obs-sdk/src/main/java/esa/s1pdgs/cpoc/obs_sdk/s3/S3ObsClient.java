@@ -16,10 +16,15 @@ import java.time.Instant;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Date;
+import java.util.EnumMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
@@ -32,7 +37,6 @@ import com.amazonaws.client.builder.AwsClientBuilder.EndpointConfiguration;
 import com.amazonaws.services.s3.AmazonS3;
 import com.amazonaws.services.s3.AmazonS3ClientBuilder;
 import com.amazonaws.services.s3.model.CopyObjectRequest;
-import com.amazonaws.services.s3.model.DeleteObjectRequest;
 import com.amazonaws.services.s3.model.ObjectListing;
 import com.amazonaws.services.s3.model.ObjectMetadata;
 import com.amazonaws.services.s3.model.S3ObjectSummary;
@@ -54,6 +58,7 @@ import esa.s1pdgs.cpoc.obs_sdk.SdkClientException;
 import esa.s1pdgs.cpoc.obs_sdk.StreamObsUploadObject;
 import esa.s1pdgs.cpoc.obs_sdk.ValidArgumentAssertion;
 import esa.s1pdgs.cpoc.obs_sdk.report.ReportingProductFactory;
+import esa.s1pdgs.cpoc.report.ReportingFactory;
 
 /**
  * <p>
@@ -126,32 +131,107 @@ public class S3ObsClient extends AbstractObsClient {
 			final int backoffThrottledBaseDelay = config.getBackoffThrottledBaseDelay();
 			final Path uploadCacheLocation = config.getUploadCacheLocation();
 
+			final UploadBufferPool streamingUploadBuffers = streamingUploadBuffersFor(config);
+
+			final RangedDownloader rangedDownloader = config.isRangedDownload()
+					? new RangedDownloader(client, config.getRangedDownloadRangeSize(),
+							config.getRangedDownloadConcurrency(), maxObsRetries, backoffThrottledBaseDelay)
+					: null;
+
 			final S3ObsServices s3Services = new S3ObsServices(
 					client,
 					manager,
 					maxObsRetries,
 					backoffThrottledBaseDelay,
-					uploadCacheLocation);
+					uploadCacheLocation,
+					streamingUploadBuffers,
+					rangedDownloader);
 
 			LOGGER.info(
-					"created s3ObsServices with maxRetries: {} retriesDelay: {} uploadCacheLocation: {}",
+					"created s3ObsServices with maxRetries: {} retriesDelay: {} uploadCacheLocation: {} streamingUploadBuffers: {} rangedDownloader: {}",
 					maxObsRetries,
 					backoffThrottledBaseDelay,
-					uploadCacheLocation);
+					uploadCacheLocation,
+					streamingUploadBuffers,
+					rangedDownloader);
 			
-			return new S3ObsClient(config, s3Services, factory);
+			IntervalLister intervalLister = null;
+			if (config.isParallelListing()) {
+				intervalLister = new IntervalLister(
+						s3Services,
+						config.getListingDelimiter(),
+						config.getListingDepth(),
+						config.getListingConcurrency());
+			}
+
+			LOGGER.info("created intervalLister: {}", intervalLister);
+
+			return new S3ObsClient(config, s3Services, intervalLister, factory);
+		}
+
+		/**
+		 * @return the part buffers of the streaming uploads, null if disabled
+		 * @throws IllegalArgumentException if the part size is not accepted by S3 or
+		 *                                  does not fit into a buffer
+		 */
+		static UploadBufferPool streamingUploadBuffersFor(final ObsConfigurationProperties config) {
+			if (!config.isStreamingUpload()) {
+				return null;
+			}
+			final long partSize = config.getStreamingUploadPartSize();
+			if (partSize < MIN_STREAMING_UPLOAD_PART_SIZE || partSize > MAX_STREAMING_UPLOAD_PART_SIZE) {
+				throw new IllegalArgumentException(format(
+						"Invalid streaming upload part size %s MB, shall be between %s and %s MB",
+						config.getStreamingUploadPartSizeMb(), MIN_STREAMING_UPLOAD_PART_SIZE / (1024 * 1024),
+						MAX_STREAMING_UPLOAD_PART_SIZE / (1024 * 1024)));
+			}
+			return new UploadBufferPool((int) partSize, config.getStreamingUploadBuffers());
 		}
 	}
 
+	/**
+	 * Minimal size of the parts of a S3 multipart upload, except the last one
+	 */
+	static final long MIN_STREAMING_UPLOAD_PART_SIZE = 5L * 1024 * 1024;
+
+	/**
+	 * Maximal size of a part buffer, which is a byte array
+	 */
+	static final long MAX_STREAMING_UPLOAD_PART_SIZE = 2047L * 1024 * 1024;
+
 	public static final String BACKEND_NAME = "aws-s3";
 
 	final S3ObsServices s3Services;
 
+	/**
+	 * Parallel lister of time frames, null if time frames are listed by walking
+	 * the whole bucket
+	 */
+	private final IntervalLister intervalLister;
+
 	S3ObsClient(final ObsConfigurationProperties configuration, final S3ObsServices s3Services, final ReportingProductFactory factory) {
+		this(configuration, s3Services, null, factory);
+	}
+
+	S3ObsClient(final ObsConfigurationProperties configuration, final S3ObsServices s3Services,
+			final IntervalLister intervalLister, final ReportingProductFactory factory) {
 		super(configuration, factory);
 		this.s3Services = s3Services;
+		this.intervalLister = intervalLister;
 	}
 	
+	/**
+	 * Stop the threads of the client, called when the application context is
+	 * closed
+	 */
+	public void shutdown() {
+		s3Services.shutdown();
+		if (intervalLister != null) {
+			intervalLister.shutdown();
+		}
+		getTransferScheduler().shutdown();
+	}
+
 	public boolean bucketExists(final ProductFamily family) throws ObsServiceException, S3SdkClientException {
 		return s3Services.bucketExist(getBucketFor(family));
 	}
@@ -207,6 +287,18 @@ public class S3ObsClient extends AbstractObsClient {
 		return res;
 	}
 
+	@Override
+	protected List<File> downloadObject(final ObsDownloadObject object, final ReportingFactory reportingFactory)
+			throws SdkClientException {
+		final String bucket = getBucketFor(object.getFamily());
+		LOGGER.debug("downloadObjectsWithPrefix from bucket {} with prefix {}", bucket, object.getKey());
+		final List<File> res = s3Services.downloadObjectsWithPrefix(bucket, object.getKey(), object.getTargetDir(),
+				object.isIgnoreFolders(), reportingFactory);
+		LOGGER.debug("downloadObjectsWithPrefix from bucket {} with prefix {} got {} results", bucket, object.getKey(),
+				res.size());
+		return res;
+	}
+
 	@Override
 	public void uploadObject(final FileObsUploadObject object)
 			throws SdkClientException, ObsException {
@@ -231,9 +323,11 @@ public class S3ObsClient extends AbstractObsClient {
 	 * If chunked encoding is not allowed the whole content has to be buffered in order to read the stream twice to calculate content hash
 	 * See S1PRO-1441 (S1SYS-724)
 	 * The awsClient however is able to handle this with {@link FileInputStream} input
+	 * Streaming uploads send each part from a buffer of known length and thus don't need this either
 	 */
 	private InputStream maybeWithBuffer(final StreamObsUploadObject object) throws ObsServiceException {
 		if (getConfiguration().getDisableChunkedEncoding() && 
+				!getConfiguration().isStreamingUpload() &&
 				!(object.getInput() instanceof FileInputStream) && // don't apply if product is in local filesystem
 				!(object.getInput() instanceof ByteArrayInputStream) // don't cache twice
 		) {
@@ -289,19 +383,59 @@ public class S3ObsClient extends AbstractObsClient {
 	public void delete(ObsObject object) throws ObsException, ObsServiceException {
 		ValidArgumentAssertion.assertValidArgument(object);
 		String bucket = getBucketFor(object.getFamily());
-		String keyPrefix = object.getKey();
 		try {
-			LOGGER.info("Deleting all files in bucket {} with prefix {}", bucket, keyPrefix);
-			final List<String> result = s3Services.getAllWithMD5(bucket, keyPrefix).stream().map(S3ObjectSummary::getKey)
-					.collect(Collectors.toList());
-			for (String key : result) {
-				LOGGER.debug("Deleting file {} in bucket {}", key, bucket);
-				s3Services.deleteFile(new DeleteObjectRequest(bucket, key));
-			}
-		} catch (S3SdkClientException | ObsServiceException e) {
+			s3Services.deleteObjects(bucket, keysToDelete(bucket, object));
+		} catch (S3SdkClientException e) {
 			throw new ObsException(object.getFamily(), object.getKey(), e);
 		}
 	}
+
+	/**
+	 * Lists the keys of the objects and deletes them in multi-object delete
+	 * requests, which are executed in parallel by the transfer scheduler
+	 */
+	@Override
+	public void delete(final List<ObsObject> objects) throws ObsException, ObsServiceException {
+		ValidArgumentAssertion.assertValidArgument(objects);
+		final BlockingQueue<Future<?>> completed = new LinkedBlockingQueue<>();
+		final List<Future<Void>> futures = new ArrayList<>();
+		final Map<ProductFamily, List<String>> pending = new EnumMap<>(ProductFamily.class);
+		try {
+			for (final ObsObject object : objects) {
+				final List<String> batch = pending.computeIfAbsent(object.getFamily(), f -> new ArrayList<>());
+				for (final String key : keysToDelete(getBucketFor(object.getFamily()), object)) {
+					batch.add(key);
+					if (batch.size() == S3ObsServices.MAX_DELETE_BATCH_SIZE) {
+						futures.add(submitDeletion(object.getFamily(), new ArrayList<>(batch), completed));
+						batch.clear();
+					}
+				}
+			}
+			for (final Map.Entry<ProductFamily, List<String>> batch : pending.entrySet()) {
+				if (!batch.getValue().isEmpty()) {
+					futures.add(submitDeletion(batch.getKey(), batch.getValue(), completed));
+				}
+			}
+		} catch (final RuntimeException e) {
+			futures.forEach(f -> f.cancel(true));
+			throw e;
+		}
+		waitForCompletionVoid(futures, completed, getConfiguration().getTimeoutUpExec());
+	}
+
+	private List<String> keysToDelete(final String bucket, final ObsObject object) {
+		LOGGER.info("Deleting all files in bucket {} with prefix {}", bucket, object.getKey());
+		return s3Services.getAllWithMD5(bucket, object.getKey()).stream().map(S3ObjectSummary::getKey)
+				.collect(Collectors.toList());
+	}
+
+	private Future<Void> submitDeletion(final ProductFamily family, final List<String> keys,
+			final BlockingQueue<Future<?>> completed) {
+		final String bucket = getBucketFor(family);
+		LOGGER.debug("Deleting {} files in bucket {}", keys.size(), bucket);
+		return getTransferScheduler().submit(family, 0L, VoidCallable.wrap(() -> s3Services.deleteObjects(bucket, keys)),
+				completed);
+	}
 	
 	public void createBucket(final ProductFamily family) throws ObsServiceException, S3SdkClientException {
 		s3Services.createBucket(getBucketFor(family));
@@ -360,6 +494,21 @@ public class S3ObsClient extends AbstractObsClient {
 		return objectsOfTimeFrame;
 	}
 
+	@Override
+	public Stream<ObsObject> streamInterval(final ProductFamily family, final Date timeFrameBegin,
+			final Date timeFrameEnd) throws SdkClientException {
+		ValidArgumentAssertion.assertValidArgument(family);
+		ValidArgumentAssertion.assertValidArgument(timeFrameBegin);
+		ValidArgumentAssertion.assertValidArgument(timeFrameEnd);
+		if (intervalLister == null) {
+			return getObsObjectsOfFamilyWithinTimeFrame(family, timeFrameBegin, timeFrameEnd).stream();
+		}
+		final String bucket = getBucketFor(family);
+		LOGGER.debug("streaming objects in OBS from bucket {} within last modification time {} to {}", bucket,
+				timeFrameBegin, timeFrameEnd);
+		return intervalLister.list(family, bucket, timeFrameBegin, timeFrameEnd);
+	}
+
 	@Override
 	public List<String> list(final ProductFamily family, final String keyPrefix) throws SdkClientException {
 		ValidArgumentAssertion.assertValidArgument(family);
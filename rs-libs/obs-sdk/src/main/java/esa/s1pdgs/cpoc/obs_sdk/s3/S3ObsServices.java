@@ -3,6 +3,7 @@ package esa.s1pdgs.cpoc.obs_sdk.s3;
 import static java.lang.String.format;
 
 import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
@@ -17,11 +18,21 @@ import java.nio.file.StandardCopyOption;
 import java.time.Instant;
 import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Collectors;
 
 import org.apache.commons.lang3.RandomStringUtils;
 import org.apache.logging.log4j.LogManager;
@@ -32,17 +43,27 @@ import com.amazonaws.AmazonServiceException;
 import com.amazonaws.HttpMethod;
 import com.amazonaws.event.ProgressEvent;
 import com.amazonaws.services.s3.AmazonS3;
+import com.amazonaws.services.s3.model.AbortMultipartUploadRequest;
 import com.amazonaws.services.s3.model.BucketLifecycleConfiguration;
+import com.amazonaws.services.s3.model.CompleteMultipartUploadRequest;
 import com.amazonaws.services.s3.model.CopyObjectRequest;
 import com.amazonaws.services.s3.model.DeleteObjectRequest;
+import com.amazonaws.services.s3.model.DeleteObjectsRequest;
 import com.amazonaws.services.s3.model.GeneratePresignedUrlRequest;
 import com.amazonaws.services.s3.model.GetBucketLifecycleConfigurationRequest;
 import com.amazonaws.services.s3.model.GetObjectRequest;
+import com.amazonaws.services.s3.model.InitiateMultipartUploadRequest;
+import com.amazonaws.services.s3.model.ListObjectsRequest;
+import com.amazonaws.services.s3.model.MultiObjectDeleteException;
+import com.amazonaws.services.s3.model.MultiObjectDeleteException.DeleteError;
 import com.amazonaws.services.s3.model.ObjectListing;
 import com.amazonaws.services.s3.model.ObjectMetadata;
+import com.amazonaws.services.s3.model.PartETag;
+import com.amazonaws.services.s3.model.PutObjectRequest;
 import com.amazonaws.services.s3.model.S3Object;
 import com.amazonaws.services.s3.model.S3ObjectSummary;
 import com.amazonaws.services.s3.model.SetBucketLifecycleConfigurationRequest;
+import com.amazonaws.services.s3.model.UploadPartRequest;
 import com.amazonaws.services.s3.transfer.TransferManager;
 import com.amazonaws.services.s3.transfer.Upload;
 import com.amazonaws.services.s3.transfer.model.UploadResult;
@@ -52,6 +73,7 @@ import esa.s1pdgs.cpoc.common.steps.UndoableStep;
 import esa.s1pdgs.cpoc.common.steps.UndoableStepsHandler;
 import esa.s1pdgs.cpoc.common.utils.Retries;
 import esa.s1pdgs.cpoc.obs_sdk.Md5;
+import esa.s1pdgs.cpoc.report.ReportingFactory;
 
 /**
  * Provides services to manage objects in the object storage wia the AmazonS3
@@ -87,6 +109,11 @@ public class S3ObsServices {
 	 */
 	private static final Logger LOGGER = LogManager.getLogger(S3ObsServices.class);
 
+	/**
+	 * Maximum number of keys of a single multi-object delete request
+	 */
+	public static final int MAX_DELETE_BATCH_SIZE = 1000;
+
 	/**
 	 * Amazon S3 client
 	 */
@@ -112,15 +139,70 @@ public class S3ObsServices {
 	 */
 	private final Path localFilesLocation;
 
+	/**
+	 * Part buffers for streaming multipart uploads, null if streams are staged in
+	 * localFilesLocation before upload
+	 */
+	private final UploadBufferPool streamingUploadBuffers;
+
+	/**
+	 * Executor uploading the parts of streaming multipart uploads
+	 */
+	private final ExecutorService partUploadExecutor;
+
+	/**
+	 * Downloader for concurrent ranged GET requests, null if each object is
+	 * downloaded with a single GET request
+	 */
+	private final RangedDownloader rangedDownloader;
+
 	/**
 	 */
 	public S3ObsServices(final AmazonS3 s3client, final TransferManager s3tm, final int numRetries,
 			final int retryDelay, final Path localFilesLocation) {
+		this(s3client, s3tm, numRetries, retryDelay, localFilesLocation, null);
+	}
+
+	/**
+	 * @param streamingUploadBuffers if not null, streams are uploaded as S3
+	 *                               multipart uploads directly from the given
+	 *                               buffers instead of being staged in
+	 *                               localFilesLocation
+	 */
+	public S3ObsServices(final AmazonS3 s3client, final TransferManager s3tm, final int numRetries,
+			final int retryDelay, final Path localFilesLocation, final UploadBufferPool streamingUploadBuffers) {
+		this(s3client, s3tm, numRetries, retryDelay, localFilesLocation, streamingUploadBuffers, null);
+	}
+
+	/**
+	 * @param rangedDownloader if not null, the objects of a prefix are downloaded
+	 *                         concurrently in byte ranges by the given downloader
+	 */
+	public S3ObsServices(final AmazonS3 s3client, final TransferManager s3tm, final int numRetries,
+			final int retryDelay, final Path localFilesLocation, final UploadBufferPool streamingUploadBuffers,
+			final RangedDownloader rangedDownloader) {
 		this.s3client = s3client;
 		this.s3tm = s3tm;
 		this.numRetries = numRetries;
 		this.retryDelay = retryDelay;
 		this.localFilesLocation = localFilesLocation;
+		this.streamingUploadBuffers = streamingUploadBuffers;
+		this.partUploadExecutor = streamingUploadBuffers == null ? null
+				: Executors.newFixedThreadPool(streamingUploadBuffers.getCapacity(), new PartUploadThreadFactory());
+		this.rangedDownloader = rangedDownloader;
+	}
+
+	/**
+	 * Stop the threads uploading the parts of streaming uploads and downloading
+	 * ranges
+	 */
+	public void shutdown() {
+		if (partUploadExecutor != null) {
+			partUploadExecutor.shutdownNow();
+		}
+		if (rangedDownloader != null) {
+			rangedDownloader.shutdown();
+		}
 	}
 
 	/**
@@ -205,6 +287,22 @@ public class S3ObsServices {
 	public List<File> downloadObjectsWithPrefix(final String bucketName, final String prefixKey,
 			final String directoryPath, final boolean ignoreFolders)
 			throws S3SdkClientException {
+		return downloadObjectsWithPrefix(bucketName, prefixKey, directoryPath, ignoreFolders, ReportingFactory.NULL);
+	}
+
+	/**
+	 * Download objects of the given bucket with a key matching the prefix. If
+	 * ranged downloads are enabled, the ranges are reported via the given
+	 * reportingFactory.
+	 * 
+	 */
+	public List<File> downloadObjectsWithPrefix(final String bucketName, final String prefixKey,
+			final String directoryPath, final boolean ignoreFolders, final ReportingFactory reportingFactory)
+			throws S3SdkClientException {
+		if (rangedDownloader != null) {
+			return downloadRangedObjectsWithPrefix(bucketName, prefixKey, directoryPath, ignoreFolders,
+					reportingFactory);
+		}
 		log(format("Downloading objects with prefix %s from bucket %s in %s", prefixKey, bucketName,
 				directoryPath));
 
@@ -278,6 +376,61 @@ public class S3ObsServices {
 		}
 	}
 
+	/**
+	 * Downloads the expected files of the prefix with the ranged downloader. In
+	 * contrast to the single GET download, only the listing and the failed ranges
+	 * are retried instead of the whole prefix.
+	 */
+	private List<File> downloadRangedObjectsWithPrefix(final String bucketName, final String prefixKey,
+			final String directoryPath, final boolean ignoreFolders, final ReportingFactory reportingFactory)
+			throws S3SdkClientException {
+		log(format("Downloading objects with prefix %s from bucket %s in %s with ranged requests", prefixKey,
+				bucketName, directoryPath));
+
+		final List<String> expectedFiles;
+		try {
+			expectedFiles = Retries.performWithRetries(
+					() -> getExpectedFiles(bucketName, prefixKey),
+					format("list expected files of %s/%s", bucketName, prefixKey),
+					numRetries,
+					retryDelay);
+		} catch (Exception e) {
+			throw new S3SdkClientException(bucketName, prefixKey,
+					format("Download in %s fails: %s", directoryPath, e.getMessage()), e);
+		}
+		log(format("Expected files for prefix %s is %s", prefixKey, String.join(", ", expectedFiles)));
+
+		String targetDir = directoryPath;
+		if (!targetDir.endsWith(File.separator)) {
+			targetDir += File.separator;
+		}
+
+		final Map<String, File> targets = new LinkedHashMap<>();
+		for (final String key : expectedFiles) {
+			// only download md5sum files if it has been explicitly asked for a md5sum file
+			if (!prefixKey.endsWith(Md5.MD5SUM_SUFFIX) && key.endsWith(Md5.MD5SUM_SUFFIX)) {
+				continue;
+			}
+			final String filename = ignoreFolders ? key.substring(key.lastIndexOf('/') + 1) : key;
+			final File localFile = new File(targetDir + filename);
+			try {
+				if (localFile.getParentFile() != null) {
+					Files.createDirectories(localFile.getParentFile().toPath());
+				}
+				Files.createFile(localFile.toPath());
+			} catch (final IOException ioe) {
+				throw new S3SdkClientException(bucketName, key, "File creation fails for " + localFile, ioe);
+			}
+			targets.put(key, localFile);
+		}
+
+		rangedDownloader.download(bucketName, targets, reportingFactory);
+
+		log(format("Download %d objects with prefix %s from bucket %s in %s succeeded", targets.size(), prefixKey,
+				bucketName, directoryPath));
+		return new ArrayList<>(targets.values());
+	}
+
 	List<String> getExpectedFiles(final String bucketName, final String prefixKey) throws S3ObsServiceException {
 
 		final String md5FileName = Md5.md5KeyFor(prefixKey);
@@ -427,6 +580,12 @@ public class S3ObsServices {
 		try {
 			final Md5SumCalculationHelper md5SumCalculationHelper = Md5SumCalculationHelper.createFor(in);
 
+			if (streamingUploadBuffers != null) {
+				final StreamingUploadStep streamingUploadStep = new StreamingUploadStep(this, md5SumCalculationHelper.getInputStream(), keyName, bucketName);
+				new UndoableStepsHandler(streamingUploadStep).perform();
+				return new Md5.Entry(md5SumCalculationHelper.getMd5Sum(), streamingUploadStep.eTag(), keyName);
+			}
+
 			final Path localFilePath = localFilePathFor(keyName);
 			final DownloadFileStep downloadFileStep = new DownloadFileStep(bucketName, keyName, localFilePath, md5SumCalculationHelper.getInputStream(), this);
 			final UploadFileStep uploadFileStep = new UploadFileStep(this, localFilePath.toFile(), keyName, bucketName);
@@ -519,6 +678,24 @@ public class S3ObsServices {
 		}
 	}
 
+	/**
+	 * Lists the objects of the request, e.g. with a prefix, marker or delimiter
+	 */
+	public ObjectListing listObjects(final ListObjectsRequest request) throws S3SdkClientException {
+		try {
+			log(format("Listing objects from bucket %s with prefix %s after %s", request.getBucketName(),
+					request.getPrefix(), request.getMarker()));
+			return Retries.performWithRetries(
+					() -> s3client.listObjects(request),
+					format("listing objects in %s/%s", request.getBucketName(), request.getPrefix()),
+					numRetries,
+					retryDelay);
+		} catch (Exception e) {
+			throw new S3SdkClientException(request.getBucketName(), request.getPrefix(),
+					format("Listing objects fails: %s", e.getMessage()), e);
+		}
+	}
+
 	/**
 	 */
 	public ObjectListing listNextBatchOfObjectsFromBucket(final String bucketName,
@@ -557,6 +734,60 @@ public class S3ObsServices {
 		}
 	}
 	
+	/**
+	 * Deletes the given keys with multi-object delete requests of at most
+	 * {@link #MAX_DELETE_BATCH_SIZE} keys. Only the keys S3 reported as not
+	 * deleted are retried.
+	 */
+	public void deleteObjects(final String bucketName, final List<String> keys) throws S3SdkClientException {
+		for (int i = 0; i < keys.size(); i += MAX_DELETE_BATCH_SIZE) {
+			deleteBatch(bucketName, keys.subList(i, Math.min(i + MAX_DELETE_BATCH_SIZE, keys.size())));
+		}
+	}
+
+	private void deleteBatch(final String bucketName, final List<String> keys) throws S3SdkClientException {
+		List<String> remaining = keys;
+		List<DeleteError> errors = Collections.emptyList();
+		for (int attempt = 0; attempt <= numRetries && !remaining.isEmpty(); attempt++) {
+			if (attempt > 0) {
+				LOGGER.warn("Error on deleting {} of {} objects in bucket {} ({}/{}), retrying in {}ms",
+						remaining.size(), keys.size(), bucketName, attempt, numRetries + 1, retryDelay);
+				try {
+					Thread.sleep(retryDelay);
+				} catch (final InterruptedException e) {
+					Thread.currentThread().interrupt();
+					throw new S3SdkClientException(bucketName, remaining.get(0), "Deletion of objects interrupted", e);
+				}
+			}
+			try {
+				s3client.deleteObjects(new DeleteObjectsRequest(bucketName)
+						.withKeys(remaining.toArray(new String[0]))
+						.withQuiet(true));
+				remaining = Collections.emptyList();
+			} catch (final MultiObjectDeleteException e) {
+				errors = e.getErrors();
+				remaining = errors.stream().map(DeleteError::getKey).collect(Collectors.toList());
+				for (final DeleteError error : errors) {
+					LOGGER.debug("Deletion of {}/{} fails: {} {}", bucketName, error.getKey(), error.getCode(),
+							error.getMessage());
+				}
+			} catch (final com.amazonaws.SdkClientException e) {
+				LOGGER.debug("Deletion of {} objects in bucket {} fails: {}", remaining.size(), bucketName,
+						e.getMessage());
+				if (attempt == numRetries) {
+					throw new S3SdkClientException(bucketName, remaining.get(0),
+							format("Deletion of %s objects fails: %s", remaining.size(), e.getMessage()), e);
+				}
+			}
+		}
+		if (!remaining.isEmpty()) {
+			throw new S3SdkClientException(bucketName, remaining.get(0),
+					format("Deletion of %s objects fails: %s", remaining.size(), errors.stream()
+							.map(e -> format("%s (%s: %s)", e.getKey(), e.getCode(), e.getMessage()))
+							.collect(Collectors.joining(", "))));
+		}
+	}
+
 	public void deleteFile(DeleteObjectRequest deleteObjectRequest) throws S3ObsServiceException, S3SdkClientException {
 		try {
 			Retries.performWithRetries(() -> {
@@ -704,6 +935,220 @@ public class S3ObsServices {
 		}
 	}
 
+	/**
+	 * Uploads a stream without staging it on local disk: fixed size parts are read
+	 * from the stream into buffers of the {@link UploadBufferPool} and uploaded as
+	 * parts of a S3 multipart upload in parallel. Reading blocks while all buffers
+	 * are in use, so memory stays bounded by the pool. Streams fitting into a
+	 * single part are uploaded with a plain put request.
+	 */
+	public static class StreamingUploadStep implements UndoableStep {
+
+		/**
+		 * Maximum number of parts of a S3 multipart upload
+		 */
+		static final int MAX_PARTS = 10000;
+
+		final S3ObsServices s3Services;
+		final InputStream in;
+		final String keyName;
+		final String bucketName;
+		final AtomicReference<Exception> partFailure = new AtomicReference<>();
+		String uploadId = null;
+		String eTag = null;
+		boolean completed = false;
+
+		public StreamingUploadStep(S3ObsServices s3Services, InputStream in, String keyName, String bucketName) {
+			this.s3Services = s3Services;
+			this.in = in;
+			this.keyName = keyName;
+			this.bucketName = bucketName;
+		}
+
+		@Override
+		public void perform() {
+			final UploadBufferPool buffers = s3Services.streamingUploadBuffers;
+			final List<Future<PartETag>> parts = new ArrayList<>();
+			byte[] buffer = null;
+			try {
+				s3Services.log(format("Uploading stream to object %s in bucket %s", keyName, bucketName));
+				buffer = buffers.acquire();
+				int length = readFully(in, buffer);
+
+				if (length < buffer.length) {
+					eTag = putObject(buffer, length);
+					completed = true;
+					return;
+				}
+
+				uploadId = Retries.performWithRetries(
+						() -> s3Services.s3client.initiateMultipartUpload(
+								new InitiateMultipartUploadRequest(bucketName, keyName)).getUploadId(),
+						format("initiate multipart upload to %s/%s", bucketName, keyName),
+						s3Services.numRetries,
+						s3Services.retryDelay);
+
+				int partNumber = 1;
+				while (length > 0) {
+					if (partNumber > MAX_PARTS) {
+						throw new S3ObsServiceException(bucketName, keyName,
+								format("Upload fails: stream exceeds %s parts of %s bytes", MAX_PARTS, buffer.length));
+					}
+					// the buffer is released by the part upload once it is submitted
+					parts.add(submitPart(partNumber++, buffer, length));
+					final boolean lastPart = length < buffer.length;
+					buffer = null;
+					if (lastPart) {
+						break;
+					}
+					buffer = buffers.acquire();
+					throwOnPartFailure();
+					length = readFully(in, buffer);
+				}
+
+				final List<PartETag> partETags = new ArrayList<>(parts.size());
+				for (final Future<PartETag> part : parts) {
+					partETags.add(part.get());
+				}
+				eTag = Retries.performWithRetries(
+						() -> s3Services.s3client.completeMultipartUpload(
+								new CompleteMultipartUploadRequest(bucketName, keyName, uploadId, partETags)).getETag(),
+						format("complete multipart upload to %s/%s", bucketName, keyName),
+						s3Services.numRetries,
+						s3Services.retryDelay);
+				completed = true;
+				s3Services.log(format("Upload object %s in bucket %s succeeded with %s parts", keyName, bucketName, parts.size()));
+			} catch (Exception e) {
+				awaitParts(parts);
+				abort();
+				if (e instanceof InterruptedException) {
+					Thread.currentThread().interrupt();
+				}
+				final Throwable cause = e instanceof ExecutionException ? e.getCause() : e;
+				throw new RuntimeException(cause.getMessage(), cause);
+			} finally {
+				if (buffer != null) {
+					buffers.release(buffer);
+				}
+			}
+		}
+
+		private String putObject(final byte[] buffer, final int length) throws InterruptedException {
+			final ObjectMetadata metadata = new ObjectMetadata();
+			metadata.setContentLength(length);
+			return Retries.performWithRetries(
+					() -> s3Services.s3client.putObject(new PutObjectRequest(bucketName, keyName,
+							new ByteArrayInputStream(buffer, 0, length), metadata)).getETag(),
+					format("upload to %s/%s", bucketName, keyName),
+					s3Services.numRetries,
+					s3Services.retryDelay);
+		}
+
+		private Future<PartETag> submitPart(final int partNumber, final byte[] buffer, final int length) {
+			return s3Services.partUploadExecutor.submit(() -> {
+				try {
+					LOGGER.trace(format("Uploading part %s (%s bytes) of object %s in bucket %s", partNumber,
+							length, keyName, bucketName));
+					return Retries.performWithRetries(
+							() -> s3Services.s3client.uploadPart(new UploadPartRequest()
+									.withBucketName(bucketName)
+									.withKey(keyName)
+									.withUploadId(uploadId)
+									.withPartNumber(partNumber)
+									.withPartSize(length)
+									.withInputStream(new ByteArrayInputStream(buffer, 0, length))).getPartETag(),
+							format("upload part %s to %s/%s", partNumber, bucketName, keyName),
+							s3Services.numRetries,
+							s3Services.retryDelay);
+				} catch (Exception e) {
+					partFailure.compareAndSet(null, e);
+					throw e;
+				} finally {
+					s3Services.streamingUploadBuffers.release(buffer);
+				}
+			});
+		}
+
+		private void throwOnPartFailure() throws Exception {
+			final Exception failure = partFailure.get();
+			if (failure != null) {
+				throw failure;
+			}
+		}
+
+		private void awaitParts(final List<Future<PartETag>> parts) {
+			// parts are not cancelled, as their buffers are released when they terminate
+			for (final Future<PartETag> part : parts) {
+				try {
+					part.get();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					return;
+				} catch (ExecutionException e) {
+					// already handled
+				}
+			}
+		}
+
+		private void abort() {
+			if (uploadId == null || completed) {
+				return;
+			}
+			try {
+				s3Services.log(format("Aborting multipart upload %s of object %s in bucket %s", uploadId, keyName, bucketName));
+				s3Services.s3client.abortMultipartUpload(new AbortMultipartUploadRequest(bucketName, keyName, uploadId));
+			} catch (Exception e) {
+				LOGGER.warn("could not abort multipart upload {} of s3://{}/{}: {}", uploadId, bucketName, keyName, e.getMessage());
+			}
+			uploadId = null;
+		}
+
+		static int readFully(final InputStream in, final byte[] buffer) throws IOException {
+			int length = 0;
+			while (length < buffer.length) {
+				final int read = in.read(buffer, length, buffer.length - length);
+				if (read < 0) {
+					break;
+				}
+				length += read;
+			}
+			return length;
+		}
+
+		@Override
+		public void undo() {
+			if (!completed) {
+				abort();
+				return;
+			}
+			try {
+				s3Services.deleteFile(new DeleteObjectRequest(bucketName, keyName));
+			} catch (S3ObsServiceException | S3SdkClientException e) {
+				throw new RuntimeException("could not delete s3://" + bucketName + "/" + keyName);
+			}
+		}
+
+		@Override
+		public String toString() {
+			return format("streaming upload to %s/%s", bucketName, keyName);
+		}
+
+		public String eTag() {
+			return eTag;
+		}
+	}
+
+	private static class PartUploadThreadFactory implements ThreadFactory {
+		private final AtomicInteger count = new AtomicInteger();
+
+		@Override
+		public Thread newThread(final Runnable runnable) {
+			final Thread thread = new Thread(runnable, "s3-part-upload-" + count.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		}
+	}
+
 	public static class DeleteFileStep implements UndoableStep {
 
 		private final Path filePath;
@@ -0,0 +1,53 @@
+package esa.s1pdgs.cpoc.obs_sdk.s3;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Bounded pool of reusable part buffers for streaming multipart uploads. The
+ * pool is shared between all concurrent uploads of a client, so the heap used
+ * for uploads never exceeds capacity * bufferSize. Buffers are allocated lazily
+ * and callers block on {@link #acquire()} until a buffer has been released by a
+ * finished part upload.
+ */
+public final class UploadBufferPool {
+	private final int bufferSize;
+	private final int capacity;
+	private final Semaphore permits;
+	private final Queue<byte[]> free = new ConcurrentLinkedQueue<>();
+
+	public UploadBufferPool(final int bufferSize, final int capacity) {
+		if (bufferSize <= 0 || capacity <= 0) {
+			throw new IllegalArgumentException(
+					String.format("invalid upload buffer pool size %s x %s", capacity, bufferSize));
+		}
+		this.bufferSize = bufferSize;
+		this.capacity = capacity;
+		this.permits = new Semaphore(capacity, true);
+	}
+
+	public byte[] acquire() throws InterruptedException {
+		permits.acquire();
+		final byte[] buffer = free.poll();
+		return buffer != null ? buffer : new byte[bufferSize];
+	}
+
+	public void release(final byte[] buffer) {
+		free.offer(buffer);
+		permits.release();
+	}
+
+	public int getBufferSize() {
+		return bufferSize;
+	}
+
+	public int getCapacity() {
+		return capacity;
+	}
+
+	@Override
+	public String toString() {
+		return "UploadBufferPool [bufferSize=" + bufferSize + ", capacity=" + capacity + "]";
+	}
+}
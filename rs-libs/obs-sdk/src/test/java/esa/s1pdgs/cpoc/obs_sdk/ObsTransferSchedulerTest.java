@@ -0,0 +1,112 @@
+package esa.s1pdgs.cpoc.obs_sdk;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Test;
+
+import esa.s1pdgs.cpoc.common.ProductFamily;
+
+public class ObsTransferSchedulerTest {
+
+	private final ObsTransferScheduler uut = new ObsTransferScheduler(1);
+
+	private final BlockingQueue<Future<?>> completed = new LinkedBlockingQueue<>();
+
+	private final List<String> executed = Collections.synchronizedList(new ArrayList<>());
+
+	@After
+	public void shutdown() {
+		uut.shutdown();
+	}
+
+	@Test
+	public void testPriorityOf() {
+		assertEquals(ObsTransferScheduler.Priority.LOW, ObsTransferScheduler.priorityOf(ProductFamily.AUXILIARY_FILE));
+		assertEquals(ObsTransferScheduler.Priority.LOW, ObsTransferScheduler.priorityOf(ProductFamily.S3_AUX));
+		assertEquals(ObsTransferScheduler.Priority.NORMAL, ObsTransferScheduler.priorityOf(ProductFamily.EDRS_SESSION));
+	}
+
+	@Test
+	public void testAuxiliaryFilesAreTransferredLast() throws Exception {
+		final CountDownLatch blocker = block();
+
+		submit(ProductFamily.AUXILIARY_FILE, "aux1");
+		submit(ProductFamily.L0_SLICE, "slice1");
+		submit(ProductFamily.AUXILIARY_FILE, "aux2");
+		submit(ProductFamily.L0_SLICE, "slice2");
+		assertEquals(4, uut.getQueueDepth());
+
+		blocker.countDown();
+		awaitCompletion(5);
+
+		assertEquals(Arrays.asList("slice1", "slice2", "aux1", "aux2"), executed);
+	}
+
+	@Test
+	public void testFamiliesAreServedFair() throws Exception {
+		final CountDownLatch blocker = block();
+
+		submit(ProductFamily.L0_SLICE, "slice1");
+		submit(ProductFamily.L0_SLICE, "slice2");
+		submit(ProductFamily.L0_SLICE, "slice3");
+		submit(ProductFamily.EDRS_SESSION, "raw1");
+		submit(ProductFamily.EDRS_SESSION, "raw2");
+
+		blocker.countDown();
+		awaitCompletion(6);
+
+		assertEquals(Arrays.asList("slice1", "raw1", "slice2", "raw2", "slice3"), executed);
+	}
+
+	@Test
+	public void testInFlightBytes() throws Exception {
+		final CountDownLatch started = new CountDownLatch(1);
+		final CountDownLatch blocker = new CountDownLatch(1);
+		uut.submit(ProductFamily.L0_SLICE, 42L, () -> {
+			started.countDown();
+			blocker.await();
+			return null;
+		}, completed);
+
+		started.await(5, TimeUnit.SECONDS);
+		assertEquals(42L, uut.getInFlightBytes());
+		assertEquals(1, uut.getActiveTransfers());
+
+		blocker.countDown();
+		awaitCompletion(1);
+		assertEquals(0L, uut.getInFlightBytes());
+	}
+
+	private CountDownLatch block() throws InterruptedException {
+		final CountDownLatch started = new CountDownLatch(1);
+		final CountDownLatch blocker = new CountDownLatch(1);
+		uut.submit(ProductFamily.BLANK, 0L, () -> {
+			started.countDown();
+			blocker.await();
+			return null;
+		}, completed);
+		started.await(5, TimeUnit.SECONDS);
+		return blocker;
+	}
+
+	private void submit(final ProductFamily family, final String name) {
+		uut.submit(family, 0L, () -> executed.add(name), completed);
+	}
+
+	private void awaitCompletion(final int count) throws Exception {
+		for (int i = 0; i < count; i++) {
+			completed.poll(5, TimeUnit.SECONDS).get();
+		}
+	}
+}
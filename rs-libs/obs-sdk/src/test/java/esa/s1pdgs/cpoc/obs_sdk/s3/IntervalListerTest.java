@@ -0,0 +1,138 @@
+package esa.s1pdgs.cpoc.obs_sdk.s3;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import com.amazonaws.services.s3.model.ListObjectsRequest;
+import com.amazonaws.services.s3.model.ObjectListing;
+import com.amazonaws.services.s3.model.S3ObjectSummary;
+
+import esa.s1pdgs.cpoc.common.ProductFamily;
+import esa.s1pdgs.cpoc.obs_sdk.ObsObject;
+
+public class IntervalListerTest {
+
+    private static final Date BEGIN = Date.from(Instant.parse("2020-01-01T00:00:00Z"));
+    private static final Date END = Date.from(Instant.parse("2020-01-03T00:00:00Z"));
+    private static final Date WITHIN = Date.from(Instant.parse("2020-01-02T00:00:00Z"));
+    private static final Date AFTER = Date.from(Instant.parse("2020-01-04T00:00:00Z"));
+    private static final Date LATER = Date.from(Instant.parse("2020-01-05T00:00:00Z"));
+
+    @Mock
+    private S3ObsServices s3Services;
+
+    private final Map<String, String> markers = new ConcurrentHashMap<>();
+
+    private final List<S3ObjectSummary> s1a = new CopyOnWriteArrayList<>(Arrays.asList(summary("S1A_1", WITHIN),
+            summary("S1A_2", AFTER), summary("S1A_3.md5sum", WITHIN)));
+
+    private IntervalLister uut;
+
+    @Before
+    public void init() throws Exception {
+        MockitoAnnotations.initMocks(this);
+        doAnswer(i -> {
+            final ListObjectsRequest request = i.getArgument(0);
+            if (request.getDelimiter() != null) {
+                return listing(Arrays.asList("S1A_", "S1B_"), summary("S1", WITHIN));
+            }
+            markers.put(request.getPrefix(), String.valueOf(request.getMarker()));
+            if (request.getPrefix().equals("S1A_")) {
+                return listing(Collections.emptyList(), s1a.toArray(new S3ObjectSummary[0]));
+            }
+            return listing(Collections.emptyList(), summary("S1B_1", WITHIN));
+        }).when(s3Services).listObjects(any(ListObjectsRequest.class));
+    }
+
+    @After
+    public void shutdown() {
+        uut.shutdown();
+    }
+
+    @Test
+    public void testListPrefixesInParallel() {
+        uut = new IntervalLister(s3Services, "_", 1, 2);
+
+        assertEquals(Arrays.asList("S1", "S1A_1", "S1B_1"), list());
+    }
+
+    @Test
+    public void testNewObjectSortingBeforeListedKeysListed() {
+        uut = new IntervalLister(s3Services, "_", 1, 2);
+        assertEquals(Arrays.asList("S1", "S1A_1", "S1B_1"), list());
+
+        // the product class comes before the date, so a new key can sort before the listed ones
+        s1a.add(0, summary("S1A_0", AFTER));
+        final List<String> later = new ArrayList<>();
+        try (Stream<ObsObject> objects = uut.list(ProductFamily.L0_SLICE, "bucket", END, LATER)) {
+            objects.map(ObsObject::getKey).sorted().forEach(later::add);
+        }
+        assertEquals(Arrays.asList("S1A_0", "S1A_2"), later);
+        assertEquals("null", markers.get("S1A_"));
+    }
+
+    @Test
+    public void testFailure() throws Exception {
+        doThrow(new S3SdkClientException("bucket", "", "expected")).when(s3Services)
+                .listObjects(any(ListObjectsRequest.class));
+        uut = new IntervalLister(s3Services, "_", 1, 2);
+
+        final IllegalStateException exception = assertThrows(IllegalStateException.class, this::list);
+        assertEquals(S3SdkClientException.class, exception.getCause().getClass());
+    }
+
+    @Test(timeout = 30000)
+    public void testAbandonedListingReleasesThreads() throws Exception {
+        uut = new IntervalLister(s3Services, "_", 1, 2, 1, 100);
+
+        // never consumed nor closed, its listing threads wait for the consumer
+        final Stream<ObsObject> abandoned = uut.list(ProductFamily.L0_SLICE, "bucket", BEGIN, END);
+        Thread.sleep(200);
+
+        // the threads are released for the next listings
+        assertEquals(Arrays.asList("S1", "S1A_1", "S1B_1"), list());
+        assertThrows(IllegalStateException.class, () -> abandoned.count());
+    }
+
+    private List<String> list() {
+        try (Stream<ObsObject> objects = uut.list(ProductFamily.L0_SLICE, "bucket", BEGIN, END)) {
+            return objects.map(ObsObject::getKey).sorted().collect(Collectors.toList());
+        }
+    }
+
+    private static ObjectListing listing(final List<String> commonPrefixes, final S3ObjectSummary... summaries) {
+        final ObjectListing listing = new ObjectListing();
+        listing.setCommonPrefixes(commonPrefixes);
+        listing.getObjectSummaries().addAll(Arrays.asList(summaries));
+        listing.setTruncated(false);
+        return listing;
+    }
+
+    private static S3ObjectSummary summary(final String key, final Date lastModified) {
+        final S3ObjectSummary summary = new S3ObjectSummary();
+        summary.setKey(key);
+        summary.setLastModified(lastModified);
+        return summary;
+    }
+}
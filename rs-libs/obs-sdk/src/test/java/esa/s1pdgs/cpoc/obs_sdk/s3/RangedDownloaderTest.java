@@ -0,0 +1,116 @@
+package esa.s1pdgs.cpoc.obs_sdk.s3;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import com.amazonaws.AmazonClientException;
+import com.amazonaws.services.s3.AmazonS3;
+import com.amazonaws.services.s3.model.GetObjectRequest;
+import com.amazonaws.services.s3.model.ObjectMetadata;
+import com.amazonaws.services.s3.model.S3Object;
+
+import esa.s1pdgs.cpoc.report.ReportingFactory;
+
+public class RangedDownloaderTest {
+
+    private static final byte[] CONTENT = "0123456789".getBytes(StandardCharsets.UTF_8);
+
+    @Rule
+    public TemporaryFolder tmp = new TemporaryFolder();
+
+    @Mock
+    private AmazonS3 s3client;
+
+    private RangedDownloader uut;
+
+    @Before
+    public void init() {
+        MockitoAnnotations.initMocks(this);
+
+        final ObjectMetadata metadata = new ObjectMetadata();
+        metadata.setContentLength(CONTENT.length);
+        doReturn(metadata).when(s3client).getObjectMetadata(anyString(), anyString());
+
+        uut = new RangedDownloader(s3client, 4, 2, 1, 0);
+    }
+
+    @After
+    public void shutdown() {
+        uut.shutdown();
+    }
+
+    @Test
+    public void testDownloadInRanges() throws Exception {
+        doAnswer(i -> rangeOf(i.getArgument(0))).when(s3client).getObject(any(GetObjectRequest.class));
+
+        final File file = tmp.newFile();
+        uut.download("bucket", Collections.singletonMap("key", file), ReportingFactory.NULL);
+
+        assertArrayEquals(CONTENT, Files.readAllBytes(file.toPath()));
+        verify(s3client, times(3)).getObject(any(GetObjectRequest.class));
+    }
+
+    @Test
+    public void testRetryFailedRangeOnly() throws Exception {
+        final AtomicBoolean failed = new AtomicBoolean();
+        doAnswer(i -> {
+            final GetObjectRequest request = i.getArgument(0);
+            if (request.getRange()[0] == 4 && failed.compareAndSet(false, true)) {
+                throw new AmazonClientException("expected");
+            }
+            return rangeOf(request);
+        }).when(s3client).getObject(any(GetObjectRequest.class));
+
+        final File file = tmp.newFile();
+        uut.download("bucket", Collections.singletonMap("key", file), ReportingFactory.NULL);
+
+        assertArrayEquals(CONTENT, Files.readAllBytes(file.toPath()));
+        verify(s3client, times(4)).getObject(any(GetObjectRequest.class));
+    }
+
+    @Test
+    public void testTruncatedRange() throws Exception {
+        doAnswer(i -> {
+            final GetObjectRequest request = i.getArgument(0);
+            final S3Object object = new S3Object();
+            object.setObjectContent(new ByteArrayInputStream(CONTENT, (int) request.getRange()[0], 1));
+            return object;
+        }).when(s3client).getObject(any(GetObjectRequest.class));
+
+        final File file = tmp.newFile();
+        final S3SdkClientException exception = assertThrows(S3SdkClientException.class,
+                () -> uut.download("bucket", Collections.singletonMap("key", file), ReportingFactory.NULL));
+        assertEquals("key", exception.getKey());
+    }
+
+    private static S3Object rangeOf(final GetObjectRequest request) {
+        final long[] range = request.getRange();
+        final S3Object object = new S3Object();
+        object.setObjectContent(
+                new ByteArrayInputStream(Arrays.copyOfRange(CONTENT, (int) range[0], (int) range[1] + 1)));
+        return object;
+    }
+}
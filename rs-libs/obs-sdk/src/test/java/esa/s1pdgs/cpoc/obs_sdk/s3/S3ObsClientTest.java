@@ -427,4 +427,22 @@ public class S3ObsClientTest {
         assertThatThrownBy(() -> client.getAsStream(ProductFamily.AUXILIARY_FILE, "")).isInstanceOf(IllegalArgumentException.class).hasMessageContaining("Invalid prefix (empty)");
     }
 
+    @Test
+    public void testStreamingUploadPartSizeValidated() {
+        final ObsConfigurationProperties config = new ObsConfigurationProperties();
+        assertEquals(null, S3ObsClient.Factory.streamingUploadBuffersFor(config));
+
+        config.setStreamingUpload(true);
+        config.setStreamingUploadPartSizeMb(5);
+        assertEquals(5 * 1024 * 1024, S3ObsClient.Factory.streamingUploadBuffersFor(config).getBufferSize());
+
+        config.setStreamingUploadPartSizeMb(4);
+        assertThatThrownBy(() -> S3ObsClient.Factory.streamingUploadBuffersFor(config))
+                .isInstanceOf(IllegalArgumentException.class).hasMessageContaining("part size 4 MB");
+        // larger than an int in bytes
+        config.setStreamingUploadPartSizeMb(4096);
+        assertThatThrownBy(() -> S3ObsClient.Factory.streamingUploadBuffersFor(config))
+                .isInstanceOf(IllegalArgumentException.class).hasMessageContaining("part size 4096 MB");
+    }
+
 }
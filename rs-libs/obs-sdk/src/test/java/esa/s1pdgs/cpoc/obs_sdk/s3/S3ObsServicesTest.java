@@ -17,30 +17,49 @@ import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 
+import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.stream.Collectors;
 
+import org.apache.commons.codec.digest.DigestUtils;
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.ExpectedException;
 import org.junit.rules.TemporaryFolder;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.Mockito;
 import org.mockito.MockitoAnnotations;
 
 import com.amazonaws.AmazonClientException;
 import com.amazonaws.services.s3.AmazonS3;
+import com.amazonaws.services.s3.model.AbortMultipartUploadRequest;
+import com.amazonaws.services.s3.model.CompleteMultipartUploadRequest;
+import com.amazonaws.services.s3.model.CompleteMultipartUploadResult;
+import com.amazonaws.services.s3.model.DeleteObjectsRequest;
+import com.amazonaws.services.s3.model.DeleteObjectsRequest.KeyVersion;
 import com.amazonaws.services.s3.model.GetObjectRequest;
+import com.amazonaws.services.s3.model.InitiateMultipartUploadRequest;
+import com.amazonaws.services.s3.model.InitiateMultipartUploadResult;
+import com.amazonaws.services.s3.model.MultiObjectDeleteException;
+import com.amazonaws.services.s3.model.MultiObjectDeleteException.DeleteError;
 import com.amazonaws.services.s3.model.ObjectListing;
 import com.amazonaws.services.s3.model.ObjectMetadata;
+import com.amazonaws.services.s3.model.PutObjectRequest;
+import com.amazonaws.services.s3.model.PutObjectResult;
 import com.amazonaws.services.s3.model.S3ObjectSummary;
+import com.amazonaws.services.s3.model.UploadPartRequest;
+import com.amazonaws.services.s3.model.UploadPartResult;
 import com.amazonaws.services.s3.transfer.TransferManager;
 import com.amazonaws.services.s3.transfer.Upload;
 import com.amazonaws.services.s3.transfer.model.UploadResult;
@@ -568,6 +587,70 @@ public class S3ObsServicesTest {
         }
     }
 
+    @Test
+    public void testUploadStreamStreamingSinglePart() throws Exception {
+        final S3ObsServices streamingService = new S3ObsServices(s3client, s3tm, 0, 0, tmp.newFolder().toPath(),
+                new UploadBufferPool(16, 2));
+        final PutObjectResult putResult = new PutObjectResult();
+        putResult.setETag("etag");
+        doReturn(putResult).when(s3client).putObject(any(PutObjectRequest.class));
+
+        final byte[] content = "0123456789".getBytes(StandardCharsets.UTF_8);
+        final Md5.Entry entry = streamingService.uploadStream(BCK_OBJ_EXIST, "key-test", new ByteArrayInputStream(content));
+
+        assertEquals(DigestUtils.md5Hex(content), entry.getMd5Hash());
+        assertEquals("etag", entry.getETag());
+        verify(s3client, times(1)).putObject(any(PutObjectRequest.class));
+        verify(s3client, never()).initiateMultipartUpload(any(InitiateMultipartUploadRequest.class));
+        verify(s3tm, never()).upload(anyString(), anyString(), any(File.class));
+    }
+
+    @Test
+    public void testUploadStreamStreamingMultipart() throws Exception {
+        final S3ObsServices streamingService = new S3ObsServices(s3client, s3tm, 0, 0, tmp.newFolder().toPath(),
+                new UploadBufferPool(4, 2));
+        final InitiateMultipartUploadResult initResult = new InitiateMultipartUploadResult();
+        initResult.setUploadId("upload-id");
+        doReturn(initResult).when(s3client).initiateMultipartUpload(any(InitiateMultipartUploadRequest.class));
+        final UploadPartResult partResult = new UploadPartResult();
+        partResult.setPartNumber(1);
+        partResult.setETag("part-etag");
+        doReturn(partResult).when(s3client).uploadPart(any(UploadPartRequest.class));
+        final CompleteMultipartUploadResult completeResult = new CompleteMultipartUploadResult();
+        completeResult.setETag("etag-3");
+        doReturn(completeResult).when(s3client).completeMultipartUpload(any(CompleteMultipartUploadRequest.class));
+
+        final byte[] content = "0123456789".getBytes(StandardCharsets.UTF_8);
+        final Md5.Entry entry = streamingService.uploadStream(BCK_OBJ_EXIST, "key-test", new ByteArrayInputStream(content));
+
+        assertEquals(DigestUtils.md5Hex(content), entry.getMd5Hash());
+        assertEquals("etag-3", entry.getETag());
+        verify(s3client, times(3)).uploadPart(any(UploadPartRequest.class));
+        verify(s3client, times(1)).completeMultipartUpload(any(CompleteMultipartUploadRequest.class));
+        verify(s3client, never()).abortMultipartUpload(any(AbortMultipartUploadRequest.class));
+    }
+
+    @Test
+    public void testUploadStreamStreamingMultipartAbortsOnFailure() throws Exception {
+        final S3ObsServices streamingService = new S3ObsServices(s3client, s3tm, 0, 0, tmp.newFolder().toPath(),
+                new UploadBufferPool(4, 2));
+        final InitiateMultipartUploadResult initResult = new InitiateMultipartUploadResult();
+        initResult.setUploadId("upload-id");
+        doReturn(initResult).when(s3client).initiateMultipartUpload(any(InitiateMultipartUploadRequest.class));
+        doThrow(new com.amazonaws.SdkClientException("amazon SDK exception"))
+                .when(s3client).uploadPart(any(UploadPartRequest.class));
+
+        final byte[] content = "0123456789".getBytes(StandardCharsets.UTF_8);
+        final S3SdkClientException exception = assertThrows(
+                S3SdkClientException.class,
+                () -> streamingService.uploadStream(BCK_OBJ_EXIST, "key-test", new ByteArrayInputStream(content)));
+
+        assertThat(exception.getBucket(), is(BCK_OBJ_EXIST));
+        assertThat(exception.getKey(), is("key-test"));
+        verify(s3client, times(1)).abortMultipartUpload(any(AbortMultipartUploadRequest.class));
+        verify(s3client, never()).completeMultipartUpload(any(CompleteMultipartUploadRequest.class));
+    }
+
     @Test
 	public void testReadMd5StreamAndGetFiles_OneFile_1() throws IOException {
 
@@ -625,4 +708,58 @@ public class S3ObsServicesTest {
 		}
 		
 	}
+
+    @Test
+    public void testDeleteObjectsInBatches() throws Exception {
+        final S3ObsServices deletingService = new S3ObsServices(s3client, s3tm, 0, 0, tmp.newFolder().toPath());
+        final List<String> keys = new ArrayList<>();
+        for (int i = 0; i < S3ObsServices.MAX_DELETE_BATCH_SIZE + 1; i++) {
+            keys.add("key" + i);
+        }
+
+        deletingService.deleteObjects("bucket", keys);
+
+        final ArgumentCaptor<DeleteObjectsRequest> requests = ArgumentCaptor.forClass(DeleteObjectsRequest.class);
+        verify(s3client, times(2)).deleteObjects(requests.capture());
+        assertEquals(S3ObsServices.MAX_DELETE_BATCH_SIZE, requests.getAllValues().get(0).getKeys().size());
+        assertEquals(1, requests.getAllValues().get(1).getKeys().size());
+    }
+
+    @Test
+    public void testDeleteObjectsRetriesFailedKeysOnly() throws Exception {
+        final S3ObsServices deletingService = new S3ObsServices(s3client, s3tm, 1, 0, tmp.newFolder().toPath());
+        final DeleteError error = new DeleteError();
+        error.setKey("key2");
+        error.setCode("InternalError");
+        final List<List<String>> requestedKeys = new ArrayList<>();
+        Mockito.doAnswer(i -> {
+            final DeleteObjectsRequest request = i.getArgument(0);
+            requestedKeys.add(request.getKeys().stream().map(KeyVersion::getKey).collect(Collectors.toList()));
+            if (requestedKeys.size() == 1) {
+                throw new MultiObjectDeleteException(Collections.singletonList(error), Collections.emptyList());
+            }
+            return null;
+        }).when(s3client).deleteObjects(any(DeleteObjectsRequest.class));
+
+        deletingService.deleteObjects("bucket", Arrays.asList("key1", "key2", "key3"));
+
+        assertEquals(Arrays.asList(Arrays.asList("key1", "key2", "key3"), Collections.singletonList("key2")),
+                requestedKeys);
+    }
+
+    @Test
+    public void testDeleteObjectsReportsFailedKeys() throws Exception {
+        final S3ObsServices deletingService = new S3ObsServices(s3client, s3tm, 1, 0, tmp.newFolder().toPath());
+        final DeleteError error = new DeleteError();
+        error.setKey("key2");
+        error.setCode("AccessDenied");
+        doThrow(new MultiObjectDeleteException(Collections.singletonList(error), Collections.emptyList()))
+                .when(s3client).deleteObjects(any(DeleteObjectsRequest.class));
+
+        final S3SdkClientException exception = assertThrows(S3SdkClientException.class,
+                () -> deletingService.deleteObjects("bucket", Arrays.asList("key1", "key2")));
+        assertEquals("key2", exception.getKey());
+        assertTrue(exception.getMessage().contains("AccessDenied"));
+        verify(s3client, times(2)).deleteObjects(any(DeleteObjectsRequest.class));
+    }
 }